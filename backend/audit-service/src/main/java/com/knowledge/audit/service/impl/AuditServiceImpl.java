@@ -451,6 +451,17 @@ public class AuditServiceImpl implements AuditService {
         log.info("删除知识关联的审核记录: knowledgeId={}", knowledgeId);
     }
 
+    @Override
+    @Transactional
+    public void deleteByKnowledgeIds(List<Long> knowledgeIds) {
+        if (knowledgeIds == null || knowledgeIds.isEmpty()) return;
+
+        LambdaQueryWrapper<Audit> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(Audit::getKnowledgeId, knowledgeIds);
+        int count = auditMapper.delete(wrapper);
+        log.info("批量删除知识关联的审核记录: knowledgeCount={}, count={}", knowledgeIds.size(), count);
+    }
+
     @Override
     @Transactional
     public void deleteByKnowledgeIdAndVersionGt(Long knowledgeId, Long version) {
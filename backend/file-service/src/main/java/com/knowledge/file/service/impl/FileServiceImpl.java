@@ -29,8 +29,10 @@ import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -535,6 +537,22 @@ public class FileServiceImpl implements FileService {
         }).collect(Collectors.toList());
     }
 
+    @Override
+    public List<FileDTO> getFilesByIds(List<Long> fileIds) {
+        if (fileIds == null || fileIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> distinctIds = fileIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (distinctIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return fileInfoMapper.selectBatchIds(distinctIds).stream().map(fileInfo -> {
+            FileDTO fileDTO = new FileDTO();
+            BeanUtils.copyProperties(fileInfo, fileDTO);
+            return fileDTO;
+        }).collect(Collectors.toList());
+    }
+
     @Override
     public boolean deleteFile(Long fileId) {
         FileInfo fileInfo = fileInfoMapper.selectById(fileId);
@@ -551,6 +569,29 @@ public class FileServiceImpl implements FileService {
         return false;
     }
 
+    @Override
+    public List<Long> deleteFiles(List<Long> fileIds) {
+        List<Long> failed = new ArrayList<>();
+        if (fileIds == null || fileIds.isEmpty()) {
+            return failed;
+        }
+        List<Long> deleted = new ArrayList<>();
+        for (FileInfo fileInfo : fileInfoMapper.selectBatchIds(fileIds)) {
+            try {
+                Files.deleteIfExists(Paths.get(fileInfo.getFilePath()));
+                deleted.add(fileInfo.getId());
+            } catch (IOException e) {
+                log.error("删除文件失败: fileId={}", fileInfo.getId(), e);
+                failed.add(fileInfo.getId());
+            }
+        }
+        if (!deleted.isEmpty()) {
+            fileInfoMapper.deleteBatchIds(deleted);
+        }
+        log.info("批量删除文件: requested={}, deleted={}, failed={}", fileIds.size(), deleted.size(), failed.size());
+        return failed;
+    }
+
     @Override
     public String getFilePreviewUrl(Long fileId) {
         FileInfo fileInfo = fileInfoMapper.selectById(fileId);
@@ -574,9 +615,14 @@ public class FileServiceImpl implements FileService {
         FileInfo fileInfo = fileInfoMapper.selectById(fileId);
         if (fileInfo != null) {
             fileInfo.setFileSize(newSize);
+            // 文件被原地覆盖保存，重新计算内容哈希，保证以哈希为键的缓存（如提取文本）不会读到旧内容
+            File file = new File(fileInfo.getFilePath());
+            if (file.exists()) {
+                fileInfo.setFileHash(DigestUtil.sha256Hex(file));
+            }
             fileInfo.setUpdateTime(LocalDateTime.now());
             fileInfoMapper.updateById(fileInfo);
-            log.info("更新文件大小: fileId={}, newSize={}", fileId, newSize);
+            log.info("更新文件大小: fileId={}, newSize={}, fileHash={}", fileId, newSize, fileInfo.getFileHash());
             return true;
         }
         return false;
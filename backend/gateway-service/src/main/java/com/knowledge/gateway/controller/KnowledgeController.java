@@ -116,18 +116,19 @@ public class KnowledgeController {
         return Result.success(result);
     }
 
+    /**
+     * 分页查询知识列表：useCursor=true 开启游标分页，之后的页传入上一页的 nextCursor；countMode 控制是否返回总数
+     */
+    @GetMapping("/list/page")
+    public Result<KnowledgePageDTO> listKnowledgePage(KnowledgeQueryDTO queryDTO) {
+        KnowledgePageDTO result = knowledgeService.listKnowledgePage(queryDTO);
+        return Result.success(result);
+    }
+
     @DeleteMapping("/{id:\\d+}")
     public Result<Boolean> deleteKnowledge(@PathVariable Long id) {
+        // 索引由 knowledge-service 写入发件箱后异步同步
         boolean result = knowledgeService.deleteKnowledge(id);
-        // 从ElasticSearch删除索引
-        if (result) {
-            try {
-                searchService.deleteIndex(id);
-            } catch (Exception e) {
-                // 删除索引失败不影响主流程，只记录日志
-                System.err.println("删除索引失败: " + e.getMessage());
-            }
-        }
         return Result.success(result);
     }
 
@@ -252,6 +253,11 @@ public class KnowledgeController {
             Boolean.TRUE.equals(knowledge.getHasDraft())) {
             // 创建审核记录（带版本号）
             AuditDTO auditDTO = auditService.submitForAudit(id, currentVersion, userId);
+            try {
+                knowledgeService.prewarmAuditDiff(id, currentVersion);
+            } catch (Exception e) {
+                log.warn("预热版本对比失败: knowledgeId={}, error={}", id, e.getMessage());
+            }
             // 确保知识状态正确
             if (!Constants.FILE_STATUS_PENDING.equals(knowledge.getStatus()) 
                 && !Constants.FILE_STATUS_APPROVED.equals(knowledge.getStatus())) {
@@ -284,6 +290,29 @@ public class KnowledgeController {
         }
     }
 
+    @PostMapping("/batch/update/async")
+    public Result<BatchJobStatusDTO> submitBatchUpdate(@RequestBody BatchUpdateRequest request) {
+        try {
+            BatchJobStatusDTO result = knowledgeService.submitBatchUpdate(
+                request.getKnowledgeIds(),
+                request.getUpdateData()
+            );
+            return Result.success(result);
+        } catch (Exception e) {
+            log.error("提交批量更新任务失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/batch/update/{jobId}")
+    public Result<BatchJobStatusDTO> getBatchUpdateStatus(@PathVariable String jobId) {
+        BatchJobStatusDTO result = knowledgeService.getBatchUpdateStatus(jobId);
+        if (result == null) {
+            return Result.error("批量更新任务不存在或已过期");
+        }
+        return Result.success(result);
+    }
+
     @GetMapping("/tree")
     public Result<List<KnowledgeDTO>> getKnowledgeTree() {
         List<KnowledgeDTO> result = knowledgeService.getKnowledgeTree();
@@ -403,6 +432,19 @@ public class KnowledgeController {
         return Result.success(result);
     }
 
+    /**
+     * 版本历史侧栏：分页的版本摘要，不含正文
+     */
+    @GetMapping("/{id:\\d+}/versions/page")
+    public Result<KnowledgeVersionPageDTO> getKnowledgeVersionPage(
+            @PathVariable Long id,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false, defaultValue = "false") boolean isAdmin,
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "20") Integer pageSize) {
+        return Result.success(knowledgeService.getKnowledgeVersionPage(id, username, isAdmin, pageNum, pageSize));
+    }
+
     @GetMapping("/{id:\\d+}/versions/{version:\\d+}")
     public Result<KnowledgeVersionDTO> getKnowledgeVersion(
             @PathVariable Long id, 
@@ -462,6 +504,25 @@ public class KnowledgeController {
         KnowledgeVersionDTO.DiffResult result = knowledgeService.compareVersions(id, version1, version2);
         return Result.success(result);
     }
+
+    /**
+     * 按变更块分页的版本对比，大文档的对比页使用
+     */
+    @GetMapping("/{id:\\d+}/versions/compare/hunks")
+    public Result<KnowledgeVersionDTO.DiffHunkPage> compareVersionHunks(
+            @PathVariable Long id,
+            @RequestParam Long version1,
+            @RequestParam Long version2,
+            @RequestParam(required = false) Integer context,
+            @RequestParam(defaultValue = "0") Integer offset,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return Result.success(knowledgeService.compareVersionHunks(id, version1, version2, context, offset, limit));
+        } catch (Exception e) {
+            log.error("版本对比失败: knowledgeId={}, version1={}, version2={}", id, version1, version2, e);
+            return Result.error(e.getMessage());
+        }
+    }
     
     @PostMapping("/{id:\\d+}/versions/{version:\\d+}/revert")
     public Result<KnowledgeDTO> revertToVersion(
@@ -470,14 +531,6 @@ public class KnowledgeController {
             @RequestParam String operatorUsername) {
         try {
             KnowledgeDTO result = knowledgeService.revertToVersion(id, version, operatorUsername);
-            // 更新搜索索引
-            if (result != null) {
-                try {
-                    searchService.updateIndex(result);
-                } catch (Exception e) {
-                    log.warn("回退后更新索引失败: knowledgeId={}", id, e);
-                }
-            }
             return Result.success(result);
         } catch (Exception e) {
             log.error("版本回退失败: knowledgeId={}, version={}", id, version, e);
@@ -485,6 +538,28 @@ public class KnowledgeController {
         }
     }
 
+    /**
+     * 重写版本历史存储（快照 + 差量），用于存量数据迁移，后台执行
+     */
+    @PostMapping("/versions/storage/rewrite")
+    public Result<BatchJobStatusDTO> rewriteVersionStorage() {
+        try {
+            return Result.success(knowledgeService.rewriteVersionStorage());
+        } catch (Exception e) {
+            log.error("提交版本存储重写任务失败", e);
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/versions/storage/rewrite/status")
+    public Result<BatchJobStatusDTO> getVersionStorageRewriteStatus() {
+        BatchJobStatusDTO result = knowledgeService.getVersionStorageRewriteStatus();
+        if (result == null) {
+            return Result.error("没有版本存储重写任务");
+        }
+        return Result.success(result);
+    }
+
     // 评论相关接口
     @GetMapping("/{id:\\d+}/comments")
     public Result<List<CommentDTO>> getComments(@PathVariable Long id) {
@@ -550,43 +625,29 @@ public class KnowledgeController {
     }
 
     /**
-     * 初始化所有知识的搜索索引（用于首次同步或重建索引）
-     * 注意：此接口会提取所有文档的全文内容，可能耗时较长
+     * 全量重建搜索索引（用于首次同步或重建索引）
+     * 后台写入新的物理索引，完成后原子切换别名，重建期间搜索照常可用
+     * @param resume 是否从上次中断的位置继续
      */
     @PostMapping("/search/reindex")
-    public Result<String> reindexAll() {
+    public Result<ReindexStatusDTO> reindexAll(@RequestParam(defaultValue = "false") boolean resume) {
         try {
-            log.info("开始重建索引...");
-            
-            // 1. 删除旧索引
-            try {
-                searchService.deleteAllIndex();
-                log.info("旧索引删除成功");
-            } catch (Exception e) {
-                log.warn("删除旧索引失败（可能索引不存在）: " + e.getMessage());
-            }
-            
-            // 2. 获取所有知识（包含 contentText 全文内容）
-            KnowledgeQueryDTO queryDTO = new KnowledgeQueryDTO();
-            queryDTO.setPageNum(1);
-            queryDTO.setPageSize(10000); // 获取所有数据
-            List<KnowledgeDTO> allKnowledge = knowledgeService.listKnowledge(queryDTO);
-            
-            log.info("共获取到 {} 条知识，开始重建索引", allKnowledge.size());
-            
-            // 3. 重建索引（调用服务方法批量处理）
-            int successCount = searchService.rebuildAllIndex(allKnowledge);
-            
-            String message = String.format("索引重建完成：成功索引 %d 条文档（仅统计有文件关联的知识）。" +
-                    "如果搜索仍无结果，请重启 search-service 以重新创建索引映射。", successCount);
-            log.info(message);
-            
-            return Result.success(message);
+            ReindexStatusDTO status = searchService.startReindex(resume);
+            log.info("索引重建已启动: targetIndex={}, status={}", status.getTargetIndex(), status.getStatus());
+            return Result.success(status);
         } catch (Exception e) {
             log.error("重建索引失败", e);
             return Result.error("重建索引失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 查询全量重建索引进度
+     */
+    @GetMapping("/search/reindex/status")
+    public Result<ReindexStatusDTO> getReindexStatus() {
+        return Result.success(searchService.getReindexStatus());
+    }
     
     /**
      * 提取并更新指定知识的文档全文内容
@@ -604,18 +665,10 @@ public class KnowledgeController {
                 return Result.error("该知识没有关联文件，无需提取内容");
             }
             
-            // 触发更新（会重新提取文件内容）
-            KnowledgeDTO updateDTO = new KnowledgeDTO();
-            updateDTO.setId(id);
-            updateDTO.setChangeDescription("重新提取文档全文内容");
-            KnowledgeDTO result = knowledgeService.updateKnowledge(updateDTO);
-            
-            // 更新索引
-            if (result != null) {
-                searchService.updateIndex(result);
-            }
+            // 提交异步提取，完成后经索引发件箱更新搜索索引
+            knowledgeService.reextractContent(id);
             
-            return Result.success("文档内容提取完成，已更新搜索索引");
+            return Result.success("已提交文档内容提取，完成后自动更新搜索索引");
         } catch (Exception e) {
             log.error("提取文档内容失败: id={}", id, e);
             return Result.error("提取文档内容失败: " + e.getMessage());
@@ -689,15 +742,6 @@ public class KnowledgeController {
             request.setKnowledgeId(id);
             KnowledgeDTO result = knowledgeService.resolveMerge(request);
             
-            // 更新搜索索引
-            if (result != null) {
-                try {
-                    searchService.updateIndex(result);
-                } catch (Exception e) {
-                    log.warn("合并后更新索引失败: knowledgeId={}", id, e);
-                }
-            }
-            
             return Result.success(result);
         } catch (Exception e) {
             log.error("解决合并冲突失败: knowledgeId={}", id, e);
@@ -727,16 +771,6 @@ public class KnowledgeController {
             
             boolean result = knowledgeService.publishVersion(id, version);
             
-            // 更新搜索索引
-            if (result) {
-                try {
-                    KnowledgeDTO knowledge = knowledgeService.getKnowledgeById(id);
-                    searchService.updateIndex(knowledge);
-                } catch (Exception e) {
-                    log.warn("发布后更新索引失败: knowledgeId={}", id, e);
-                }
-            }
-            
             return Result.success(result);
         } catch (Exception e) {
             log.error("发布版本失败: knowledgeId={}, version={}", id, version, e);
@@ -0,0 +1,45 @@
+package com.knowledge.api.dto;
+
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 批量更新任务状态
+ */
+@Data
+public class BatchJobStatusDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private String jobId;
+
+    /**
+     * 任务状态：RUNNING / COMPLETED / FAILED
+     */
+    private String status;
+
+    /**
+     * 提交的知识数（去重后）
+     */
+    private Integer total;
+
+    /**
+     * 已处理的知识数
+     */
+    private Integer processed;
+
+    /**
+     * 实际更新的知识数（不存在的ID会被跳过）
+     */
+    private Integer updated;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime endTime;
+
+    private String message;
+}
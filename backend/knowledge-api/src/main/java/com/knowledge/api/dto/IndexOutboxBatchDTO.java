@@ -0,0 +1,26 @@
+package com.knowledge.api.dto;
+
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 一批待同步的搜索索引事件
+ */
+@Data
+public class IndexOutboxBatchDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<IndexOutboxEventDTO> events;
+
+    /**
+     * 本批次拉取的发件箱记录数（合并前）；载荷超限被截断时部分记录不在 events 中，留待下次拉取
+     */
+    private Integer rowCount;
+
+    /**
+     * 本批次中最早一条记录的创建时间，用于计算同步延迟
+     */
+    private LocalDateTime oldestCreateTime;
+}
@@ -0,0 +1,33 @@
+package com.knowledge.api.dto;
+
+import lombok.Data;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 搜索索引同步事件（同一知识的多条发件箱记录已合并为一条）
+ */
+@Data
+public class IndexOutboxEventDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String OP_UPSERT = "UPSERT";
+    public static final String OP_DELETE = "DELETE";
+
+    private Long knowledgeId;
+
+    /**
+     * 最终操作：UPSERT 或 DELETE
+     */
+    private String op;
+
+    /**
+     * UPSERT 时为知识的最新数据（包含 contentText），DELETE 时为空
+     */
+    private KnowledgeDTO knowledge;
+
+    /**
+     * 被合并的发件箱记录ID，同步完成后用于确认
+     */
+    private List<Long> outboxIds;
+}
@@ -0,0 +1,24 @@
+package com.knowledge.api.dto;
+
+import lombok.Data;
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class KnowledgePageDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<KnowledgeDTO> records;
+
+    /**
+     * 总数，countMode 为 NONE 时为 null
+     */
+    private Long total;
+    private Integer pageNum;
+    private Integer pageSize;
+
+    /**
+     * 游标分页时下一页的游标，没有更多结果时为 null
+     */
+    private String nextCursor;
+}
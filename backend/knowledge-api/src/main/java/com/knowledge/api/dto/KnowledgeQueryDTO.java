@@ -17,5 +17,21 @@ public class KnowledgeQueryDTO implements Serializable {
     private String sortField = "clickCount";
     private String sortOrder = "DESC";
     private String includeFolders; // "true" or "false", 默认为null (false)
+    private Boolean includeContentText; // 是否返回全文字段 contentText，默认不返回
+
+    /**
+     * 是否使用游标分页（按 排序字段 + ID 定位），适合深翻页和导出；游标分页时忽略 pageNum
+     */
+    private Boolean useCursor = false;
+
+    /**
+     * 游标分页：上一页返回的 nextCursor，首页不传
+     */
+    private String cursor;
+
+    /**
+     * 总数统计方式：NONE 不统计（默认），EXACT 每次 COUNT，CACHED 使用短时间缓存的 COUNT 结果
+     */
+    private String countMode;
 }
 
@@ -69,5 +69,38 @@ public class KnowledgeVersionDTO implements Serializable {
             private int equalCount;
         }
     }
+    
+    /**
+     * 按变更块分页的差异结果：只包含变更行及其上下文，两个变更块之间的相同行折叠为行数
+     */
+    @Data
+    public static class DiffHunkPage implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private Long knowledgeId;
+        private Long version1;
+        private Long version2;
+        private DiffResult.DiffStats stats;
+        private int contextLines;
+        private int totalHunks;
+        private int offset;
+        private List<DiffHunk> hunks;
+        private int trailingCollapsed; // 最后一个变更块之后折叠的相同行数
+    }
+    
+    /**
+     * 变更块：行号从 1 开始，count 为该块在原文/新文中占用的行数（与 unified diff 的 @@ 头一致）
+     */
+    @Data
+    public static class DiffHunk implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private int originalStart;
+        private int originalCount;
+        private int newStart;
+        private int newCount;
+        private int collapsedBefore; // 与上一个变更块之间折叠的相同行数（超长变更块拆分出的后续块为 0）
+        private List<DiffResult.DiffLine> lines;
+    }
 }
 
@@ -0,0 +1,22 @@
+package com.knowledge.api.dto;
+
+import lombok.Data;
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class KnowledgeVersionPageDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 版本摘要（不含标题、正文、摘要等内容字段）
+     */
+    private List<KnowledgeVersionDTO> records;
+
+    /**
+     * 当前用户可见的版本总数
+     */
+    private Long total;
+    private Integer pageNum;
+    private Integer pageSize;
+}
@@ -0,0 +1,49 @@
+package com.knowledge.api.dto;
+
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 全量重建索引任务状态
+ */
+@Data
+public class ReindexStatusDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_IDLE = "IDLE";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 任务状态：IDLE / RUNNING / COMPLETED / FAILED
+     */
+    private String status;
+
+    /**
+     * 正在构建（或已切换到）的物理索引名
+     */
+    private String targetIndex;
+
+    /**
+     * 已确认写入的最大知识ID（断点续传位置）
+     */
+    private Long lastId;
+
+    /**
+     * 已写入的文档数
+     */
+    private Long indexedCount;
+
+    /**
+     * 写入失败的文档数
+     */
+    private Long failedCount;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime endTime;
+
+    private String message;
+}
@@ -18,5 +18,16 @@ public class SearchRequestDTO implements Serializable {
     private Integer pageNum = 1;
     private Integer pageSize = 10;
     private String sortField = "clickCount";
+
+    /**
+     * 是否使用游标分页（search_after + point-in-time），适合深翻页和连续加载；
+     * 游标分页时忽略 pageNum
+     */
+    private Boolean useCursor = false;
+
+    /**
+     * 游标分页：上一页返回的 nextCursor，首页不传
+     */
+    private String cursor;
 }
 
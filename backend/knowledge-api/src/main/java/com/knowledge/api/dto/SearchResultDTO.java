@@ -13,5 +13,10 @@ public class SearchResultDTO implements Serializable {
     private Integer pageNum;
     private Integer pageSize;
     private Long tookTime; // 搜索耗时(ms)
+
+    /**
+     * 游标分页时下一页的游标，没有更多结果时为 null
+     */
+    private String nextCursor;
 }
 
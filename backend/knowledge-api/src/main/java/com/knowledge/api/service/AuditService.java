@@ -37,6 +37,11 @@ public interface AuditService {
      */
     void deleteByKnowledgeId(Long knowledgeId);
 
+    /**
+     * 批量删除多条知识的所有审核记录
+     */
+    void deleteByKnowledgeIds(List<Long> knowledgeIds);
+
     /**
      * 删除指定知识大于指定版本的所有审核记录
      * @param knowledgeId 知识ID
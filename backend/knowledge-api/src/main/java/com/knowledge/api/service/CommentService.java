@@ -10,5 +10,10 @@ public interface CommentService {
     boolean likeComment(Long commentId, Long userId);
     boolean cancelLikeComment(Long commentId, Long userId);
     void deleteByKnowledgeId(Long knowledgeId);
+    
+    /**
+     * 批量删除多条知识的评论及点赞记录
+     */
+    void deleteByKnowledgeIds(List<Long> knowledgeIds);
 }
 
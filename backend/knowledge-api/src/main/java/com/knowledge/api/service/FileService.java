@@ -13,7 +13,21 @@ public interface FileService {
     FileDTO getFileById(Long fileId);
     FileDTO getFileByHash(String fileHash);
     List<FileDTO> batchDownload(List<Long> fileIds);
+    
+    /**
+     * 批量获取文件元数据（一次查询），不存在的ID不会出现在结果中
+     * @param fileIds 文件ID列表
+     * @return 文件信息列表，顺序不保证
+     */
+    List<FileDTO> getFilesByIds(List<Long> fileIds);
     boolean deleteFile(Long fileId);
+    
+    /**
+     * 批量删除文件（磁盘文件和元数据），不存在的文件视为已删除
+     * @param fileIds 文件ID列表
+     * @return 删除失败的文件ID，全部成功时为空列表
+     */
+    List<Long> deleteFiles(List<Long> fileIds);
     String getFilePreviewUrl(Long fileId);
     String getFilePath(Long fileId);
     
@@ -0,0 +1,34 @@
+package com.knowledge.api.service;
+
+import com.knowledge.api.dto.IndexOutboxBatchDTO;
+
+import java.util.List;
+
+/**
+ * 搜索索引发件箱服务
+ * knowledge-service 在写事务中记录索引变更，search-service 拉取后批量写入 Elasticsearch
+ */
+public interface IndexOutboxService {
+
+    /**
+     * 拉取一批到期的索引变更，同一知识的多条记录合并为一个事件；
+     * 知识数据的累计大小超过载荷上限时只返回前面一部分事件，其余留待下次拉取
+     * @param limit 最多拉取的发件箱记录数
+     */
+    IndexOutboxBatchDTO pollIndexOutbox(int limit);
+
+    /**
+     * 拉取失败时把队首最多 limit 条到期记录标记为失败并退避，避免同一批记录反复阻塞队列
+     */
+    void deferIndexOutbox(int limit, String error);
+
+    /**
+     * 确认同步成功，删除对应的发件箱记录
+     */
+    void ackIndexOutbox(List<Long> outboxIds);
+
+    /**
+     * 标记同步失败，按失败次数退避后重试
+     */
+    void failIndexOutbox(List<Long> outboxIds, String error);
+}
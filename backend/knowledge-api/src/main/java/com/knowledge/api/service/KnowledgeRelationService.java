@@ -9,5 +9,10 @@ public interface KnowledgeRelationService {
     boolean deleteRelation(Long knowledgeId, Long relatedKnowledgeId);
     List<KnowledgeRelationDTO> getRelations(Long knowledgeId);
     void deleteByKnowledgeId(Long knowledgeId);
+    
+    /**
+     * 批量删除多条知识作为源或目标的关联关系
+     */
+    void deleteByKnowledgeIds(List<Long> knowledgeIds);
 }
 
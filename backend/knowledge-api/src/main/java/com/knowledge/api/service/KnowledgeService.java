@@ -1,8 +1,11 @@
 package com.knowledge.api.service;
 
+import com.knowledge.api.dto.BatchJobStatusDTO;
 import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.api.dto.KnowledgePageDTO;
 import com.knowledge.api.dto.KnowledgeQueryDTO;
 import com.knowledge.api.dto.KnowledgeVersionDTO;
+import com.knowledge.api.dto.KnowledgeVersionPageDTO;
 import com.knowledge.api.dto.StatisticsDTO;
 
 import java.util.List;
@@ -13,6 +16,11 @@ public interface KnowledgeService {
     KnowledgeDTO updateKnowledge(KnowledgeDTO knowledgeDTO);
     KnowledgeDTO getKnowledgeById(Long id);
     List<KnowledgeDTO> listKnowledge(KnowledgeQueryDTO queryDTO);
+    
+    /**
+     * 分页查询知识列表，支持游标分页和总数统计方式（见 KnowledgeQueryDTO）
+     */
+    KnowledgePageDTO listKnowledgePage(KnowledgeQueryDTO queryDTO);
     boolean deleteKnowledge(Long id);
     void updateClickCount(Long id);
     void updateCollectCount(Long id, boolean collect);
@@ -30,6 +38,14 @@ public interface KnowledgeService {
     List<KnowledgeDTO> getRelatedKnowledge(Long id, int limit);
     StatisticsDTO getStatistics();
     
+    /**
+     * 按主键游标扫描需要进入搜索索引的知识（已发布的文件，包含 contentText），用于全量重建索引
+     * @param afterId 上一批最后一条的ID，首批传 0
+     * @param limit 每批条数
+     * @return 按ID升序的知识列表，为空表示扫描结束
+     */
+    List<KnowledgeDTO> scanKnowledgeForIndex(Long afterId, int limit);
+    
     // 收藏相关方法
     boolean collectKnowledge(Long userId, Long knowledgeId);
     boolean cancelCollectKnowledge(Long userId, Long knowledgeId);
@@ -37,6 +53,17 @@ public interface KnowledgeService {
     // 批量操作
     boolean batchUpdateKnowledge(List<Long> knowledgeIds, Map<String, Object> updateData);
     
+    /**
+     * 提交后台批量更新任务，适用于大批量选择
+     * @return 任务初始状态（包含 jobId）
+     */
+    BatchJobStatusDTO submitBatchUpdate(List<Long> knowledgeIds, Map<String, Object> updateData);
+    
+    /**
+     * 查询批量更新任务进度，任务不存在或已过期时返回 null
+     */
+    BatchJobStatusDTO getBatchUpdateStatus(String jobId);
+    
     // 知识树相关
     List<KnowledgeDTO> getKnowledgeTree();
     boolean moveKnowledge(Long knowledgeId, Long parentId, Integer sortOrder);
@@ -59,9 +86,46 @@ public interface KnowledgeService {
      */
     List<KnowledgeVersionDTO> getKnowledgeVersionsForUser(Long knowledgeId, String username, boolean isAdmin);
     
+    /**
+     * 分页获取版本历史摘要（只含版本号、提交哈希、作者、状态、提交说明、时间等，不含正文），
+     * 可见性规则与 getKnowledgeVersionsForUser 相同
+     */
+    KnowledgeVersionPageDTO getKnowledgeVersionPage(Long knowledgeId, String username, boolean isAdmin,
+                                                    Integer pageNum, Integer pageSize);
+    
     KnowledgeVersionDTO getKnowledgeVersion(Long knowledgeId, Long version);
     KnowledgeVersionDTO.DiffResult compareVersions(Long knowledgeId, Long version1, Long version2);
     
+    /**
+     * 按变更块分页对比两个版本，只返回变更行及上下文，相同区域折叠为行数，适用于超大文档
+     * @param contextLines 变更前后保留的上下文行数，为空时使用默认值
+     * @param offset 从第几个变更块开始（从 0 开始）
+     * @param limit 本页最多返回的变更块数
+     */
+    KnowledgeVersionDTO.DiffHunkPage compareVersionHunks(Long knowledgeId, Long version1, Long version2,
+                                                         Integer contextLines, Integer offset, Integer limit);
+    
+    /**
+     * 提交审核后在后台预先计算“当前发布版本 vs 待审核版本”的对比结果，立即返回
+     */
+    void prewarmAuditDiff(Long knowledgeId, Long version);
+    
+    /**
+     * 提交版本历史存储重写任务：把存量全量版本改写为定期快照 + 压缩差量
+     * @return 任务状态，已有任务在运行时返回其当前状态
+     */
+    BatchJobStatusDTO rewriteVersionStorage();
+    
+    /**
+     * 查询最近一次版本历史存储重写任务的状态，从未执行过时返回 null
+     */
+    BatchJobStatusDTO getVersionStorageRewriteStatus();
+    
+    /**
+     * 重新提取知识关联文件的全文：提交到异步提取流水线并记录索引变更，立即返回
+     */
+    void reextractContent(Long knowledgeId);
+    
     /**
      * 回退到指定版本
      * @param knowledgeId 知识ID
@@ -1,11 +1,13 @@
 package com.knowledge.api.service;
 
 import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.api.dto.ReindexStatusDTO;
 import com.knowledge.api.dto.SearchResultDTO;
 import com.knowledge.api.dto.SearchRequestDTO;
 import com.knowledge.api.dto.SearchSuggestionDTO;
 
 import java.util.List;
+import java.util.Map;
 
 public interface SearchService {
     SearchResultDTO search(SearchRequestDTO request);
@@ -16,6 +18,12 @@ public interface SearchService {
     void updateIndex(Long knowledgeId);
     void updateIndex(KnowledgeDTO knowledgeDTO);
     
+    /**
+     * 部分更新索引中的点击量（同时更新自动补全权重），不存在的文档忽略
+     * @param clickCounts knowledgeId -> 最新点击量
+     */
+    void updateClickCounts(Map<Long, Long> clickCounts);
+    
     /**
      * 删除整个索引（用于重建索引前清理）
      */
@@ -29,6 +37,18 @@ public interface SearchService {
      */
     int rebuildAllIndex(List<KnowledgeDTO> knowledgeList);
     
+    /**
+     * 启动后台全量重建索引：写入新的物理索引，完成后原子切换别名，期间搜索不受影响
+     * @param resume 是否从上次中断的位置继续
+     * @return 启动后的任务状态（已有任务在运行时直接返回其状态）
+     */
+    ReindexStatusDTO startReindex(boolean resume);
+    
+    /**
+     * 查询全量重建索引的进度
+     */
+    ReindexStatusDTO getReindexStatus();
+    
     /**
      * 语义搜索 - 使用 more_like_this 查询查找相似文档
      * @param text 输入文本（自然语言查询）
@@ -3,7 +3,9 @@ package com.knowledge.common.util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -67,7 +69,11 @@ public class DiffUtil {
     }
     
     /**
-     * 三路合并算法
+     * 三路合并算法（基于 {@link #diff3} 的分块结果）
+     * 只有一方修改的块取该方内容，双方修改相同的块取任意一方，双方修改不同的块输出冲突标记。
+     * 注意：两侧的修改之间至少要隔一行双方都未改动的 Base 行才会各自合并；
+     * 相邻行的修改（如一方改第 2 行、另一方改第 3 行）以及双方在同一位置（包括文末）插入不同内容，
+     * 会落在同一个变更块中并报告为冲突，而不是像旧的逐行合并那样自动拼接。
      * @param baseStr 基础版本（共同祖先）
      * @param oursStr 当前版本（Server/Master）
      * @param theirsStr 传入版本（Incoming/Draft）
@@ -88,176 +94,162 @@ public class DiffUtil {
         List<String> ours = splitLines(oursStr);
         List<String> theirs = splitLines(theirsStr);
 
-        // 2. 将 Ours 和 Theirs 分别与 Base 进行 Diff，获取 Chunk 列表
-        // 注意：我们需要一种更高级的 Chunk 结构来表示变更块，而不仅仅是行列表
-        // 这里为了简化实现，直接使用一种基于行匹配的合并策略
-        
-        // 我们定义 "Hunk" 为一组变更。
-        // 为了做准确的 3-way merge，我们通常需要对齐所有行。
-        // 简化算法思路：
-        // 1. 计算 Diff(Base, Ours) 和 Diff(Base, Theirs)
-        // 2. 将这些 Diff 映射回 Base 的行索引
-        // 3. 遍历 Base 的每一行（以及由此衍生的插入行），决定取哪边的内容
-
-        // 生成详细的 Edit Script
-        List<Edit> editsOurs = computeEdits(base, ours);
-        List<Edit> editsTheirs = computeEdits(base, theirs);
-
-        return mergeEdits(base, editsOurs, editsTheirs);
+        List<String> resultLines = new ArrayList<>();
+        boolean hasConflict = false;
+        for (Diff3Block block : diff3Lines(base, ours, theirs)) {
+            if (block.getType() == Diff3Type.CONFLICT) {
+                hasConflict = true;
+                resultLines.add("<<<<<<< HEAD (Current Version)");
+                resultLines.addAll(block.getOurs());
+                resultLines.add("=======");
+                resultLines.addAll(block.getTheirs());
+                resultLines.add(">>>>>>> Incoming (Your Draft)");
+            } else {
+                resultLines.addAll(block.getMerged());
+            }
+        }
+        return new MergeResult(String.join("\n", resultLines), hasConflict);
     }
 
-    // ================= 内部类与辅助方法 =================
+    /**
+     * 三路对齐块类型
+     */
+    public enum Diff3Type {
+        EQUAL,        // 三方相同
+        OURS_ONLY,    // 只有 Ours 修改
+        THEIRS_ONLY,  // 只有 Theirs 修改
+        BOTH_SAME,    // 双方做了相同的修改
+        CONFLICT      // 双方做了不同的修改
+    }
 
-    private static class Edit {
-        DiffType type;
-        List<String> lines; // 涉及的内容
-        int baseStart; // 在 Base 中的起始行索引（包含）
-        int baseEnd;   // 在 Base 中的结束行索引（不包含）
-        
-        // 对于 INSERT，baseStart = baseEnd = 插入点
-        // 对于 DELETE，lines 为空
-        // 对于 REPLACE (Delete + Insert)，可以表示为 Delete
-        
-        public Edit(DiffType type, List<String> lines, int baseStart, int baseEnd) {
+    /**
+     * 三路对齐块：Base / Ours / Theirs 中互相对应的一段行（可能为空）
+     */
+    public static class Diff3Block {
+        private final Diff3Type type;
+        private final List<String> base;
+        private final List<String> ours;
+        private final List<String> theirs;
+        private final int baseStart;   // 在 Base 中的起始行索引（从 0 开始）
+        private final int oursStart;   // 在 Ours 中的起始行索引
+        private final int theirsStart; // 在 Theirs 中的起始行索引
+
+        public Diff3Block(Diff3Type type, List<String> base, List<String> ours, List<String> theirs,
+                          int baseStart, int oursStart, int theirsStart) {
             this.type = type;
-            this.lines = lines;
+            this.base = base;
+            this.ours = ours;
+            this.theirs = theirs;
             this.baseStart = baseStart;
-            this.baseEnd = baseEnd;
+            this.oursStart = oursStart;
+            this.theirsStart = theirsStart;
+        }
+
+        public Diff3Type getType() { return type; }
+        public List<String> getBase() { return base; }
+        public List<String> getOurs() { return ours; }
+        public List<String> getTheirs() { return theirs; }
+        public int getBaseStart() { return baseStart; }
+        public int getOursStart() { return oursStart; }
+        public int getTheirsStart() { return theirsStart; }
+
+        /**
+         * 自动合并结果，冲突块返回 null
+         */
+        public List<String> getMerged() {
+            switch (type) {
+                case EQUAL:
+                    return base;
+                case THEIRS_ONLY:
+                    return theirs;
+                case OURS_ONLY:
+                case BOTH_SAME:
+                    return ours;
+                default:
+                    return null;
+            }
         }
     }
 
     /**
-     * 将 Diff 结果转换为相对于 Base 的 Edit 操作列表
-     * 注意：这里把连续的相同类型 DiffLine 合并为一个 Edit
+     * 三路对齐（diff3）
+     * 分别计算 Base -> Ours、Base -> Theirs 的 LCS，在两边都保持不变的 Base 行作为锚点：
+     * 连续且在三方中位置一致的锚点行组成 EQUAL 块，相邻锚点之间的行组成一个变更块，
+     * 再按哪一方相对 Base 有变化分类。块按顺序首尾相接，覆盖三个版本的全部行。
+     * @param baseStr 基础版本（共同祖先）
+     * @param oursStr 当前版本（Server/Master）
+     * @param theirsStr 传入版本（Incoming/Draft）
      */
-    private static List<Edit> computeEdits(List<String> base, List<String> target) {
-        List<DiffLine> diffs = diffLines(base, target);
-        List<Edit> edits = new ArrayList<>();
-        
-        int currentBaseLine = 0;
-        
-        for (int i = 0; i < diffs.size(); ) {
-            DiffLine line = diffs.get(i);
-            
-            // 跳过 EQUAL
-            if (line.type == DiffType.EQUAL) {
-                currentBaseLine++;
-                i++;
+    public static List<Diff3Block> diff3(String baseStr, String oursStr, String theirsStr) {
+        return diff3Lines(splitLines(baseStr), splitLines(oursStr), splitLines(theirsStr));
+    }
+
+    private static List<Diff3Block> diff3Lines(List<String> base, List<String> ours, List<String> theirs) {
+        int[] toOurs = matchLines(base, ours);
+        int[] toTheirs = matchLines(base, theirs);
+        List<Diff3Block> blocks = new ArrayList<>();
+        int n = base.size();
+        int b = 0, o = 0, t = 0;
+        while (b < n || o < ours.size() || t < theirs.size()) {
+            // 稳定区：Base 行在两边都未变化，且恰好位于两边的当前位置
+            int stable = 0;
+            while (b + stable < n && toOurs[b + stable] == o + stable && toTheirs[b + stable] == t + stable) {
+                stable++;
+            }
+            if (stable > 0) {
+                blocks.add(new Diff3Block(Diff3Type.EQUAL, base.subList(b, b + stable),
+                        ours.subList(o, o + stable), theirs.subList(t, t + stable), b, o, t));
+                b += stable;
+                o += stable;
+                t += stable;
                 continue;
             }
-            
-            // 收集连续的变更
-            int startIdx = i;
-            DiffType chunkType = line.type;
-            List<String> chunkLines = new ArrayList<>();
-            int chunkBaseStart = currentBaseLine;
-            int chunkBaseCount = 0;
-            
-            // 简单的贪婪合并：处理连续的 Insert 或 Delete
-            // 注意：标准的 Diff 算法输出可能是交错的（Delete then Insert = Change）
-            // 我们尝试检测 "Change" (替换)：即同一个位置既有 Delete 又有 Insert
-            
-            // 收集一段连续的非 Equal 区域
-            while (i < diffs.size() && diffs.get(i).type != DiffType.EQUAL) {
-                DiffLine curr = diffs.get(i);
-                if (curr.type == DiffType.DELETE) {
-                    currentBaseLine++; // Base 指针前进
-                    chunkBaseCount++;
-                } else if (curr.type == DiffType.INSERT) {
-                    chunkLines.add(curr.content);
-                }
-                i++;
+
+            // 变更区：到下一个两边都匹配的 Base 行（锚点）为止，没有锚点时到末尾
+            int next = b;
+            while (next < n && (toOurs[next] < 0 || toTheirs[next] < 0)) {
+                next++;
+            }
+            int oursEnd = next < n ? toOurs[next] : ours.size();
+            int theirsEnd = next < n ? toTheirs[next] : theirs.size();
+            List<String> baseChunk = base.subList(b, next);
+            List<String> oursChunk = ours.subList(o, oursEnd);
+            List<String> theirsChunk = theirs.subList(t, theirsEnd);
+
+            boolean oursChanged = !listEquals(baseChunk, oursChunk);
+            boolean theirsChanged = !listEquals(baseChunk, theirsChunk);
+            Diff3Type type;
+            if (!oursChanged) {
+                type = theirsChanged ? Diff3Type.THEIRS_ONLY : Diff3Type.EQUAL;
+            } else if (!theirsChanged) {
+                type = Diff3Type.OURS_ONLY;
+            } else {
+                type = listEquals(oursChunk, theirsChunk) ? Diff3Type.BOTH_SAME : Diff3Type.CONFLICT;
             }
-            
-            edits.add(new Edit(
-                (chunkBaseCount > 0 && !chunkLines.isEmpty()) ? DiffType.INSERT : chunkType, // 实际上我们需要区分 Replace
-                chunkLines, 
-                chunkBaseStart, 
-                chunkBaseStart + chunkBaseCount
-            ));
+            blocks.add(new Diff3Block(type, baseChunk, oursChunk, theirsChunk, b, o, t));
+            b = next;
+            o = oursEnd;
+            t = theirsEnd;
         }
-        return edits;
+        return blocks;
     }
 
+    // ================= 内部类与辅助方法 =================
+
     /**
-     * 核心合并逻辑
+     * Base 每一行在目标中对应的行索引，被删除或修改的行为 -1
      */
-    private static MergeResult mergeEdits(List<String> base, List<Edit> editsOurs, List<Edit> editsTheirs) {
-        List<String> resultLines = new ArrayList<>();
-        boolean hasConflict = false;
-        
-        // 我们需要一个游标 traversing Base
-        int baseIdx = 0;
-        int maxBase = base.size();
-        
-        int idxOurs = 0;
-        int idxTheirs = 0;
-        
-        while (baseIdx < maxBase || idxOurs < editsOurs.size() || idxTheirs < editsTheirs.size()) {
-            // 获取当前 Base 位置相关的 Edit
-            Edit editO = (idxOurs < editsOurs.size() && editsOurs.get(idxOurs).baseStart == baseIdx) 
-                        ? editsOurs.get(idxOurs) : null;
-            Edit editT = (idxTheirs < editsTheirs.size() && editsTheirs.get(idxTheirs).baseStart == baseIdx) 
-                        ? editsTheirs.get(idxTheirs) : null;
-
-            if (editO == null && editT == null) {
-                // 此时双方都没有修改 baseIdx 这一行
-                if (baseIdx < maxBase) {
-                    resultLines.add(base.get(baseIdx));
-                    baseIdx++;
-                } else {
-                    // base 结束了，且没有 edits，跳出
-                    break;
-                }
-            } else if (editO != null && editT == null) {
-                // 只有 Ours 修改
-                resultLines.addAll(editO.lines); // 如果是 Delete，lines为空，相当于删除了
-                baseIdx = editO.baseEnd; // 跳过 Base 中被修改的行
-                idxOurs++;
-            } else if (editO == null && editT != null) {
-                // 只有 Theirs 修改
-                resultLines.addAll(editT.lines);
-                baseIdx = editT.baseEnd;
-                idxTheirs++;
-            } else {
-                // 双方都在此位置有修改 (Conflict Potential)
-                
-                // 1. 检查修改范围是否一致（简化的逻辑）
-                // 如果 baseEnd 不同，说明修改的区域大小不同，视为冲突
-                // 如果内容 lines 相同，视为 Clean Merge (Same Change)
-                
-                if (editO.baseEnd == editT.baseEnd && listEquals(editO.lines, editT.lines)) {
-                    // 双方做了完全相同的修改 -> Auto Merge
-                    resultLines.addAll(editO.lines);
-                    baseIdx = editO.baseEnd;
-                } else {
-                    // 冲突！
-                    hasConflict = true;
-                    
-                    // 输出冲突块
-                    resultLines.add("<<<<<<< HEAD (Current Version)");
-                    resultLines.addAll(editO.lines); // Ours Content
-                    
-                    // 如果是修改/删除，显示原始 Base 内容（可选，这里为了简洁先不显示Base）
-                    
-                    resultLines.add("=======");
-                    resultLines.addAll(editT.lines); // Theirs Content
-                    resultLines.add(">>>>>>> Incoming (Your Draft)");
-                    
-                    // 前进 Base 指针
-                    // 取两者的最大 baseEnd，跳过受影响的 Base 区域
-                    baseIdx = Math.max(editO.baseEnd, editT.baseEnd);
-                }
-                
-                // 消耗掉这两个 edit
-                idxOurs++;
-                idxTheirs++;
+    private static int[] matchLines(List<String> base, List<String> target) {
+        int[] match = new int[base.size()];
+        Arrays.fill(match, -1);
+        for (DiffLine line : diffLines(base, target)) {
+            if (line.type == DiffType.EQUAL) {
+                match[line.originalLineNumber - 1] = line.newLineNumber - 1;
             }
         }
-        
-        return new MergeResult(String.join("\n", resultLines), hasConflict);
+        return match;
     }
-    
+
     private static boolean listEquals(List<String> a, List<String> b) {
         if (a.size() != b.size()) return false;
         for (int i = 0; i < a.size(); i++) {
@@ -266,7 +258,19 @@ public class DiffUtil {
         return true;
     }
 
-    // ================= LCS Diff Implementation =================
+    // ================= Myers Diff Implementation =================
+
+    /**
+     * 默认的差异计算预算（探测的对角线步数上限）。
+     * 超出预算后剩余的未对齐区域直接按“整段删除 + 整段插入”输出，
+     * 保证超大且差异极多的文档也能在有限时间内返回结果。
+     */
+    public static final int DEFAULT_DIFF_BUDGET = 50_000_000;
+
+    /**
+     * 单次 middle snake 搜索的最小代价上限
+     */
+    private static final int MIN_SNAKE_COST = 256;
 
     private static List<String> splitLines(String text) {
         if (text == null || text.isEmpty()) return new ArrayList<>();
@@ -274,37 +278,279 @@ public class DiffUtil {
     }
 
     private static List<DiffLine> diffLines(List<String> lines1, List<String> lines2) {
-        List<DiffLine> result = new ArrayList<>();
-        int m = lines1.size();
-        int n = lines2.size();
-        
-        int[][] dp = new int[m + 1][n + 1];
-        for (int i = 1; i <= m; i++) {
-            for (int j = 1; j <= n; j++) {
-                if (lines1.get(i - 1).equals(lines2.get(j - 1))) {
-                    dp[i][j] = dp[i - 1][j - 1] + 1;
-                } else {
-                    dp[i][j] = Math.max(dp[i - 1][j], dp[i][j - 1]);
+        return diffLines(lines1, lines2, DEFAULT_DIFF_BUDGET);
+    }
+
+    /**
+     * 行级 Myers 差异算法（线性空间的 middle snake 分治版本）
+     * 时间复杂度 O((N+M)·D)，空间复杂度 O(N+M)，D 为编辑距离
+     */
+    private static List<DiffLine> diffLines(List<String> lines1, List<String> lines2, int budget) {
+        // 1. 行内容映射为整数 ID，后续比较只做 int 比较
+        Map<String, Integer> lineIds = new HashMap<>();
+        int[] a = internLines(lines1, lineIds);
+        int[] b = internLines(lines2, lineIds);
+
+        // 去掉公共前缀和后缀，剩余部分若没有任何相同的行则直接整段替换
+        int aLo = 0, bLo = 0, aHi = a.length, bHi = b.length;
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++; bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--; bHi--;
+        }
+        MyersContext ctx = new MyersContext(a, b, budget);
+        if (hasCommonLine(a, aLo, aHi, b, bLo, bHi, lineIds.size())) {
+            ctx.compare(aLo, aHi, bLo, bHi);
+        } else {
+            ctx.markDeleted(aLo, aHi);
+            ctx.markInserted(bLo, bHi);
+        }
+
+        // 2. 按编辑脚本生成 DiffLine（行号从 1 开始）
+        List<DiffLine> result = new ArrayList<>(Math.max(a.length, b.length));
+        int i = 0, j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && !ctx.deleted[i] && !ctx.inserted[j]) {
+                result.add(new DiffLine(DiffType.EQUAL, lines1.get(i), i + 1, j + 1));
+                i++; j++;
+                continue;
+            }
+            // 一段连续变更中先输出删除再输出插入，便于展示和合并
+            while (i < a.length && ctx.deleted[i]) {
+                result.add(new DiffLine(DiffType.DELETE, lines1.get(i), i + 1, 0));
+                i++;
+            }
+            while (j < b.length && ctx.inserted[j]) {
+                result.add(new DiffLine(DiffType.INSERT, lines2.get(j), 0, j + 1));
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private static int[] internLines(List<String> lines, Map<String, Integer> lineIds) {
+        int[] ids = new int[lines.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Integer id = lineIds.get(lines.get(i));
+            if (id == null) {
+                id = lineIds.size();
+                lineIds.put(lines.get(i), id);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    private static boolean hasCommonLine(int[] a, int aLo, int aHi, int[] b, int bLo, int bHi, int idCount) {
+        boolean[] inA = new boolean[idCount];
+        for (int i = aLo; i < aHi; i++) inA[a[i]] = true;
+        for (int j = bLo; j < bHi; j++) {
+            if (inA[b[j]]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Myers 算法的运行状态：结果以“删除/插入标记位”的形式记录在两个布尔数组中，
+     * 前向/后向 V 数组在整个递归过程中复用，避免重复分配
+     */
+    private static class MyersContext {
+        final int[] a;
+        final int[] b;
+        final boolean[] deleted;
+        final boolean[] inserted;
+        final int[] vf;
+        final int[] vb;
+        int budget;
+
+        MyersContext(int[] a, int[] b, int budget) {
+            this.a = a;
+            this.b = b;
+            this.deleted = new boolean[a.length];
+            this.inserted = new boolean[b.length];
+            int size = a.length + b.length + 3;
+            this.vf = new int[size];
+            this.vb = new int[size];
+            this.budget = budget;
+        }
+
+        void compare(int aLo, int aHi, int bLo, int bHi) {
+            while (true) {
+                // 去掉公共前缀和后缀
+                while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+                    aLo++; bLo++;
+                }
+                while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+                    aHi--; bHi--;
                 }
+
+                if (aLo == aHi) {
+                    markInserted(bLo, bHi);
+                    return;
+                }
+                if (bLo == bHi) {
+                    markDeleted(aLo, aHi);
+                    return;
+                }
+
+                long split = budget > 0 ? middleSnake(aLo, aHi, bLo, bHi) : -1L;
+                if (split < 0) {
+                    // 超出预算或无公共行：整段替换
+                    markDeleted(aLo, aHi);
+                    markInserted(bLo, bHi);
+                    return;
+                }
+
+                int x = (int) (split >>> 32);
+                int y = (int) split;
+                if ((x == aLo && y == bLo) || (x == aHi && y == bHi)) {
+                    // 切分点没有缩小问题规模，按整段替换处理，避免死循环
+                    markDeleted(aLo, aHi);
+                    markInserted(bLo, bHi);
+                    return;
+                }
+                // 左半部分递归，右半部分循环处理以减少递归深度
+                compare(aLo, x, bLo, y);
+                aLo = x;
+                bLo = y;
             }
         }
-        
-        int i = m, j = n;
-        while (i > 0 || j > 0) {
-            if (i > 0 && j > 0 && lines1.get(i - 1).equals(lines2.get(j - 1))) {
-                result.add(0, new DiffLine(DiffType.EQUAL, lines1.get(i - 1), i, j));
-                i--; j--;
-            } else if (j > 0 && (i == 0 || dp[i][j - 1] >= dp[i - 1][j])) {
-                result.add(0, new DiffLine(DiffType.INSERT, lines2.get(j - 1), 0, j));
-                j--;
-            } else if (i > 0) {
-                result.add(0, new DiffLine(DiffType.DELETE, lines1.get(i - 1), i, 0));
-                i--;
+
+        /**
+         * 同时从两端推进，寻找最优编辑路径的中间点
+         * @return 高 32 位为 a 中的切分位置，低 32 位为 b 中的切分位置；-1 表示放弃
+         */
+        private long middleSnake(int aLo, int aHi, int bLo, int bHi) {
+            int n = aHi - aLo;
+            int m = bHi - bLo;
+            int maxD = (n + m + 1) / 2;
+            int offset = maxD;
+            int vLength = 2 * maxD + 2;
+            Arrays.fill(vf, 0, vLength, -1);
+            Arrays.fill(vb, 0, vLength, -1);
+            vf[offset + 1] = 0;
+            vb[offset + 1] = 0;
+
+            int delta = n - m;
+            boolean front = (delta & 1) != 0;
+            int k1start = 0, k1end = 0, k2start = 0, k2end = 0;
+
+            // 单次搜索的代价上限：超过后取目前推进最远的点作为切分点（结果不再保证最小，但耗时有界）
+            int maxCost = Math.max(MIN_SNAKE_COST, (int) Math.sqrt((double) n + m) * 4);
+
+            for (int d = 0; d < maxD; d++) {
+                if (--budget <= 0) {
+                    return -1L;
+                }
+                if (d > maxCost) {
+                    return furthestPoint(aLo, bLo, n, m, vLength);
+                }
+                // 前向搜索
+                for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                    budget--;
+                    int k1Offset = offset + k1;
+                    int x1;
+                    if (k1 == -d || (k1 != d && vf[k1Offset - 1] < vf[k1Offset + 1])) {
+                        x1 = vf[k1Offset + 1];
+                    } else {
+                        x1 = vf[k1Offset - 1] + 1;
+                    }
+                    int y1 = x1 - k1;
+                    while (x1 < n && y1 < m && a[aLo + x1] == b[bLo + y1]) {
+                        x1++; y1++;
+                    }
+                    vf[k1Offset] = x1;
+                    if (x1 > n) {
+                        k1end += 2;
+                    } else if (y1 > m) {
+                        k1start += 2;
+                    } else if (front) {
+                        int k2Offset = offset + delta - k1;
+                        if (k2Offset >= 0 && k2Offset < vLength && vb[k2Offset] != -1) {
+                            int x2 = n - vb[k2Offset];
+                            if (x1 >= x2) {
+                                return ((long) (aLo + x1) << 32) | (bLo + y1);
+                            }
+                        }
+                    }
+                }
+                // 后向搜索
+                for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                    budget--;
+                    int k2Offset = offset + k2;
+                    int x2;
+                    if (k2 == -d || (k2 != d && vb[k2Offset - 1] < vb[k2Offset + 1])) {
+                        x2 = vb[k2Offset + 1];
+                    } else {
+                        x2 = vb[k2Offset - 1] + 1;
+                    }
+                    int y2 = x2 - k2;
+                    while (x2 < n && y2 < m && a[aHi - x2 - 1] == b[bHi - y2 - 1]) {
+                        x2++; y2++;
+                    }
+                    vb[k2Offset] = x2;
+                    if (x2 > n) {
+                        k2end += 2;
+                    } else if (y2 > m) {
+                        k2start += 2;
+                    } else if (!front) {
+                        int k1Offset = offset + delta - k2;
+                        if (k1Offset >= 0 && k1Offset < vLength && vf[k1Offset] != -1) {
+                            int x1 = vf[k1Offset];
+                            int y1 = offset + x1 - k1Offset;
+                            if (x1 >= n - x2) {
+                                return ((long) (aLo + x1) << 32) | (bLo + y1);
+                            }
+                        }
+                    }
+                }
             }
+            return -1L;
+        }
+
+        /**
+         * 在前向/后向已探测的路径中选出推进最远的端点
+         */
+        private long furthestPoint(int aLo, int bLo, int n, int m, int vLength) {
+            int offset = vLength / 2 - 1;
+            int bestX = -1, bestY = -1, bestScore = -1;
+            for (int i = 0; i < vLength; i++) {
+                int k = i - offset;
+                if (vf[i] != -1) {
+                    int x = vf[i];
+                    int y = x - k;
+                    if (x <= n && y >= 0 && y <= m && x + y > bestScore) {
+                        bestScore = x + y;
+                        bestX = x;
+                        bestY = y;
+                    }
+                }
+                if (vb[i] != -1) {
+                    int x = vb[i];
+                    int y = x - k;
+                    if (x <= n && y >= 0 && y <= m && x + y > bestScore) {
+                        bestScore = x + y;
+                        bestX = n - x;
+                        bestY = m - y;
+                    }
+                }
+            }
+            if (bestScore <= 0) {
+                return -1L;
+            }
+            return ((long) (aLo + bestX) << 32) | (bLo + bestY);
+        }
+
+        private void markDeleted(int from, int to) {
+            for (int i = from; i < to; i++) deleted[i] = true;
+        }
+
+        private void markInserted(int from, int to) {
+            for (int j = from; j < to; j++) inserted[j] = true;
         }
-        return result;
     }
-    
+
     /**
      * 简单的统计类
      */
@@ -0,0 +1,118 @@
+package com.knowledge.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 三路合并：干净合并、真实冲突、相邻修改、文末插入和空基准
+ */
+class DiffUtilTest {
+
+    private static final String BASE = "a\nb\nc\nd\ne";
+
+    @Test
+    void mergesNonOverlappingEdits() {
+        DiffUtil.MergeResult result = DiffUtil.merge(BASE, "A\nb\nc\nd\ne", "a\nb\nc\nd\nE");
+        assertFalse(result.isHasConflict());
+        assertEquals("A\nb\nc\nd\nE", result.getMergedContent());
+    }
+
+    @Test
+    void mergesInsertionsAndDeletionsOnDifferentSides() {
+        DiffUtil.MergeResult result = DiffUtil.merge(BASE, "a\nc\nd\ne", "a\nb\nc\nd\nx\ne");
+        assertFalse(result.isHasConflict());
+        assertEquals("a\nc\nd\nx\ne", result.getMergedContent());
+    }
+
+    @Test
+    void identicalEditsOnBothSidesDoNotConflict() {
+        DiffUtil.MergeResult result = DiffUtil.merge(BASE, "a\nB\nc\nd\nE", "a\nB\nc\nd\ne");
+        assertFalse(result.isHasConflict());
+        assertEquals("a\nB\nc\nd\nE", result.getMergedContent());
+    }
+
+    @Test
+    void reportsConflictWhenBothSidesChangeTheSameLine() {
+        DiffUtil.MergeResult result = DiffUtil.merge(BASE, "a\nb\nours\nd\ne", "a\nb\ntheirs\nd\ne");
+        assertTrue(result.isHasConflict());
+        assertEquals("a\nb\n"
+                + "<<<<<<< HEAD (Current Version)\nours\n=======\ntheirs\n>>>>>>> Incoming (Your Draft)\n"
+                + "d\ne", result.getMergedContent());
+    }
+
+    @Test
+    void reportsAdjacentEditsAsConflict() {
+        // 两处修改之间没有双方都未改动的行，落在同一个变更块中
+        DiffUtil.MergeResult result = DiffUtil.merge(BASE, "a\nB\nc\nd\ne", "a\nb\nC\nd\ne");
+        assertTrue(result.isHasConflict());
+        assertEquals("a\n"
+                + "<<<<<<< HEAD (Current Version)\nB\nc\n=======\nb\nC\n>>>>>>> Incoming (Your Draft)\n"
+                + "d\ne", result.getMergedContent());
+
+        List<DiffUtil.Diff3Block> blocks = DiffUtil.diff3(BASE, "a\nB\nc\nd\ne", "a\nb\nC\nd\ne");
+        assertEquals(3, blocks.size());
+        assertEquals(DiffUtil.Diff3Type.CONFLICT, blocks.get(1).getType());
+        assertEquals(1, blocks.get(1).getBaseStart());
+    }
+
+    @Test
+    void mergesEditsSeparatedByOneUnchangedLine() {
+        DiffUtil.MergeResult result = DiffUtil.merge(BASE, "a\nB\nc\nd\ne", "a\nb\nc\nD\ne");
+        assertFalse(result.isHasConflict());
+        assertEquals("a\nB\nc\nD\ne", result.getMergedContent());
+    }
+
+    @Test
+    void mergesInsertAtEndOfFileFromOneSide() {
+        DiffUtil.MergeResult result = DiffUtil.merge(BASE, "A\nb\nc\nd\ne", BASE + "\nf");
+        assertFalse(result.isHasConflict());
+        assertEquals("A\nb\nc\nd\ne\nf", result.getMergedContent());
+    }
+
+    @Test
+    void reportsConflictForDifferentInsertsAtEndOfFile() {
+        DiffUtil.MergeResult result = DiffUtil.merge(BASE, BASE + "\nours", BASE + "\ntheirs");
+        assertTrue(result.isHasConflict());
+        assertEquals(BASE + "\n"
+                + "<<<<<<< HEAD (Current Version)\nours\n=======\ntheirs\n>>>>>>> Incoming (Your Draft)",
+                result.getMergedContent());
+    }
+
+    @Test
+    void emptyBaseTakesTheChangedSide() {
+        assertEquals("draft", DiffUtil.merge("", "", "draft").getMergedContent());
+        assertEquals("current", DiffUtil.merge(null, "current", null).getMergedContent());
+        assertEquals("same", DiffUtil.merge("", "same", "same").getMergedContent());
+    }
+
+    @Test
+    void emptyBaseWithDifferentContentOnBothSidesConflicts() {
+        DiffUtil.MergeResult result = DiffUtil.merge("", "ours", "theirs");
+        assertTrue(result.isHasConflict());
+        assertEquals("<<<<<<< HEAD (Current Version)\nours\n=======\ntheirs\n>>>>>>> Incoming (Your Draft)",
+                result.getMergedContent());
+    }
+
+    @Test
+    void diff3BlocksCoverEveryLineOfAllThreeVersions() {
+        String ours = "a\nB\nc\nd\ne\nf";
+        String theirs = "b\nc\nD\ne";
+        int baseLines = 0, oursLines = 0, theirsLines = 0;
+        for (DiffUtil.Diff3Block block : DiffUtil.diff3(BASE, ours, theirs)) {
+            assertEquals(baseLines, block.getBaseStart());
+            assertEquals(oursLines, block.getOursStart());
+            assertEquals(theirsLines, block.getTheirsStart());
+            baseLines += block.getBase().size();
+            oursLines += block.getOurs().size();
+            theirsLines += block.getTheirs().size();
+        }
+        assertEquals(5, baseLines);
+        assertEquals(6, oursLines);
+        assertEquals(4, theirsLines);
+    }
+}
@@ -0,0 +1,218 @@
+package com.knowledge.knowledge.batch;
+
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.knowledge.api.dto.BatchJobStatusDTO;
+import com.knowledge.knowledge.counter.StatisticsCounter;
+import com.knowledge.knowledge.entity.Knowledge;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.mapper.KnowledgeProjection;
+import com.knowledge.knowledge.outbox.SearchIndexOutboxWriter;
+import com.knowledge.knowledge.tree.KnowledgeTreeCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 知识批量更新
+ * 按块执行：每块先读取统计维度所需的列，再用一条 UPDATE ... WHERE id IN (...) 更新整块，
+ * 统计差量合并写入、知识树变更一次记录、发件箱批量插入（search-service 拉取后批量写索引），每块单独提交以缩短锁持有时间。
+ * 大批量可提交为后台任务，进度保存在 Redis 中供查询。
+ */
+@Slf4j
+@Component
+public class KnowledgeBatchUpdater {
+
+    private static final String JOB_KEY_PREFIX = "knowledge:batch:job:";
+
+    @Resource
+    private KnowledgeMapper knowledgeMapper;
+
+    @Resource
+    private StatisticsCounter statisticsCounter;
+
+    @Resource
+    private KnowledgeTreeCache knowledgeTreeCache;
+
+    @Resource
+    private SearchIndexOutboxWriter indexOutboxWriter;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${knowledge.batch-update.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${knowledge.batch-update.job-ttl-hours:24}")
+    private long jobTtlHours;
+
+    private ExecutorService jobExecutor;
+
+    @PostConstruct
+    public void init() {
+        jobExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "knowledge-batch-update");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * 同步执行批量更新
+     * @return 实际更新的知识数
+     */
+    public int update(List<Long> knowledgeIds, Map<String, Object> updateData) {
+        List<Long> ids = distinct(knowledgeIds);
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            updated += updateChunk(ids.subList(from, Math.min(from + chunkSize, ids.size())), updateData);
+        }
+        return updated;
+    }
+
+    /**
+     * 提交后台批量更新任务，同一时间只执行一个任务，其余排队
+     */
+    public BatchJobStatusDTO submit(List<Long> knowledgeIds, Map<String, Object> updateData) {
+        List<Long> ids = distinct(knowledgeIds);
+        BatchJobStatusDTO status = new BatchJobStatusDTO();
+        status.setJobId(IdUtil.simpleUUID());
+        status.setStatus(BatchJobStatusDTO.STATUS_RUNNING);
+        status.setTotal(ids.size());
+        status.setProcessed(0);
+        status.setUpdated(0);
+        status.setStartTime(LocalDateTime.now());
+        saveStatus(status);
+        jobExecutor.submit(() -> runJob(status, ids, updateData));
+        log.info("提交批量更新任务: jobId={}, count={}, fields={}", status.getJobId(), ids.size(), updateData.keySet());
+        return status;
+    }
+
+    public BatchJobStatusDTO getStatus(String jobId) {
+        String json = stringRedisTemplate.opsForValue().get(JOB_KEY_PREFIX + jobId);
+        return json != null ? JSON.parseObject(json, BatchJobStatusDTO.class) : null;
+    }
+
+    private void runJob(BatchJobStatusDTO status, List<Long> ids, Map<String, Object> updateData) {
+        try {
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                status.setUpdated(status.getUpdated() + updateChunk(chunk, updateData));
+                status.setProcessed(from + chunk.size());
+                saveStatus(status);
+            }
+            status.setStatus(BatchJobStatusDTO.STATUS_COMPLETED);
+            log.info("批量更新任务完成: jobId={}, updated={}", status.getJobId(), status.getUpdated());
+        } catch (Exception e) {
+            // 已提交的块保持更新后的状态，message 中给出失败原因
+            log.error("批量更新任务失败: jobId={}, processed={}", status.getJobId(), status.getProcessed(), e);
+            status.setStatus(BatchJobStatusDTO.STATUS_FAILED);
+            status.setMessage(e.getMessage());
+        }
+        status.setEndTime(LocalDateTime.now());
+        saveStatus(status);
+    }
+
+    private int updateChunk(List<Long> ids, Map<String, Object> updateData) {
+        Integer updated = new TransactionTemplate(transactionManager).execute(tx -> {
+            LambdaQueryWrapper<Knowledge> query = KnowledgeProjection.brief();
+            query.in(Knowledge::getId, ids);
+            List<Knowledge> rows = knowledgeMapper.selectList(query);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            LambdaUpdateWrapper<Knowledge> update = new LambdaUpdateWrapper<>();
+            List<StatisticsCounter.Snapshot> before = new ArrayList<>(rows.size());
+            for (Knowledge knowledge : rows) {
+                before.add(StatisticsCounter.snapshot(knowledge));
+                apply(knowledge, updateData);
+                knowledge.setUpdateTime(now);
+            }
+            if (updateData.containsKey("category")) {
+                update.set(Knowledge::getCategory, stringValue(updateData.get("category")));
+            }
+            if (updateData.containsKey("status")) {
+                update.set(Knowledge::getStatus, stringValue(updateData.get("status")));
+            }
+            if (updateData.containsKey("keywords")) {
+                update.set(Knowledge::getKeywords, stringValue(updateData.get("keywords")));
+            }
+            if (updateData.containsKey("department")) {
+                update.set(Knowledge::getDepartment, stringValue(updateData.get("department")));
+            }
+            update.set(Knowledge::getUpdateTime, now);
+            List<Long> existingIds = rows.stream().map(Knowledge::getId).collect(Collectors.toList());
+            update.in(Knowledge::getId, existingIds);
+            knowledgeMapper.update(null, update);
+
+            statisticsCounter.onChanged(before, rows);
+            knowledgeTreeCache.markChanged(existingIds);
+            // 记录索引变更（状态可能改变，未发布的会在同步时从索引中移除）
+            indexOutboxWriter.upsert(existingIds);
+            return rows.size();
+        });
+        return updated != null ? updated : 0;
+    }
+
+    private static void apply(Knowledge knowledge, Map<String, Object> updateData) {
+        if (updateData.containsKey("category")) {
+            knowledge.setCategory(stringValue(updateData.get("category")));
+        }
+        if (updateData.containsKey("status")) {
+            knowledge.setStatus(stringValue(updateData.get("status")));
+        }
+        if (updateData.containsKey("keywords")) {
+            knowledge.setKeywords(stringValue(updateData.get("keywords")));
+        }
+        if (updateData.containsKey("department")) {
+            knowledge.setDepartment(stringValue(updateData.get("department")));
+        }
+    }
+
+    private void saveStatus(BatchJobStatusDTO status) {
+        try {
+            stringRedisTemplate.opsForValue().set(JOB_KEY_PREFIX + status.getJobId(),
+                    JSON.toJSONString(status), jobTtlHours, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("保存批量更新任务状态失败: jobId={}, error={}", status.getJobId(), e.getMessage());
+        }
+    }
+
+    private static List<Long> distinct(List<Long> knowledgeIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(knowledgeIds));
+        ids.remove(null);
+        return ids;
+    }
+
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -0,0 +1,234 @@
+package com.knowledge.knowledge.counter;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.knowledge.api.service.SearchService;
+import com.knowledge.knowledge.entity.Knowledge;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 点击量写缓冲
+ * 详情页的每次点击只在内存中按知识ID累加，由后台线程定期把累计值合并为多行 UPDATE 写入数据库，
+ * 并把最新点击量部分更新到搜索索引、累加到统计计数和热门排行、追加到事件日志，避免热门知识的行锁争用。
+ * 停机时会先把缓冲区写完；进程异常退出最多丢失一个刷新周期内的点击。
+ */
+@Slf4j
+@Component
+public class ClickCountBuffer {
+
+    /**
+     * 计数器被回收后的标记值，递增方看到该值时需要重新放入新的计数器
+     */
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    @Resource
+    private KnowledgeMapper knowledgeMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private HotKnowledgeRanking hotKnowledgeRanking;
+
+    @Resource
+    private StatisticsCounter statisticsCounter;
+
+    @Resource
+    private KnowledgeEventLogger eventLogger;
+
+    @DubboReference(check = false, timeout = 10000)
+    private SearchService searchService;
+
+    @Value("${knowledge.click-buffer.flush-interval-ms:3000}")
+    private long flushIntervalMs;
+
+    @Value("${knowledge.click-buffer.batch-size:500}")
+    private int batchSize;
+
+    private final ConcurrentHashMap<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flushScheduler;
+
+    private Counter flushedClicks;
+
+    @PostConstruct
+    public void init() {
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "click-count-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("knowledge.click.buffer.pending", counters, ConcurrentHashMap::size)
+                .description("缓冲区中待写入点击量的知识数")
+                .register(meterRegistry);
+        flushedClicks = Counter.builder("knowledge.click.buffer.flushed")
+                .description("已写入数据库的点击数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 停机时先停止定时刷新，再把剩余点击全部写入数据库
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdown();
+        try {
+            flushScheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        Map<Long, Long> remaining = snapshot();
+        if (!remaining.isEmpty()) {
+            // 数据库不可用时无法落盘，记录到日志以便人工补录
+            log.error("停机时仍有点击量未写入数据库: {}", remaining);
+        }
+    }
+
+    /**
+     * 记录一次点击
+     */
+    public void increment(Long knowledgeId) {
+        if (knowledgeId == null) {
+            return;
+        }
+        while (true) {
+            AtomicLong counter = counters.computeIfAbsent(knowledgeId, id -> new AtomicLong());
+            long current = counter.get();
+            while (current != RETIRED) {
+                if (counter.compareAndSet(current, current + 1)) {
+                    return;
+                }
+                current = counter.get();
+            }
+            // 计数器刚被回收，移除后重试
+            counters.remove(knowledgeId, counter);
+        }
+    }
+
+    /**
+     * 把缓冲区中的点击量写入数据库并同步到搜索索引
+     * 写入成功的部分才从计数器中扣除，失败的留到下一次刷新
+     */
+    public synchronized void flush() {
+        Map<Long, Long> deltas = snapshot();
+        if (deltas.isEmpty()) {
+            retireIdle();
+            return;
+        }
+
+        // 按ID排序后分批更新，多实例并发刷新时加锁顺序一致，避免死锁
+        List<Long> flushedIds = new ArrayList<>();
+        TreeMap<Long, Long> chunk = new TreeMap<>();
+        for (Map.Entry<Long, Long> entry : new TreeMap<>(deltas).entrySet()) {
+            chunk.put(entry.getKey(), entry.getValue());
+            if (chunk.size() >= batchSize) {
+                writeChunk(chunk, flushedIds);
+                chunk = new TreeMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, flushedIds);
+        }
+        retireIdle();
+
+        syncSearchIndex(flushedIds);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("刷新点击量失败", e);
+        }
+    }
+
+    private Map<Long, Long> snapshot() {
+        Map<Long, Long> deltas = new HashMap<>();
+        counters.forEach((id, counter) -> {
+            long value = counter.get();
+            if (value > 0) {
+                deltas.put(id, value);
+            }
+        });
+        return deltas;
+    }
+
+    private void writeChunk(TreeMap<Long, Long> chunk, List<Long> flushedIds) {
+        try {
+            knowledgeMapper.addClickCounts(chunk);
+        } catch (Exception e) {
+            log.warn("批量写入点击量失败，下次刷新重试: count={}, error={}", chunk.size(), e.getMessage());
+            return;
+        }
+        long clicks = 0;
+        for (Map.Entry<Long, Long> entry : chunk.entrySet()) {
+            // 只扣除已写入的部分，快照之后新增的点击保留在计数器中
+            counters.get(entry.getKey()).addAndGet(-entry.getValue());
+            clicks += entry.getValue();
+        }
+        flushedIds.addAll(chunk.keySet());
+        flushedClicks.increment(clicks);
+        statisticsCounter.addClicks(chunk);
+        eventLogger.recordClicks(chunk);
+        hotKnowledgeRanking.recordClicks(chunk);
+    }
+
+    /**
+     * 回收已清零的计数器，防止缓冲区随访问过的知识数无限增长
+     */
+    private void retireIdle() {
+        counters.forEach((id, counter) -> {
+            if (counter.compareAndSet(0, RETIRED)) {
+                counters.remove(id, counter);
+            }
+        });
+    }
+
+    /**
+     * 读取写入后的点击量，部分更新搜索索引中的 clickCount（同时影响排序和自动补全权重）
+     */
+    private void syncSearchIndex(List<Long> knowledgeIds) {
+        if (knowledgeIds.isEmpty()) {
+            return;
+        }
+        try {
+            for (int from = 0; from < knowledgeIds.size(); from += batchSize) {
+                List<Long> chunk = knowledgeIds.subList(from, Math.min(from + batchSize, knowledgeIds.size()));
+                List<Knowledge> rows = knowledgeMapper.selectList(new LambdaQueryWrapper<Knowledge>()
+                        .select(Knowledge::getId, Knowledge::getClickCount)
+                        .in(Knowledge::getId, chunk));
+                Map<Long, Long> clickCounts = new HashMap<>(rows.size() * 2);
+                for (Knowledge row : rows) {
+                    clickCounts.put(row.getId(), row.getClickCount() != null ? row.getClickCount() : 0L);
+                }
+                searchService.updateClickCounts(clickCounts);
+            }
+        } catch (Exception e) {
+            // 索引中的点击量只用于排序，下次点击或重建索引时会被修正
+            log.warn("同步点击量到搜索索引失败: count={}, error={}", knowledgeIds.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.knowledge.knowledge.counter;
+
+import com.knowledge.knowledge.lock.RedisJobLock;
+import com.knowledge.knowledge.mapper.KnowledgeEventLogMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每日统计汇总与事件日志分区维护
+ * 定时把今天和昨天的事件日志重新汇总到 knowledge_daily_stat（覆盖写，可重复执行，昨天用于收尾跨天写入的事件）；
+ * 同时提前创建未来几天的日分区，并删除超过保留天数的分区。多实例部署时由 Redis 锁保证只有一个实例执行。
+ */
+@Slf4j
+@Component
+public class DailyStatRollupJob {
+
+    private static final String LOCK_KEY = "knowledge:stats:rollup";
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    @Resource
+    private KnowledgeEventLogMapper eventLogMapper;
+
+    @Resource
+    private RedisJobLock redisJobLock;
+
+    @Value("${knowledge.event-log.rollup-interval-minutes:5}")
+    private long rollupIntervalMinutes;
+
+    @Value("${knowledge.event-log.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${knowledge.event-log.partitions-ahead:7}")
+    private int partitionsAhead;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "daily-stat-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, 1, rollupIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public void run() {
+        String token = redisJobLock.tryLock(LOCK_KEY, 10, TimeUnit.MINUTES);
+        if (token == null) {
+            return;
+        }
+        try {
+            maintainPartitions();
+            LocalDate today = LocalDate.now();
+            eventLogMapper.rollupDay(today.minusDays(1));
+            eventLogMapper.rollupDay(today);
+            log.debug("每日统计汇总完成: date={}", today);
+        } finally {
+            redisJobLock.unlock(LOCK_KEY, token);
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.error("每日统计汇总失败", e);
+        }
+    }
+
+    /**
+     * 从 p_future 中拆出今天到未来 partitionsAhead 天的日分区，并删除早于保留期的日分区
+     */
+    private void maintainPartitions() {
+        List<String> existing = eventLogMapper.selectPartitionNames();
+        if (!existing.contains(FUTURE_PARTITION)) {
+            log.warn("knowledge_event_log 未按日期分区，跳过分区维护");
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        List<String> definitions = new ArrayList<>();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            LocalDate day = today.plusDays(i);
+            String name = day.format(PARTITION_NAME_FORMAT);
+            if (existing.contains(name) || isCoveredByLaterPartition(existing, name)) {
+                continue;
+            }
+            definitions.add("PARTITION " + name + " VALUES LESS THAN ('" + day.plusDays(1) + "')");
+        }
+        if (!definitions.isEmpty()) {
+            definitions.add("PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+            eventLogMapper.splitFuturePartition(String.join(", ", definitions));
+            log.info("事件日志新增分区: count={}", definitions.size() - 1);
+        }
+
+        String oldest = today.minusDays(retentionDays).format(PARTITION_NAME_FORMAT);
+        List<String> expired = new ArrayList<>();
+        for (String name : existing) {
+            if (!FUTURE_PARTITION.equals(name) && name.compareTo(oldest) < 0) {
+                expired.add(name);
+            }
+        }
+        if (!expired.isEmpty()) {
+            eventLogMapper.dropPartitions(String.join(", ", expired));
+            log.info("事件日志删除过期分区: {}", expired);
+        }
+    }
+
+    /**
+     * 范围分区只能从最后一个分区（p_future）拆分，已有更晚的日分区时不能再补建更早的
+     */
+    private static boolean isCoveredByLaterPartition(List<String> existing, String name) {
+        for (String partition : existing) {
+            if (!FUTURE_PARTITION.equals(partition) && partition.compareTo(name) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,301 @@
+package com.knowledge.knowledge.counter;
+
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.knowledge.entity.Knowledge;
+import com.knowledge.knowledge.lock.RedisJobLock;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.mapper.KnowledgeProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 热门知识排行
+ * 点击和收藏事件累加到 Redis 有序集合，热门列表直接按分数倒序读取，不再扫描 knowledge 表。
+ * 开启时间衰减时采用前向衰减：事件分值乘以 2^((now - landmark) / halfLife)，越新的事件权重越大，
+ * 相当于所有历史分数按半衰期指数衰减；指数过大时在脚本内整体缩放并重置 landmark，避免分数溢出。
+ */
+@Slf4j
+@Component
+public class HotKnowledgeRanking {
+
+    private static final String RANK_KEY = "knowledge:hot:rank";
+    private static final String LANDMARK_KEY = "knowledge:hot:landmark";
+    private static final String SEED_LOCK_KEY = "knowledge:hot:seeding";
+    /**
+     * 初始化完成标记，和排行一样不过期：Redis 数据丢失后两者一起消失，
+     * 不能用排行是否为空判断，丢失后的第一次点击就会让排行非空
+     */
+    private static final String SEEDED_KEY = "knowledge:hot:seeded";
+    private static final String SUMMARY_KEY_PREFIX = "knowledge:hot:summary:";
+
+    /**
+     * 参数：ARGV[1] 当前时间（毫秒），ARGV[2] 半衰期（毫秒，0 表示不衰减），ARGV[3] 保留的最大成员数，
+     * 之后依次为 成员、分值 对
+     */
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1])\n" +
+            "local halfLife = tonumber(ARGV[2])\n" +
+            "local factor = 1\n" +
+            "if halfLife > 0 then\n" +
+            "  local landmark = tonumber(redis.call('GET', KEYS[2]))\n" +
+            "  if not landmark then\n" +
+            "    landmark = now\n" +
+            "    redis.call('SET', KEYS[2], now)\n" +
+            "  end\n" +
+            "  local exponent = (now - landmark) / halfLife\n" +
+            "  if exponent > 32 then\n" +
+            "    redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', tostring(2 ^ (-exponent)))\n" +
+            "    redis.call('SET', KEYS[2], now)\n" +
+            "    exponent = 0\n" +
+            "  end\n" +
+            "  factor = 2 ^ exponent\n" +
+            "end\n" +
+            "for i = 4, #ARGV, 2 do\n" +
+            "  redis.call('ZINCRBY', KEYS[1], tonumber(ARGV[i + 1]) * factor, ARGV[i])\n" +
+            "end\n" +
+            "local maxSize = tonumber(ARGV[3])\n" +
+            "if maxSize > 0 then\n" +
+            "  redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -maxSize - 1)\n" +
+            "end\n" +
+            "return 1",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private KnowledgeMapper knowledgeMapper;
+
+    @Resource
+    private RedisJobLock redisJobLock;
+
+    @Value("${knowledge.hot.half-life-hours:72}")
+    private double halfLifeHours;
+
+    @Value("${knowledge.hot.collect-weight:5}")
+    private double collectWeight;
+
+    @Value("${knowledge.hot.max-size:10000}")
+    private long maxSize;
+
+    @Value("${knowledge.hot.seed-size:1000}")
+    private int seedSize;
+
+    @Value("${knowledge.hot.summary-ttl-seconds:60}")
+    private long summaryTtlSeconds;
+
+    /**
+     * 记录一批点击（由点击量写缓冲在落库后调用）
+     * @param clicks knowledgeId -> 点击次数
+     */
+    public void recordClicks(Map<Long, Long> clicks) {
+        Map<Long, Double> scores = new HashMap<>(clicks.size() * 2);
+        clicks.forEach((id, count) -> scores.put(id, count.doubleValue()));
+        increment(scores);
+    }
+
+    /**
+     * 记录一次收藏或取消收藏，处于事务中时在提交后生效
+     */
+    public void recordCollect(Long knowledgeId, boolean collect) {
+        afterCommit(() -> increment(Collections.singletonMap(knowledgeId, collect ? collectWeight : -collectWeight)));
+    }
+
+    /**
+     * 知识删除后移出排行，处于事务中时在提交后生效
+     */
+    public void remove(Long knowledgeId) {
+        remove(Collections.singletonList(knowledgeId));
+    }
+
+    /**
+     * 批量移出排行（删除整棵子树时使用），处于事务中时在提交后生效
+     */
+    public void remove(Collection<Long> knowledgeIds) {
+        if (knowledgeIds.isEmpty()) {
+            return;
+        }
+        Object[] members = knowledgeIds.stream().map(String::valueOf).toArray();
+        List<String> summaryKeys = knowledgeIds.stream().map(id -> SUMMARY_KEY_PREFIX + id).collect(Collectors.toList());
+        afterCommit(() -> {
+            try {
+                stringRedisTemplate.opsForZSet().remove(RANK_KEY, members);
+                stringRedisTemplate.delete(summaryKeys);
+            } catch (Exception e) {
+                log.warn("移除热门知识失败: count={}, error={}", knowledgeIds.size(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 按热度取前 limit 条知识（仅文件，不含正文）
+     * @return 排行不可用（Redis 异常或正在初始化）时返回 null，由调用方回退到数据库查询
+     */
+    public List<KnowledgeDTO> getHotKnowledge(int limit) {
+        try {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(SEEDED_KEY)) && !seed()) {
+                return null;
+            }
+            // 文件夹和已删除的知识会被跳过，多取一些备用
+            Set<String> members = stringRedisTemplate.opsForZSet().reverseRange(RANK_KEY, 0, limit * 2L - 1);
+            if (members == null) {
+                return null;
+            }
+            List<Long> ids = members.stream().map(Long::valueOf).collect(Collectors.toList());
+            Map<Long, KnowledgeDTO> summaries = loadSummaries(ids);
+
+            List<KnowledgeDTO> result = new ArrayList<>(limit);
+            for (Long id : ids) {
+                KnowledgeDTO dto = summaries.get(id);
+                if (dto == null) {
+                    // 知识已不存在
+                    stringRedisTemplate.opsForZSet().remove(RANK_KEY, String.valueOf(id));
+                    continue;
+                }
+                if (dto.getFileId() == null) {
+                    continue;
+                }
+                result.add(dto);
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            log.warn("读取热门知识排行失败，回退到数据库查询: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean increment(Map<Long, Double> scores) {
+        if (scores.isEmpty()) {
+            return true;
+        }
+        List<String> args = new ArrayList<>(3 + scores.size() * 2);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf((long) (halfLifeHours * TimeUnit.HOURS.toMillis(1))));
+        args.add(String.valueOf(maxSize));
+        scores.forEach((id, score) -> {
+            args.add(String.valueOf(id));
+            args.add(String.valueOf(score));
+        });
+        try {
+            stringRedisTemplate.execute(INCREMENT_SCRIPT, Arrays.asList(RANK_KEY, LANDMARK_KEY), args.toArray());
+            return true;
+        } catch (Exception e) {
+            log.warn("更新热门知识排行失败: count={}, error={}", scores.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 没有初始化标记时（首次启动或 Redis 数据丢失）用数据库中累计的点击和收藏初始化，
+     * 同一时间只有一个实例执行，其余实例本次回退到数据库查询。
+     * 数据丢失后、初始化前记录的少量点击已经落库，会被重复计入一次，对排行影响可以忽略
+     */
+    private boolean seed() {
+        String token = redisJobLock.tryLock(SEED_LOCK_KEY, 60, TimeUnit.SECONDS);
+        if (token == null) {
+            return false;
+        }
+        try {
+            // 等锁期间其他实例可能已完成初始化
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(SEEDED_KEY))) {
+                return true;
+            }
+            LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(Knowledge::getId, Knowledge::getClickCount, Knowledge::getCollectCount);
+            wrapper.isNotNull(Knowledge::getFileId);
+            wrapper.orderByDesc(Knowledge::getClickCount);
+            wrapper.last("LIMIT " + seedSize);
+            Map<Long, Double> scores = new HashMap<>();
+            for (Knowledge knowledge : knowledgeMapper.selectList(wrapper)) {
+                long clicks = knowledge.getClickCount() != null ? knowledge.getClickCount() : 0L;
+                long collects = knowledge.getCollectCount() != null ? knowledge.getCollectCount() : 0L;
+                scores.put(knowledge.getId(), clicks + collects * collectWeight);
+            }
+            if (!increment(scores)) {
+                return false;
+            }
+            stringRedisTemplate.opsForValue().set(SEEDED_KEY, String.valueOf(System.currentTimeMillis()));
+            log.info("热门知识排行初始化完成: count={}", scores.size());
+            return true;
+        } finally {
+            redisJobLock.unlock(SEED_LOCK_KEY, token);
+        }
+    }
+
+    /**
+     * 读取知识摘要（不含正文），优先使用 Redis 中带 TTL 的缓存，未命中的一次性从数据库补齐
+     */
+    private Map<Long, KnowledgeDTO> loadSummaries(List<Long> ids) {
+        Map<Long, KnowledgeDTO> summaries = new HashMap<>(ids.size() * 2);
+        if (ids.isEmpty()) {
+            return summaries;
+        }
+        List<String> keys = ids.stream().map(id -> SUMMARY_KEY_PREFIX + id).collect(Collectors.toList());
+        List<String> cached = stringRedisTemplate.opsForValue().multiGet(keys);
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            String json = cached != null ? cached.get(i) : null;
+            if (json != null) {
+                summaries.put(ids.get(i), JSON.parseObject(json, KnowledgeDTO.class));
+            } else {
+                missing.add(ids.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return summaries;
+        }
+
+        LambdaQueryWrapper<Knowledge> wrapper = KnowledgeProjection.brief();
+        wrapper.in(Knowledge::getId, missing);
+        for (Knowledge knowledge : knowledgeMapper.selectList(wrapper)) {
+            KnowledgeDTO dto = new KnowledgeDTO();
+            BeanUtils.copyProperties(knowledge, dto);
+            if (dto.getClickCount() == null) {
+                dto.setClickCount(0L);
+            }
+            if (dto.getCollectCount() == null) {
+                dto.setCollectCount(0L);
+            }
+            summaries.put(knowledge.getId(), dto);
+            stringRedisTemplate.opsForValue().set(SUMMARY_KEY_PREFIX + knowledge.getId(),
+                    JSON.toJSONString(dto), summaryTtlSeconds, TimeUnit.SECONDS);
+        }
+        return summaries;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.knowledge.knowledge.counter;
+
+import com.knowledge.knowledge.entity.KnowledgeEventLog;
+import com.knowledge.knowledge.mapper.KnowledgeEventLogMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 知识事件日志写缓冲
+ * 点击和收藏事件先进入内存队列，由后台线程按 (日期, 知识, 类型) 合并后批量追加到 knowledge_event_log，
+ * 每日统计由 {@link DailyStatRollupJob} 从日志汇总。写入失败的事件放回队列下次重试，停机时写完剩余事件。
+ */
+@Slf4j
+@Component
+public class KnowledgeEventLogger {
+
+    @Resource
+    private KnowledgeEventLogMapper eventLogMapper;
+
+    @Value("${knowledge.event-log.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    @Value("${knowledge.event-log.batch-size:500}")
+    private int batchSize;
+
+    @Value("${knowledge.event-log.max-pending:100000}")
+    private int maxPending;
+
+    private final ConcurrentLinkedQueue<KnowledgeEventLog> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+
+    private ScheduledExecutorService flushScheduler;
+
+    @PostConstruct
+    public void init() {
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "event-log-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdown();
+        try {
+            flushScheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (pendingSize.get() > 0) {
+            log.error("停机时仍有事件未写入事件日志: count={}", pendingSize.get());
+        }
+    }
+
+    /**
+     * 记录一批点击（由点击量写缓冲落库后调用）
+     * @param clicks knowledgeId -> 点击次数
+     */
+    public void recordClicks(Map<Long, Long> clicks) {
+        LocalDate today = LocalDate.now();
+        clicks.forEach((id, count) -> enqueue(event(today, id, KnowledgeEventLog.TYPE_CLICK, count)));
+    }
+
+    /**
+     * 记录一次收藏或取消收藏，处于事务中时在提交后生效
+     */
+    public void recordCollect(Long knowledgeId, boolean collect) {
+        String type = collect ? KnowledgeEventLog.TYPE_COLLECT : KnowledgeEventLog.TYPE_UNCOLLECT;
+        Runnable action = () -> enqueue(event(LocalDate.now(), knowledgeId, type, 1));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 取出队列中的全部事件，合并后分批写入
+     */
+    public synchronized void flush() {
+        Map<String, KnowledgeEventLog> merged = new LinkedHashMap<>();
+        KnowledgeEventLog event;
+        while ((event = pending.poll()) != null) {
+            pendingSize.decrementAndGet();
+            String key = event.getEventDate() + ":" + event.getKnowledgeId() + ":" + event.getEventType();
+            KnowledgeEventLog existing = merged.putIfAbsent(key, event);
+            if (existing != null) {
+                existing.setEventCount(existing.getEventCount() + event.getEventCount());
+            }
+        }
+        if (merged.isEmpty()) {
+            return;
+        }
+
+        List<KnowledgeEventLog> events = new ArrayList<>(merged.values());
+        for (int from = 0; from < events.size(); from += batchSize) {
+            List<KnowledgeEventLog> chunk = events.subList(from, Math.min(from + batchSize, events.size()));
+            try {
+                eventLogMapper.insertBatch(chunk);
+            } catch (Exception e) {
+                log.warn("写入事件日志失败，下次刷新重试: count={}, error={}", chunk.size(), e.getMessage());
+                chunk.forEach(this::enqueue);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("刷新事件日志失败", e);
+        }
+    }
+
+    private void enqueue(KnowledgeEventLog event) {
+        // 数据库长时间不可用时限制积压量，超出部分只影响趋势统计
+        if (pendingSize.incrementAndGet() > maxPending) {
+            pendingSize.decrementAndGet();
+            log.warn("事件日志积压过多，丢弃事件: knowledgeId={}, type={}", event.getKnowledgeId(), event.getEventType());
+            return;
+        }
+        pending.offer(event);
+    }
+
+    private static KnowledgeEventLog event(LocalDate date, Long knowledgeId, String type, long count) {
+        KnowledgeEventLog event = new KnowledgeEventLog();
+        event.setEventDate(date);
+        event.setKnowledgeId(knowledgeId);
+        event.setEventType(type);
+        event.setEventCount((int) Math.min(count, Integer.MAX_VALUE));
+        return event;
+    }
+}
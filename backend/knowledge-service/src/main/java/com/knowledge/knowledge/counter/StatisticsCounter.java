@@ -0,0 +1,288 @@
+package com.knowledge.knowledge.counter;
+
+import com.knowledge.common.constant.Constants;
+import com.knowledge.knowledge.entity.Knowledge;
+import com.knowledge.knowledge.entity.KnowledgeStatCounter;
+import com.knowledge.knowledge.lock.RedisJobLock;
+import com.knowledge.knowledge.mapper.KnowledgeStatCounterMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 知识统计计数器
+ * 总数、总点击/收藏、待审核数以及各分类的统计保存在 knowledge_stat_counter 中，
+ * 由新增、删除、分类或状态变化、点击和收藏事件在事务提交后增量更新，统计页只需按主键读取。
+ * 增量更新与业务写入不在同一事务中，可能因并发或异常产生偏差，由定时对账用全表聚合结果校正。
+ */
+@Slf4j
+@Component
+public class StatisticsCounter {
+
+    private static final String RECONCILE_LOCK_KEY = "knowledge:stats:reconcile";
+
+    @Resource
+    private KnowledgeStatCounterMapper statCounterMapper;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private RedisJobLock redisJobLock;
+
+    @Value("${knowledge.stats.reconcile-interval-minutes:60}")
+    private long reconcileIntervalMinutes;
+
+    private ScheduledExecutorService reconcileScheduler;
+
+    @PostConstruct
+    public void init() {
+        reconcileScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconcileScheduler.scheduleWithFixedDelay(this::reconcileQuietly,
+                1, reconcileIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcileScheduler.shutdownNow();
+    }
+
+    /**
+     * 记录知识在统计维度上的当前取值，用于变更后计算差量
+     */
+    public static Snapshot snapshot(Knowledge knowledge) {
+        return knowledge == null ? null : new Snapshot(knowledge);
+    }
+
+    /**
+     * 知识新增、删除或分类/状态发生变化后调用
+     * @param before 变更前的快照，新增时为 null
+     * @param after 变更后的知识，删除时为 null
+     */
+    public void onChanged(Snapshot before, Knowledge after) {
+        Map<String, KnowledgeStatCounter> deltas = new LinkedHashMap<>();
+        collect(deltas, before, after);
+        if (!deltas.isEmpty()) {
+            afterCommit(() -> apply(deltas.values()));
+        }
+    }
+
+    /**
+     * 批量变更后调用，所有知识的差量合并后一次写入
+     * @param before 变更前的快照，与 after 按下标一一对应
+     * @param after 变更后的知识
+     */
+    public void onChanged(List<Snapshot> before, List<Knowledge> after) {
+        Map<String, KnowledgeStatCounter> deltas = new LinkedHashMap<>();
+        for (int i = 0; i < after.size(); i++) {
+            collect(deltas, before.get(i), after.get(i));
+        }
+        if (!deltas.isEmpty()) {
+            afterCommit(() -> apply(deltas.values()));
+        }
+    }
+
+    /**
+     * 批量删除后调用
+     * @param before 被删除知识的快照
+     */
+    public void onDeleted(List<Snapshot> before) {
+        Map<String, KnowledgeStatCounter> deltas = new LinkedHashMap<>();
+        for (Snapshot snapshot : before) {
+            collect(deltas, snapshot, null);
+        }
+        if (!deltas.isEmpty()) {
+            afterCommit(() -> apply(deltas.values()));
+        }
+    }
+
+    private static void collect(Map<String, KnowledgeStatCounter> deltas, Snapshot before, Knowledge after) {
+        Snapshot current = snapshot(after);
+        if (before != null && before.sameDimensions(current)) {
+            return;
+        }
+        if (before != null) {
+            before.contribute(deltas, -1);
+        }
+        if (current != null) {
+            current.contribute(deltas, 1);
+        }
+    }
+
+    /**
+     * 点击量写缓冲落库后调用，已删除的知识不计入总计和分类统计
+     * @param clicks knowledgeId -> 点击增量
+     */
+    public void addClicks(Map<Long, Long> clicks) {
+        try {
+            statCounterMapper.addTotalClicks(clicks);
+            statCounterMapper.addCategoryClicks(clicks);
+        } catch (Exception e) {
+            log.warn("更新点击统计失败，等待对账修正: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 收藏或取消收藏后调用，处于事务中时在提交后生效
+     */
+    public void addCollect(Long knowledgeId, boolean collect) {
+        long delta = collect ? 1 : -1;
+        afterCommit(() -> {
+            try {
+                statCounterMapper.addTotalCollect(knowledgeId, delta);
+                statCounterMapper.addCategoryCollect(knowledgeId, delta);
+            } catch (Exception e) {
+                log.warn("更新收藏统计失败，等待对账修正: knowledgeId={}, error={}", knowledgeId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 读取总计行，计数表为空（首次部署）时先对账一次
+     */
+    public KnowledgeStatCounter getTotal() {
+        List<KnowledgeStatCounter> rows = statCounterMapper.selectByScope(KnowledgeStatCounter.SCOPE_TOTAL);
+        if (rows.isEmpty()) {
+            reconcile();
+            rows = statCounterMapper.selectByScope(KnowledgeStatCounter.SCOPE_TOTAL);
+        }
+        return rows.isEmpty() ? delta(KnowledgeStatCounter.SCOPE_TOTAL, "", 0, 0, 0, 0) : rows.get(0);
+    }
+
+    /**
+     * 读取各分类的统计，只返回仍有知识的分类
+     */
+    public List<KnowledgeStatCounter> getCategories() {
+        List<KnowledgeStatCounter> result = new ArrayList<>();
+        for (KnowledgeStatCounter row : statCounterMapper.selectByScope(KnowledgeStatCounter.SCOPE_CATEGORY)) {
+            if (row.getKnowledgeCount() != null && row.getKnowledgeCount() > 0) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 用全表聚合结果覆盖计数表，多实例部署时同一时间只有一个实例执行
+     */
+    public void reconcile() {
+        String token = redisJobLock.tryLock(RECONCILE_LOCK_KEY, 10, TimeUnit.MINUTES);
+        if (token == null) {
+            log.debug("其他实例正在对账统计计数，跳过");
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                statCounterMapper.resetAll();
+                statCounterMapper.rebuildTotal(Constants.FILE_STATUS_PENDING);
+                statCounterMapper.rebuildCategories();
+            });
+            log.info("统计计数对账完成: cost={}ms", System.currentTimeMillis() - start);
+        } finally {
+            redisJobLock.unlock(RECONCILE_LOCK_KEY, token);
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("统计计数对账失败", e);
+        }
+    }
+
+    private void apply(Collection<KnowledgeStatCounter> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            statCounterMapper.addCounters(deltas);
+        } catch (Exception e) {
+            log.warn("更新统计计数失败，等待对账修正: {}", e.getMessage());
+        }
+    }
+
+    private static KnowledgeStatCounter delta(String scope, String key, long knowledges, long clicks, long collects, long pendings) {
+        KnowledgeStatCounter counter = new KnowledgeStatCounter();
+        counter.setStatScope(scope);
+        counter.setStatKey(key);
+        counter.setKnowledgeCount(knowledges);
+        counter.setClickCount(clicks);
+        counter.setCollectCount(collects);
+        counter.setPendingCount(pendings);
+        return counter;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 知识在统计维度上的取值：分类、状态以及累计的点击和收藏
+     */
+    public static final class Snapshot {
+        private final String category;
+        private final String status;
+        private final long clicks;
+        private final long collects;
+
+        private Snapshot(Knowledge knowledge) {
+            this.category = knowledge.getCategory();
+            this.status = knowledge.getStatus();
+            this.clicks = knowledge.getClickCount() != null ? knowledge.getClickCount() : 0L;
+            this.collects = knowledge.getCollectCount() != null ? knowledge.getCollectCount() : 0L;
+        }
+
+        private boolean sameDimensions(Snapshot other) {
+            return other != null && Objects.equals(category, other.category) && Objects.equals(status, other.status);
+        }
+
+        private void contribute(Map<String, KnowledgeStatCounter> deltas, int sign) {
+            long pending = Constants.FILE_STATUS_PENDING.equals(status) ? 1 : 0;
+            add(deltas, KnowledgeStatCounter.SCOPE_TOTAL, "", sign, clicks * sign, collects * sign, pending * sign);
+            if (category != null) {
+                add(deltas, KnowledgeStatCounter.SCOPE_CATEGORY, category, sign, clicks * sign, collects * sign, 0);
+            }
+        }
+
+        private static void add(Map<String, KnowledgeStatCounter> deltas, String scope, String key,
+                                long knowledges, long clicks, long collects, long pendings) {
+            KnowledgeStatCounter counter = deltas.computeIfAbsent(scope + ":" + key, k -> delta(scope, key, 0, 0, 0, 0));
+            counter.setKnowledgeCount(counter.getKnowledgeCount() + knowledges);
+            counter.setClickCount(counter.getClickCount() + clicks);
+            counter.setCollectCount(counter.getCollectCount() + collects);
+            counter.setPendingCount(counter.getPendingCount() + pendings);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.knowledge.knowledge.diff;
+
+import com.knowledge.api.dto.KnowledgeVersionDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 差异结果按变更块分页
+ * 把完整的逐行差异切成 unified diff 风格的变更块：每块包含连续的变更行及前后 contextLines 行上下文，
+ * 相隔不超过 2 * contextLines 行的变更合并为一块，其余相同行只返回折叠的行数。
+ * 超过 maxHunkLines 的变更块拆成多个，每页最多 maxHunksPerPage 块，单次响应的大小与文档长度无关。
+ */
+@Component
+public class DiffHunkBuilder {
+
+    private static final String TYPE_EQUAL = "EQUAL";
+    private static final String TYPE_INSERT = "INSERT";
+    private static final String TYPE_DELETE = "DELETE";
+
+    @Value("${knowledge.diff-hunk.default-context-lines:3}")
+    private int defaultContextLines;
+
+    @Value("${knowledge.diff-hunk.max-context-lines:50}")
+    private int maxContextLines;
+
+    @Value("${knowledge.diff-hunk.max-hunks-per-page:50}")
+    private int maxHunksPerPage;
+
+    @Value("${knowledge.diff-hunk.max-hunk-lines:500}")
+    private int maxHunkLines;
+
+    public KnowledgeVersionDTO.DiffHunkPage page(KnowledgeVersionDTO.DiffResult diff, Integer contextLines,
+                                                 Integer offset, Integer limit) {
+        int context = Math.max(0, Math.min(contextLines != null ? contextLines : defaultContextLines, maxContextLines));
+        int from = Math.max(0, offset != null ? offset : 0);
+        int size = Math.max(1, Math.min(limit != null ? limit : maxHunksPerPage, maxHunksPerPage));
+
+        List<KnowledgeVersionDTO.DiffResult.DiffLine> lines = diff.getDiffLines() != null
+                ? diff.getDiffLines() : Collections.emptyList();
+        List<KnowledgeVersionDTO.DiffHunk> hunks = new ArrayList<>();
+        int trailing = build(lines, context, hunks);
+
+        KnowledgeVersionDTO.DiffHunkPage page = new KnowledgeVersionDTO.DiffHunkPage();
+        page.setKnowledgeId(diff.getKnowledgeId());
+        page.setVersion1(diff.getVersion1());
+        page.setVersion2(diff.getVersion2());
+        page.setStats(diff.getStats());
+        page.setContextLines(context);
+        page.setTotalHunks(hunks.size());
+        page.setOffset(from);
+        List<KnowledgeVersionDTO.DiffHunk> pageHunks = new ArrayList<>();
+        for (int i = from; i < Math.min(from + size, hunks.size()); i++) {
+            KnowledgeVersionDTO.DiffHunk hunk = hunks.get(i);
+            // 只复制本页的行，子列表视图不能直接序列化
+            hunk.setLines(new ArrayList<>(hunk.getLines()));
+            pageHunks.add(hunk);
+        }
+        page.setHunks(pageHunks);
+        page.setTrailingCollapsed(trailing);
+        return page;
+    }
+
+    /**
+     * 生成全部变更块，块内的行是原列表的视图
+     * @return 最后一个变更块之后折叠的相同行数
+     */
+    private int build(List<KnowledgeVersionDTO.DiffResult.DiffLine> lines, int context,
+                      List<KnowledgeVersionDTO.DiffHunk> hunks) {
+        int n = lines.size();
+        LineCounter counter = new LineCounter(lines);
+        int prevEnd = 0;
+        int i = 0;
+        while (i < n) {
+            if (isEqual(lines.get(i))) {
+                i++;
+                continue;
+            }
+            int start = Math.max(prevEnd, i - context);
+            int changeEnd = i;
+            int j = i;
+            while (j < n) {
+                if (!isEqual(lines.get(j))) {
+                    changeEnd = ++j;
+                    continue;
+                }
+                int k = j;
+                while (k < n && isEqual(lines.get(k))) {
+                    k++;
+                }
+                // 相同行过多（或已到末尾）时在此结束当前变更块
+                if (k == n || k - j > 2 * context) {
+                    break;
+                }
+                j = k;
+            }
+            int end = Math.min(n, changeEnd + context);
+
+            int collapsed = start - prevEnd;
+            for (int pieceStart = start; pieceStart < end; pieceStart += maxHunkLines) {
+                int pieceEnd = Math.min(end, pieceStart + maxHunkLines);
+                hunks.add(hunk(lines, counter, pieceStart, pieceEnd, collapsed));
+                collapsed = 0;
+            }
+            prevEnd = end;
+            i = end;
+        }
+        return n - prevEnd;
+    }
+
+    private static KnowledgeVersionDTO.DiffHunk hunk(List<KnowledgeVersionDTO.DiffResult.DiffLine> lines,
+                                                     LineCounter counter, int start, int end, int collapsedBefore) {
+        counter.advanceTo(start);
+        KnowledgeVersionDTO.DiffHunk hunk = new KnowledgeVersionDTO.DiffHunk();
+        hunk.setOriginalStart(counter.original + 1);
+        hunk.setNewStart(counter.revised + 1);
+        counter.advanceTo(end);
+        hunk.setOriginalCount(counter.original + 1 - hunk.getOriginalStart());
+        hunk.setNewCount(counter.revised + 1 - hunk.getNewStart());
+        hunk.setCollapsedBefore(collapsedBefore);
+        hunk.setLines(lines.subList(start, end));
+        return hunk;
+    }
+
+    private static boolean isEqual(KnowledgeVersionDTO.DiffResult.DiffLine line) {
+        return TYPE_EQUAL.equals(line.getType());
+    }
+
+    /**
+     * 顺序推进的行号计数：original 为已经过的原文行数（非新增行），revised 为已经过的新文行数（非删除行）
+     */
+    private static final class LineCounter {
+        private final List<KnowledgeVersionDTO.DiffResult.DiffLine> lines;
+        private int position;
+        private int original;
+        private int revised;
+
+        private LineCounter(List<KnowledgeVersionDTO.DiffResult.DiffLine> lines) {
+            this.lines = lines;
+        }
+
+        private void advanceTo(int target) {
+            for (; position < target; position++) {
+                String type = lines.get(position).getType();
+                if (!TYPE_INSERT.equals(type)) {
+                    original++;
+                }
+                if (!TYPE_DELETE.equals(type)) {
+                    revised++;
+                }
+            }
+        }
+    }
+}
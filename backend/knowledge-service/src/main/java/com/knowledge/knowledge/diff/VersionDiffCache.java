@@ -0,0 +1,162 @@
+package com.knowledge.knowledge.diff;
+
+import com.alibaba.fastjson2.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.knowledge.api.dto.KnowledgeVersionDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 版本对比结果两级缓存
+ * 缓存键为两个版本的 commitHash：版本内容变化（更新草稿）时会重新生成 commitHash，因此同一对哈希的对比结果不会过期，
+ * 只需要容量上的限制。L1 为进程内 Caffeine，按差异行数计重；L2 为 Redis，JSON 经 gzip 压缩后保存。
+ * 另提供后台预热：提交审核后提前计算“待审核版本 vs 当前发布版本”，审核人打开对比页时直接命中。
+ */
+@Slf4j
+@Component
+public class VersionDiffCache {
+
+    private static final String KEY_PREFIX = "knowledge:diff:";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Value("${knowledge.diff-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${knowledge.diff-cache.local-max-lines:500000}")
+    private long localMaxLines;
+
+    @Value("${knowledge.diff-cache.redis-ttl-hours:168}")
+    private long redisTtlHours;
+
+    @Value("${knowledge.diff-cache.prewarm-queue-capacity:100}")
+    private int prewarmQueueCapacity;
+
+    private Cache<String, KnowledgeVersionDTO.DiffResult> localCache;
+
+    private ThreadPoolExecutor prewarmExecutor;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumWeight(localMaxLines)
+                .weigher((String key, KnowledgeVersionDTO.DiffResult value) ->
+                        value.getDiffLines() != null ? Math.max(1, value.getDiffLines().size()) : 1)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "knowledge.diff.local");
+
+        // 预热只是优化，队列满时直接丢弃
+        prewarmExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(prewarmQueueCapacity), r -> {
+                    Thread thread = new Thread(r, "diff-prewarm");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prewarmExecutor.shutdownNow();
+    }
+
+    /**
+     * 先查 L1，再查 L2，都未命中时计算并回填两级缓存；任一 commitHash 为空（旧数据）时不缓存
+     */
+    public KnowledgeVersionDTO.DiffResult get(String commitHash1, String commitHash2,
+                                              Supplier<KnowledgeVersionDTO.DiffResult> loader) {
+        if (!enabled || commitHash1 == null || commitHash2 == null) {
+            return loader.get();
+        }
+        String key = KEY_PREFIX + commitHash1 + ":" + commitHash2;
+
+        KnowledgeVersionDTO.DiffResult cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            String value = stringRedisTemplate.opsForValue().get(key);
+            if (value != null) {
+                KnowledgeVersionDTO.DiffResult result = JSON.parseObject(decompress(value), KnowledgeVersionDTO.DiffResult.class);
+                localCache.put(key, result);
+                return result;
+            }
+        } catch (Exception e) {
+            log.warn("读取版本对比缓存失败: key={}, error={}", key, e.getMessage());
+        }
+
+        KnowledgeVersionDTO.DiffResult result = loader.get();
+        if (result != null) {
+            localCache.put(key, result);
+            try {
+                stringRedisTemplate.opsForValue().set(key, compress(JSON.toJSONString(result)), redisTtlHours, TimeUnit.HOURS);
+            } catch (Exception e) {
+                log.warn("写入版本对比缓存失败: key={}, error={}", key, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在后台执行预热任务（通常是一次 compareVersions），失败只记录日志
+     */
+    public void prewarm(Runnable task) {
+        if (!enabled) {
+            return;
+        }
+        prewarmExecutor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.warn("预热版本对比缓存失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private static String compress(String json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    private static String decompress(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(value)))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -1,5 +1,8 @@
 package com.knowledge.knowledge.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableLogic;
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.knowledge.common.entity.BaseEntity;
 import lombok.Data;
@@ -25,6 +28,10 @@ public class Knowledge extends BaseEntity {
     private Boolean hasDraft;          // 是否有待审核的草稿版本
     private Long parentId;
     private Integer sortOrder;
+    private String treePath;           // 物化路径：/根ID/.../自身ID/
+
+    @TableLogic
+    private Integer deleted;           // 软删除标记，已删除的知识等待后台回收
     
     // Git风格版本管理字段
     private String currentBranch;      // 当前分支
@@ -32,7 +39,9 @@ public class Knowledge extends BaseEntity {
     
     /**
      * Parsing full text content for search
+     * 由异步提取流水线通过 KnowledgeMapper.updateContentText 回填，updateById 不会用读到的旧值覆盖
      */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
     private String contentText;
 
     /**
@@ -92,6 +101,12 @@ public class Knowledge extends BaseEntity {
     public Integer getSortOrder() { return sortOrder; }
     public void setSortOrder(Integer sortOrder) { this.sortOrder = sortOrder; }
 
+    public String getTreePath() { return treePath; }
+    public void setTreePath(String treePath) { this.treePath = treePath; }
+
+    public Integer getDeleted() { return deleted; }
+    public void setDeleted(Integer deleted) { this.deleted = deleted; }
+
     public String getCurrentBranch() { return currentBranch; }
     public void setCurrentBranch(String currentBranch) { this.currentBranch = currentBranch; }
 
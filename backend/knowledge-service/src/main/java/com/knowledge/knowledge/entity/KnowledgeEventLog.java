@@ -0,0 +1,29 @@
+package com.knowledge.knowledge.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("knowledge_event_log")
+public class KnowledgeEventLog implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String TYPE_CLICK = "CLICK";
+    public static final String TYPE_COLLECT = "COLLECT";
+    public static final String TYPE_UNCOLLECT = "UNCOLLECT";
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private LocalDate eventDate;        // 事件日期（分区键）
+    private Long knowledgeId;
+    private String eventType;           // CLICK / COLLECT / UNCOLLECT
+    private Integer eventCount;         // 缓冲期间合并的事件数
+    private LocalDateTime createTime;
+}
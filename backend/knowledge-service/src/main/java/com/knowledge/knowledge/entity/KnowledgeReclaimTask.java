@@ -0,0 +1,23 @@
+package com.knowledge.knowledge.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("knowledge_reclaim_task")
+public class KnowledgeReclaimTask implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @TableId(type = IdType.INPUT)
+    private Long knowledgeId;               // 已软删除的知识ID
+
+    private Integer attempts;               // 已失败次数
+    private LocalDateTime nextAttemptTime;  // 下次可回收时间
+    private String lastError;
+    private LocalDateTime createTime;
+}
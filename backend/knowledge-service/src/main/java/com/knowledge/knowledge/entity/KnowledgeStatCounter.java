@@ -0,0 +1,24 @@
+package com.knowledge.knowledge.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("knowledge_stat_counter")
+public class KnowledgeStatCounter implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String SCOPE_TOTAL = "TOTAL";
+    public static final String SCOPE_CATEGORY = "CATEGORY";
+
+    private String statScope;          // TOTAL / CATEGORY
+    private String statKey;            // TOTAL 为空串，CATEGORY 为分类名
+    private Long knowledgeCount;
+    private Long clickCount;
+    private Long collectCount;
+    private Long pendingCount;         // 待审核数量，仅 TOTAL 使用
+    private LocalDateTime updateTime;
+}
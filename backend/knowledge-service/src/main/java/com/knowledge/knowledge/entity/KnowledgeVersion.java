@@ -1,6 +1,8 @@
 package com.knowledge.knowledge.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
@@ -19,6 +21,8 @@ public class KnowledgeVersion implements Serializable {
     private Long knowledgeId;
     private Long version;
     private String title;
+    // 正文只能通过 KnowledgeVersionStore 改写，updateById 不会覆盖正文和差量列
+    @TableField(updateStrategy = FieldStrategy.NEVER)
     private String content;
     private String summary;
     private String category;
@@ -44,6 +48,12 @@ public class KnowledgeVersion implements Serializable {
     // 冲突检测字段
     private Long baseVersion;         // 基于哪个已发布版本创建（用于检测并发冲突）
 
+    // 差量存储字段：deltaBaseId 为空表示完整快照，否则 content 为空，正文保存为相对该快照的压缩行级差量
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private byte[] contentDelta;
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private Long deltaBaseId;
+
     // Manual Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -110,5 +120,11 @@ public class KnowledgeVersion implements Serializable {
 
     public Long getBaseVersion() { return baseVersion; }
     public void setBaseVersion(Long baseVersion) { this.baseVersion = baseVersion; }
+
+    public byte[] getContentDelta() { return contentDelta; }
+    public void setContentDelta(byte[] contentDelta) { this.contentDelta = contentDelta; }
+
+    public Long getDeltaBaseId() { return deltaBaseId; }
+    public void setDeltaBaseId(Long deltaBaseId) { this.deltaBaseId = deltaBaseId; }
 }
 
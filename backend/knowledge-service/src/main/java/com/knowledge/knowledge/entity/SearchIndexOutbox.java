@@ -0,0 +1,25 @@
+package com.knowledge.knowledge.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("search_index_outbox")
+public class SearchIndexOutbox implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long knowledgeId;
+    private String op;                      // UPSERT / DELETE
+    private Integer attempts;               // 已失败次数
+    private LocalDateTime nextAttemptTime;  // 下次可同步时间
+    private String lastError;
+    private LocalDateTime createTime;
+}
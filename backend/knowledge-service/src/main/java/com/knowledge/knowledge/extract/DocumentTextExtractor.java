@@ -0,0 +1,122 @@
+package com.knowledge.knowledge.extract;
+
+import com.knowledge.api.dto.FileDTO;
+import com.knowledge.api.service.FileService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.apache.tika.Tika;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.File;
+
+/**
+ * 文档文本提取器
+ * 同一份文件内容（按 file_hash）只解析一次，之后直接读取提取文本缓存
+ */
+@Slf4j
+@Component
+public class DocumentTextExtractor {
+
+    /**
+     * 单个文档提取文本的最大字符数，防止内存溢出
+     */
+    private static final int MAX_STRING_LENGTH = 10 * 1024 * 1024;
+
+    @DubboReference(check = false, timeout = 10000)
+    private FileService fileService;
+
+    @Resource
+    private ExtractedTextStore extractedTextStore;
+
+    @Value("${knowledge.extract.max-file-size:104857600}")
+    private long maxFileSize;
+
+    /**
+     * Tika 门面是线程安全的，全局复用一个实例
+     */
+    private final Tika tika;
+
+    public DocumentTextExtractor() {
+        this.tika = new Tika();
+        this.tika.setMaxStringLength(MAX_STRING_LENGTH);
+    }
+
+    /**
+     * 获取文件的提取文本（优先读缓存）
+     * @return 提取失败或文件不存在时返回 null
+     */
+    public String extractText(Long fileId) {
+        if (fileId == null) {
+            return null;
+        }
+        FileDTO fileDTO;
+        try {
+            fileDTO = fileService.getFileById(fileId);
+        } catch (Exception e) {
+            log.error("获取文件信息失败: fileId={}", fileId, e);
+            return null;
+        }
+        return extractText(fileDTO);
+    }
+
+    public String extractText(FileDTO fileDTO) {
+        if (fileDTO == null || fileDTO.getFilePath() == null) {
+            log.warn("文件路径不存在: fileId={}", fileDTO != null ? fileDTO.getId() : null);
+            return null;
+        }
+
+        String cached = extractedTextStore.get(fileDTO.getFileHash(), fileDTO.getFileSize());
+        if (cached != null) {
+            log.debug("命中提取文本缓存: fileId={}, hash={}", fileDTO.getId(), fileDTO.getFileHash());
+            return cached;
+        }
+        if (isTooLarge(fileDTO)) {
+            log.warn("文件超过提取大小上限，跳过解析: fileId={}, size={}, limit={}",
+                    fileDTO.getId(), fileDTO.getFileSize(), maxFileSize);
+            return null;
+        }
+
+        try {
+            return parseAndCache(fileDTO);
+        } catch (Exception e) {
+            log.error("提取文件文本失败: fileId={}", fileDTO.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 文件是否超过允许解析的大小上限
+     */
+    public boolean isTooLarge(FileDTO fileDTO) {
+        return maxFileSize > 0 && fileDTO.getFileSize() != null && fileDTO.getFileSize() > maxFileSize;
+    }
+
+    /**
+     * 获取文件信息
+     */
+    public FileDTO getFile(Long fileId) {
+        return fileService.getFileById(fileId);
+    }
+
+    /**
+     * 解析文件并写入缓存，解析异常直接抛出，由调用方决定是否重试
+     */
+    public String parseAndCache(FileDTO fileDTO) throws Exception {
+        String cached = extractedTextStore.get(fileDTO.getFileHash(), fileDTO.getFileSize());
+        if (cached != null) {
+            return cached;
+        }
+        File file = new File(fileDTO.getFilePath());
+        if (!file.exists()) {
+            throw new java.io.FileNotFoundException("物理文件不存在: " + fileDTO.getFilePath());
+        }
+        long start = System.currentTimeMillis();
+        String text = tika.parseToString(file);
+        log.info("提取文本成功: fileId={}, length={}, cost={}ms",
+                fileDTO.getId(), text.length(), System.currentTimeMillis() - start);
+        extractedTextStore.put(fileDTO.getFileHash(), fileDTO.getFileSize(), text);
+        return text;
+    }
+}
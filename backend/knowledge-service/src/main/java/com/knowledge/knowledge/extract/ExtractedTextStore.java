@@ -0,0 +1,219 @@
+package com.knowledge.knowledge.extract;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 提取文本缓存（按文件内容哈希寻址）
+ * 文本以 gzip 形式保存在本地磁盘，元数据与 LRU 排序保存在 Redis，
+ * 总占用超过上限时按最近访问时间淘汰
+ */
+@Slf4j
+@Component
+public class ExtractedTextStore {
+
+    private static final String META_KEY_PREFIX = "extract:text:";
+    private static final String LRU_KEY = "extract:text:lru";
+    private static final String TOTAL_BYTES_KEY = "extract:text:total-bytes";
+
+    private static final String FIELD_BYTES = "bytes";
+    private static final String FIELD_LENGTH = "length";
+    private static final String FIELD_SOURCE_SIZE = "sourceSize";
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("^[0-9a-zA-Z]{16,128}$");
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${knowledge.extract.cache-dir:./uploads/text-cache}")
+    private String cacheDir;
+
+    @Value("${knowledge.extract.cache-max-bytes:2147483648}")
+    private long maxBytes;
+
+    private Path rootPath;
+
+    @PostConstruct
+    public void init() {
+        rootPath = Paths.get(cacheDir).toAbsolutePath();
+        try {
+            Files.createDirectories(rootPath);
+            log.info("提取文本缓存目录已初始化: {}", rootPath);
+        } catch (IOException e) {
+            log.error("初始化提取文本缓存目录失败: {}", rootPath, e);
+        }
+    }
+
+    /**
+     * 读取缓存的提取文本
+     * @param fileHash 文件内容哈希
+     * @param sourceSize 源文件大小，用于校验缓存是否对应同一份内容
+     * @return 命中时返回文本，未命中返回 null
+     */
+    public String get(String fileHash, Long sourceSize) {
+        if (!isCacheable(fileHash)) {
+            return null;
+        }
+        try {
+            String metaKey = META_KEY_PREFIX + fileHash;
+            Object cachedSize = stringRedisTemplate.opsForHash().get(metaKey, FIELD_SOURCE_SIZE);
+            if (cachedSize == null) {
+                return null;
+            }
+            if (sourceSize != null && !String.valueOf(sourceSize).equals(cachedSize)) {
+                log.info("提取文本缓存与源文件大小不一致，视为未命中: hash={}", fileHash);
+                return null;
+            }
+
+            Path path = resolvePath(fileHash);
+            if (!Files.exists(path)) {
+                return null;
+            }
+            String text = readText(path);
+            stringRedisTemplate.opsForZSet().add(LRU_KEY, fileHash, System.currentTimeMillis());
+            return text;
+        } catch (Exception e) {
+            log.warn("读取提取文本缓存失败: hash={}", fileHash, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入提取文本
+     */
+    public void put(String fileHash, Long sourceSize, String text) {
+        if (!isCacheable(fileHash) || text == null) {
+            return;
+        }
+        try {
+            Path path = resolvePath(fileHash);
+            Files.createDirectories(path.getParent());
+
+            // 先写临时文件再原子替换，避免并发读到半截内容
+            Path tmp = Files.createTempFile(path.getParent(), fileHash, ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            long bytes = Files.size(tmp);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            String metaKey = META_KEY_PREFIX + fileHash;
+            boolean created = Boolean.TRUE.equals(
+                    stringRedisTemplate.opsForHash().putIfAbsent(metaKey, FIELD_BYTES, String.valueOf(bytes)));
+            Map<String, String> meta = new HashMap<>();
+            meta.put(FIELD_LENGTH, String.valueOf(text.length()));
+            meta.put(FIELD_SOURCE_SIZE, String.valueOf(sourceSize));
+            stringRedisTemplate.opsForHash().putAll(metaKey, meta);
+            stringRedisTemplate.opsForZSet().add(LRU_KEY, fileHash, System.currentTimeMillis());
+
+            if (created) {
+                Long total = stringRedisTemplate.opsForValue().increment(TOTAL_BYTES_KEY, bytes);
+                if (total != null && total > maxBytes) {
+                    evict(total);
+                }
+            }
+            log.info("提取文本已缓存: hash={}, length={}, bytes={}", fileHash, text.length(), bytes);
+        } catch (Exception e) {
+            log.warn("写入提取文本缓存失败: hash={}", fileHash, e);
+        }
+    }
+
+    /**
+     * 删除一条缓存（手动重新提取时使用），下次读取必然未命中
+     */
+    public void remove(String fileHash) {
+        if (!isCacheable(fileHash)) {
+            return;
+        }
+        try {
+            if (removeEntry(fileHash) == null) {
+                // 不在 LRU 中（已被淘汰或写入未完成），仍清理可能残留的元数据和文件
+                stringRedisTemplate.delete(META_KEY_PREFIX + fileHash);
+                Files.deleteIfExists(resolvePath(fileHash));
+            }
+        } catch (Exception e) {
+            log.warn("删除提取文本缓存失败: hash={}", fileHash, e);
+        }
+    }
+
+    /**
+     * 按最近访问时间淘汰，直到总占用回到上限以内
+     */
+    private void evict(long total) {
+        while (total > maxBytes) {
+            Set<String> oldest = stringRedisTemplate.opsForZSet().range(LRU_KEY, 0, 0);
+            if (oldest == null || oldest.isEmpty()) {
+                return;
+            }
+            String hash = oldest.iterator().next();
+            Long current = removeEntry(hash);
+            if (current == null) {
+                continue;
+            }
+            total = current;
+        }
+    }
+
+    /**
+     * 删除一条缓存并扣减总占用，返回扣减后的总占用；条目已被其他实例删除时返回 null
+     */
+    private Long removeEntry(String hash) {
+        // 以 ZREM 的返回值为准，避免多个实例重复扣减
+        Long removed = stringRedisTemplate.opsForZSet().remove(LRU_KEY, hash);
+        if (removed == null || removed == 0) {
+            return null;
+        }
+        String metaKey = META_KEY_PREFIX + hash;
+        Object bytes = stringRedisTemplate.opsForHash().get(metaKey, FIELD_BYTES);
+        stringRedisTemplate.delete(metaKey);
+        try {
+            Files.deleteIfExists(resolvePath(hash));
+        } catch (IOException e) {
+            log.warn("删除提取文本缓存文件失败: hash={}", hash, e);
+        }
+        long freed = bytes == null ? 0L : Long.parseLong(bytes.toString());
+        Long current = stringRedisTemplate.opsForValue().increment(TOTAL_BYTES_KEY, -freed);
+        log.info("删除提取文本缓存: hash={}, freed={}", hash, freed);
+        return current == null ? 0L : current;
+    }
+
+    private boolean isCacheable(String fileHash) {
+        return fileHash != null && HASH_PATTERN.matcher(fileHash).matches();
+    }
+
+    private Path resolvePath(String fileHash) {
+        return rootPath.resolve(fileHash.substring(0, 2)).resolve(fileHash + ".txt.gz");
+    }
+
+    private String readText(Path path) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
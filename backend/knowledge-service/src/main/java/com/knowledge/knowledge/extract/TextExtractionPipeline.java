@@ -0,0 +1,297 @@
+package com.knowledge.knowledge.extract;
+
+import com.knowledge.api.dto.FileDTO;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.outbox.SearchIndexOutboxWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步文本提取流水线
+ * 写事务提交后把 (knowledgeId, fileId) 投递到有界队列，由固定大小的工作线程池解析，
+ * 解析结果回填 knowledge.content_text 并写入索引发件箱。
+ * 单个文件有超时与大小上限，失败按指数退避重试，超过次数后按文件哈希标记为毒文件不再解析。
+ * 手动重新提取（{@link #resubmit}）会先清除该文件的毒文件标记和提取文本缓存，从第一次尝试开始重新解析。
+ */
+@Slf4j
+@Component
+public class TextExtractionPipeline {
+
+    private static final String POISON_KEY = "extract:poison";
+
+    @Resource
+    private DocumentTextExtractor documentTextExtractor;
+
+    @Resource
+    private ExtractedTextStore extractedTextStore;
+
+    @Resource
+    private KnowledgeMapper knowledgeMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private SearchIndexOutboxWriter indexOutboxWriter;
+
+    @Value("${knowledge.extract.workers:2}")
+    private int workers;
+
+    @Value("${knowledge.extract.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${knowledge.extract.timeout-seconds:120}")
+    private long timeoutSeconds;
+
+    @Value("${knowledge.extract.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${knowledge.extract.retry-delay-seconds:30}")
+    private long retryDelaySeconds;
+
+    private ThreadPoolExecutor workerPool;
+    private ThreadPoolExecutor parsePool;
+    private ScheduledExecutorService retryScheduler;
+
+    private Timer parseTimer;
+
+    @PostConstruct
+    public void init() {
+        workerPool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreadFactory("extract-worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+        // 实际解析放在独立线程中执行，超时后可以中断并释放工作线程；
+        // 容量为工作线程的两倍，给超时后仍未退出的解析留出余量
+        parsePool = new ThreadPoolExecutor(0, workers * 2, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), namedThreadFactory("extract-parse"),
+                new ThreadPoolExecutor.AbortPolicy());
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(namedThreadFactory("extract-retry"));
+
+        Gauge.builder("knowledge.extract.queue.size", workerPool, pool -> pool.getQueue().size())
+                .description("等待解析的文件数")
+                .register(meterRegistry);
+        Gauge.builder("knowledge.extract.active", workerPool, ThreadPoolExecutor::getActiveCount)
+                .description("正在解析的文件数")
+                .register(meterRegistry);
+        parseTimer = Timer.builder("knowledge.extract.parse")
+                .description("单个文件的解析耗时")
+                .register(meterRegistry);
+
+        log.info("文本提取流水线已启动: workers={}, queueCapacity={}, timeout={}s",
+                workers, queueCapacity, timeoutSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        workerPool.shutdown();
+        parsePool.shutdownNow();
+    }
+
+    /**
+     * 提交提取任务。若当前处于事务中，则在事务提交后才入队，保证工作线程能读到已提交的数据
+     */
+    public void submit(Long knowledgeId, Long fileId) {
+        submit(new ExtractionTask(knowledgeId, fileId, 1, false));
+    }
+
+    /**
+     * 强制重新提取：不使用已缓存的提取文本，并清除毒文件标记，重试次数从头计算
+     */
+    public void resubmit(Long knowledgeId, Long fileId) {
+        submit(new ExtractionTask(knowledgeId, fileId, 1, true));
+    }
+
+    private void submit(ExtractionTask task) {
+        if (task.knowledgeId == null || task.fileId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(task);
+                }
+            });
+        } else {
+            enqueue(task);
+        }
+    }
+
+    private void enqueue(ExtractionTask task) {
+        try {
+            workerPool.execute(task);
+        } catch (RejectedExecutionException e) {
+            count("rejected");
+            log.warn("文本提取队列已满，稍后重试: knowledgeId={}, fileId={}", task.knowledgeId, task.fileId);
+            scheduleRetry(task);
+        }
+    }
+
+    private void scheduleRetry(ExtractionTask task) {
+        if (task.attempt >= maxAttempts) {
+            return;
+        }
+        // 指数退避：30s, 60s, 120s ...
+        long delay = retryDelaySeconds << (task.attempt - 1);
+        try {
+            retryScheduler.schedule(() -> enqueue(new ExtractionTask(task.knowledgeId, task.fileId,
+                            task.attempt + 1, task.force)), delay, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("提取重试调度失败（服务正在关闭）: knowledgeId={}", task.knowledgeId);
+        }
+    }
+
+    private void process(ExtractionTask task) {
+        FileDTO fileDTO;
+        try {
+            fileDTO = documentTextExtractor.getFile(task.fileId);
+        } catch (Exception e) {
+            log.warn("获取文件信息失败: fileId={}", task.fileId, e);
+            onFailure(task, null, "获取文件信息失败");
+            return;
+        }
+        if (fileDTO == null || fileDTO.getFilePath() == null) {
+            count("skipped");
+            log.warn("文件不存在，跳过提取: knowledgeId={}, fileId={}", task.knowledgeId, task.fileId);
+            return;
+        }
+        String poisonKey = poisonKey(fileDTO);
+        if (task.force) {
+            stringRedisTemplate.opsForHash().delete(POISON_KEY, poisonKey);
+            extractedTextStore.remove(fileDTO.getFileHash());
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.opsForHash().hasKey(POISON_KEY, poisonKey))) {
+            count("poison");
+            log.info("文件已被标记为无法解析，跳过: fileId={}", task.fileId);
+            return;
+        }
+        if (documentTextExtractor.isTooLarge(fileDTO)) {
+            count("skipped");
+            log.warn("文件超过提取大小上限，跳过: fileId={}, size={}", task.fileId, fileDTO.getFileSize());
+            return;
+        }
+
+        String text;
+        long start = System.nanoTime();
+        Future<String> future = null;
+        try {
+            future = parsePool.submit(() -> documentTextExtractor.parseAndCache(fileDTO));
+            text = future.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            count("timeout");
+            log.warn("文件解析超时: knowledgeId={}, fileId={}, timeout={}s", task.knowledgeId, task.fileId, timeoutSeconds);
+            onFailure(task, poisonKey, "解析超时");
+            return;
+        } catch (RejectedExecutionException e) {
+            // 解析线程被超时未退出的任务占满，放回队列稍后再试
+            count("rejected");
+            scheduleRetry(task);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.warn("文件解析失败: knowledgeId={}, fileId={}", task.knowledgeId, task.fileId, e);
+            onFailure(task, poisonKey, e.getClass().getSimpleName());
+            return;
+        } finally {
+            parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        int updated = knowledgeMapper.updateContentText(task.knowledgeId, task.fileId, text);
+        if (updated == 0) {
+            count("stale");
+            log.info("知识已更换文件或已删除，丢弃提取结果: knowledgeId={}, fileId={}", task.knowledgeId, task.fileId);
+            return;
+        }
+        count("success");
+        // 全文已回填，记录索引变更，由 search-service 同步（未发布的知识不会进入索引）
+        indexOutboxWriter.upsert(task.knowledgeId);
+    }
+
+    private void onFailure(ExtractionTask task, String poisonKey, String reason) {
+        if (task.attempt < maxAttempts) {
+            count("retry");
+            scheduleRetry(task);
+            return;
+        }
+        count("failed");
+        if (poisonKey != null) {
+            stringRedisTemplate.opsForHash().put(POISON_KEY, poisonKey, reason);
+        }
+        log.error("文件解析多次失败，已放弃: knowledgeId={}, fileId={}, attempts={}, reason={}",
+                task.knowledgeId, task.fileId, task.attempt, reason);
+    }
+
+    private String poisonKey(FileDTO fileDTO) {
+        return fileDTO.getFileHash() != null ? fileDTO.getFileHash() : "file-" + fileDTO.getId();
+    }
+
+    private void count(String result) {
+        Counter.builder("knowledge.extract.tasks")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class ExtractionTask implements Runnable {
+        private final Long knowledgeId;
+        private final Long fileId;
+        private final int attempt;
+        // 手动重新提取：解析前清除毒文件标记和提取文本缓存
+        private final boolean force;
+
+        ExtractionTask(Long knowledgeId, Long fileId, int attempt, boolean force) {
+            this.knowledgeId = knowledgeId;
+            this.fileId = fileId;
+            this.attempt = attempt;
+            this.force = force;
+        }
+
+        @Override
+        public void run() {
+            try {
+                process(this);
+            } catch (Exception e) {
+                log.error("文本提取任务异常: knowledgeId={}, fileId={}", knowledgeId, fileId, e);
+            }
+        }
+    }
+}
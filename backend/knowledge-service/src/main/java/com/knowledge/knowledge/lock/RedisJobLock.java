@@ -0,0 +1,69 @@
+package com.knowledge.knowledge.lock;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多实例后台任务的 Redis 互斥锁
+ * 锁的值是每次加锁生成的令牌，续期和释放都由 Lua 脚本先比较令牌再操作：
+ * 任务运行超过有效期、锁已被其他实例取得时，不会误删或误续期别人的锁。
+ */
+@Slf4j
+@Component
+public class RedisJobLock {
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 加锁，成功返回本次持有的令牌，锁已被占用时返回 null
+     */
+    public String tryLock(String key, long ttl, TimeUnit unit) {
+        String token = IdUtil.simpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(key, token, ttl, unit);
+        return Boolean.TRUE.equals(locked) ? token : null;
+    }
+
+    /**
+     * 延长自己持有的锁，锁已过期或属于其他令牌时返回 false
+     */
+    public boolean renew(String key, String token, long ttl, TimeUnit unit) {
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(key),
+                token, String.valueOf(unit.toMillis(ttl)));
+        if (renewed == null || renewed == 0) {
+            log.warn("任务锁续期失败，锁已过期或被其他实例持有: key={}", key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 释放自己持有的锁，锁已不属于该令牌时不做任何操作
+     */
+    public void unlock(String key, String token) {
+        if (token == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(key), token);
+        } catch (Exception e) {
+            // 释放失败时锁会在有效期后自动过期
+            log.warn("释放任务锁失败: key={}, error={}", key, e.getMessage());
+        }
+    }
+}
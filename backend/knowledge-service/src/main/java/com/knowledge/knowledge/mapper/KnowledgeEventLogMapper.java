@@ -0,0 +1,49 @@
+package com.knowledge.knowledge.mapper;
+
+import com.knowledge.knowledge.entity.KnowledgeEventLog;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface KnowledgeEventLogMapper {
+
+    @Insert("<script>" +
+            "INSERT INTO knowledge_event_log (event_date, knowledge_id, event_type, event_count, create_time) VALUES " +
+            "<foreach collection='events' item='e' separator=','>" +
+            "(#{e.eventDate}, #{e.knowledgeId}, #{e.eventType}, #{e.eventCount}, NOW())" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("events") Collection<KnowledgeEventLog> events);
+
+    // 重新汇总某一天的事件，覆盖已有的每日统计（可重复执行）
+    // 聚合放在派生表中，避免 ON DUPLICATE KEY UPDATE 中的列名冲突
+    @Insert("INSERT INTO knowledge_daily_stat (stat_date, knowledge_id, click_count, collect_count, uncollect_count) " +
+            "SELECT t.event_date, t.knowledge_id, t.clicks, t.collects, t.uncollects FROM (" +
+            "SELECT event_date, knowledge_id, " +
+            "SUM(CASE WHEN event_type = 'CLICK' THEN event_count ELSE 0 END) AS clicks, " +
+            "SUM(CASE WHEN event_type = 'COLLECT' THEN event_count ELSE 0 END) AS collects, " +
+            "SUM(CASE WHEN event_type = 'UNCOLLECT' THEN event_count ELSE 0 END) AS uncollects " +
+            "FROM knowledge_event_log WHERE event_date = #{date} GROUP BY event_date, knowledge_id) t " +
+            "ON DUPLICATE KEY UPDATE click_count = VALUES(click_count), collect_count = VALUES(collect_count), " +
+            "uncollect_count = VALUES(uncollect_count)")
+    int rollupDay(@Param("date") LocalDate date);
+
+    @Select("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'knowledge_event_log' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<String> selectPartitionNames();
+
+    // 分区定义由分区维护任务按日期生成，不包含外部输入
+    @Update("ALTER TABLE knowledge_event_log REORGANIZE PARTITION p_future INTO (${definitions})")
+    void splitFuturePartition(@Param("definitions") String definitions);
+
+    @Update("ALTER TABLE knowledge_event_log DROP PARTITION ${names}")
+    void dropPartitions(@Param("names") String names);
+}
@@ -2,43 +2,78 @@ package com.knowledge.knowledge.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.knowledge.knowledge.entity.Knowledge;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 @Mapper
 public interface KnowledgeMapper extends BaseMapper<Knowledge> {
-    @Update("UPDATE knowledge SET click_count = click_count + 1 WHERE id = #{id}")
-    void incrementClickCount(Long id);
+    // 点击量写缓冲批量落库：一条 UPDATE 合并多条知识的增量，deltas 为 id -> 增量
+    @Update("<script>" +
+            "UPDATE knowledge SET click_count = click_count + CASE id " +
+            "<foreach collection='deltas' index='id' item='delta'>WHEN #{id} THEN #{delta} </foreach>" +
+            "END WHERE id IN <foreach collection='deltas' index='id' item='delta' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int addClickCounts(@Param("deltas") Map<Long, Long> deltas);
 
     @Update("UPDATE knowledge SET collect_count = collect_count + #{delta} WHERE id = #{id}")
     void updateCollectCount(@Param("id") Long id, @Param("delta") int delta);
 
-    @Select("SELECT COALESCE(SUM(click_count), 0) FROM knowledge")
-    Long getTotalClicks();
+    // 异步提取完成后回填全文，file_id 不一致说明期间已更换文件，放弃本次结果
+    @Update("UPDATE knowledge SET content_text = #{contentText} WHERE id = #{id} AND file_id = #{fileId}")
+    int updateContentText(@Param("id") Long id, @Param("fileId") Long fileId, @Param("contentText") String contentText);
 
-    @Select("SELECT COALESCE(SUM(collect_count), 0) FROM knowledge")
-    Long getTotalCollections();
+    // 版本存储：锁定知识行，串行化同一知识的版本写入与存储重写
+    @Select("SELECT id FROM knowledge WHERE id = #{id} FOR UPDATE")
+    Long lockById(@Param("id") Long id);
 
-    // 分类统计
-    @Select("SELECT category, COUNT(*) as count, COALESCE(SUM(click_count), 0) as clicks, COALESCE(SUM(collect_count), 0) as collections " +
-            "FROM knowledge WHERE category IS NOT NULL GROUP BY category")
-    List<Map<String, Object>> getCategoryStats();
+    // 子树查询：pattern 为子树根节点的 tree_path + '%'，结果包含根节点自身，不含已删除的知识
+    @Select("SELECT id FROM knowledge WHERE tree_path LIKE #{pattern} AND deleted = 0")
+    List<Long> selectSubtreeIds(@Param("pattern") String pattern);
 
-    // 最近7天的点击量趋势（按创建日期统计）
-    @Select("SELECT DATE(create_time) as date, SUM(click_count) as value " +
-            "FROM knowledge WHERE create_time >= DATE_SUB(CURDATE(), INTERVAL 7 DAY) " +
-            "GROUP BY DATE(create_time) ORDER BY date")
+    // 整棵子树移动：把路径前缀 oldPrefix 替换为 newPrefix，pattern 为 oldPrefix + '%'
+    @Update("UPDATE knowledge SET tree_path = CONCAT(#{newPrefix}, SUBSTRING(tree_path, CHAR_LENGTH(#{oldPrefix}) + 1)) " +
+            "WHERE tree_path LIKE #{pattern}")
+    int moveSubtree(@Param("pattern") String pattern, @Param("oldPrefix") String oldPrefix, @Param("newPrefix") String newPrefix);
+
+    // 回收：已删除知识引用的文件（逻辑删除过滤之外的原始查询）
+    @Select("<script>" +
+            "SELECT DISTINCT file_id FROM knowledge WHERE file_id IS NOT NULL AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Long> selectFileIdsIncludingDeleted(@Param("ids") Collection<Long> ids);
+
+    // 回收：仍被 excludeIds 之外的知识（包括尚未回收的已删除知识）引用的文件
+    @Select("<script>" +
+            "SELECT DISTINCT file_id FROM knowledge WHERE file_id IN " +
+            "<foreach collection='fileIds' item='fid' open='(' separator=',' close=')'>#{fid}</foreach> " +
+            "AND id NOT IN <foreach collection='excludeIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Long> selectReferencedFileIds(@Param("fileIds") Collection<Long> fileIds, @Param("excludeIds") Collection<Long> excludeIds);
+
+    // 回收：物理删除已软删除的知识
+    @Delete("<script>" +
+            "DELETE FROM knowledge WHERE deleted = 1 AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int purgeDeleted(@Param("ids") Collection<Long> ids);
+
+    // 最近7天的点击量趋势（按点击发生日期，读取每日统计汇总表）
+    @Select("SELECT stat_date as date, SUM(click_count) as value " +
+            "FROM knowledge_daily_stat WHERE stat_date >= DATE_SUB(CURDATE(), INTERVAL 7 DAY) " +
+            "GROUP BY stat_date ORDER BY date")
     List<Map<String, Object>> getClickTrend();
 
-    // 最近7天的收藏量趋势
-    @Select("SELECT DATE(create_time) as date, SUM(collect_count) as value " +
-            "FROM knowledge WHERE create_time >= DATE_SUB(CURDATE(), INTERVAL 7 DAY) " +
-            "GROUP BY DATE(create_time) ORDER BY date")
+    // 最近7天的收藏量趋势（按收藏发生日期，读取每日统计汇总表）
+    @Select("SELECT stat_date as date, SUM(collect_count) as value " +
+            "FROM knowledge_daily_stat WHERE stat_date >= DATE_SUB(CURDATE(), INTERVAL 7 DAY) " +
+            "GROUP BY stat_date ORDER BY date")
     List<Map<String, Object>> getCollectTrend();
 }
 
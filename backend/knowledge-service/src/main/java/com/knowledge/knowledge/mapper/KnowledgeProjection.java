@@ -0,0 +1,39 @@
+package com.knowledge.knowledge.mapper;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.knowledge.knowledge.entity.Knowledge;
+
+/**
+ * knowledge 表的列投影
+ * content_text 保存文档抽取出的全文（可达数 MB），只用于搜索索引；列表、子节点、收藏、热门和知识树等
+ * 只展示摘要的查询不读取该列，避免整列经过 MySQL、MyBatis 映射、属性拷贝和 Dubbo 序列化。
+ * 需要全文时使用不带投影的查询（如 selectById）：详情、预览、重建索引扫描和索引发件箱都读取完整行，
+ * 由 KnowledgeProjectionTest 校验。
+ */
+public final class KnowledgeProjection {
+
+    private static final String CONTENT = "content";
+    private static final String CONTENT_TEXT = "content_text";
+
+    private KnowledgeProjection() {
+    }
+
+    /**
+     * 摘要投影：除 content_text 外的全部列
+     */
+    public static LambdaQueryWrapper<Knowledge> summary() {
+        LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Knowledge.class, info -> !CONTENT_TEXT.equals(info.getColumn()));
+        return wrapper;
+    }
+
+    /**
+     * 简要投影：同时去掉正文 content，用于只显示标题和计数的知识树、热门列表
+     */
+    public static LambdaQueryWrapper<Knowledge> brief() {
+        LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Knowledge.class, info -> !CONTENT.equals(info.getColumn())
+                && !CONTENT_TEXT.equals(info.getColumn()));
+        return wrapper;
+    }
+}
@@ -0,0 +1,34 @@
+package com.knowledge.knowledge.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.knowledge.knowledge.entity.KnowledgeReclaimTask;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface KnowledgeReclaimTaskMapper extends BaseMapper<KnowledgeReclaimTask> {
+
+    @Insert("<script>" +
+            "INSERT IGNORE INTO knowledge_reclaim_task (knowledge_id, attempts, next_attempt_time, create_time) VALUES " +
+            "<foreach collection='knowledgeIds' item='kid' separator=','>(#{kid}, 0, NOW(), NOW())</foreach>" +
+            "</script>")
+    int insertBatch(@Param("knowledgeIds") Collection<Long> knowledgeIds);
+
+    @Select("SELECT * FROM knowledge_reclaim_task WHERE attempts < #{maxAttempts} AND next_attempt_time <= NOW() " +
+            "ORDER BY create_time LIMIT #{limit}")
+    List<KnowledgeReclaimTask> selectDue(@Param("maxAttempts") int maxAttempts, @Param("limit") int limit);
+
+    // 失败退避：2^attempts 分钟，最长 1 小时
+    @Update("<script>" +
+            "UPDATE knowledge_reclaim_task SET attempts = attempts + 1, last_error = #{error}, " +
+            "next_attempt_time = DATE_ADD(NOW(), INTERVAL LEAST(POW(2, attempts), 60) MINUTE) " +
+            "WHERE knowledge_id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("error") String error);
+}
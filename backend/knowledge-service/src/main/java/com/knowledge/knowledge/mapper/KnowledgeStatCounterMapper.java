@@ -0,0 +1,86 @@
+package com.knowledge.knowledge.mapper;
+
+import com.knowledge.knowledge.entity.KnowledgeStatCounter;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface KnowledgeStatCounterMapper {
+
+    @Select("SELECT * FROM knowledge_stat_counter WHERE stat_scope = #{scope}")
+    List<KnowledgeStatCounter> selectByScope(@Param("scope") String scope);
+
+    // 按增量累加，计数行不存在时插入
+    @Insert("<script>" +
+            "INSERT INTO knowledge_stat_counter (stat_scope, stat_key, knowledge_count, click_count, collect_count, pending_count) VALUES " +
+            "<foreach collection='deltas' item='d' separator=','>" +
+            "(#{d.statScope}, #{d.statKey}, #{d.knowledgeCount}, #{d.clickCount}, #{d.collectCount}, #{d.pendingCount})" +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE knowledge_count = knowledge_count + VALUES(knowledge_count), " +
+            "click_count = click_count + VALUES(click_count), collect_count = collect_count + VALUES(collect_count), " +
+            "pending_count = pending_count + VALUES(pending_count)" +
+            "</script>")
+    int addCounters(@Param("deltas") Collection<KnowledgeStatCounter> deltas);
+
+    // 把一批知识的点击增量累加到总计行，已删除的知识不计入（与对账口径一致）
+    @Insert("<script>" +
+            "INSERT INTO knowledge_stat_counter (stat_scope, stat_key, click_count) " +
+            "SELECT 'TOTAL', '', t.clicks FROM (SELECT SUM(CASE id " +
+            "<foreach collection='deltas' index='id' item='delta'>WHEN #{id} THEN #{delta} </foreach>" +
+            "END) AS clicks FROM knowledge WHERE deleted = 0 AND id IN " +
+            "<foreach collection='deltas' index='id' item='delta' open='(' separator=',' close=')'>#{id}</foreach>" +
+            ") t WHERE t.clicks IS NOT NULL " +
+            "ON DUPLICATE KEY UPDATE click_count = knowledge_stat_counter.click_count + VALUES(click_count)" +
+            "</script>")
+    int addTotalClicks(@Param("deltas") Map<Long, Long> deltas);
+
+    // 把一批知识的点击增量按各自当前分类累加，deltas 为 id -> 增量
+    // 聚合放在派生表中，避免 ON DUPLICATE KEY UPDATE 中的列名与 knowledge 表列名冲突
+    @Insert("<script>" +
+            "INSERT INTO knowledge_stat_counter (stat_scope, stat_key, click_count) " +
+            "SELECT 'CATEGORY', t.category, t.clicks FROM (SELECT category, SUM(CASE id " +
+            "<foreach collection='deltas' index='id' item='delta'>WHEN #{id} THEN #{delta} </foreach>" +
+            "END) AS clicks FROM knowledge WHERE category IS NOT NULL AND deleted = 0 AND id IN " +
+            "<foreach collection='deltas' index='id' item='delta' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY category) t " +
+            "ON DUPLICATE KEY UPDATE click_count = knowledge_stat_counter.click_count + VALUES(click_count)" +
+            "</script>")
+    int addCategoryClicks(@Param("deltas") Map<Long, Long> deltas);
+
+    @Insert("INSERT INTO knowledge_stat_counter (stat_scope, stat_key, collect_count) " +
+            "SELECT 'TOTAL', '', #{delta} FROM (SELECT id FROM knowledge WHERE id = #{id} AND deleted = 0) t " +
+            "ON DUPLICATE KEY UPDATE collect_count = knowledge_stat_counter.collect_count + VALUES(collect_count)")
+    int addTotalCollect(@Param("id") Long id, @Param("delta") long delta);
+
+    @Insert("INSERT INTO knowledge_stat_counter (stat_scope, stat_key, collect_count) " +
+            "SELECT 'CATEGORY', t.category, #{delta} FROM (SELECT category FROM knowledge WHERE id = #{id} AND category IS NOT NULL AND deleted = 0) t " +
+            "ON DUPLICATE KEY UPDATE collect_count = knowledge_stat_counter.collect_count + VALUES(collect_count)")
+    int addCategoryCollect(@Param("id") Long id, @Param("delta") long delta);
+
+    // 对账：先清零，再用全表聚合结果覆盖（已不存在的分类保持为 0）
+    @Update("UPDATE knowledge_stat_counter SET knowledge_count = 0, click_count = 0, collect_count = 0, pending_count = 0")
+    int resetAll();
+
+    @Insert("INSERT INTO knowledge_stat_counter (stat_scope, stat_key, knowledge_count, click_count, collect_count, pending_count) " +
+            "SELECT 'TOTAL', '', t.knowledges, t.clicks, t.collects, t.pendings FROM (" +
+            "SELECT COUNT(*) AS knowledges, COALESCE(SUM(click_count), 0) AS clicks, COALESCE(SUM(collect_count), 0) AS collects, " +
+            "COALESCE(SUM(status = #{pendingStatus}), 0) AS pendings FROM knowledge WHERE deleted = 0) t " +
+            "ON DUPLICATE KEY UPDATE knowledge_count = VALUES(knowledge_count), click_count = VALUES(click_count), " +
+            "collect_count = VALUES(collect_count), pending_count = VALUES(pending_count)")
+    int rebuildTotal(@Param("pendingStatus") String pendingStatus);
+
+    @Insert("INSERT INTO knowledge_stat_counter (stat_scope, stat_key, knowledge_count, click_count, collect_count, pending_count) " +
+            "SELECT 'CATEGORY', t.category, t.knowledges, t.clicks, t.collects, 0 FROM (" +
+            "SELECT category, COUNT(*) AS knowledges, COALESCE(SUM(click_count), 0) AS clicks, COALESCE(SUM(collect_count), 0) AS collects " +
+            "FROM knowledge WHERE category IS NOT NULL AND deleted = 0 GROUP BY category) t " +
+            "ON DUPLICATE KEY UPDATE knowledge_count = VALUES(knowledge_count), click_count = VALUES(click_count), " +
+            "collect_count = VALUES(collect_count), pending_count = VALUES(pending_count)")
+    int rebuildCategories();
+}
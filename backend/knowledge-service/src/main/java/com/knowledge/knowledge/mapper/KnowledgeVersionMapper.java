@@ -3,11 +3,56 @@ package com.knowledge.knowledge.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.knowledge.knowledge.entity.KnowledgeVersion;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface KnowledgeVersionMapper extends BaseMapper<KnowledgeVersion> {
     
     @org.apache.ibatis.annotations.Select("SELECT MAX(version) FROM knowledge_version WHERE knowledge_id = #{knowledgeId}")
     Long selectMaxVersion(@org.apache.ibatis.annotations.Param("knowledgeId") Long knowledgeId);
+
+    // 回收：一批知识的历史版本引用的文件
+    @Select("<script>" +
+            "SELECT DISTINCT file_id FROM knowledge_version WHERE file_id IS NOT NULL AND knowledge_id IN " +
+            "<foreach collection='knowledgeIds' item='kid' open='(' separator=',' close=')'>#{kid}</foreach>" +
+            "</script>")
+    List<Long> selectFileIds(@Param("knowledgeIds") Collection<Long> knowledgeIds);
+
+    // 回收：仍被其他知识的历史版本引用的文件
+    @Select("<script>" +
+            "SELECT DISTINCT file_id FROM knowledge_version WHERE file_id IN " +
+            "<foreach collection='fileIds' item='fid' open='(' separator=',' close=')'>#{fid}</foreach> " +
+            "AND knowledge_id NOT IN <foreach collection='excludeKnowledgeIds' item='kid' open='(' separator=',' close=')'>#{kid}</foreach>" +
+            "</script>")
+    List<Long> selectReferencedFileIds(@Param("fileIds") Collection<Long> fileIds,
+                                       @Param("excludeKnowledgeIds") Collection<Long> excludeKnowledgeIds);
+
+    // 差量存储：早于指定版本的最近一个完整快照。加锁读取，读到的是最新提交的存储方式而不是事务开始时的快照
+    @Select("SELECT * FROM knowledge_version WHERE knowledge_id = #{knowledgeId} AND delta_base_id IS NULL " +
+            "AND version < #{version} ORDER BY version DESC LIMIT 1 FOR UPDATE")
+    KnowledgeVersion selectLatestSnapshot(@Param("knowledgeId") Long knowledgeId, @Param("version") Long version);
+
+    // 差量存储：以指定快照为基准的差量版本（加锁读取）
+    @Select("SELECT id FROM knowledge_version WHERE delta_base_id = #{baseId} FOR UPDATE")
+    List<Long> selectDeltaIds(@Param("baseId") Long baseId);
+
+    // 差量存储：改写一行的正文存储方式（完整正文或差量二选一）
+    @Update("UPDATE knowledge_version SET content = #{content}, content_delta = #{contentDelta}, " +
+            "delta_base_id = #{deltaBaseId} WHERE id = #{id}")
+    int updateStorage(@Param("id") Long id, @Param("content") String content,
+                      @Param("contentDelta") byte[] contentDelta, @Param("deltaBaseId") Long deltaBaseId);
+
+    // 存储重写：按知识ID分批遍历有历史版本的知识
+    @Select("SELECT DISTINCT knowledge_id FROM knowledge_version WHERE knowledge_id > #{afterId} " +
+            "ORDER BY knowledge_id LIMIT #{limit}")
+    List<Long> selectKnowledgeIdsAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    @Select("SELECT COUNT(DISTINCT knowledge_id) FROM knowledge_version")
+    long countKnowledge();
 }
 
@@ -0,0 +1,35 @@
+package com.knowledge.knowledge.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.knowledge.knowledge.entity.SearchIndexOutbox;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface SearchIndexOutboxMapper extends BaseMapper<SearchIndexOutbox> {
+
+    @Insert("<script>" +
+            "INSERT INTO search_index_outbox (knowledge_id, op, attempts, next_attempt_time, create_time) VALUES " +
+            "<foreach collection='knowledgeIds' item='kid' separator=','>(#{kid}, #{op}, 0, NOW(), NOW())</foreach>" +
+            "</script>")
+    int insertBatch(@Param("knowledgeIds") Collection<Long> knowledgeIds, @Param("op") String op);
+
+    // 按写入顺序拉取到期记录，保证同一知识的多次变更以最后一次为准
+    @Select("SELECT * FROM search_index_outbox WHERE attempts < #{maxAttempts} AND next_attempt_time <= NOW() " +
+            "ORDER BY id LIMIT #{limit}")
+    List<SearchIndexOutbox> selectDue(@Param("maxAttempts") int maxAttempts, @Param("limit") int limit);
+
+    // 失败退避：2^attempts 秒，最长 10 分钟
+    @Update("<script>" +
+            "UPDATE search_index_outbox SET attempts = attempts + 1, last_error = #{error}, " +
+            "next_attempt_time = DATE_ADD(NOW(), INTERVAL LEAST(POW(2, attempts), 600) SECOND) " +
+            "WHERE id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("error") String error);
+}
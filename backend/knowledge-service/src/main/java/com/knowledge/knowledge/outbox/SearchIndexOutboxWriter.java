@@ -0,0 +1,51 @@
+package com.knowledge.knowledge.outbox;
+
+import com.knowledge.api.dto.IndexOutboxEventDTO;
+import com.knowledge.knowledge.mapper.SearchIndexOutboxMapper;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * 搜索索引发件箱写入器
+ * 在业务事务内记录“某条知识需要重新索引/删除索引”，与业务数据一起提交或回滚，
+ * 实际的 Elasticsearch 写入由 search-service 拉取后批量完成
+ */
+@Component
+public class SearchIndexOutboxWriter {
+
+    @Resource
+    private SearchIndexOutboxMapper outboxMapper;
+
+    /**
+     * 记录知识需要（重新）索引。是否真正写入索引由同步时的最新状态决定（仅已发布的文件会被索引）
+     */
+    public void upsert(Long knowledgeId) {
+        if (knowledgeId != null) {
+            upsert(Collections.singletonList(knowledgeId));
+        }
+    }
+
+    public void upsert(Collection<Long> knowledgeIds) {
+        if (knowledgeIds != null && !knowledgeIds.isEmpty()) {
+            outboxMapper.insertBatch(knowledgeIds, IndexOutboxEventDTO.OP_UPSERT);
+        }
+    }
+
+    /**
+     * 记录知识需要从索引中删除
+     */
+    public void delete(Long knowledgeId) {
+        if (knowledgeId != null) {
+            delete(Collections.singletonList(knowledgeId));
+        }
+    }
+
+    public void delete(Collection<Long> knowledgeIds) {
+        if (knowledgeIds != null && !knowledgeIds.isEmpty()) {
+            outboxMapper.insertBatch(knowledgeIds, IndexOutboxEventDTO.OP_DELETE);
+        }
+    }
+}
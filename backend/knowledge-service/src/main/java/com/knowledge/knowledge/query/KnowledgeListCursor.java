@@ -0,0 +1,66 @@
+package com.knowledge.knowledge.query;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 知识列表游标
+ * 把排序方式与上一页最后一条记录的 (排序值, ID) 编码为不透明字符串，下一页从该位置之后继续读取
+ */
+public class KnowledgeListCursor {
+
+    private final String sort;
+    private final Long sortValue;
+    private final Long id;
+
+    public KnowledgeListCursor(String sort, Long sortValue, Long id) {
+        this.sort = sort;
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public Long getSortValue() {
+        return sortValue;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        JSONObject json = new JSONObject();
+        json.put("sort", sort);
+        json.put("value", sortValue);
+        json.put("id", id);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(json.toJSONString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static KnowledgeListCursor decode(String cursor) {
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            JSONObject json = JSON.parseObject(text);
+            String sort = json.getString("sort");
+            Long id = json.getLong("id");
+            if (sort == null || id == null) {
+                throw new IllegalArgumentException("游标缺少必要字段");
+            }
+            return new KnowledgeListCursor(sort, json.getLong("value"), id);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.knowledge.knowledge.query;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.api.dto.KnowledgePageDTO;
+import com.knowledge.api.dto.KnowledgeQueryDTO;
+import com.knowledge.common.constant.Constants;
+import com.knowledge.knowledge.entity.Knowledge;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.mapper.KnowledgeProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 知识列表分页查询
+ * 结果按 (排序字段, ID) 全序排列：游标分页用上一页最后一条记录定位（WHERE (k, id) 在其之后 LIMIT n），
+ * 借助 idx_click_count（二级索引隐含主键）任意深度的页都只读取 n 行；未使用游标时仍按 pageNum 做 OFFSET 分页。
+ * click_count 为 NOT NULL（见 sql/migrate_add_click_count_not_null.sql），游标谓词不需要处理 NULL。
+ * 分页查询未指定 sortOrder 时按降序排列。
+ * 总数按 countMode 决定：默认不统计，EXACT 每次 COUNT，CACHED 按筛选条件缓存 COUNT 结果一段时间。
+ * 旧版 /knowledge/list 接口使用 {@link #listAll}，保持原有的不分页行为。
+ */
+@Slf4j
+@Component
+public class KnowledgeListQuery {
+
+    public static final String COUNT_NONE = "NONE";
+    public static final String COUNT_EXACT = "EXACT";
+    public static final String COUNT_CACHED = "CACHED";
+
+    private static final String SORT_CLICK_COUNT = "clickCount";
+    private static final String SORT_ID = "id";
+    private static final String COUNT_KEY_PREFIX = "knowledge:list:count:";
+
+    @Resource
+    private KnowledgeMapper knowledgeMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${knowledge.list.max-page-size:10000}")
+    private int maxPageSize;
+
+    @Value("${knowledge.list.count-cache-seconds:60}")
+    private long countCacheSeconds;
+
+    /**
+     * 不分页，返回全部符合条件的记录。
+     * 旧接口从未真正分页：前端按返回条数计算总数、加载文件夹时一次取回整棵树，因此不能截断。
+     * 排序方向沿用旧接口的约定：只有 sortOrder 为 "DESC" 时降序，未指定时升序（与分页查询的默认值相反）
+     */
+    public List<KnowledgeDTO> listAll(KnowledgeQueryDTO queryDTO) {
+        String sortField = SORT_CLICK_COUNT.equals(queryDTO.getSortField()) ? SORT_CLICK_COUNT : SORT_ID;
+        boolean asc = !"DESC".equals(queryDTO.getSortOrder());
+        LambdaQueryWrapper<Knowledge> wrapper = newWrapper(queryDTO);
+        applyFilters(wrapper, queryDTO);
+        applyOrder(wrapper, sortField, asc);
+        return toDTOs(knowledgeMapper.selectList(wrapper));
+    }
+
+    public KnowledgePageDTO list(KnowledgeQueryDTO queryDTO) {
+        String sortField = SORT_CLICK_COUNT.equals(queryDTO.getSortField()) ? SORT_CLICK_COUNT : SORT_ID;
+        boolean asc = "ASC".equalsIgnoreCase(queryDTO.getSortOrder());
+        String sort = sortField + ":" + (asc ? "ASC" : "DESC");
+        int pageSize = Math.max(1, Math.min(queryDTO.getPageSize() != null ? queryDTO.getPageSize() : 10, maxPageSize));
+        int pageNum = Math.max(1, queryDTO.getPageNum() != null ? queryDTO.getPageNum() : 1);
+
+        boolean cursorMode = Boolean.TRUE.equals(queryDTO.getUseCursor())
+                || (queryDTO.getCursor() != null && !queryDTO.getCursor().isEmpty());
+        KnowledgeListCursor cursor = null;
+        if (queryDTO.getCursor() != null && !queryDTO.getCursor().isEmpty()) {
+            try {
+                cursor = KnowledgeListCursor.decode(queryDTO.getCursor());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("无效的分页游标");
+            }
+            if (!sort.equals(cursor.getSort())) {
+                throw new RuntimeException("分页游标与排序方式不一致");
+            }
+        }
+
+        LambdaQueryWrapper<Knowledge> wrapper = newWrapper(queryDTO);
+        applyFilters(wrapper, queryDTO);
+        if (cursor != null) {
+            applyCursor(wrapper, sortField, asc, cursor);
+        }
+        applyOrder(wrapper, sortField, asc);
+        if (cursorMode) {
+            // 多取一条判断是否还有下一页
+            wrapper.last("LIMIT " + (pageSize + 1));
+        } else {
+            wrapper.last("LIMIT " + (long) (pageNum - 1) * pageSize + ", " + pageSize);
+        }
+
+        List<Knowledge> rows = knowledgeMapper.selectList(wrapper);
+        KnowledgePageDTO page = new KnowledgePageDTO();
+        if (cursorMode && rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Knowledge last = rows.get(rows.size() - 1);
+            Long lastValue = SORT_CLICK_COUNT.equals(sortField) ? clickCount(last) : null;
+            page.setNextCursor(new KnowledgeListCursor(sort, lastValue, last.getId()).encode());
+        }
+        page.setRecords(toDTOs(rows));
+        page.setPageNum(cursorMode ? null : pageNum);
+        page.setPageSize(pageSize);
+        page.setTotal(count(queryDTO));
+        return page;
+    }
+
+    private Long count(KnowledgeQueryDTO queryDTO) {
+        String mode = queryDTO.getCountMode() != null ? queryDTO.getCountMode().toUpperCase() : COUNT_NONE;
+        if (COUNT_EXACT.equals(mode)) {
+            return exactCount(queryDTO);
+        }
+        if (!COUNT_CACHED.equals(mode)) {
+            return null;
+        }
+
+        String key = COUNT_KEY_PREFIX + DigestUtil.md5Hex(filterSignature(queryDTO));
+        try {
+            String cached = stringRedisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                return Long.valueOf(cached);
+            }
+        } catch (Exception e) {
+            log.warn("读取列表总数缓存失败: {}", e.getMessage());
+        }
+        long total = exactCount(queryDTO);
+        try {
+            stringRedisTemplate.opsForValue().set(key, String.valueOf(total), countCacheSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入列表总数缓存失败: {}", e.getMessage());
+        }
+        return total;
+    }
+
+    private long exactCount(KnowledgeQueryDTO queryDTO) {
+        LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
+        applyFilters(wrapper, queryDTO);
+        Long total = knowledgeMapper.selectCount(wrapper);
+        return total != null ? total : 0L;
+    }
+
+    /**
+     * 列表默认不读取全文字段，调用方显式要求时才返回
+     */
+    private static LambdaQueryWrapper<Knowledge> newWrapper(KnowledgeQueryDTO queryDTO) {
+        return Boolean.TRUE.equals(queryDTO.getIncludeContentText())
+                ? new LambdaQueryWrapper<>() : KnowledgeProjection.summary();
+    }
+
+    private static void applyOrder(LambdaQueryWrapper<Knowledge> wrapper, String sortField, boolean asc) {
+        if (SORT_CLICK_COUNT.equals(sortField)) {
+            wrapper.orderBy(true, asc, Knowledge::getClickCount);
+        }
+        wrapper.orderBy(true, asc, Knowledge::getId);
+    }
+
+    private static List<KnowledgeDTO> toDTOs(List<Knowledge> rows) {
+        return rows.stream().map(knowledge -> {
+            KnowledgeDTO dto = new KnowledgeDTO();
+            BeanUtils.copyProperties(knowledge, dto);
+            return dto;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * 列表筛选条件，分页查询和 COUNT 共用
+     */
+    private static void applyFilters(LambdaQueryWrapper<Knowledge> wrapper, KnowledgeQueryDTO queryDTO) {
+        // 根据includeFolders参数决定是否过滤文件夹
+        // 默认为false，保持向后兼容（只查询文件）
+        boolean includeFolders = "true".equalsIgnoreCase(queryDTO.getIncludeFolders());
+        if (!includeFolders) {
+            wrapper.isNotNull(Knowledge::getFileId);
+        }
+        if (queryDTO.getCategory() != null) {
+            wrapper.eq(Knowledge::getCategory, queryDTO.getCategory());
+        }
+        if (queryDTO.getDepartment() != null) {
+            wrapper.eq(Knowledge::getDepartment, queryDTO.getDepartment());
+        }
+        if (queryDTO.getAuthor() != null) {
+            wrapper.eq(Knowledge::getAuthor, queryDTO.getAuthor());
+        }
+        if (queryDTO.getStatus() != null) {
+            // 如果查询的是待审核状态，也应该包含那些虽已发布但有待审核草稿的记录
+            if (Constants.FILE_STATUS_PENDING.equals(queryDTO.getStatus())) {
+                wrapper.and(w -> w.eq(Knowledge::getStatus, Constants.FILE_STATUS_PENDING)
+                              .or()
+                              .eq(Knowledge::getHasDraft, true));
+            } else {
+                wrapper.eq(Knowledge::getStatus, queryDTO.getStatus());
+            }
+        }
+    }
+
+    /**
+     * 定位到游标之后：升序时 (k, id) > (value, lastId)，降序时 (k, id) < (value, lastId)
+     */
+    private static void applyCursor(LambdaQueryWrapper<Knowledge> wrapper, String sortField, boolean asc,
+                                    KnowledgeListCursor cursor) {
+        if (SORT_CLICK_COUNT.equals(sortField)) {
+            long value = cursor.getSortValue() != null ? cursor.getSortValue() : 0L;
+            if (asc) {
+                wrapper.and(w -> w.gt(Knowledge::getClickCount, value)
+                        .or(o -> o.eq(Knowledge::getClickCount, value).gt(Knowledge::getId, cursor.getId())));
+            } else {
+                wrapper.and(w -> w.lt(Knowledge::getClickCount, value)
+                        .or(o -> o.eq(Knowledge::getClickCount, value).lt(Knowledge::getId, cursor.getId())));
+            }
+        } else if (asc) {
+            wrapper.gt(Knowledge::getId, cursor.getId());
+        } else {
+            wrapper.lt(Knowledge::getId, cursor.getId());
+        }
+    }
+
+    private static String filterSignature(KnowledgeQueryDTO queryDTO) {
+        return "folders=" + "true".equalsIgnoreCase(queryDTO.getIncludeFolders())
+                + "|category=" + queryDTO.getCategory()
+                + "|department=" + queryDTO.getDepartment()
+                + "|author=" + queryDTO.getAuthor()
+                + "|status=" + queryDTO.getStatus();
+    }
+
+    private static Long clickCount(Knowledge knowledge) {
+        return knowledge.getClickCount() != null ? knowledge.getClickCount() : 0L;
+    }
+}
@@ -0,0 +1,94 @@
+package com.knowledge.knowledge.query;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.knowledge.api.dto.KnowledgeVersionDTO;
+import com.knowledge.api.dto.KnowledgeVersionPageDTO;
+import com.knowledge.common.constant.Constants;
+import com.knowledge.knowledge.entity.KnowledgeVersion;
+import com.knowledge.knowledge.mapper.KnowledgeVersionMapper;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 版本历史分页查询
+ * 只读取历史侧栏需要的提交信息（版本号、提交哈希、作者、状态、说明、时间以及画分支图用的父子关系），
+ * 不读取正文和差量列；可见性过滤在 SQL 中完成，按 (knowledge_id, create_time) 索引顺序取一页。
+ */
+@Component
+public class KnowledgeVersionHistoryQuery {
+
+    @Resource
+    private KnowledgeVersionMapper knowledgeVersionMapper;
+
+    @Value("${knowledge.version-list.max-page-size:100}")
+    private int maxPageSize;
+
+    public KnowledgeVersionPageDTO page(Long knowledgeId, String username, boolean isAdmin,
+                                        Integer pageNum, Integer pageSize) {
+        int size = Math.max(1, Math.min(pageSize != null ? pageSize : 20, maxPageSize));
+        int page = Math.max(1, pageNum != null ? pageNum : 1);
+
+        LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(KnowledgeVersion::getId, KnowledgeVersion::getKnowledgeId, KnowledgeVersion::getVersion,
+                KnowledgeVersion::getCommitHash, KnowledgeVersion::getBranch, KnowledgeVersion::getParentCommitId,
+                KnowledgeVersion::getCommitMessage, KnowledgeVersion::getChangeDescription,
+                KnowledgeVersion::getAuthor, KnowledgeVersion::getCreatedBy, KnowledgeVersion::getCreateTime,
+                KnowledgeVersion::getIsPublished, KnowledgeVersion::getStatus,
+                KnowledgeVersion::getMergeFromVersion, KnowledgeVersion::getBaseVersion);
+        wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
+        applyVisibility(wrapper, username, isAdmin);
+        wrapper.orderByDesc(KnowledgeVersion::getCreateTime);
+        wrapper.orderByDesc(KnowledgeVersion::getId);
+        wrapper.last("LIMIT " + (long) (page - 1) * size + ", " + size);
+        List<KnowledgeVersion> rows = knowledgeVersionMapper.selectList(wrapper);
+
+        LambdaQueryWrapper<KnowledgeVersion> countWrapper = new LambdaQueryWrapper<>();
+        countWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
+        applyVisibility(countWrapper, username, isAdmin);
+        Long total = knowledgeVersionMapper.selectCount(countWrapper);
+
+        KnowledgeVersionPageDTO result = new KnowledgeVersionPageDTO();
+        result.setRecords(rows.stream().map(KnowledgeVersionHistoryQuery::toDTO).collect(Collectors.toList()));
+        result.setTotal(total != null ? total : 0L);
+        result.setPageNum(page);
+        result.setPageSize(size);
+        return result;
+    }
+
+    /**
+     * 版本可见性：管理员可见全部；其他用户可见已发布版本，以及自己创建的版本、
+     * 自己创建/最近更新/署名的知识的全部版本
+     */
+    public static void applyVisibility(LambdaQueryWrapper<KnowledgeVersion> wrapper, String username, boolean isAdmin) {
+        if (isAdmin) {
+            return;
+        }
+        if (username == null) {
+            wrapper.and(w -> w.eq(KnowledgeVersion::getIsPublished, true)
+                    .or().eq(KnowledgeVersion::getStatus, Constants.FILE_STATUS_APPROVED));
+            return;
+        }
+        wrapper.and(w -> w.eq(KnowledgeVersion::getIsPublished, true)
+                .or().eq(KnowledgeVersion::getStatus, Constants.FILE_STATUS_APPROVED)
+                .or().eq(KnowledgeVersion::getCreatedBy, username)
+                .or().apply("EXISTS (SELECT 1 FROM knowledge k WHERE k.id = knowledge_version.knowledge_id "
+                        + "AND (k.create_by = {0} OR k.update_by = {0} OR k.author = {0}))", username));
+    }
+
+    /**
+     * 版本实体转 DTO，提交说明为空时使用变更说明
+     */
+    public static KnowledgeVersionDTO toDTO(KnowledgeVersion version) {
+        KnowledgeVersionDTO dto = new KnowledgeVersionDTO();
+        BeanUtils.copyProperties(version, dto);
+        if (dto.getCommitMessage() == null || dto.getCommitMessage().trim().isEmpty()) {
+            dto.setCommitMessage(dto.getChangeDescription());
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,200 @@
+package com.knowledge.knowledge.reclaim;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.knowledge.api.service.AuditService;
+import com.knowledge.api.service.CommentService;
+import com.knowledge.api.service.FileService;
+import com.knowledge.api.service.KnowledgeRelationService;
+import com.knowledge.knowledge.entity.KnowledgeReclaimTask;
+import com.knowledge.knowledge.entity.KnowledgeVersion;
+import com.knowledge.knowledge.lock.RedisJobLock;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.mapper.KnowledgeReclaimTaskMapper;
+import com.knowledge.knowledge.mapper.KnowledgeVersionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 已删除知识的后台回收
+ * deleteKnowledge 只在事务内软删除整棵子树并写入回收任务；本任务按批取出到期的回收任务，依次：
+ * 批量删除审核记录、评论、关联关系（远程调用，均可重复执行）→ 按批统计文件引用并批量删除无引用的文件 →
+ * 在一个本地事务中删除版本历史、物理删除知识并移除任务。任一步失败整批退避重试，超过最大次数后保留任务等待人工处理。
+ * 多实例部署时由 Redis 锁保证只有一个实例执行，每处理一批续期一次。
+ */
+@Slf4j
+@Component
+public class KnowledgeReclaimJob {
+
+    private static final String LOCK_KEY = "knowledge:reclaim:lock";
+    private static final long LOCK_TTL_MINUTES = 10;
+
+    @Resource
+    private KnowledgeReclaimTaskMapper reclaimTaskMapper;
+
+    @Resource
+    private KnowledgeMapper knowledgeMapper;
+
+    @Resource
+    private KnowledgeVersionMapper knowledgeVersionMapper;
+
+    @Resource
+    private RedisJobLock redisJobLock;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @DubboReference(check = false, timeout = 10000)
+    private AuditService auditService;
+
+    @DubboReference(check = false, timeout = 10000)
+    private CommentService commentService;
+
+    @DubboReference(check = false, timeout = 10000)
+    private KnowledgeRelationService relationService;
+
+    @DubboReference(check = false, timeout = 10000)
+    private FileService fileService;
+
+    @Value("${knowledge.reclaim.interval-seconds:30}")
+    private long intervalSeconds;
+
+    @Value("${knowledge.reclaim.batch-size:100}")
+    private int batchSize;
+
+    @Value("${knowledge.reclaim.max-attempts:10}")
+    private int maxAttempts;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "knowledge-reclaim");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 删除提交后尽快执行一次回收，不必等到下一个周期
+     */
+    public void wakeUp() {
+        Runnable action = () -> scheduler.execute(this::runQuietly);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public void run() {
+        String token = redisJobLock.tryLock(LOCK_KEY, LOCK_TTL_MINUTES, TimeUnit.MINUTES);
+        if (token == null) {
+            return;
+        }
+        try {
+            List<KnowledgeReclaimTask> tasks;
+            while (!(tasks = reclaimTaskMapper.selectDue(maxAttempts, batchSize)).isEmpty()) {
+                List<Long> knowledgeIds = tasks.stream().map(KnowledgeReclaimTask::getKnowledgeId).collect(Collectors.toList());
+                try {
+                    reclaim(knowledgeIds);
+                } catch (Exception e) {
+                    log.warn("回收已删除知识失败，稍后重试: count={}, error={}", knowledgeIds.size(), e.getMessage());
+                    String error = e.getMessage() != null && e.getMessage().length() > 500
+                            ? e.getMessage().substring(0, 500) : e.getMessage();
+                    reclaimTaskMapper.markFailed(knowledgeIds, error);
+                    // 剩余任务留到下一周期，避免持续失败时空转
+                    return;
+                }
+                if (tasks.size() < batchSize) {
+                    return;
+                }
+                // 锁已被其他实例取得时停止，剩余任务由持锁实例处理
+                if (!redisJobLock.renew(LOCK_KEY, token, LOCK_TTL_MINUTES, TimeUnit.MINUTES)) {
+                    return;
+                }
+            }
+        } finally {
+            redisJobLock.unlock(LOCK_KEY, token);
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.error("回收已删除知识失败", e);
+        }
+    }
+
+    private void reclaim(List<Long> knowledgeIds) {
+        long start = System.currentTimeMillis();
+
+        // 1. 收集文件ID（当前文件和历史版本文件），物理删除知识前必须先取出
+        Set<Long> fileIds = new LinkedHashSet<>(knowledgeMapper.selectFileIdsIncludingDeleted(knowledgeIds));
+        fileIds.addAll(knowledgeVersionMapper.selectFileIds(knowledgeIds));
+
+        // 2. 批量清理其他服务中的关联数据
+        auditService.deleteByKnowledgeIds(knowledgeIds);
+        commentService.deleteByKnowledgeIds(knowledgeIds);
+        relationService.deleteByKnowledgeIds(knowledgeIds);
+
+        // 3. 引用计数：排除本批知识后仍被引用的文件保留，其余批量删除
+        List<Long> orphanFileIds = new ArrayList<>();
+        if (!fileIds.isEmpty()) {
+            Set<Long> referenced = new LinkedHashSet<>(knowledgeMapper.selectReferencedFileIds(fileIds, knowledgeIds));
+            referenced.addAll(knowledgeVersionMapper.selectReferencedFileIds(fileIds, knowledgeIds));
+            for (Long fileId : fileIds) {
+                if (!referenced.contains(fileId)) {
+                    orphanFileIds.add(fileId);
+                }
+            }
+        }
+        if (!orphanFileIds.isEmpty()) {
+            List<Long> failed = fileService.deleteFiles(orphanFileIds);
+            if (failed != null && !failed.isEmpty()) {
+                throw new RuntimeException("删除文件失败: " + failed);
+            }
+        }
+
+        // 4. 本地数据在一个事务中删除
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            LambdaQueryWrapper<KnowledgeVersion> versionWrapper = new LambdaQueryWrapper<>();
+            versionWrapper.in(KnowledgeVersion::getKnowledgeId, knowledgeIds);
+            knowledgeVersionMapper.delete(versionWrapper);
+            knowledgeMapper.purgeDeleted(knowledgeIds);
+            reclaimTaskMapper.deleteBatchIds(knowledgeIds);
+        });
+        log.info("回收已删除知识完成: count={}, files={}, cost={}ms",
+                knowledgeIds.size(), orphanFileIds.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -20,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -198,9 +199,18 @@ public class CommentServiceImpl implements CommentService {
     @Override
     @Transactional
     public void deleteByKnowledgeId(Long knowledgeId) {
-        // 1. 查找该知识下所有评论ID
+        deleteByKnowledgeIds(Collections.singletonList(knowledgeId));
+    }
+
+    @Override
+    @Transactional
+    public void deleteByKnowledgeIds(List<Long> knowledgeIds) {
+        if (knowledgeIds == null || knowledgeIds.isEmpty()) {
+            return;
+        }
+        // 1. 查找这些知识下所有评论ID
         LambdaQueryWrapper<KnowledgeComment> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(KnowledgeComment::getKnowledgeId, knowledgeId);
+        queryWrapper.in(KnowledgeComment::getKnowledgeId, knowledgeIds);
         queryWrapper.select(KnowledgeComment::getId);
         List<Object> commentIds = commentMapper.selectObjs(queryWrapper);
         
@@ -216,7 +226,7 @@ public class CommentServiceImpl implements CommentService {
             
             // 3. 删除评论
             commentMapper.deleteBatchIds(ids);
-            log.info("已删除知识 ID={} 关联的 {} 条评论及其点赞记录", knowledgeId, ids.size());
+            log.info("已删除知识 ID={} 关联的 {} 条评论及其点赞记录", knowledgeIds, ids.size());
         }
     }
 }
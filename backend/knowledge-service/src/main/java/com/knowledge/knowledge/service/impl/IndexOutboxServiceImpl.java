@@ -0,0 +1,195 @@
+package com.knowledge.knowledge.service.impl;
+
+import com.knowledge.api.dto.IndexOutboxBatchDTO;
+import com.knowledge.api.dto.IndexOutboxEventDTO;
+import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.api.service.IndexOutboxService;
+import com.knowledge.common.constant.Constants;
+import com.knowledge.knowledge.entity.Knowledge;
+import com.knowledge.knowledge.entity.SearchIndexOutbox;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.mapper.SearchIndexOutboxMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboService;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@DubboService
+public class IndexOutboxServiceImpl implements IndexOutboxService {
+
+    @Resource
+    private SearchIndexOutboxMapper outboxMapper;
+
+    @Resource
+    private KnowledgeMapper knowledgeMapper;
+
+    /**
+     * 单次加载知识数据的条数
+     */
+    private static final int LOAD_CHUNK_SIZE = 50;
+
+    @Value("${knowledge.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${knowledge.outbox.max-payload-bytes:4194304}")
+    private long maxPayloadBytes;
+
+    @Override
+    public IndexOutboxBatchDTO pollIndexOutbox(int limit) {
+        IndexOutboxBatchDTO batch = new IndexOutboxBatchDTO();
+        List<SearchIndexOutbox> rows = outboxMapper.selectDue(maxAttempts, limit);
+        batch.setRowCount(rows.size());
+        if (rows.isEmpty()) {
+            batch.setEvents(Collections.emptyList());
+            return batch;
+        }
+        batch.setOldestCreateTime(rows.get(0).getCreateTime());
+
+        // 合并同一知识的多条记录：按写入顺序，最后一条操作为准
+        Map<Long, IndexOutboxEventDTO> merged = new LinkedHashMap<>();
+        for (SearchIndexOutbox row : rows) {
+            IndexOutboxEventDTO event = merged.computeIfAbsent(row.getKnowledgeId(), id -> {
+                IndexOutboxEventDTO e = new IndexOutboxEventDTO();
+                e.setKnowledgeId(id);
+                e.setOutboxIds(new ArrayList<>());
+                return e;
+            });
+            event.setOp(row.getOp());
+            event.getOutboxIds().add(row.getId());
+            if (batch.getOldestCreateTime() == null
+                    || (row.getCreateTime() != null && row.getCreateTime().isBefore(batch.getOldestCreateTime()))) {
+                batch.setOldestCreateTime(row.getCreateTime());
+            }
+        }
+
+        // 按顺序分段加载知识数据，累计载荷超过 maxPayloadBytes 时截断，
+        // 其余事件的发件箱记录保持待处理，由下一次拉取继续（rowCount 不变，中继会立即拉取下一批）
+        List<IndexOutboxEventDTO> events = new ArrayList<>(merged.values());
+        List<IndexOutboxEventDTO> accepted = new ArrayList<>();
+        long payload = 0;
+        load:
+        for (int from = 0; from < events.size(); from += LOAD_CHUNK_SIZE) {
+            List<IndexOutboxEventDTO> chunk = events.subList(from, Math.min(from + LOAD_CHUNK_SIZE, events.size()));
+            Map<Long, Knowledge> knowledgeMap = loadKnowledge(chunk);
+            for (IndexOutboxEventDTO event : chunk) {
+                fillKnowledge(event, knowledgeMap.get(event.getKnowledgeId()));
+                long size = estimateSize(event);
+                if (!accepted.isEmpty() && payload + size > maxPayloadBytes) {
+                    break load;
+                }
+                if (size > maxPayloadBytes) {
+                    // 单个文档本身超限时截断正文，保证请求能够送达，标题等字段仍可检索
+                    truncateContentText(event, maxPayloadBytes);
+                    size = estimateSize(event);
+                }
+                payload += size;
+                accepted.add(event);
+            }
+        }
+        if (accepted.size() < events.size()) {
+            log.info("索引发件箱载荷超限，本批截断: events={}, accepted={}, payloadBytes={}",
+                    events.size(), accepted.size(), payload);
+        }
+
+        batch.setEvents(accepted);
+        return batch;
+    }
+
+    @Override
+    public void deferIndexOutbox(int limit, String error) {
+        List<Long> ids = outboxMapper.selectDue(maxAttempts, limit).stream()
+                .map(SearchIndexOutbox::getId)
+                .collect(Collectors.toList());
+        failIndexOutbox(ids, error);
+    }
+
+    @Override
+    public void ackIndexOutbox(List<Long> outboxIds) {
+        if (outboxIds == null || outboxIds.isEmpty()) {
+            return;
+        }
+        outboxMapper.deleteBatchIds(outboxIds);
+    }
+
+    @Override
+    public void failIndexOutbox(List<Long> outboxIds, String error) {
+        if (outboxIds == null || outboxIds.isEmpty()) {
+            return;
+        }
+        String message = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        outboxMapper.markFailed(outboxIds, message);
+        log.warn("索引同步失败，稍后重试: outboxIds={}, error={}", outboxIds, message);
+    }
+
+    /**
+     * 一次查询取回一段事件中需要索引的知识的最新数据
+     */
+    private Map<Long, Knowledge> loadKnowledge(List<IndexOutboxEventDTO> events) {
+        List<Long> upsertIds = events.stream()
+                .filter(e -> IndexOutboxEventDTO.OP_UPSERT.equals(e.getOp()))
+                .map(IndexOutboxEventDTO::getKnowledgeId)
+                .collect(Collectors.toList());
+        return upsertIds.isEmpty() ? Collections.emptyMap()
+                : knowledgeMapper.selectBatchIds(upsertIds).stream()
+                        .collect(Collectors.toMap(Knowledge::getId, Function.identity()));
+    }
+
+    private void fillKnowledge(IndexOutboxEventDTO event, Knowledge knowledge) {
+        if (!IndexOutboxEventDTO.OP_UPSERT.equals(event.getOp())) {
+            return;
+        }
+        // 已删除、未发布或文件夹不在索引中，统一转为删除
+        if (knowledge == null || knowledge.getFileId() == null
+                || !Constants.FILE_STATUS_APPROVED.equals(knowledge.getStatus())) {
+            event.setOp(IndexOutboxEventDTO.OP_DELETE);
+            return;
+        }
+        KnowledgeDTO dto = new KnowledgeDTO();
+        BeanUtils.copyProperties(knowledge, dto);
+        event.setKnowledge(dto);
+    }
+
+    /**
+     * 事件序列化后的大致字节数：文本字段按 UTF-8 每字符最多 3 字节估算
+     */
+    private static long estimateSize(IndexOutboxEventDTO event) {
+        long size = 256;
+        KnowledgeDTO knowledge = event.getKnowledge();
+        if (knowledge != null) {
+            size += 3L * (length(knowledge.getContentText()) + length(knowledge.getContent())
+                    + length(knowledge.getTitle()) + length(knowledge.getSummary())
+                    + length(knowledge.getKeywords()));
+        }
+        return size;
+    }
+
+    private static void truncateContentText(IndexOutboxEventDTO event, long maxBytes) {
+        KnowledgeDTO knowledge = event.getKnowledge();
+        if (knowledge == null || knowledge.getContentText() == null) {
+            return;
+        }
+        long otherBytes = estimateSize(event) - 3L * knowledge.getContentText().length();
+        int maxChars = (int) Math.max(0, (maxBytes - otherBytes) / 3);
+        if (knowledge.getContentText().length() > maxChars) {
+            log.warn("索引文档正文过大，截断后同步: knowledgeId={}, length={}, maxChars={}",
+                    event.getKnowledgeId(), knowledge.getContentText().length(), maxChars);
+            knowledge.setContentText(knowledge.getContentText().substring(0, maxChars));
+        }
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -16,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -144,14 +145,23 @@ public class KnowledgeRelationServiceImpl implements KnowledgeRelationService {
     @Override
     @Transactional
     public void deleteByKnowledgeId(Long knowledgeId) {
-        // 删除该知识作为源或目标的关联关系
+        deleteByKnowledgeIds(Collections.singletonList(knowledgeId));
+    }
+
+    @Override
+    @Transactional
+    public void deleteByKnowledgeIds(List<Long> knowledgeIds) {
+        if (knowledgeIds == null || knowledgeIds.isEmpty()) {
+            return;
+        }
+        // 删除这些知识作为源或目标的关联关系
         LambdaQueryWrapper<KnowledgeRelation> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(KnowledgeRelation::getKnowledgeId, knowledgeId)
+        wrapper.in(KnowledgeRelation::getKnowledgeId, knowledgeIds)
                .or()
-               .eq(KnowledgeRelation::getRelatedKnowledgeId, knowledgeId);
+               .in(KnowledgeRelation::getRelatedKnowledgeId, knowledgeIds);
         
         int deleted = relationMapper.delete(wrapper);
-        log.info("已删除知识 ID={} 关联的 {} 条关系数据", knowledgeId, deleted);
+        log.info("已删除知识 ID={} 关联的 {} 条关系数据", knowledgeIds, deleted);
     }
 }
 
@@ -1,25 +1,45 @@
 package com.knowledge.knowledge.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.knowledge.api.dto.BatchJobStatusDTO;
 import com.knowledge.api.dto.DepartmentDTO;
 import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.api.dto.KnowledgePageDTO;
 import com.knowledge.api.dto.KnowledgeQueryDTO;
 import com.knowledge.api.dto.KnowledgeVersionDTO;
+import com.knowledge.api.dto.KnowledgeVersionPageDTO;
 import com.knowledge.api.dto.StatisticsDTO;
 import com.knowledge.api.dto.UserDTO;
 import com.knowledge.api.service.AuditService;
 import com.knowledge.api.service.DepartmentService;
-import com.knowledge.api.service.FileService;
 import com.knowledge.api.service.KnowledgeService;
 import com.knowledge.api.service.SearchService;
 import com.knowledge.api.service.UserService;
 import com.knowledge.common.util.DiffUtil;
 import com.knowledge.common.constant.Constants;
+import com.knowledge.knowledge.batch.KnowledgeBatchUpdater;
+import com.knowledge.knowledge.counter.ClickCountBuffer;
+import com.knowledge.knowledge.counter.HotKnowledgeRanking;
+import com.knowledge.knowledge.counter.KnowledgeEventLogger;
+import com.knowledge.knowledge.counter.StatisticsCounter;
+import com.knowledge.knowledge.diff.DiffHunkBuilder;
+import com.knowledge.knowledge.diff.VersionDiffCache;
 import com.knowledge.knowledge.entity.Knowledge;
+import com.knowledge.knowledge.entity.KnowledgeStatCounter;
 import com.knowledge.knowledge.entity.KnowledgeVersion;
 import com.knowledge.knowledge.entity.UserKnowledgeCollection;
+import com.knowledge.knowledge.extract.DocumentTextExtractor;
+import com.knowledge.knowledge.extract.TextExtractionPipeline;
+import com.knowledge.knowledge.outbox.SearchIndexOutboxWriter;
+import com.knowledge.knowledge.query.KnowledgeListQuery;
+import com.knowledge.knowledge.query.KnowledgeVersionHistoryQuery;
+import com.knowledge.knowledge.reclaim.KnowledgeReclaimJob;
+import com.knowledge.knowledge.tree.KnowledgeTreeCache;
+import com.knowledge.knowledge.version.KnowledgeVersionStore;
+import com.knowledge.knowledge.version.VersionStorageRewriteJob;
 import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.mapper.KnowledgeProjection;
+import com.knowledge.knowledge.mapper.KnowledgeReclaimTaskMapper;
 import com.knowledge.knowledge.mapper.KnowledgeVersionMapper;
 import com.knowledge.knowledge.mapper.UserKnowledgeCollectionMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +52,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -48,13 +69,22 @@ public class KnowledgeServiceImpl implements KnowledgeService {
     
     @Resource
     private KnowledgeVersionMapper knowledgeVersionMapper;
+
+    @Resource
+    private KnowledgeVersionStore knowledgeVersionStore;
+
+    @Resource
+    private VersionStorageRewriteJob versionStorageRewriteJob;
+
+    @Resource
+    private VersionDiffCache versionDiffCache;
+
+    @Resource
+    private DiffHunkBuilder diffHunkBuilder;
     
     @Resource
     private UserKnowledgeCollectionMapper collectionMapper;
     
-    @DubboReference(check = false, timeout = 10000)
-    private FileService fileService;
-
     @DubboReference(check = false, timeout = 10000)
     private SearchService searchService;
 
@@ -70,11 +100,44 @@ public class KnowledgeServiceImpl implements KnowledgeService {
     @DubboReference(check = false, timeout = 10000)
     private AuditService auditService;
 
-    @DubboReference(check = false, timeout = 10000)
-    private com.knowledge.api.service.CommentService commentService;
+    @Resource
+    private DocumentTextExtractor documentTextExtractor;
 
-    @DubboReference(check = false, timeout = 10000)
-    private com.knowledge.api.service.KnowledgeRelationService relationService;
+    @Resource
+    private TextExtractionPipeline textExtractionPipeline;
+
+    @Resource
+    private SearchIndexOutboxWriter indexOutboxWriter;
+
+    @Resource
+    private ClickCountBuffer clickCountBuffer;
+
+    @Resource
+    private HotKnowledgeRanking hotKnowledgeRanking;
+
+    @Resource
+    private StatisticsCounter statisticsCounter;
+
+    @Resource
+    private KnowledgeEventLogger eventLogger;
+
+    @Resource
+    private KnowledgeTreeCache knowledgeTreeCache;
+
+    @Resource
+    private KnowledgeListQuery knowledgeListQuery;
+
+    @Resource
+    private KnowledgeVersionHistoryQuery knowledgeVersionHistoryQuery;
+
+    @Resource
+    private KnowledgeBatchUpdater knowledgeBatchUpdater;
+
+    @Resource
+    private KnowledgeReclaimTaskMapper reclaimTaskMapper;
+
+    @Resource
+    private KnowledgeReclaimJob knowledgeReclaimJob;
 
     @Override
     @Transactional
@@ -121,11 +184,15 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             knowledge.setCreateBy(knowledgeDTO.getCreateBy());
         }
         knowledgeMapper.insert(knowledge);
+        statisticsCounter.onChanged(null, knowledge);
+        knowledgeTreeCache.markChanged(knowledge.getId());
         
         // 创建初始commit（版本1）
         String commitMessage = "初始版本";
         String commitHash = generateCommitHash(knowledge, commitMessage, knowledgeDTO.getCreateBy(), "main", null);
         knowledge.setCurrentCommitHash(commitHash);
+        // 物化路径依赖自增ID，插入后补齐
+        knowledge.setTreePath(buildTreePath(knowledge.getParentId(), knowledge.getId()));
         knowledgeMapper.updateById(knowledge);
         
         // 保存初始版本到版本历史
@@ -150,26 +217,16 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         // 设置版本状态
         initialVersion.setStatus(status);
         initialVersion.setIsPublished(Constants.FILE_STATUS_APPROVED.equals(status));
-        knowledgeVersionMapper.insert(initialVersion);
+        knowledgeVersionStore.insert(initialVersion);
         
-        // 提取并保存文档全文内容
+        // 文档全文在事务提交后异步提取，完成后回填 content_text 并更新索引
         if (knowledge.getFileId() != null) {
-            String fullText = extractTextFromFile(knowledge.getFileId());
-            if (fullText != null) {
-                knowledge.setContentText(fullText);
-                knowledgeMapper.updateById(knowledge);
-            }
+            textExtractionPipeline.submit(knowledge.getId(), knowledge.getFileId());
         }
         
-        // 如果状态是已发布，则添加到搜索引擎索引
+        // 如果状态是已发布，则记录到索引发件箱（同事务提交，由 search-service 异步写入索引）
         if (Constants.FILE_STATUS_APPROVED.equals(knowledge.getStatus())) {
-            try {
-                KnowledgeDTO dto = new KnowledgeDTO();
-                BeanUtils.copyProperties(knowledge, dto);
-                searchService.indexKnowledge(dto);
-            } catch (Exception e) {
-                log.warn("创建知识后添加索引失败: knowledgeId={}", knowledge.getId(), e);
-            }
+            indexOutboxWriter.upsert(knowledge.getId());
         }
         
         KnowledgeDTO result = new KnowledgeDTO();
@@ -211,6 +268,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         }
         
         knowledgeMapper.updateById(knowledge);
+        knowledgeTreeCache.markChanged(knowledge.getId());
         
         // 2. Create Draft Version
         // The version number increments
@@ -240,7 +298,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         wrapper.orderByDesc(KnowledgeVersion::getVersion);
         wrapper.last("LIMIT 1");
-        KnowledgeVersion latestVersion = knowledgeVersionMapper.selectOne(wrapper);
+        KnowledgeVersion latestVersion = knowledgeVersionStore.selectOne(wrapper);
         
         if (latestVersion == null) {
             log.warn("No version found to archive for knowledgeId: {}", knowledgeId);
@@ -274,7 +332,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
             wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledge.getId());
             wrapper.eq(KnowledgeVersion::getVersion, newVersion);
-            version = knowledgeVersionMapper.selectOne(wrapper);
+            version = knowledgeVersionStore.selectOne(wrapper);
             
             if (version == null) {
                 log.warn("期望更新版本 v{} 但未找到，回退到插入模式", newVersion);
@@ -333,10 +391,10 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         }
         
         if (isUpdate) {
-            knowledgeVersionMapper.updateById(version);
+            knowledgeVersionStore.update(version);
             log.info("更新现有待审核版本 - 知识ID: {}, 版本: {}", knowledge.getId(), newVersion);
         } else {
-            knowledgeVersionMapper.insert(version);
+            knowledgeVersionStore.insert(version);
             log.info("保存版本历史 - 知识ID: {}, 版本: {}, 状态: {}, 是否发布: {}, baseVersion: {}", 
                     knowledge.getId(), newVersion, versionStatus, isPublished, version.getBaseVersion());
         }
@@ -399,7 +457,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         String commitHash = generateCommitHash(knowledge, commitMessage, updateBy, branch, parentCommitId);
         version.setCommitHash(commitHash);
         
-        knowledgeVersionMapper.insert(version);
+        knowledgeVersionStore.insert(version);
         log.info("保存版本历史（Commit） - 知识ID: {}, 版本: {}, 分支: {}, Commit Hash: {}", 
                 knowledge.getId(), currentVersion, branch, commitHash);
     }
@@ -414,7 +472,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         wrapper.orderByDesc(KnowledgeVersion::getVersion);
         wrapper.last("LIMIT 1");
         
-        KnowledgeVersion latestVersion = knowledgeVersionMapper.selectOne(wrapper);
+        KnowledgeVersion latestVersion = knowledgeVersionStore.selectOne(wrapper);
         return latestVersion != null ? latestVersion.getId() : null;
     }
     
@@ -456,168 +514,64 @@ public class KnowledgeServiceImpl implements KnowledgeService {
 
     @Override
     public List<KnowledgeDTO> listKnowledge(KnowledgeQueryDTO queryDTO) {
-        LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
-        
-        // 根据includeFolders参数决定是否过滤文件夹
-        // 默认为false，保持向后兼容（只查询文件）
-        boolean includeFolders = "true".equalsIgnoreCase(queryDTO.getIncludeFolders());
-        if (!includeFolders) {
-            wrapper.isNotNull(Knowledge::getFileId);
-        }
-        // 如果includeFolders为true，则不过滤，返回所有知识（包括文件和文件夹）
-        
-        if (queryDTO.getCategory() != null) {
-            wrapper.eq(Knowledge::getCategory, queryDTO.getCategory());
-        }
-        if (queryDTO.getDepartment() != null) {
-            wrapper.eq(Knowledge::getDepartment, queryDTO.getDepartment());
-        }
-        if (queryDTO.getAuthor() != null) {
-            wrapper.eq(Knowledge::getAuthor, queryDTO.getAuthor());
-        }
-        if (queryDTO.getStatus() != null) {
-            // 如果查询的是待审核状态，也应该包含那些虽已发布但有待审核草稿的记录
-            // 如果查询的是待审核状态，也应该包含那些虽已发布但有待审核草稿的记录
-            if (Constants.FILE_STATUS_PENDING.equals(queryDTO.getStatus())) {
-                wrapper.and(w -> w.eq(Knowledge::getStatus, Constants.FILE_STATUS_PENDING)
-                              .or()
-                              .eq(Knowledge::getHasDraft, true));
-            } else {
-                wrapper.eq(Knowledge::getStatus, queryDTO.getStatus());
-            }
-        }
-        
-        // 排序
-        if ("clickCount".equals(queryDTO.getSortField())) {
-            if ("DESC".equals(queryDTO.getSortOrder())) {
-                wrapper.orderByDesc(Knowledge::getClickCount);
-            } else {
-                wrapper.orderByAsc(Knowledge::getClickCount);
-            }
-        }
-        
-        Page<Knowledge> page = new Page<>(queryDTO.getPageNum(), queryDTO.getPageSize());
-        Page<Knowledge> result = knowledgeMapper.selectPage(page, wrapper);
-        
-        return result.getRecords().stream().map(knowledge -> {
-            KnowledgeDTO dto = new KnowledgeDTO();
-            BeanUtils.copyProperties(knowledge, dto);
-            return dto;
-        }).collect(Collectors.toList());
+        return knowledgeListQuery.listAll(queryDTO);
+    }
+
+    @Override
+    public KnowledgePageDTO listKnowledgePage(KnowledgeQueryDTO queryDTO) {
+        return knowledgeListQuery.list(queryDTO);
     }
 
     @Override
     @Transactional
     public boolean deleteKnowledge(Long id) {
-        // 先获取知识信息，以便删除关联的文件
         Knowledge knowledge = knowledgeMapper.selectById(id);
         if (knowledge == null) {
             return false;
         }
         
-        // 0. [Hard Delete Prep] 收集所有需要清理的文件ID (包括主表和历史版本)
-        java.util.Set<Long> fileIdsToCheck = new java.util.HashSet<>();
-        if (knowledge.getFileId() != null) {
-            fileIdsToCheck.add(knowledge.getFileId());
-        }
-        
-        // 从版本历史中收集文件ID
-        LambdaQueryWrapper<KnowledgeVersion> versionQuery = new LambdaQueryWrapper<>();
-        versionQuery.select(KnowledgeVersion::getFileId);
-        versionQuery.eq(KnowledgeVersion::getKnowledgeId, id);
-        versionQuery.isNotNull(KnowledgeVersion::getFileId);
-        List<KnowledgeVersion> versions = knowledgeVersionMapper.selectList(versionQuery);
-        for (KnowledgeVersion v : versions) {
-            if (v.getFileId() != null) {
-                fileIdsToCheck.add(v.getFileId());
-            }
-        }
-        log.info("删除知识: id={}, 收集到 {} 个关联文件待检查清理", id, fileIdsToCheck.size());
-        
-        // 1. 删除所有关联的审核记录
-        auditService.deleteByKnowledgeId(id);
+        // 1. 删除整棵子树（删除文件夹时其下的知识一并删除）
+        List<Long> ids = knowledge.getTreePath() != null
+            ? knowledgeMapper.selectSubtreeIds(knowledge.getTreePath() + "%")
+            : Collections.singletonList(id);
+        LambdaQueryWrapper<Knowledge> subtreeWrapper = KnowledgeProjection.brief();
+        subtreeWrapper.in(Knowledge::getId, ids);
+        List<Knowledge> subtree = knowledgeMapper.selectList(subtreeWrapper);
+        List<StatisticsCounter.Snapshot> statBefore = subtree.stream()
+            .map(StatisticsCounter::snapshot)
+            .collect(Collectors.toList());
         
-        // 2. 删除所有版本历史
-        LambdaQueryWrapper<KnowledgeVersion> versionWrapper = new LambdaQueryWrapper<>();
-        versionWrapper.eq(KnowledgeVersion::getKnowledgeId, id);
-        knowledgeVersionMapper.delete(versionWrapper);
+        // 2. 软删除并登记回收任务；审核记录、评论、关联关系、版本历史和无引用文件由后台回收任务批量清理
+        boolean deleted = knowledgeMapper.deleteBatchIds(ids) > 0;
+        reclaimTaskMapper.insertBatch(ids);
+        log.info("删除知识: id={}, 子树节点数={}, 已登记后台回收", id, ids.size());
         
-        // 3. 删除所有评论
-        try {
-            commentService.deleteByKnowledgeId(id);
-        } catch (Exception e) {
-            log.warn("删除关联评论失败", e);
-        }
-        
-        // 4. 删除关联关系
-        try {
-            relationService.deleteByKnowledgeId(id);
-        } catch (Exception e) {
-            log.warn("删除关联关系失败", e);
-        }
-
-        // 5. 删除ElasticSearch索引
-        try {
-            searchService.deleteIndex(id);
-        } catch (Exception e) {
-            log.warn("删除索引失败", e);
-        }
-
-        // 6. 删除知识记录
-        boolean deleted = knowledgeMapper.deleteById(id) > 0;
-        
-        // 7. [Hard Delete Exec] 检查并硬删除文件
-        if (deleted && !fileIdsToCheck.isEmpty()) {
-            for (Long fileId : fileIdsToCheck) {
-                try {
-                    // 检查 fileId 是否还被其他 knowledge 引用
-                    LambdaQueryWrapper<Knowledge> kWrap = new LambdaQueryWrapper<>();
-                    kWrap.eq(Knowledge::getFileId, fileId);
-                    Long kCount = knowledgeMapper.selectCount(kWrap);
-                    
-                    if (kCount > 0) {
-                        log.info("文件仍在其他 Knowledge 中使用，跳过删除: fileId={}", fileId);
-                        continue;
-                    }
-                    
-                    // 检查 fileId 是否还被其他 knowledge_version 引用
-                    // 注意：由于我们已经删除了当前 knowledge 的 versions，这里查到的只能是其他 knowledge 的 version
-                    LambdaQueryWrapper<KnowledgeVersion> vWrap = new LambdaQueryWrapper<>();
-                    vWrap.eq(KnowledgeVersion::getFileId, fileId);
-                    Long vCount = knowledgeVersionMapper.selectCount(vWrap);
-                    
-                    if (vCount > 0) {
-                        log.info("文件仍在其他 Version 中使用，跳过删除: fileId={}", fileId);
-                        continue;
-                    }
-                    
-                    // 无引用，安全删除
-                    fileService.deleteFile(fileId);
-                    log.info("硬删除孤儿文件成功: fileId={}", fileId);
-                    
-                } catch (Exception e) {
-                    log.error("硬删除文件失败: fileId={}", fileId, e);
-                }
-            }
-        }
+        // 3. 删除ElasticSearch索引（写入发件箱，随事务提交）以及统计、排行、知识树中的记录
+        indexOutboxWriter.delete(ids);
+        hotKnowledgeRanking.remove(ids);
+        statisticsCounter.onDeleted(statBefore);
+        knowledgeTreeCache.markChanged(ids);
+        knowledgeReclaimJob.wakeUp();
         
         return deleted;
     }
 
     @Override
-    @Transactional
     public void updateClickCount(Long id) {
-        knowledgeMapper.incrementClickCount(id);
+        // 先计入内存缓冲，由后台批量写入，避免热门知识的行锁争用
+        clickCountBuffer.increment(id);
     }
 
     @Override
     @Transactional
     public void updateCollectCount(Long id, boolean collect) {
         knowledgeMapper.updateCollectCount(id, collect ? 1 : -1);
+        hotKnowledgeRanking.recordCollect(id, collect);
+        statisticsCounter.addCollect(id, collect);
+        eventLogger.recordCollect(id, collect);
     }
 
     @Override
-    @Transactional
     public boolean batchUpdateKnowledge(List<Long> knowledgeIds, Map<String, Object> updateData) {
         if (knowledgeIds == null || knowledgeIds.isEmpty()) {
             return false;
@@ -627,79 +581,40 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             return false;
         }
         
-        for (Long id : knowledgeIds) {
-            Knowledge knowledge = knowledgeMapper.selectById(id);
-            if (knowledge == null) {
-                continue;
-            }
-            
-            // 更新字段
-            if (updateData.containsKey("category")) {
-                knowledge.setCategory((String) updateData.get("category"));
-            }
-            if (updateData.containsKey("status")) {
-                knowledge.setStatus((String) updateData.get("status"));
-            }
-            if (updateData.containsKey("keywords")) {
-                knowledge.setKeywords((String) updateData.get("keywords"));
-            }
-            if (updateData.containsKey("department")) {
-                knowledge.setDepartment((String) updateData.get("department"));
-            }
-            
-            knowledge.setUpdateTime(LocalDateTime.now());
-            knowledgeMapper.updateById(knowledge);
-            
-            // 同步更新Elasticsearch索引
-            try {
-                // 只有已发布的才更新索引
-                if (Constants.FILE_STATUS_APPROVED.equals(knowledge.getStatus())) {
-                    KnowledgeDTO dto = new KnowledgeDTO();
-                    BeanUtils.copyProperties(knowledge, dto);
-                    searchService.updateIndex(dto);
-                }
-            } catch (Exception e) {
-                log.warn("同步更新索引失败: knowledgeId={}", id, e);
-            }
-        }
-        
+        // 按块执行集合更新，每块单独提交
+        int updated = knowledgeBatchUpdater.update(knowledgeIds, updateData);
+        log.info("批量更新知识完成: requested={}, updated={}", knowledgeIds.size(), updated);
         return true;
     }
+
+    @Override
+    public BatchJobStatusDTO submitBatchUpdate(List<Long> knowledgeIds, Map<String, Object> updateData) {
+        if (knowledgeIds == null || knowledgeIds.isEmpty()) {
+            throw new RuntimeException("请选择要更新的知识");
+        }
+        if (updateData == null || updateData.isEmpty()) {
+            throw new RuntimeException("请指定要更新的字段");
+        }
+        return knowledgeBatchUpdater.submit(knowledgeIds, updateData);
+    }
+
+    @Override
+    public BatchJobStatusDTO getBatchUpdateStatus(String jobId) {
+        return knowledgeBatchUpdater.getStatus(jobId);
+    }
     
     /**
-     * 从文件中提取文本内容
+     * 从文件中提取文本内容（同一文件内容只解析一次，结果按 file_hash 缓存）
      */
     private String extractTextFromFile(Long fileId) {
-        try {
-            String filePath = fileService.getFilePath(fileId);
-            if (filePath == null) {
-                log.warn("文件路径不存在: fileId={}", fileId);
-                return null;
-            }
-            
-            java.io.File file = new java.io.File(filePath);
-            if (!file.exists()) {
-                log.warn("物理文件不存在: path={}", filePath);
-                return null;
-            }
-            
-            org.apache.tika.Tika tika = new org.apache.tika.Tika();
-            // 设置最大字符串长度，防止内存溢出 (-1为不限制，但建议设置合理的限制)
-            tika.setMaxStringLength(10 * 1024 * 1024); // 10MB
-            
-            String text = tika.parseToString(file);
-            log.info("提取文本成功: fileId={}, length={}", fileId, text.length());
-            return text;
-        } catch (Exception e) {
-            log.error("提取文件文本失败: fileId={}", fileId, e);
-            return null;
-        }
+        return documentTextExtractor.extractText(fileId);
     }
 
     @Override
     @Transactional
     public boolean publishKnowledge(Long id) {
         Knowledge knowledge = knowledgeMapper.selectById(id);
+        StatisticsCounter.Snapshot statBefore = StatisticsCounter.snapshot(knowledge);
         if (knowledge == null) {
             return false;
         }
@@ -716,13 +631,15 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         knowledge.setHasDraft(false);  // 清除草稿标记
         knowledge.setUpdateTime(LocalDateTime.now());
         boolean result = knowledgeMapper.updateById(knowledge) > 0;
+        statisticsCounter.onChanged(statBefore, knowledge);
+        knowledgeTreeCache.markChanged(knowledge.getId());
         
         // 更新version表：标记当前版本为已发布
         if (result) {
             LambdaQueryWrapper<KnowledgeVersion> versionWrapper = new LambdaQueryWrapper<>();
             versionWrapper.eq(KnowledgeVersion::getKnowledgeId, id);
             versionWrapper.eq(KnowledgeVersion::getVersion, currentVersion);
-            KnowledgeVersion latestVersion = knowledgeVersionMapper.selectOne(versionWrapper);
+            KnowledgeVersion latestVersion = knowledgeVersionStore.selectOne(versionWrapper);
             if (latestVersion != null) {
                 latestVersion.setIsPublished(true);
                 latestVersion.setStatus(Constants.FILE_STATUS_APPROVED);
@@ -735,24 +652,17 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             oldVersionWrapper.eq(KnowledgeVersion::getKnowledgeId, id);
             oldVersionWrapper.ne(KnowledgeVersion::getVersion, currentVersion);
             oldVersionWrapper.eq(KnowledgeVersion::getIsPublished, true);
-            List<KnowledgeVersion> oldPublishedVersions = knowledgeVersionMapper.selectList(oldVersionWrapper);
+            List<KnowledgeVersion> oldPublishedVersions = knowledgeVersionStore.selectList(oldVersionWrapper);
             for (KnowledgeVersion oldVersion : oldPublishedVersions) {
                 oldVersion.setIsPublished(false);
                 knowledgeVersionMapper.updateById(oldVersion);
             }
         }
         
-        // 同步更新Elasticsearch索引
+        // 记录索引变更，随事务提交
         if (result) {
-            try {
-                KnowledgeDTO dto = new KnowledgeDTO();
-                BeanUtils.copyProperties(knowledge, dto);
-                searchService.updateIndex(dto);
-                log.info("发布知识并更新索引成功: knowledgeId={}, publishedVersion={}", id, currentVersion);
-            } catch (Exception e) {
-                log.warn("发布知识后更新索引失败: knowledgeId={}", id, e);
-                // 索引失败不影响主流程
-            }
+            indexOutboxWriter.upsert(id);
+            log.info("发布知识成功: knowledgeId={}, publishedVersion={}", id, currentVersion);
         }
         
         return result;
@@ -762,6 +672,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
     @Transactional
     public boolean publishVersion(Long knowledgeId, Long version) {
         Knowledge knowledge = knowledgeMapper.selectById(knowledgeId);
+        StatisticsCounter.Snapshot statBefore = StatisticsCounter.snapshot(knowledge);
         if (knowledge == null) {
             log.error("发布版本失败：知识不存在 knowledgeId={}", knowledgeId);
             return false;
@@ -771,7 +682,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         LambdaQueryWrapper<KnowledgeVersion> versionWrapper = new LambdaQueryWrapper<>();
         versionWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         versionWrapper.eq(KnowledgeVersion::getVersion, version);
-        KnowledgeVersion targetVersion = knowledgeVersionMapper.selectOne(versionWrapper);
+        KnowledgeVersion targetVersion = knowledgeVersionStore.selectOne(versionWrapper);
         
         if (targetVersion == null) {
             log.error("发布版本失败：版本不存在 knowledgeId={}, version={}", knowledgeId, version);
@@ -794,11 +705,8 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         knowledge.setKeywords(targetVersion.getKeywords());
         if (targetVersion.getFileId() != null) {
             knowledge.setFileId(targetVersion.getFileId());
-            // 重新提取文件内容用于搜索
-            String fullText = extractTextFromFile(targetVersion.getFileId());
-            if (fullText != null) {
-                knowledge.setContentText(fullText);
-            }
+            // 重新提取文件内容用于搜索（事务提交后异步执行）
+            textExtractionPipeline.submit(knowledgeId, targetVersion.getFileId());
         }
         knowledge.setStatus(Constants.FILE_STATUS_APPROVED);
         knowledge.setPublishedVersion(version);
@@ -812,17 +720,13 @@ public class KnowledgeServiceImpl implements KnowledgeService {
 
         knowledge.setUpdateTime(LocalDateTime.now());
         boolean result = knowledgeMapper.updateById(knowledge) > 0;
+        statisticsCounter.onChanged(statBefore, knowledge);
+        knowledgeTreeCache.markChanged(knowledge.getId());
         
-        // 同步更新Elasticsearch索引
+        // 记录索引变更，随事务提交
         if (result) {
-            try {
-                KnowledgeDTO dto = new KnowledgeDTO();
-                BeanUtils.copyProperties(knowledge, dto);
-                searchService.updateIndex(dto);
-                log.info("发布指定版本并更新索引成功: knowledgeId={}, publishedVersion={}", knowledgeId, version);
-            } catch (Exception e) {
-                log.warn("发布版本后更新索引失败: knowledgeId={}", knowledgeId, e);
-            }
+            indexOutboxWriter.upsert(knowledgeId);
+            log.info("发布指定版本成功: knowledgeId={}, publishedVersion={}", knowledgeId, version);
         }
         
         return result;
@@ -830,7 +734,16 @@ public class KnowledgeServiceImpl implements KnowledgeService {
 
     @Override
     public List<KnowledgeDTO> getHotKnowledge(int limit) {
-        LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
+        // 优先读取 Redis 中的热度排行，不可用时回退到按点击量排序的数据库查询
+        List<KnowledgeDTO> hot = hotKnowledgeRanking.getHotKnowledge(limit);
+        if (hot != null) {
+            return hot;
+        }
+        return getHotKnowledgeFromDb(limit);
+    }
+
+    private List<KnowledgeDTO> getHotKnowledgeFromDb(int limit) {
+        LambdaQueryWrapper<Knowledge> wrapper = KnowledgeProjection.brief();
         // 不限制状态，显示所有知识（包括草稿、已发布等），按点击量排序
         // 如果只想显示已发布的，可以取消下面的注释
         // wrapper.eq(Knowledge::getStatus, Constants.FILE_STATUS_APPROVED);
@@ -901,7 +814,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         
         // 2. 如果搜索引擎没有返回结果（或失败），使用数据库基于分类查询（兜底方案）
         if (result.isEmpty()) {
-            LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
+            LambdaQueryWrapper<Knowledge> wrapper = KnowledgeProjection.summary();
             // 只要同分类的
             if (knowledge.getCategory() != null) {
                 wrapper.eq(Knowledge::getCategory, knowledge.getCategory());
@@ -925,121 +838,145 @@ public class KnowledgeServiceImpl implements KnowledgeService {
     
     @Override
     public List<KnowledgeVersionDTO> getKnowledgeVersions(Long knowledgeId) {
+        return getKnowledgeVersionsForUser(knowledgeId, null, true);
+    }
+    
+    @Override
+    public List<KnowledgeVersionDTO> getKnowledgeVersionsForUser(Long knowledgeId, String username, boolean isAdmin) {
+        // 普通用户过滤逻辑（在 SQL 中完成）：
+        // 1. 已发布的版本：所有人可见
+        // 2. 待审核/未发布版本：只有版本创建者，以及知识的创建者、最近更新者、作者可见
         LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
+        KnowledgeVersionHistoryQuery.applyVisibility(wrapper, username, isAdmin);
         wrapper.orderByDesc(KnowledgeVersion::getCreateTime); // 按创建时间倒序（最新的在前）
         
-        List<KnowledgeVersion> versions = knowledgeVersionMapper.selectList(wrapper);
-        return versions.stream().map(version -> {
-            KnowledgeVersionDTO dto = new KnowledgeVersionDTO();
-            BeanUtils.copyProperties(version, dto);
-            // 如果commitMessage为空，使用changeDescription
-            if (dto.getCommitMessage() == null || dto.getCommitMessage().trim().isEmpty()) {
-                dto.setCommitMessage(dto.getChangeDescription());
-            }
-            return dto;
-        }).collect(Collectors.toList());
+        List<KnowledgeVersion> versions = knowledgeVersionStore.selectList(wrapper);
+        return versions.stream().map(KnowledgeVersionHistoryQuery::toDTO).collect(Collectors.toList());
     }
     
     @Override
-    public List<KnowledgeVersionDTO> getKnowledgeVersionsForUser(Long knowledgeId, String username, boolean isAdmin) {
-        List<KnowledgeVersionDTO> allVersions = getKnowledgeVersions(knowledgeId);
-        
-        // 管理员可以看到所有版本
-        if (isAdmin) {
-            return allVersions;
+    public KnowledgeVersionPageDTO getKnowledgeVersionPage(Long knowledgeId, String username, boolean isAdmin,
+                                                           Integer pageNum, Integer pageSize) {
+        return knowledgeVersionHistoryQuery.page(knowledgeId, username, isAdmin, pageNum, pageSize);
+    }
+    
+    @Override
+    public KnowledgeVersionDTO getKnowledgeVersion(Long knowledgeId, Long version) {
+        KnowledgeVersion versionEntity = findVersion(knowledgeId, version, false);
+        if (versionEntity == null) {
+            return null;
         }
         
-        // 获取知识信息，用于匹配作者
-        Knowledge knowledge = knowledgeMapper.selectById(knowledgeId);
+        KnowledgeVersionDTO dto = new KnowledgeVersionDTO();
+        BeanUtils.copyProperties(versionEntity, dto);
         
-        // 普通用户过滤逻辑：
-        // 1. 已发布的版本（isPublished=true）：所有人可见
-        // 2. 待审核的版本（status=PENDING）：只有作者可见
-        // 3. 其他状态（如 REJECTED）：只有创建者可见
-        return allVersions.stream()
-            .filter(v -> {
-                // 已发布的版本：所有人可见
-                if (Boolean.TRUE.equals(v.getIsPublished())) {
-                    return true;
-                }
-                if (Constants.FILE_STATUS_APPROVED.equals(v.getStatus())) {
-                    return true;
-                }
-                // 待审核/未发布版本：只有作者可见
-                // 通过多种方式匹配作者身份
-                if (username != null) {
-                    // 1. 匹配版本的 createdBy
-                    if (username.equals(v.getCreatedBy())) {
-                        return true;
-                    }
-                    // 2. 匹配知识的 createBy（知识创建者）
-                    if (knowledge != null && username.equals(knowledge.getCreateBy())) {
-                        return true;
-                    }
-                    // 3. 匹配知识的 updateBy（最近更新者）
-                    if (knowledge != null && username.equals(knowledge.getUpdateBy())) {
-                        return true;
-                    }
-                    // 4. 匹配知识的 author 字段
-                    if (knowledge != null && username.equals(knowledge.getAuthor())) {
-                        return true;
-                    }
-                }
-                return false;
-            })
-            .collect(Collectors.toList());
+        // Debug Log: check fileId
+        log.info("getKnowledgeVersion: id={}, version={}, fileId={}, title={}", 
+                 knowledgeId, version, dto.getFileId(), dto.getTitle());
+                 
+        return dto;
     }
     
-    @Override
-    public KnowledgeVersionDTO getKnowledgeVersion(Long knowledgeId, Long version) {
+    /**
+     * 按版本号查找版本：优先在知识的当前分支中查找，没有结果时不区分分支（兼容旧数据）
+     * @param headerOnly 只读取ID、版本号和 commitHash，不读取正文
+     */
+    private KnowledgeVersion findVersion(Long knowledgeId, Long version, boolean headerOnly) {
         // 先获取当前知识的分支信息
-        Knowledge knowledge = knowledgeMapper.selectById(knowledgeId);
+        LambdaQueryWrapper<Knowledge> knowledgeWrapper = KnowledgeProjection.brief();
+        knowledgeWrapper.eq(Knowledge::getId, knowledgeId);
+        Knowledge knowledge = knowledgeMapper.selectOne(knowledgeWrapper);
         String currentBranch = (knowledge != null && knowledge.getCurrentBranch() != null) 
             ? knowledge.getCurrentBranch() 
             : "main";
         
+        KnowledgeVersion versionEntity = selectLatestVersion(knowledgeId, version, currentBranch, headerOnly);
+        if (versionEntity == null) {
+            versionEntity = selectLatestVersion(knowledgeId, version, null, headerOnly);
+        }
+        return versionEntity;
+    }
+    
+    private KnowledgeVersion selectLatestVersion(Long knowledgeId, Long version, String branch, boolean headerOnly) {
         LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
+        if (headerOnly) {
+            wrapper.select(KnowledgeVersion::getId, KnowledgeVersion::getVersion, KnowledgeVersion::getCommitHash);
+        }
         wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         wrapper.eq(KnowledgeVersion::getVersion, version);
-        wrapper.eq(KnowledgeVersion::getBranch, currentBranch);
+        if (branch != null) {
+            wrapper.eq(KnowledgeVersion::getBranch, branch);
+        }
         wrapper.orderByDesc(KnowledgeVersion::getCreateTime); // 按创建时间倒序，确保取最新的
         wrapper.last("LIMIT 1"); // 限制只返回一条记录
         
         // 使用 selectList 然后取第一条，避免 selectOne 在多条记录时抛异常
-        List<KnowledgeVersion> versions = knowledgeVersionMapper.selectList(wrapper);
-        KnowledgeVersion versionEntity = (versions != null && !versions.isEmpty()) ? versions.get(0) : null;
-        
-        // 如果按分支查询没有结果，尝试不按分支查询（兼容旧数据）
-        if (versionEntity == null) {
-            wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
-            wrapper.eq(KnowledgeVersion::getVersion, version);
-            wrapper.orderByDesc(KnowledgeVersion::getCreateTime);
-            wrapper.last("LIMIT 1");
-            // 使用 selectList 然后取第一条，避免 selectOne 在多条记录时抛异常
-            List<KnowledgeVersion> fallbackVersions = knowledgeVersionMapper.selectList(wrapper);
-            if (fallbackVersions != null && !fallbackVersions.isEmpty()) {
-                versionEntity = fallbackVersions.get(0);
-            }
+        List<KnowledgeVersion> versions = knowledgeVersionStore.selectList(wrapper);
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+    
+    @Override
+    public BatchJobStatusDTO rewriteVersionStorage() {
+        return versionStorageRewriteJob.submit();
+    }
+    
+    @Override
+    public BatchJobStatusDTO getVersionStorageRewriteStatus() {
+        return versionStorageRewriteJob.getStatus();
+    }
+    
+    @Override
+    public void reextractContent(Long knowledgeId) {
+        Knowledge knowledge = knowledgeMapper.selectById(knowledgeId);
+        if (knowledge == null) {
+            throw new RuntimeException("知识不存在");
         }
-        
-        if (versionEntity == null) {
-            return null;
+        if (knowledge.getFileId() == null) {
+            throw new RuntimeException("该知识没有关联文件，无需提取内容");
         }
-        
-        KnowledgeVersionDTO dto = new KnowledgeVersionDTO();
-        BeanUtils.copyProperties(versionEntity, dto);
-        
-        // Debug Log: check fileId
-        log.info("getKnowledgeVersion: id={}, version={}, fileId={}, title={}", 
-                 knowledgeId, version, dto.getFileId(), dto.getTitle());
-                 
-        return dto;
+        // 提取完成后流水线会再次记录索引变更，这里先同步一次当前数据
+        textExtractionPipeline.resubmit(knowledgeId, knowledge.getFileId());
+        indexOutboxWriter.upsert(knowledgeId);
+        log.info("已提交重新提取全文: knowledgeId={}, fileId={}", knowledgeId, knowledge.getFileId());
     }
     
     @Override
     public KnowledgeVersionDTO.DiffResult compareVersions(Long knowledgeId, Long version1, Long version2) {
+        // 先只读取 commitHash，命中缓存时不再读取正文和提取文件文本
+        KnowledgeVersion header1 = findVersion(knowledgeId, version1, true);
+        KnowledgeVersion header2 = findVersion(knowledgeId, version2, true);
+        if (header1 == null || header2 == null) {
+            throw new RuntimeException("版本不存在");
+        }
+        return versionDiffCache.get(header1.getCommitHash(), header2.getCommitHash(),
+                () -> computeDiff(knowledgeId, version1, version2));
+    }
+    
+    @Override
+    public KnowledgeVersionDTO.DiffHunkPage compareVersionHunks(Long knowledgeId, Long version1, Long version2,
+                                                                Integer contextLines, Integer offset, Integer limit) {
+        // 完整差异在服务内计算并缓存，只把当前页的变更块返回给调用方
+        KnowledgeVersionDTO.DiffResult diff = compareVersions(knowledgeId, version1, version2);
+        return diffHunkBuilder.page(diff, contextLines, offset, limit);
+    }
+    
+    @Override
+    public void prewarmAuditDiff(Long knowledgeId, Long version) {
+        versionDiffCache.prewarm(() -> {
+            LambdaQueryWrapper<Knowledge> wrapper = KnowledgeProjection.brief();
+            wrapper.eq(Knowledge::getId, knowledgeId);
+            Knowledge knowledge = knowledgeMapper.selectOne(wrapper);
+            Long publishedVersion = knowledge != null ? knowledge.getPublishedVersion() : null;
+            if (publishedVersion == null || publishedVersion.equals(version)) {
+                return;
+            }
+            compareVersions(knowledgeId, publishedVersion, version);
+            log.debug("预热版本对比: knowledgeId={}, published={}, version={}", knowledgeId, publishedVersion, version);
+        });
+    }
+    
+    private KnowledgeVersionDTO.DiffResult computeDiff(Long knowledgeId, Long version1, Long version2) {
         KnowledgeVersionDTO v1 = getKnowledgeVersion(knowledgeId, version1);
         KnowledgeVersionDTO v2 = getKnowledgeVersion(knowledgeId, version2);
         
@@ -1100,57 +1037,64 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         return version.getContent() != null ? version.getContent() : "";
     }
 
+    @Override
+    public List<KnowledgeDTO> scanKnowledgeForIndex(Long afterId, int limit) {
+        // 主键游标分页，避免深分页和一次性加载全部数据
+        LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
+        wrapper.gt(Knowledge::getId, afterId == null ? 0L : afterId)
+               .isNotNull(Knowledge::getFileId)
+               .eq(Knowledge::getStatus, Constants.FILE_STATUS_APPROVED)
+               .orderByAsc(Knowledge::getId)
+               .last("LIMIT " + Math.max(1, Math.min(limit, 1000)));
+        return knowledgeMapper.selectList(wrapper).stream().map(knowledge -> {
+            KnowledgeDTO dto = new KnowledgeDTO();
+            BeanUtils.copyProperties(knowledge, dto);
+            return dto;
+        }).collect(Collectors.toList());
+    }
+
     @Override
     public StatisticsDTO getStatistics() {
         StatisticsDTO statistics = new StatisticsDTO();
         
-        // 统计知识总数
-        Long totalKnowledge = knowledgeMapper.selectCount(null);
-        statistics.setTotalKnowledge(totalKnowledge != null ? totalKnowledge : 0L);
-        
-        // 统计总点击量
-        Long totalClicks = knowledgeMapper.getTotalClicks();
-        statistics.setTotalClicks(totalClicks != null ? totalClicks : 0L);
-        
-        // 统计总收藏量
-        Long totalCollections = knowledgeMapper.getTotalCollections();
-        statistics.setTotalCollections(totalCollections != null ? totalCollections : 0L);
-        
-        // 统计待审核数量（status = 'PENDING'）
-        LambdaQueryWrapper<Knowledge> pendingWrapper = new LambdaQueryWrapper<>();
-        pendingWrapper.eq(Knowledge::getStatus, Constants.FILE_STATUS_PENDING);
-        Long pendingAudit = knowledgeMapper.selectCount(pendingWrapper);
-        statistics.setPendingAudit(pendingAudit != null ? pendingAudit : 0L);
+        // 总数、点击量、收藏量、待审核数量和分类统计均读取增量维护的计数表
+        KnowledgeStatCounter total = statisticsCounter.getTotal();
+        long totalKnowledge = total.getKnowledgeCount() != null ? total.getKnowledgeCount() : 0L;
+        long totalClicks = total.getClickCount() != null ? total.getClickCount() : 0L;
+        long totalCollections = total.getCollectCount() != null ? total.getCollectCount() : 0L;
+        statistics.setTotalKnowledge(totalKnowledge);
+        statistics.setTotalClicks(totalClicks);
+        statistics.setTotalCollections(totalCollections);
+        statistics.setPendingAudit(total.getPendingCount() != null ? total.getPendingCount() : 0L);
         
         // 计算平均点击率和收藏率
-        if (totalKnowledge != null && totalKnowledge > 0) {
-            statistics.setAverageClickRate(totalClicks != null ? (double) totalClicks / totalKnowledge : 0.0);
-            statistics.setAverageCollectRate(totalCollections != null ? (double) totalCollections / totalKnowledge : 0.0);
+        if (totalKnowledge > 0) {
+            statistics.setAverageClickRate((double) totalClicks / totalKnowledge);
+            statistics.setAverageCollectRate((double) totalCollections / totalKnowledge);
         } else {
             statistics.setAverageClickRate(0.0);
             statistics.setAverageCollectRate(0.0);
         }
         
         // 计算收藏点击比
-        if (totalClicks != null && totalClicks > 0) {
-            statistics.setCollectClickRatio(totalCollections != null ? (double) totalCollections / totalClicks : 0.0);
+        if (totalClicks > 0) {
+            statistics.setCollectClickRatio((double) totalCollections / totalClicks);
         } else {
             statistics.setCollectClickRatio(0.0);
         }
         
         // 分类统计
-        List<Map<String, Object>> categoryStatsData = knowledgeMapper.getCategoryStats();
-        List<StatisticsDTO.CategoryStatDTO> categoryStats = categoryStatsData.stream().map(map -> {
+        List<StatisticsDTO.CategoryStatDTO> categoryStats = statisticsCounter.getCategories().stream().map(row -> {
             StatisticsDTO.CategoryStatDTO stat = new StatisticsDTO.CategoryStatDTO();
-            stat.setCategory((String) map.get("category"));
-            stat.setCount(((Number) map.get("count")).longValue());
-            stat.setClicks(((Number) map.get("clicks")).longValue());
-            stat.setCollections(((Number) map.get("collections")).longValue());
+            stat.setCategory(row.getStatKey());
+            stat.setCount(row.getKnowledgeCount());
+            stat.setClicks(row.getClickCount());
+            stat.setCollections(row.getCollectCount());
             return stat;
         }).collect(Collectors.toList());
         statistics.setCategoryStats(categoryStats);
         
-        // 点击量趋势（最近7天）
+        // 点击量趋势（最近7天，读取每日统计汇总表）
         List<Map<String, Object>> clickTrendData = knowledgeMapper.getClickTrend();
         List<StatisticsDTO.TrendDataDTO> clickTrend = clickTrendData.stream().map(map -> {
             StatisticsDTO.TrendDataDTO trend = new StatisticsDTO.TrendDataDTO();
@@ -1201,6 +1145,9 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         // 更新知识的收藏数
         if (result > 0) {
             knowledgeMapper.updateCollectCount(knowledgeId, 1);
+            hotKnowledgeRanking.recordCollect(knowledgeId, true);
+            statisticsCounter.addCollect(knowledgeId, true);
+            eventLogger.recordCollect(knowledgeId, true);
         }
         
         return result > 0;
@@ -1218,6 +1165,9 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         // 更新知识的收藏数
         if (result > 0) {
             knowledgeMapper.updateCollectCount(knowledgeId, -1);
+            hotKnowledgeRanking.recordCollect(knowledgeId, false);
+            statisticsCounter.addCollect(knowledgeId, false);
+            eventLogger.recordCollect(knowledgeId, false);
         }
         
         return result > 0;
@@ -1248,8 +1198,10 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             .map(UserKnowledgeCollection::getKnowledgeId)
             .collect(Collectors.toList());
         
-        // 查询知识详情
-        List<Knowledge> knowledges = knowledgeMapper.selectBatchIds(knowledgeIds);
+        // 查询知识摘要
+        LambdaQueryWrapper<Knowledge> knowledgeWrapper = KnowledgeProjection.summary();
+        knowledgeWrapper.in(Knowledge::getId, knowledgeIds);
+        List<Knowledge> knowledges = knowledgeMapper.selectList(knowledgeWrapper);
         
         // 保持收藏顺序（按收藏时间倒序）
         Map<Long, Knowledge> knowledgeMap = knowledges.stream()
@@ -1274,115 +1226,8 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             .map(DepartmentDTO::getName)
             .collect(Collectors.toList());
         
-        // 知识结构显示已发布的知识，以及待审核的文件夹（以便用户能看到新创建的文件夹）
-        LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
-        wrapper.and(w -> w.eq(Knowledge::getStatus, Constants.FILE_STATUS_APPROVED)
-            .or(orW -> orW.isNull(Knowledge::getFileId).eq(Knowledge::getStatus, Constants.FILE_STATUS_PENDING)));
-        wrapper.orderByAsc(Knowledge::getSortOrder);
-        wrapper.orderByDesc(Knowledge::getCreateTime);
-        
-        List<Knowledge> knowledges = knowledgeMapper.selectList(wrapper);
-        List<KnowledgeDTO> knowledgeDTOs = knowledges.stream().map(k -> {
-            KnowledgeDTO dto = new KnowledgeDTO();
-            BeanUtils.copyProperties(k, dto);
-            return dto;
-        }).collect(Collectors.toList());
-        
-        // 按部门组织知识树：部门作为根节点
-        List<KnowledgeDTO> result = new ArrayList<>();
-        
-        // 为每个部门创建虚拟根节点（使用唯一的负数ID）
-        long deptIdCounter = -1L;
-        for (String dept : departments) {
-            KnowledgeDTO deptNode = new KnowledgeDTO();
-            deptNode.setId(deptIdCounter--); // 使用递减的负数ID，确保每个部门有唯一ID
-            deptNode.setTitle(dept);
-            deptNode.setDepartment(dept);
-            deptNode.setIsDepartmentRoot(true); // 标记为部门根节点
-            deptNode.setParentId(null);
-            
-            // 获取该部门下的所有知识（parentId为null的，即顶级知识）
-            List<KnowledgeDTO> deptKnowledges = knowledgeDTOs.stream()
-                .filter(k -> dept.equals(k.getDepartment()) && k.getParentId() == null)
-                .sorted((a, b) -> {
-                    int sortCompare = Integer.compare(a.getSortOrder() != null ? a.getSortOrder() : 0,
-                                                     b.getSortOrder() != null ? b.getSortOrder() : 0);
-                    if (sortCompare != 0) return sortCompare;
-                    return b.getCreateTime().compareTo(a.getCreateTime());
-                })
-                .collect(Collectors.toList());
-            
-            // 构建该部门下的知识树结构
-            deptKnowledges = buildTreeForDepartment(deptKnowledges, knowledgeDTOs);
-            
-            // 如果部门有知识，或者即使没有知识也显示部门节点
-            result.add(deptNode);
-            result.addAll(deptKnowledges);
-        }
-        
-        // 处理没有部门的知识（department为null、空或"未知"）
-        List<KnowledgeDTO> noDeptKnowledges = knowledgeDTOs.stream()
-            .filter(k -> (k.getDepartment() == null || k.getDepartment().trim().isEmpty() || "未知".equals(k.getDepartment().trim())) && k.getParentId() == null)
-            .sorted((a, b) -> {
-                int sortCompare = Integer.compare(a.getSortOrder() != null ? a.getSortOrder() : 0,
-                                                 b.getSortOrder() != null ? b.getSortOrder() : 0);
-                if (sortCompare != 0) return sortCompare;
-                return b.getCreateTime().compareTo(a.getCreateTime());
-            })
-            .collect(Collectors.toList());
-        
-        // 始终创建"未分类"部门节点（使用一个很大的负数ID避免与部门ID冲突）
-        // 这样用户可以将没有分类的知识放到这里
-        KnowledgeDTO unclassifiedNode = new KnowledgeDTO();
-        unclassifiedNode.setId(-999999L);
-        unclassifiedNode.setTitle("未分类");
-        unclassifiedNode.setIsDepartmentRoot(true);
-        unclassifiedNode.setParentId(null);
-        result.add(unclassifiedNode);
-        
-        if (!noDeptKnowledges.isEmpty()) {
-            List<KnowledgeDTO> unclassifiedTree = buildTreeForDepartment(noDeptKnowledges, knowledgeDTOs);
-            result.addAll(unclassifiedTree);
-        }
-        
-        return result;
-    }
-    
-    /**
-     * 为部门构建知识树结构
-     */
-    private List<KnowledgeDTO> buildTreeForDepartment(List<KnowledgeDTO> rootKnowledges, List<KnowledgeDTO> allKnowledges) {
-        List<KnowledgeDTO> result = new ArrayList<>();
-        Map<Long, KnowledgeDTO> knowledgeMap = allKnowledges.stream()
-            .collect(Collectors.toMap(KnowledgeDTO::getId, k -> k));
-        
-        for (KnowledgeDTO root : rootKnowledges) {
-            result.add(root);
-            // 递归添加子节点
-            addChildren(root, knowledgeMap, result);
-        }
-        
-        return result;
-    }
-    
-    /**
-     * 递归添加子节点
-     */
-    private void addChildren(KnowledgeDTO parent, Map<Long, KnowledgeDTO> knowledgeMap, List<KnowledgeDTO> result) {
-        List<KnowledgeDTO> children = knowledgeMap.values().stream()
-            .filter(k -> parent.getId().equals(k.getParentId()))
-            .sorted((a, b) -> {
-                int sortCompare = Integer.compare(a.getSortOrder() != null ? a.getSortOrder() : 0,
-                                                 b.getSortOrder() != null ? b.getSortOrder() : 0);
-                if (sortCompare != 0) return sortCompare;
-                return b.getCreateTime().compareTo(a.getCreateTime());
-            })
-            .collect(Collectors.toList());
-        
-        for (KnowledgeDTO child : children) {
-            result.add(child);
-            addChildren(child, knowledgeMap, result);
-        }
+        // 按部门组织的知识树由内存快照生成，快照随写操作增量更新
+        return knowledgeTreeCache.getTree(departments);
     }
 
     @Override
@@ -1398,29 +1243,38 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             throw new RuntimeException("不能移动到自己");
         }
         
-        // 检查是否是自己的子节点（简化检查，实际应该递归检查）
+        // 目标父节点的物化路径包含自身ID，说明目标位于自己的子树中
+        String parentPath = null;
         if (parentId != null) {
             Knowledge parent = knowledgeMapper.selectById(parentId);
-            if (parent != null && parent.getParentId() != null && parent.getParentId().equals(knowledgeId)) {
+            if (parent == null) {
+                throw new RuntimeException("目标父节点不存在");
+            }
+            parentPath = parent.getTreePath();
+            if (parentPath != null ? parentPath.contains("/" + knowledgeId + "/")
+                    : knowledgeId.equals(parent.getParentId())) {
                 throw new RuntimeException("不能移动到自己的子节点");
             }
         }
         
+        String oldPath = knowledge.getTreePath();
+        String newPath = (parentPath != null ? parentPath : "/") + knowledgeId + "/";
         knowledge.setParentId(parentId);
         knowledge.setSortOrder(sortOrder != null ? sortOrder : 0);
+        knowledge.setTreePath(newPath);
         knowledge.setUpdateTime(LocalDateTime.now());
         
         knowledgeMapper.updateById(knowledge);
+        // 整棵子树的路径前缀一次替换，与层级深度无关
+        if (oldPath != null && !oldPath.equals(newPath)) {
+            int moved = knowledgeMapper.moveSubtree(oldPath + "%", oldPath, newPath);
+            log.info("移动知识子树: knowledgeId={}, {} -> {}, nodes={}", knowledgeId, oldPath, newPath, moved);
+        }
+        knowledgeTreeCache.markChanged(knowledgeId);
         
-        // 同步更新Elasticsearch索引
-        try {
-            if (Constants.FILE_STATUS_APPROVED.equals(knowledge.getStatus())) {
-                KnowledgeDTO dto = new KnowledgeDTO();
-                BeanUtils.copyProperties(knowledge, dto);
-                searchService.updateIndex(dto);
-            }
-        } catch (Exception e) {
-            log.warn("同步更新索引失败: knowledgeId={}", knowledgeId, e);
+        // 记录索引变更，随事务提交
+        if (Constants.FILE_STATUS_APPROVED.equals(knowledge.getStatus())) {
+            indexOutboxWriter.upsert(knowledgeId);
         }
         
         return true;
@@ -1435,7 +1289,25 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             return path;
         }
         
-        // 从当前节点向上追溯到根节点
+        // 按物化路径一次查出所有祖先
+        List<Long> ancestorIds = parseTreePath(current.getTreePath());
+        if (!ancestorIds.isEmpty()) {
+            LambdaQueryWrapper<Knowledge> wrapper = KnowledgeProjection.summary();
+            wrapper.in(Knowledge::getId, ancestorIds);
+            Map<Long, Knowledge> ancestors = knowledgeMapper.selectList(wrapper).stream()
+                .collect(Collectors.toMap(Knowledge::getId, k -> k));
+            for (Long id : ancestorIds) {
+                Knowledge ancestor = ancestors.get(id);
+                if (ancestor != null) {
+                    KnowledgeDTO dto = new KnowledgeDTO();
+                    BeanUtils.copyProperties(ancestor, dto);
+                    path.add(dto);
+                }
+            }
+            return path;
+        }
+        
+        // 尚未生成物化路径的旧数据：从当前节点向上追溯到根节点
         while (current != null) {
             KnowledgeDTO dto = new KnowledgeDTO();
             BeanUtils.copyProperties(current, dto);
@@ -1451,9 +1323,37 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         return path;
     }
 
+    /**
+     * 计算节点的物化路径：父节点路径 + 自身ID
+     */
+    private String buildTreePath(Long parentId, Long knowledgeId) {
+        String parentPath = null;
+        if (parentId != null) {
+            Knowledge parent = knowledgeMapper.selectById(parentId);
+            parentPath = parent != null ? parent.getTreePath() : null;
+        }
+        return (parentPath != null ? parentPath : "/") + knowledgeId + "/";
+    }
+
+    /**
+     * 解析物化路径中的节点ID（从根到自身）
+     */
+    private static List<Long> parseTreePath(String treePath) {
+        List<Long> ids = new ArrayList<>();
+        if (treePath == null) {
+            return ids;
+        }
+        for (String part : treePath.split("/")) {
+            if (!part.isEmpty()) {
+                ids.add(Long.valueOf(part));
+            }
+        }
+        return ids;
+    }
+
     @Override
     public List<KnowledgeDTO> getChildren(Long parentId) {
-        LambdaQueryWrapper<Knowledge> wrapper = new LambdaQueryWrapper<>();
+        LambdaQueryWrapper<Knowledge> wrapper = KnowledgeProjection.summary();
         if (parentId == null) {
             wrapper.isNull(Knowledge::getParentId);
         } else {
@@ -1485,7 +1385,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             LambdaQueryWrapper<KnowledgeVersion> versionWrapper = new LambdaQueryWrapper<>();
             versionWrapper.eq(KnowledgeVersion::getFileId, fileId);
             versionWrapper.last("LIMIT 1");
-            KnowledgeVersion version = knowledgeVersionMapper.selectOne(versionWrapper);
+            KnowledgeVersion version = knowledgeVersionStore.selectOne(versionWrapper);
             
             if (version != null) {
                 // 如果在历史版本中找到了，获取对应的主知识记录
@@ -1506,6 +1406,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
     public KnowledgeDTO createVersionFromFileEdit(Long knowledgeId, Long newFileId, String operatorUsername, Long operatorId, String changeDescription) {
         // 1. 获取当前知识
         Knowledge knowledge = knowledgeMapper.selectById(knowledgeId);
+        StatisticsCounter.Snapshot statBefore = StatisticsCounter.snapshot(knowledge);
         if (knowledge == null) {
             throw new RuntimeException("知识不存在");
         }
@@ -1539,7 +1440,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         latestWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         latestWrapper.orderByDesc(KnowledgeVersion::getVersion);
         latestWrapper.last("LIMIT 1");
-        KnowledgeVersion latestVersion = knowledgeVersionMapper.selectOne(latestWrapper);
+        KnowledgeVersion latestVersion = knowledgeVersionStore.selectOne(latestWrapper);
         
         // 5. 确定新版本的状态
         // 修正逻辑：在线编辑生成的版本状态为 APPROVED (无需审核)，但不视为“正式留档发布” (isPublished=false)
@@ -1606,7 +1507,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         version.setStatus(versionStatus);
         version.setIsPublished(isPublished);
         
-        knowledgeVersionMapper.insert(version);
+        knowledgeVersionStore.insert(version);
         log.info("文件编辑创建新版本 - 知识ID: {}, 版本: {}, 新文件ID: {}, 状态: {}, 操作者: {}", 
                 knowledgeId, newVersion, newFileId, versionStatus, operatorUsername);
         
@@ -1617,12 +1518,9 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         // knowledge.setPublishedVersion(newVersion); // 不要自动更新 publishedVersion，该字段仅指向最新的留档版本
         knowledge.setCurrentCommitHash(commitHash);
         
-        // 重新提取文件内容用于搜索
+        // 重新提取文件内容用于搜索（事务提交后异步执行，不占用编辑回调线程）
         if (newFileId != null) {
-            String fullText = extractTextFromFile(newFileId);
-            if (fullText != null) {
-                knowledge.setContentText(fullText);
-            }
+            textExtractionPipeline.submit(knowledgeId, newFileId);
         }
         knowledge.setHasDraft(false);
         
@@ -1633,17 +1531,13 @@ public class KnowledgeServiceImpl implements KnowledgeService {
 
         
         knowledgeMapper.updateById(knowledge);
+        statisticsCounter.onChanged(statBefore, knowledge);
+        knowledgeTreeCache.markChanged(knowledge.getId());
         
         // 7. 不需要审核记录 (Direct Publish)
         
-        // 8. 更新搜索索引
-        try {
-            KnowledgeDTO dto = new KnowledgeDTO();
-            BeanUtils.copyProperties(knowledge, dto);
-            searchService.updateIndex(dto);
-        } catch (Exception e) {
-            log.warn("更新索引失败: knowledgeId={}", knowledgeId, e);
-        }
+        // 8. 更新搜索索引（写入发件箱，随事务提交）
+        indexOutboxWriter.upsert(knowledgeId);
         
         KnowledgeDTO result = new KnowledgeDTO();
         BeanUtils.copyProperties(knowledge, result);
@@ -1655,6 +1549,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
     public KnowledgeDTO revertToVersion(Long knowledgeId, Long targetVersion, String operatorUsername) {
         // 1. 获取当前知识
         Knowledge knowledge = knowledgeMapper.selectById(knowledgeId);
+        StatisticsCounter.Snapshot statBefore = StatisticsCounter.snapshot(knowledge);
         if (knowledge == null) {
             throw new RuntimeException("知识不存在");
         }
@@ -1679,7 +1574,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         wrapper.eq(KnowledgeVersion::getVersion, targetVersion);
         wrapper.last("LIMIT 1");
-        KnowledgeVersion targetVersionEntity = knowledgeVersionMapper.selectOne(wrapper);
+        KnowledgeVersion targetVersionEntity = knowledgeVersionStore.selectOne(wrapper);
         
         if (targetVersionEntity == null) {
             throw new RuntimeException("目标版本不存在");
@@ -1710,7 +1605,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         LambdaQueryWrapper<KnowledgeVersion> unpublishWrapper = new LambdaQueryWrapper<>();
         unpublishWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         unpublishWrapper.eq(KnowledgeVersion::getIsPublished, true);
-        List<KnowledgeVersion> publishedVersions = knowledgeVersionMapper.selectList(unpublishWrapper);
+        List<KnowledgeVersion> publishedVersions = knowledgeVersionStore.selectList(unpublishWrapper);
         for (KnowledgeVersion v : publishedVersions) {
             v.setIsPublished(false);
             knowledgeVersionMapper.updateById(v);
@@ -1739,27 +1634,20 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         knowledge.setUpdateTime(LocalDateTime.now());
         knowledge.setUpdateBy(operatorUsername);
         
-        // 重新提取文件内容用于搜索
+        // 重新提取文件内容用于搜索（事务提交后异步执行）
         if (targetVersionEntity.getFileId() != null) {
-            String fullText = extractTextFromFile(targetVersionEntity.getFileId());
-            if (fullText != null) {
-                knowledge.setContentText(fullText);
-            }
+            textExtractionPipeline.submit(knowledgeId, targetVersionEntity.getFileId());
         }
         
         knowledgeMapper.updateById(knowledge);
+        statisticsCounter.onChanged(statBefore, knowledge);
+        knowledgeTreeCache.markChanged(knowledge.getId());
         
         log.info("版本回退成功（删除后续版本） - 知识ID: {}, 回退到版本: {}, 删除了 {} 个后续版本, 操作者(管理员): {}", 
                 knowledgeId, targetVersion, deletedCount, operatorUsername);
         
-        // 8. 更新搜索索引
-        try {
-            KnowledgeDTO dto = new KnowledgeDTO();
-            BeanUtils.copyProperties(knowledge, dto);
-            searchService.updateIndex(dto);
-        } catch (Exception e) {
-            log.warn("回退后更新索引失败: knowledgeId={}", knowledgeId, e);
-        }
+        // 8. 更新搜索索引（写入发件箱，随事务提交）
+        indexOutboxWriter.upsert(knowledgeId);
         
         KnowledgeDTO result = new KnowledgeDTO();
         BeanUtils.copyProperties(knowledge, result);
@@ -1775,7 +1663,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         LambdaQueryWrapper<KnowledgeVersion> draftWrapper = new LambdaQueryWrapper<>();
         draftWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         draftWrapper.eq(KnowledgeVersion::getVersion, draftVersion);
-        KnowledgeVersion draftVer = knowledgeVersionMapper.selectOne(draftWrapper);
+        KnowledgeVersion draftVer = knowledgeVersionStore.selectOne(draftWrapper);
         
         if (draftVer == null) {
             throw new RuntimeException("Draft version not found: " + draftVersion);
@@ -1836,7 +1724,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         LambdaQueryWrapper<KnowledgeVersion> targetWrapper = new LambdaQueryWrapper<>();
         targetWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         targetWrapper.eq(KnowledgeVersion::getVersion, currentPublishedVersion);
-        KnowledgeVersion targetVer = knowledgeVersionMapper.selectOne(targetWrapper);
+        KnowledgeVersion targetVer = knowledgeVersionStore.selectOne(targetWrapper);
         if (targetVer != null) {
             targetContent = targetVer.getContent() != null ? targetVer.getContent() : "";
         }
@@ -1846,7 +1734,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             LambdaQueryWrapper<KnowledgeVersion> baseWrapper = new LambdaQueryWrapper<>();
             baseWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
             baseWrapper.eq(KnowledgeVersion::getVersion, draftBaseVersion);
-            KnowledgeVersion baseVer = knowledgeVersionMapper.selectOne(baseWrapper);
+            KnowledgeVersion baseVer = knowledgeVersionStore.selectOne(baseWrapper);
             if (baseVer != null) {
                 baseContent = baseVer.getContent() != null ? baseVer.getContent() : "";
             }
@@ -1894,12 +1782,13 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         
         // 2. 创建合并后的新版本 (Merge Commit) OR 直接发布 (Inital Publish)
         Knowledge knowledge = knowledgeMapper.selectById(knowledgeId);
+        StatisticsCounter.Snapshot statBefore = StatisticsCounter.snapshot(knowledge);
         
         // Retrieve draft version first as it's needed in both paths
         LambdaQueryWrapper<KnowledgeVersion> draftWrapper = new LambdaQueryWrapper<>();
         draftWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         draftWrapper.eq(KnowledgeVersion::getVersion, draftVersion);
-        KnowledgeVersion draftVer = knowledgeVersionMapper.selectOne(draftWrapper);
+        KnowledgeVersion draftVer = knowledgeVersionStore.selectOne(draftWrapper);
 
         // 检查是否是初始版本发布（之前没有发布过）
         boolean isInitialPublish = (knowledge.getPublishedVersion() == null);
@@ -1929,12 +1818,6 @@ public class KnowledgeServiceImpl implements KnowledgeService {
              knowledge.setSummary(draftVer.getSummary());
              knowledge.setKeywords(draftVer.getKeywords());
              knowledge.setFileId(draftVer.getFileId());
-             if (draftVer.getFileId() != null) {
-                String fullText = extractTextFromFile(draftVer.getFileId());
-                if (fullText != null) {
-                    knowledge.setContentText(fullText);
-                }
-             }
              knowledge.setCurrentBranch("main");
              
         } else {
@@ -1942,7 +1825,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
              LambdaQueryWrapper<KnowledgeVersion> oldPublishedWrapper = new LambdaQueryWrapper<>();
              oldPublishedWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
              oldPublishedWrapper.eq(KnowledgeVersion::getIsPublished, true);
-             List<KnowledgeVersion> oldPublished = knowledgeVersionMapper.selectList(oldPublishedWrapper);
+             List<KnowledgeVersion> oldPublished = knowledgeVersionStore.selectList(oldPublishedWrapper);
              for (KnowledgeVersion old : oldPublished) {
                  old.setIsPublished(false);
                  knowledgeVersionMapper.updateById(old);
@@ -1993,7 +1876,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
              String hash = generateCommitHash(tempK, commitMsg, mergeVer.getCreatedBy(), "main", parentCommitId);
              mergeVer.setCommitHash(hash);
              
-             knowledgeVersionMapper.insert(mergeVer);
+             knowledgeVersionStore.insert(mergeVer);
              
              // Update Knowledge Main
              knowledge.setVersion(newVersion);
@@ -2006,12 +1889,6 @@ public class KnowledgeServiceImpl implements KnowledgeService {
                 knowledge.setSummary(draftVer.getSummary());
                 knowledge.setKeywords(draftVer.getKeywords());
                 knowledge.setFileId(draftVer.getFileId());
-                 if (draftVer.getFileId() != null) {
-                    String fullText = extractTextFromFile(draftVer.getFileId());
-                    if (fullText != null) {
-                        knowledge.setContentText(fullText);
-                    }
-                 }
              }
              
              // Cleanup: Mark old draft as Merged/Approved
@@ -2027,27 +1904,20 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             knowledge.setSummary(draftVer.getSummary());
             knowledge.setKeywords(draftVer.getKeywords());
             knowledge.setFileId(draftVer.getFileId());
-             if (draftVer.getFileId() != null) {
-                String fullText = extractTextFromFile(draftVer.getFileId());
-                if (fullText != null) {
-                    knowledge.setContentText(fullText);
-                }
-             }
+            if (draftVer.getFileId() != null) {
+                textExtractionPipeline.submit(knowledgeId, draftVer.getFileId());
+            }
         }
         
         knowledge.setStatus(Constants.FILE_STATUS_APPROVED);
         knowledge.setHasDraft(false); 
         knowledge.setUpdateTime(LocalDateTime.now());
         knowledgeMapper.updateById(knowledge);
+        statisticsCounter.onChanged(statBefore, knowledge);
+        knowledgeTreeCache.markChanged(knowledge.getId());
         
-        // 4. Update Index
-        try {
-            KnowledgeDTO dto = new KnowledgeDTO();
-            BeanUtils.copyProperties(knowledge, dto);
-            searchService.updateIndex(dto);
-        } catch (Exception e) {
-            log.warn("Index update failed after merge", e);
-        }
+        // 4. Update Index (via outbox, committed with this transaction)
+        indexOutboxWriter.upsert(knowledgeId);
         
         // 5. Cleanup: 
         if (draftVer != null) {
@@ -2067,7 +1937,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         wrapper.eq(KnowledgeVersion::getVersion, version);
-        KnowledgeVersion targetVersion = knowledgeVersionMapper.selectOne(wrapper);
+        KnowledgeVersion targetVersion = knowledgeVersionStore.selectOne(wrapper);
         
         if (targetVersion == null) {
             log.warn("驳回版本失败：版本不存在 knowledgeId={}, version={}", knowledgeId, version);
@@ -2087,6 +1957,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
     @Transactional
     public boolean updateKnowledgeStatus(Long knowledgeId, String status, boolean hasDraft) {
         Knowledge knowledge = knowledgeMapper.selectById(knowledgeId);
+        StatisticsCounter.Snapshot statBefore = StatisticsCounter.snapshot(knowledge);
         if (knowledge == null) {
             log.warn("更新状态失败：知识不存在 knowledgeId={}", knowledgeId);
             return false;
@@ -2096,6 +1967,9 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         knowledge.setHasDraft(hasDraft);
         knowledge.setUpdateTime(LocalDateTime.now());
         knowledgeMapper.updateById(knowledge);
+        statisticsCounter.onChanged(statBefore, knowledge);
+        knowledgeTreeCache.markChanged(knowledge.getId());
+        indexOutboxWriter.upsert(knowledgeId);
         
         log.info("知识状态已更新: knowledgeId={}, status={}, hasDraft={}", knowledgeId, status, hasDraft);
         return true;
@@ -2108,7 +1982,7 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
         wrapper.eq(KnowledgeVersion::getVersion, version);
         wrapper.last("LIMIT 1");
-        KnowledgeVersion versionEntity = knowledgeVersionMapper.selectOne(wrapper);
+        KnowledgeVersion versionEntity = knowledgeVersionStore.selectOne(wrapper);
         
         if (versionEntity != null) {
             versionEntity.setCommitMessage(commitMessage);
@@ -2125,44 +1999,11 @@ public class KnowledgeServiceImpl implements KnowledgeService {
                 knowledgeId, baseVersion, currentVersion, draftVersion);
         
         // 获取三个版本的内容
-        String baseContent = "";
-        String currentContent = "";
-        String draftContent = "";
-        String draftAuthor = "";
-        String currentAuthor = "";
-        
-        // 获取基础版本
-        if (baseVersion != null) {
-            LambdaQueryWrapper<KnowledgeVersion> baseWrapper = new LambdaQueryWrapper<>();
-            baseWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
-            baseWrapper.eq(KnowledgeVersion::getVersion, baseVersion);
-            KnowledgeVersion baseVer = knowledgeVersionMapper.selectOne(baseWrapper);
-            if (baseVer != null) {
-                baseContent = baseVer.getContent() != null ? baseVer.getContent() : "";
-            }
-        }
-        
-        // 获取当前发布版本
-        if (currentVersion != null) {
-            LambdaQueryWrapper<KnowledgeVersion> currentWrapper = new LambdaQueryWrapper<>();
-            currentWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
-            currentWrapper.eq(KnowledgeVersion::getVersion, currentVersion);
-            KnowledgeVersion currentVer = knowledgeVersionMapper.selectOne(currentWrapper);
-            if (currentVer != null) {
-                currentContent = currentVer.getContent() != null ? currentVer.getContent() : "";
-                currentAuthor = currentVer.getCreatedBy();
-            }
-        }
-        
-        // 获取草稿版本
-        LambdaQueryWrapper<KnowledgeVersion> draftWrapper = new LambdaQueryWrapper<>();
-        draftWrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
-        draftWrapper.eq(KnowledgeVersion::getVersion, draftVersion);
-        KnowledgeVersion draftVer = knowledgeVersionMapper.selectOne(draftWrapper);
-        if (draftVer != null) {
-            draftContent = draftVer.getContent() != null ? draftVer.getContent() : "";
-            draftAuthor = draftVer.getCreatedBy();
-        }
+        KnowledgeVersion baseVer = findMergeVersion(knowledgeId, baseVersion);
+        KnowledgeVersion currentVer = findMergeVersion(knowledgeId, currentVersion);
+        KnowledgeVersion draftVer = findMergeVersion(knowledgeId, draftVersion);
+        String draftAuthor = draftVer != null ? draftVer.getCreatedBy() : "";
+        String currentAuthor = currentVer != null ? currentVer.getCreatedBy() : "";
         
         // 构建合并预览
         com.knowledge.api.dto.MergePreviewDTO preview = new com.knowledge.api.dto.MergePreviewDTO();
@@ -2173,60 +2014,44 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         preview.setDraftAuthor(draftAuthor);
         preview.setCurrentVersionAuthor(currentAuthor);
         
-        // 使用 DiffUtil 生成块级差异
+        // 三路对齐：以两边都未修改的行为锚点，锚点之间的最小区域作为一个合并块
+        java.util.List<DiffUtil.Diff3Block> diff3Blocks = diff3Blocks(baseVer, currentVer, draftVer);
         java.util.List<com.knowledge.api.dto.MergePreviewDTO.MergeBlock> blocks = new java.util.ArrayList<>();
-        
-        // 计算差异
-        java.util.List<DiffUtil.DiffLine> baseToCurrent = DiffUtil.diff(baseContent, currentContent);
-        java.util.List<DiffUtil.DiffLine> baseToDraft = DiffUtil.diff(baseContent, draftContent);
-        
-        // 简化的块生成逻辑：按段落分割，比较每个段落
-        String[] baseParagraphs = baseContent.split("\n\n");
-        String[] currentParagraphs = currentContent.split("\n\n");
-        String[] draftParagraphs = draftContent.split("\n\n");
-        
-        int maxLen = Math.max(Math.max(baseParagraphs.length, currentParagraphs.length), draftParagraphs.length);
         int conflictCount = 0;
-        int lineNum = 1;
         
-        for (int i = 0; i < maxLen; i++) {
-            String basePara = i < baseParagraphs.length ? baseParagraphs[i] : "";
-            String currentPara = i < currentParagraphs.length ? currentParagraphs[i] : "";
-            String draftPara = i < draftParagraphs.length ? draftParagraphs[i] : "";
+        for (int i = 0; i < diff3Blocks.size(); i++) {
+            DiffUtil.Diff3Block diff3Block = diff3Blocks.get(i);
             
             com.knowledge.api.dto.MergePreviewDTO.MergeBlock block = new com.knowledge.api.dto.MergePreviewDTO.MergeBlock();
             block.setBlockId(i);
-            block.setBaseContent(basePara);
-            block.setCurrentContent(currentPara);
-            block.setDraftContent(draftPara);
-            block.setStartLine(lineNum);
-            
-            int paraLines = Math.max(1, basePara.split("\n").length);
-            lineNum += paraLines;
-            block.setEndLine(lineNum - 1);
+            block.setBaseContent(String.join("\n", diff3Block.getBase()));
+            block.setCurrentContent(String.join("\n", diff3Block.getOurs()));
+            block.setDraftContent(String.join("\n", diff3Block.getTheirs()));
+            // 行号为基础版本中的行号，纯新增的块定位到插入点
+            block.setStartLine(diff3Block.getBaseStart() + 1);
+            block.setEndLine(diff3Block.getBaseStart() + Math.max(1, diff3Block.getBase().size()));
             
-            if (basePara.equals(currentPara) && basePara.equals(draftPara)) {
-                // 三方相同
-                block.setType("EQUAL");
-                block.setAutoMergedContent(basePara);
-            } else if (basePara.equals(currentPara)) {
-                // 只有草稿修改了
-                block.setType("DRAFT_ONLY");
-                block.setAutoMergedContent(draftPara);
-            } else if (basePara.equals(draftPara)) {
-                // 只有当前版本修改了
-                block.setType("CURRENT_ONLY");
-                block.setAutoMergedContent(currentPara);
-            } else if (currentPara.equals(draftPara)) {
-                // 两边做了相同的修改
-                block.setType("EQUAL");
-                block.setAutoMergedContent(currentPara);
-            } else {
-                // 两边都修改了，冲突
-                block.setType("CONFLICT");
-                block.setAutoMergedContent(null);
-                conflictCount++;
+            switch (diff3Block.getType()) {
+                case THEIRS_ONLY:
+                    // 只有草稿修改了
+                    block.setType("DRAFT_ONLY");
+                    break;
+                case OURS_ONLY:
+                    // 只有当前版本修改了
+                    block.setType("CURRENT_ONLY");
+                    break;
+                case CONFLICT:
+                    // 两边都修改了，冲突
+                    block.setType("CONFLICT");
+                    conflictCount++;
+                    break;
+                default:
+                    // 三方相同，或两边做了相同的修改
+                    block.setType("EQUAL");
+                    break;
             }
+            java.util.List<String> merged = diff3Block.getMerged();
+            block.setAutoMergedContent(merged != null ? String.join("\n", merged) : null);
             
             blocks.add(block);
         }
@@ -2245,6 +2070,30 @@ public class KnowledgeServiceImpl implements KnowledgeService {
         return preview;
     }
     
+    /**
+     * 查询合并涉及的版本（含正文），版本号为空时返回 null
+     */
+    private KnowledgeVersion findMergeVersion(Long knowledgeId, Long version) {
+        if (version == null) {
+            return null;
+        }
+        LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
+        wrapper.eq(KnowledgeVersion::getVersion, version);
+        return knowledgeVersionStore.selectOne(wrapper);
+    }
+    
+    /**
+     * 基础版本 / 当前版本 / 草稿版本的三路对齐块，缺失的版本按空内容处理
+     */
+    private static java.util.List<DiffUtil.Diff3Block> diff3Blocks(KnowledgeVersion base, KnowledgeVersion current,
+                                                                   KnowledgeVersion draft) {
+        return DiffUtil.diff3(
+                base != null ? base.getContent() : null,
+                current != null ? current.getContent() : null,
+                draft != null ? draft.getContent() : null);
+    }
+    
     @Override
     @Transactional
     public KnowledgeDTO resolveMerge(com.knowledge.api.dto.MergeResolveRequest request) {
@@ -2257,47 +2106,49 @@ public class KnowledgeServiceImpl implements KnowledgeService {
             // 如果前端直接提供了合并后的完整内容
             finalContent = request.getMergedContent();
         } else if (request.getResolutions() != null && !request.getResolutions().isEmpty()) {
-            // 根据块解决方案构建最终内容
-            com.knowledge.api.dto.MergePreviewDTO preview = getMergePreview(
-                request.getKnowledgeId(),
-                request.getBaseVersion(),
-                request.getCurrentVersion(),
-                request.getDraftVersion()
+            // 根据块解决方案构建最终内容，块划分与合并预览一致
+            java.util.List<DiffUtil.Diff3Block> diff3Blocks = diff3Blocks(
+                findMergeVersion(request.getKnowledgeId(), request.getBaseVersion()),
+                findMergeVersion(request.getKnowledgeId(), request.getCurrentVersion()),
+                findMergeVersion(request.getKnowledgeId(), request.getDraftVersion())
             );
             
-            StringBuilder sb = new StringBuilder();
-            for (com.knowledge.api.dto.MergePreviewDTO.MergeBlock block : preview.getBlocks()) {
+            java.util.List<String> lines = new java.util.ArrayList<>();
+            for (int i = 0; i < diff3Blocks.size(); i++) {
+                DiffUtil.Diff3Block block = diff3Blocks.get(i);
                 // 查找该块的解决方案
-                String blockContent = block.getAutoMergedContent();
+                java.util.List<String> blockLines = block.getMerged();
                 
                 for (com.knowledge.api.dto.MergeResolveRequest.BlockResolution resolution : request.getResolutions()) {
-                    if (resolution.getBlockId() == block.getBlockId()) {
+                    if (resolution.getBlockId() == i) {
                         switch (resolution.getChoice()) {
                             case "CURRENT":
-                                blockContent = block.getCurrentContent();
+                                blockLines = block.getOurs();
                                 break;
                             case "DRAFT":
-                                blockContent = block.getDraftContent();
+                                blockLines = block.getTheirs();
                                 break;
                             case "BOTH":
-                                blockContent = block.getCurrentContent() + "\n\n" + block.getDraftContent();
+                                blockLines = new java.util.ArrayList<>(block.getOurs());
+                                blockLines.addAll(block.getTheirs());
                                 break;
                             case "CUSTOM":
-                                blockContent = resolution.getCustomContent();
+                                String custom = resolution.getCustomContent();
+                                blockLines = custom != null && !custom.isEmpty()
+                                        ? java.util.Arrays.asList(custom.split("\n", -1))
+                                        : java.util.Collections.emptyList();
                                 break;
                         }
                         break;
                     }
                 }
                 
-                if (blockContent != null && !blockContent.isEmpty()) {
-                    if (sb.length() > 0) {
-                        sb.append("\n\n");
-                    }
-                    sb.append(blockContent);
+                // 未解决的冲突块不输出
+                if (blockLines != null) {
+                    lines.addAll(blockLines);
                 }
             }
-            finalContent = sb.toString();
+            finalContent = String.join("\n", lines);
         } else {
             // 没有冲突或强制覆盖，尝试自动合并
             com.knowledge.api.dto.MergeStatusDTO status = checkMergeStatus(
@@ -0,0 +1,320 @@
+package com.knowledge.knowledge.tree;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.common.constant.Constants;
+import com.knowledge.knowledge.entity.Knowledge;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.mapper.KnowledgeProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 知识树快照
+ * 在内存中维护树上的节点（不含正文的投影）和 父节点 -> 已排序子节点 的邻接索引，
+ * 知识树按快照一次深度优先遍历生成，结果缓存到下一次变更为止。
+ * 写操作提交后在 Redis 中递增树版本并记录变更的知识ID，各实例读取时只重新加载这些节点并就地调整邻接索引；
+ * 变更记录已被裁剪（落后过多）或 Redis 不可用时回退为全量重建。
+ */
+@Slf4j
+@Component
+public class KnowledgeTreeCache {
+
+    private static final String VERSION_KEY = "knowledge:tree:version";
+    private static final String CHANGES_KEY = "knowledge:tree:changes";
+
+    /**
+     * 顶级节点（parentId 为空）在邻接索引中的父节点键
+     */
+    private static final Long ROOT = 0L;
+
+    /**
+     * 同级排序：sortOrder 升序，创建时间降序
+     */
+    private static final Comparator<KnowledgeDTO> SIBLING_ORDER = Comparator
+            .comparingInt((KnowledgeDTO k) -> k.getSortOrder() != null ? k.getSortOrder() : 0)
+            .thenComparing(KnowledgeDTO::getCreateTime, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(KnowledgeDTO::getId);
+
+    /**
+     * 递增版本并记录变更：ARGV[1] 保留的变更记录数，之后为变更的知识ID（每个ID占用一个版本号）
+     */
+    private static final DefaultRedisScript<Long> RECORD_CHANGE_SCRIPT = new DefaultRedisScript<>(
+            "local version = 0\n" +
+            "for i = 2, #ARGV do\n" +
+            "  version = redis.call('INCR', KEYS[1])\n" +
+            "  redis.call('ZADD', KEYS[2], version, version .. ':' .. ARGV[i])\n" +
+            "end\n" +
+            "redis.call('ZREMRANGEBYRANK', KEYS[2], 0, -tonumber(ARGV[1]) - 1)\n" +
+            "return version",
+            Long.class);
+
+    @Resource
+    private KnowledgeMapper knowledgeMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${knowledge.tree.change-log-size:1000}")
+    private int changeLogSize;
+
+    private final Map<Long, KnowledgeDTO> nodes = new HashMap<>();
+    private final Map<Long, List<KnowledgeDTO>> children = new HashMap<>();
+    private boolean loaded;
+    private long version;
+
+    /**
+     * 按当前部门列表生成的树，快照变更后置空
+     */
+    private List<KnowledgeDTO> cachedTree;
+    private List<String> cachedDepartments;
+
+    /**
+     * 知识的树上属性（标题、父节点、排序、状态、部门等）可能发生变化时调用，处于事务中时在提交后生效
+     */
+    public void markChanged(Long knowledgeId) {
+        if (knowledgeId != null) {
+            markChanged(Collections.singletonList(knowledgeId));
+        }
+    }
+
+    /**
+     * 批量标记变更，所有ID在一次脚本调用中记录
+     */
+    public void markChanged(Collection<Long> knowledgeIds) {
+        if (knowledgeIds == null || knowledgeIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(knowledgeIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recordChange(ids);
+                }
+            });
+        } else {
+            recordChange(ids);
+        }
+    }
+
+    /**
+     * 生成按部门组织的知识树（前序展开的扁平列表，与原接口结构一致）
+     * @param departments 部门名称列表
+     */
+    public synchronized List<KnowledgeDTO> getTree(List<String> departments) {
+        synchronize();
+        if (cachedTree == null || !departments.equals(cachedDepartments)) {
+            cachedTree = Collections.unmodifiableList(buildTree(departments));
+            cachedDepartments = new ArrayList<>(departments);
+        }
+        return cachedTree;
+    }
+
+    private void recordChange(List<Long> knowledgeIds) {
+        Object[] args = new Object[knowledgeIds.size() + 1];
+        args[0] = String.valueOf(changeLogSize);
+        for (int i = 0; i < knowledgeIds.size(); i++) {
+            args[i + 1] = String.valueOf(knowledgeIds.get(i));
+        }
+        try {
+            stringRedisTemplate.execute(RECORD_CHANGE_SCRIPT, Arrays.asList(VERSION_KEY, CHANGES_KEY), args);
+        } catch (Exception e) {
+            // 无法通知其他实例时至少保证本实例下次读取时全量重建
+            log.warn("记录知识树变更失败: count={}, error={}", knowledgeIds.size(), e.getMessage());
+            synchronized (this) {
+                loaded = false;
+            }
+        }
+    }
+
+    /**
+     * 与 Redis 中的树版本对齐：版本未变直接使用快照，落后时按变更记录增量更新，无法增量时全量重建
+     */
+    private void synchronize() {
+        long remoteVersion;
+        try {
+            String value = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+            remoteVersion = value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception e) {
+            log.warn("读取知识树版本失败，重建快照: {}", e.getMessage());
+            rebuild(-1L);
+            return;
+        }
+
+        if (!loaded || remoteVersion < version) {
+            rebuild(remoteVersion);
+            return;
+        }
+        if (remoteVersion == version) {
+            return;
+        }
+
+        Set<String> changes = stringRedisTemplate.opsForZSet().rangeByScore(CHANGES_KEY, version + 1, remoteVersion);
+        if (changes == null || changes.size() != remoteVersion - version) {
+            // 变更记录已被裁剪，无法确定所有变更的节点
+            rebuild(remoteVersion);
+            return;
+        }
+        Set<Long> changedIds = new LinkedHashSet<>();
+        for (String change : changes) {
+            changedIds.add(Long.valueOf(change.substring(change.indexOf(':') + 1)));
+        }
+        refresh(changedIds);
+        version = remoteVersion;
+        cachedTree = null;
+    }
+
+    private void rebuild(long remoteVersion) {
+        long start = System.currentTimeMillis();
+        nodes.clear();
+        children.clear();
+        for (Knowledge knowledge : knowledgeMapper.selectList(projection())) {
+            KnowledgeDTO node = toNode(knowledge);
+            nodes.put(node.getId(), node);
+            children.computeIfAbsent(parentKey(node), k -> new ArrayList<>()).add(node);
+        }
+        for (List<KnowledgeDTO> siblings : children.values()) {
+            siblings.sort(SIBLING_ORDER);
+        }
+        // Redis 不可用时不记录版本，下次读取继续重建
+        loaded = remoteVersion >= 0;
+        version = Math.max(remoteVersion, 0L);
+        cachedTree = null;
+        log.info("知识树快照重建完成: nodes={}, version={}, cost={}ms", nodes.size(), version, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 重新加载指定节点：不再属于知识树的移除，其余按新的父节点和排序放回邻接索引
+     */
+    private void refresh(Set<Long> knowledgeIds) {
+        LambdaQueryWrapper<Knowledge> wrapper = projection();
+        wrapper.in(Knowledge::getId, knowledgeIds);
+        Map<Long, KnowledgeDTO> latest = new HashMap<>();
+        for (Knowledge knowledge : knowledgeMapper.selectList(wrapper)) {
+            latest.put(knowledge.getId(), toNode(knowledge));
+        }
+
+        for (Long id : knowledgeIds) {
+            KnowledgeDTO previous = nodes.remove(id);
+            if (previous != null) {
+                List<KnowledgeDTO> siblings = children.get(parentKey(previous));
+                if (siblings != null) {
+                    siblings.removeIf(node -> node.getId().equals(id));
+                }
+            }
+            KnowledgeDTO node = latest.get(id);
+            if (node != null) {
+                nodes.put(id, node);
+                List<KnowledgeDTO> siblings = children.computeIfAbsent(parentKey(node), k -> new ArrayList<>());
+                int index = Collections.binarySearch(siblings, node, SIBLING_ORDER);
+                siblings.add(index < 0 ? -index - 1 : index, node);
+            }
+        }
+    }
+
+    private List<KnowledgeDTO> buildTree(List<String> departments) {
+        List<KnowledgeDTO> topLevel = children.getOrDefault(ROOT, Collections.emptyList());
+        Map<String, List<KnowledgeDTO>> byDepartment = new HashMap<>();
+        List<KnowledgeDTO> unclassified = new ArrayList<>();
+        for (KnowledgeDTO node : topLevel) {
+            String department = node.getDepartment();
+            if (department == null || department.trim().isEmpty() || "未知".equals(department.trim())) {
+                unclassified.add(node);
+            } else {
+                byDepartment.computeIfAbsent(department, k -> new ArrayList<>()).add(node);
+            }
+        }
+
+        List<KnowledgeDTO> result = new ArrayList<>(nodes.size() + departments.size() + 1);
+        // 为每个部门创建虚拟根节点（使用唯一的负数ID）
+        long deptIdCounter = -1L;
+        for (String dept : departments) {
+            KnowledgeDTO deptNode = new KnowledgeDTO();
+            deptNode.setId(deptIdCounter--);
+            deptNode.setTitle(dept);
+            deptNode.setDepartment(dept);
+            deptNode.setIsDepartmentRoot(true);
+            deptNode.setParentId(null);
+            result.add(deptNode);
+            appendSubtrees(byDepartment.getOrDefault(dept, Collections.emptyList()), result);
+        }
+
+        // 始终创建"未分类"部门节点，放置没有部门的知识
+        KnowledgeDTO unclassifiedNode = new KnowledgeDTO();
+        unclassifiedNode.setId(-999999L);
+        unclassifiedNode.setTitle("未分类");
+        unclassifiedNode.setIsDepartmentRoot(true);
+        unclassifiedNode.setParentId(null);
+        result.add(unclassifiedNode);
+        appendSubtrees(unclassified, result);
+        return result;
+    }
+
+    /**
+     * 前序展开子树，使用显式栈避免深层目录导致栈溢出
+     */
+    private void appendSubtrees(List<KnowledgeDTO> roots, List<KnowledgeDTO> result) {
+        Deque<KnowledgeDTO> stack = new ArrayDeque<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            stack.push(roots.get(i));
+        }
+        Set<Long> visited = new HashSet<>();
+        while (!stack.isEmpty()) {
+            KnowledgeDTO node = stack.pop();
+            if (!visited.add(node.getId())) {
+                // 数据中存在环时只输出一次
+                continue;
+            }
+            result.add(node);
+            List<KnowledgeDTO> nodeChildren = children.get(node.getId());
+            if (nodeChildren != null) {
+                for (int i = nodeChildren.size() - 1; i >= 0; i--) {
+                    stack.push(nodeChildren.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * 知识树显示已发布的知识，以及待审核的文件夹；不查询正文和全文字段
+     */
+    private static LambdaQueryWrapper<Knowledge> projection() {
+        LambdaQueryWrapper<Knowledge> wrapper = KnowledgeProjection.brief();
+        wrapper.and(w -> w.eq(Knowledge::getStatus, Constants.FILE_STATUS_APPROVED)
+            .or(orW -> orW.isNull(Knowledge::getFileId).eq(Knowledge::getStatus, Constants.FILE_STATUS_PENDING)));
+        return wrapper;
+    }
+
+    private static KnowledgeDTO toNode(Knowledge knowledge) {
+        KnowledgeDTO dto = new KnowledgeDTO();
+        BeanUtils.copyProperties(knowledge, dto);
+        return dto;
+    }
+
+    private static Long parentKey(KnowledgeDTO node) {
+        return node.getParentId() != null ? node.getParentId() : ROOT;
+    }
+}
@@ -0,0 +1,277 @@
+package com.knowledge.knowledge.version;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.knowledge.knowledge.entity.KnowledgeVersion;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.mapper.KnowledgeVersionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 知识版本正文存储
+ * 每个知识的版本历史由定期的完整快照和相对最近快照的压缩行级差量组成：新版本默认保存为差量，
+ * 距上一个快照已有 snapshotInterval 个版本、正文过短或差量不划算时保存为完整快照。
+ * 差量只引用更早的快照，还原最多读取一行快照，删除较新的版本不会影响较早版本的还原。
+ * 读取版本应通过本类的 selectOne / selectList，正文会被透明还原；改写正文应通过 {@link #update}。
+ * insert / update / rewrite 都需在事务中调用，开始时先锁定知识行：同一知识的版本写入和存储重写串行执行，
+ * 新版本不会以重写中正被转为差量的行为基准。
+ */
+@Slf4j
+@Component
+public class KnowledgeVersionStore {
+
+    @Resource
+    private KnowledgeVersionMapper knowledgeVersionMapper;
+
+    @Resource
+    private KnowledgeMapper knowledgeMapper;
+
+    @Value("${knowledge.version-store.snapshot-interval:10}")
+    private int snapshotInterval;
+
+    @Value("${knowledge.version-store.max-delta-ratio:0.5}")
+    private double maxDeltaRatio;
+
+    @Value("${knowledge.version-store.min-content-length:1024}")
+    private int minContentLength;
+
+    /**
+     * 插入新版本，正文按需保存为差量；返回后 version 中仍是完整正文
+     */
+    public void insert(KnowledgeVersion version) {
+        lockKnowledge(version.getKnowledgeId());
+        String content = version.getContent();
+        KnowledgeVersion base = chooseBase(version.getKnowledgeId(), version.getVersion(), content);
+        byte[] delta = base != null ? encodeIfSmaller(base.getContent(), content) : null;
+        version.setContentDelta(delta);
+        version.setDeltaBaseId(delta != null ? base.getId() : null);
+        if (delta == null) {
+            knowledgeVersionMapper.insert(version);
+            return;
+        }
+        version.setContent(null);
+        try {
+            knowledgeVersionMapper.insert(version);
+        } finally {
+            version.setContent(content);
+            version.setContentDelta(null);
+        }
+    }
+
+    /**
+     * 更新已有版本（包括正文）。以该版本为基准的差量会先转为完整快照，再按新正文重新选择存储方式
+     */
+    public void update(KnowledgeVersion version) {
+        lockKnowledge(version.getKnowledgeId());
+        knowledgeVersionMapper.updateById(version);
+        detachDependents(version.getId());
+
+        String content = version.getContent();
+        KnowledgeVersion base = chooseBase(version.getKnowledgeId(), version.getVersion(), content);
+        byte[] delta = base != null ? encodeIfSmaller(base.getContent(), content) : null;
+        Long baseId = delta != null ? base.getId() : null;
+        knowledgeVersionMapper.updateStorage(version.getId(), delta != null ? null : content, delta, baseId);
+        version.setDeltaBaseId(baseId);
+        version.setContentDelta(null);
+    }
+
+    public KnowledgeVersion selectOne(Wrapper<KnowledgeVersion> wrapper) {
+        KnowledgeVersion version = knowledgeVersionMapper.selectOne(wrapper);
+        if (version != null) {
+            materialize(Collections.singletonList(version));
+        }
+        return version;
+    }
+
+    public List<KnowledgeVersion> selectList(Wrapper<KnowledgeVersion> wrapper) {
+        List<KnowledgeVersion> versions = knowledgeVersionMapper.selectList(wrapper);
+        materialize(versions);
+        return versions;
+    }
+
+    /**
+     * 还原一批版本的正文。列表中已有的快照直接作为基准，其余基准快照一次查询补齐；
+     * 未查询差量列的投影查询不做处理
+     */
+    public void materialize(List<KnowledgeVersion> versions) {
+        Map<Long, String> baseContents = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (KnowledgeVersion version : versions) {
+            if (version.getDeltaBaseId() == null && version.getContent() != null) {
+                baseContents.put(version.getId(), version.getContent());
+            }
+        }
+        for (KnowledgeVersion version : versions) {
+            if (isDelta(version) && !baseContents.containsKey(version.getDeltaBaseId())) {
+                missing.add(version.getDeltaBaseId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(KnowledgeVersion::getId, KnowledgeVersion::getContent);
+            wrapper.in(KnowledgeVersion::getId, missing);
+            for (KnowledgeVersion base : knowledgeVersionMapper.selectList(wrapper)) {
+                baseContents.put(base.getId(), base.getContent());
+            }
+        }
+
+        for (KnowledgeVersion version : versions) {
+            if (!isDelta(version)) {
+                continue;
+            }
+            String base = baseContents.get(version.getDeltaBaseId());
+            if (base == null) {
+                log.error("差量版本的基准快照不存在: versionId={}, baseId={}", version.getId(), version.getDeltaBaseId());
+                continue;
+            }
+            version.setContent(VersionDeltaCodec.apply(base, version.getContentDelta()));
+            version.setContentDelta(null);
+        }
+    }
+
+    /**
+     * 按当前规则重写一个知识的全部版本历史（用于存量数据迁移和调整参数后的重新压缩），需在事务中调用。
+     * 先把要成为快照的行写回完整正文，再按版本从新到旧转为差量：一行转为差量时，原先以它为基准的较新版本
+     * 都已改写完毕，任何时刻都不会出现以差量行为基准的差量
+     * @return 存储方式发生变化的版本数
+     */
+    public int rewrite(Long knowledgeId) {
+        lockKnowledge(knowledgeId);
+        LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(KnowledgeVersion::getKnowledgeId, knowledgeId);
+        wrapper.orderByAsc(KnowledgeVersion::getVersion);
+        wrapper.last("FOR UPDATE");
+        List<KnowledgeVersion> versions = selectList(wrapper);
+        if (versions.stream().anyMatch(KnowledgeVersionStore::isDelta)) {
+            log.error("存在无法还原的差量版本，跳过重写: knowledgeId={}", knowledgeId);
+            return 0;
+        }
+
+        // 每行当前被多少差量引用为基准，随改写同步更新
+        Map<Long, Integer> references = new HashMap<>();
+        for (KnowledgeVersion version : versions) {
+            if (version.getDeltaBaseId() != null) {
+                references.merge(version.getDeltaBaseId(), 1, Integer::sum);
+            }
+        }
+
+        KnowledgeVersion snapshot = null;
+        int deltas = 0;
+        int rewritten = 0;
+        List<KnowledgeVersion> toDeltas = new ArrayList<>();
+        List<byte[]> deltaBytes = new ArrayList<>();
+        List<Long> deltaBases = new ArrayList<>();
+        for (KnowledgeVersion version : versions) {
+            String content = version.getContent();
+            byte[] delta = null;
+            if (snapshot != null && snapshot.getContent() != null && isWorthDelta(content)
+                    && deltas < snapshotInterval - 1) {
+                delta = encodeIfSmaller(snapshot.getContent(), content);
+            }
+            if (delta != null) {
+                deltas++;
+                toDeltas.add(version);
+                deltaBytes.add(delta);
+                deltaBases.add(snapshot.getId());
+                continue;
+            }
+            snapshot = version;
+            deltas = 0;
+            // 原本和现在都是完整快照的行无需改写
+            if (version.getDeltaBaseId() == null) {
+                continue;
+            }
+            knowledgeVersionMapper.updateStorage(version.getId(), content, null, null);
+            references.merge(version.getDeltaBaseId(), -1, Integer::sum);
+            version.setDeltaBaseId(null);
+            rewritten++;
+        }
+
+        for (int i = toDeltas.size() - 1; i >= 0; i--) {
+            KnowledgeVersion version = toDeltas.get(i);
+            if (references.getOrDefault(version.getId(), 0) > 0) {
+                throw new IllegalStateException("版本仍是其他差量的基准，不能转为差量: versionId=" + version.getId());
+            }
+            Long baseId = deltaBases.get(i);
+            knowledgeVersionMapper.updateStorage(version.getId(), null, deltaBytes.get(i), baseId);
+            if (version.getDeltaBaseId() != null) {
+                references.merge(version.getDeltaBaseId(), -1, Integer::sum);
+            }
+            references.merge(baseId, 1, Integer::sum);
+            rewritten++;
+        }
+        return rewritten;
+    }
+
+    /**
+     * 选择差量的基准：早于该版本的最近快照，且以它为基准的差量数未达到快照间隔
+     */
+    private KnowledgeVersion chooseBase(Long knowledgeId, Long version, String content) {
+        if (knowledgeId == null || !isWorthDelta(content)) {
+            return null;
+        }
+        KnowledgeVersion snapshot = knowledgeVersionMapper.selectLatestSnapshot(knowledgeId,
+                version != null ? version : Long.MAX_VALUE);
+        if (snapshot == null || snapshot.getContent() == null) {
+            return null;
+        }
+        if (knowledgeVersionMapper.selectDeltaIds(snapshot.getId()).size() >= snapshotInterval - 1) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * 快照正文即将改变时，把以它为基准的差量版本转为完整快照
+     */
+    private void detachDependents(Long snapshotId) {
+        LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(KnowledgeVersion::getId, KnowledgeVersion::getContentDelta, KnowledgeVersion::getDeltaBaseId);
+        wrapper.eq(KnowledgeVersion::getDeltaBaseId, snapshotId);
+        wrapper.last("FOR UPDATE");
+        List<KnowledgeVersion> dependents = knowledgeVersionMapper.selectList(wrapper);
+        if (dependents.isEmpty()) {
+            return;
+        }
+        materialize(dependents);
+        for (KnowledgeVersion dependent : dependents) {
+            knowledgeVersionMapper.updateStorage(dependent.getId(), dependent.getContent(), null, null);
+        }
+        log.info("快照正文变更，差量版本转为完整快照: snapshotId={}, count={}", snapshotId, dependents.size());
+    }
+
+    private void lockKnowledge(Long knowledgeId) {
+        if (knowledgeId != null) {
+            knowledgeMapper.lockById(knowledgeId);
+        }
+    }
+
+    private boolean isWorthDelta(String content) {
+        return content != null && content.length() >= minContentLength;
+    }
+
+    /**
+     * 差量超过正文大小的 maxDeltaRatio 时不划算，返回 null 表示保存完整正文
+     */
+    private byte[] encodeIfSmaller(String base, String content) {
+        byte[] delta = VersionDeltaCodec.encode(base, content);
+        long contentBytes = content.getBytes(StandardCharsets.UTF_8).length;
+        return delta.length <= contentBytes * maxDeltaRatio ? delta : null;
+    }
+
+    private static boolean isDelta(KnowledgeVersion version) {
+        return version.getDeltaBaseId() != null && version.getContentDelta() != null && version.getContent() == null;
+    }
+}
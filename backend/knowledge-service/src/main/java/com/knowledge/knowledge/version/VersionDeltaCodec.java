@@ -0,0 +1,104 @@
+package com.knowledge.knowledge.version;
+
+import com.knowledge.common.util.DiffUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 版本正文的行级差量编码
+ * 由 {@link DiffUtil#diff} 的结果生成编辑脚本：COPY n（沿用基准的 n 行）、SKIP n（跳过基准的 n 行）、
+ * INSERT n（随后 n 行新内容），连续的同类操作合并为一条，整体 gzip 压缩后保存。
+ * 行按 "\n" 切分并原样保留其余字符（包括 "\r"），还原结果与原文逐字节一致。
+ */
+public final class VersionDeltaCodec {
+
+    private static final byte OP_COPY = 1;
+    private static final byte OP_SKIP = 2;
+    private static final byte OP_INSERT = 3;
+
+    private VersionDeltaCodec() {
+    }
+
+    /**
+     * 计算 base -> target 的差量
+     */
+    public static byte[] encode(String base, String target) {
+        List<DiffUtil.DiffLine> lines = DiffUtil.diff(base, target);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            int i = 0;
+            while (i < lines.size()) {
+                DiffUtil.DiffType type = lines.get(i).getType();
+                int j = i;
+                while (j < lines.size() && lines.get(j).getType() == type) {
+                    j++;
+                }
+                if (type == DiffUtil.DiffType.EQUAL) {
+                    out.writeByte(OP_COPY);
+                    out.writeInt(j - i);
+                } else if (type == DiffUtil.DiffType.DELETE) {
+                    out.writeByte(OP_SKIP);
+                    out.writeInt(j - i);
+                } else {
+                    out.writeByte(OP_INSERT);
+                    out.writeInt(j - i);
+                    for (int k = i; k < j; k++) {
+                        byte[] line = lines.get(k).getContent().getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(line.length);
+                        out.write(line);
+                    }
+                }
+                i = j;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("版本差量编码失败", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 把差量应用到基准正文上，还原目标正文
+     */
+    public static String apply(String base, byte[] delta) {
+        List<String> baseLines = base == null || base.isEmpty()
+                ? new ArrayList<>() : Arrays.asList(base.split("\n", -1));
+        List<String> result = new ArrayList<>(baseLines.size());
+        int cursor = 0;
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(delta)))) {
+            int op;
+            while ((op = in.read()) != -1) {
+                int count = in.readInt();
+                if (op == OP_COPY) {
+                    if (cursor + count > baseLines.size()) {
+                        throw new IllegalStateException("差量与基准版本不匹配");
+                    }
+                    result.addAll(baseLines.subList(cursor, cursor + count));
+                    cursor += count;
+                } else if (op == OP_SKIP) {
+                    cursor += count;
+                } else if (op == OP_INSERT) {
+                    for (int k = 0; k < count; k++) {
+                        byte[] line = new byte[in.readInt()];
+                        in.readFully(line);
+                        result.add(new String(line, StandardCharsets.UTF_8));
+                    }
+                } else {
+                    throw new IllegalStateException("未知的差量操作: " + op);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("版本差量解码失败", e);
+        }
+        return String.join("\n", result);
+    }
+}
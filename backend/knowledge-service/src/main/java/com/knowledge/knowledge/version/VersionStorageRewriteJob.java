@@ -0,0 +1,146 @@
+package com.knowledge.knowledge.version;
+
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson2.JSON;
+import com.knowledge.api.dto.BatchJobStatusDTO;
+import com.knowledge.knowledge.lock.RedisJobLock;
+import com.knowledge.knowledge.mapper.KnowledgeVersionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 版本历史存储重写
+ * 把存量的全量版本历史按 {@link KnowledgeVersionStore} 的规则改写为快照 + 差量，按知识ID分批遍历，
+ * 每个知识的历史在一个事务中重写。可重复执行（始终保持完整快照的行不会改写），调整快照间隔等参数后也可用于重新压缩。
+ * 多实例部署时由 Redis 锁保证同一时间只有一个任务，进度保存在 Redis 中供查询。
+ */
+@Slf4j
+@Component
+public class VersionStorageRewriteJob {
+
+    private static final String LOCK_KEY = "knowledge:version:rewrite:lock";
+    private static final String STATUS_KEY = "knowledge:version:rewrite:status";
+
+    @Resource
+    private KnowledgeVersionMapper knowledgeVersionMapper;
+
+    @Resource
+    private KnowledgeVersionStore knowledgeVersionStore;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisJobLock redisJobLock;
+
+    @Value("${knowledge.version-store.rewrite-batch-size:100}")
+    private int batchSize;
+
+    private ExecutorService jobExecutor;
+
+    @PostConstruct
+    public void init() {
+        jobExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "version-storage-rewrite");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交重写任务，已有任务在运行时直接返回其状态
+     */
+    public BatchJobStatusDTO submit() {
+        String token = redisJobLock.tryLock(LOCK_KEY, 10, TimeUnit.MINUTES);
+        if (token == null) {
+            BatchJobStatusDTO running = getStatus();
+            if (running != null) {
+                return running;
+            }
+            throw new RuntimeException("版本存储重写任务正在运行");
+        }
+        BatchJobStatusDTO status = new BatchJobStatusDTO();
+        status.setJobId(IdUtil.simpleUUID());
+        status.setStatus(BatchJobStatusDTO.STATUS_RUNNING);
+        status.setTotal((int) knowledgeVersionMapper.countKnowledge());
+        status.setProcessed(0);
+        status.setUpdated(0);
+        status.setStartTime(LocalDateTime.now());
+        saveStatus(status);
+        jobExecutor.submit(() -> runJob(status, token));
+        log.info("提交版本存储重写任务: jobId={}, knowledgeCount={}", status.getJobId(), status.getTotal());
+        return status;
+    }
+
+    /**
+     * 最近一次重写任务的状态，从未执行过时返回 null
+     */
+    public BatchJobStatusDTO getStatus() {
+        String json = stringRedisTemplate.opsForValue().get(STATUS_KEY);
+        return json != null ? JSON.parseObject(json, BatchJobStatusDTO.class) : null;
+    }
+
+    private void runJob(BatchJobStatusDTO status, String token) {
+        long rows = 0;
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            long afterId = 0;
+            List<Long> knowledgeIds;
+            while (!(knowledgeIds = knowledgeVersionMapper.selectKnowledgeIdsAfter(afterId, batchSize)).isEmpty()) {
+                for (Long knowledgeId : knowledgeIds) {
+                    Integer rewritten = transactionTemplate.execute(tx -> knowledgeVersionStore.rewrite(knowledgeId));
+                    if (rewritten != null && rewritten > 0) {
+                        rows += rewritten;
+                        status.setUpdated(status.getUpdated() + 1);
+                    }
+                }
+                afterId = knowledgeIds.get(knowledgeIds.size() - 1);
+                status.setProcessed(status.getProcessed() + knowledgeIds.size());
+                saveStatus(status);
+                if (!redisJobLock.renew(LOCK_KEY, token, 10, TimeUnit.MINUTES)) {
+                    throw new IllegalStateException("任务锁已失效，停止重写");
+                }
+            }
+            status.setStatus(BatchJobStatusDTO.STATUS_COMPLETED);
+            log.info("版本存储重写完成: jobId={}, knowledge={}, rows={}", status.getJobId(), status.getUpdated(), rows);
+        } catch (Exception e) {
+            // 已提交的知识保持重写后的状态，重新提交从头执行即可
+            log.error("版本存储重写失败: jobId={}, processed={}", status.getJobId(), status.getProcessed(), e);
+            status.setStatus(BatchJobStatusDTO.STATUS_FAILED);
+            status.setMessage(e.getMessage());
+        } finally {
+            redisJobLock.unlock(LOCK_KEY, token);
+        }
+        status.setEndTime(LocalDateTime.now());
+        saveStatus(status);
+    }
+
+    private void saveStatus(BatchJobStatusDTO status) {
+        try {
+            stringRedisTemplate.opsForValue().set(STATUS_KEY, JSON.toJSONString(status), 7, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.warn("保存版本存储重写任务状态失败: jobId={}, error={}", status.getJobId(), e.getMessage());
+        }
+    }
+}
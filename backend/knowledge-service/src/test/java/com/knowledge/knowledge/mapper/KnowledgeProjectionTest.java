@@ -0,0 +1,160 @@
+package com.knowledge.knowledge.mapper;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.knowledge.api.dto.IndexOutboxEventDTO;
+import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.knowledge.entity.Knowledge;
+import com.knowledge.knowledge.service.impl.IndexOutboxServiceImpl;
+import com.knowledge.knowledge.service.impl.KnowledgeServiceImpl;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 投影只去掉约定的正文列，其余列照常读取；详情、预览和搜索同步读取完整行，正文不能因为误用投影变成 null
+ */
+class KnowledgeProjectionTest {
+
+    private static final long KNOWLEDGE_ID = 1L;
+    private static final long FILE_ID = 100L;
+    private static final String CONTENT = "正文内容";
+    private static final String CONTENT_TEXT = "从文件中抽取的全文";
+
+    private static KnowledgeMapper knowledgeMapper;
+
+    @BeforeAll
+    static void setUpDatabase() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:knowledge_projection;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE knowledge (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255), content CLOB, content_text CLOB, " +
+                "summary VARCHAR(500), category VARCHAR(100), keywords VARCHAR(500), author VARCHAR(50), " +
+                "department VARCHAR(100), file_id BIGINT, status VARCHAR(20), click_count BIGINT NOT NULL DEFAULT 0, " +
+                "collect_count BIGINT DEFAULT 0, version BIGINT, published_version BIGINT, has_draft BOOLEAN, " +
+                "current_branch VARCHAR(50), current_commit_hash VARCHAR(64), parent_id BIGINT, sort_order INT, " +
+                "tree_path VARCHAR(1000), deleted TINYINT NOT NULL DEFAULT 0, is_private BOOLEAN, " +
+                "create_time TIMESTAMP, update_time TIMESTAMP, create_by VARCHAR(50), update_by VARCHAR(50))");
+        jdbcTemplate.update("INSERT INTO knowledge (id, title, content, content_text, summary, file_id, status, " +
+                        "click_count, version, tree_path) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                KNOWLEDGE_ID, "标题", CONTENT, CONTENT_TEXT, "摘要", FILE_ID, "APPROVED", 7L, 1L, "/1/");
+
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(new MybatisConfiguration());
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(KnowledgeMapper.class);
+        knowledgeMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(KnowledgeMapper.class);
+    }
+
+    @Test
+    void summaryDropsOnlyContentText() {
+        assertSelectsAllColumnsExcept(KnowledgeProjection.summary(), "content_text");
+
+        Knowledge knowledge = selectOne(KnowledgeProjection.summary());
+        assertEquals(CONTENT, knowledge.getContent());
+        assertNull(knowledge.getContentText());
+        assertSummaryColumnsLoaded(knowledge);
+    }
+
+    @Test
+    void briefDropsContentAndContentText() {
+        assertSelectsAllColumnsExcept(KnowledgeProjection.brief(), "content", "content_text");
+
+        Knowledge knowledge = selectOne(KnowledgeProjection.brief());
+        assertNull(knowledge.getContent());
+        assertNull(knowledge.getContentText());
+        assertSummaryColumnsLoaded(knowledge);
+    }
+
+    @Test
+    void detailAndPreviewReturnFullContent() {
+        KnowledgeServiceImpl service = new KnowledgeServiceImpl();
+        ReflectionTestUtils.setField(service, "knowledgeMapper", knowledgeMapper);
+
+        assertFullContent(service.getKnowledgeById(KNOWLEDGE_ID), "getKnowledgeById");
+        assertFullContent(service.getKnowledgeByFileId(FILE_ID), "getKnowledgeByFileId");
+    }
+
+    @Test
+    void searchSyncReturnsFullContent() {
+        KnowledgeServiceImpl service = new KnowledgeServiceImpl();
+        ReflectionTestUtils.setField(service, "knowledgeMapper", knowledgeMapper);
+        List<KnowledgeDTO> page = service.scanKnowledgeForIndex(0L, 10);
+        assertEquals(1, page.size());
+        assertFullContent(page.get(0), "scanKnowledgeForIndex");
+
+        IndexOutboxServiceImpl outboxService = new IndexOutboxServiceImpl();
+        ReflectionTestUtils.setField(outboxService, "knowledgeMapper", knowledgeMapper);
+        IndexOutboxEventDTO event = new IndexOutboxEventDTO();
+        event.setKnowledgeId(KNOWLEDGE_ID);
+        event.setOp(IndexOutboxEventDTO.OP_UPSERT);
+        Map<Long, Knowledge> loaded = ReflectionTestUtils.invokeMethod(outboxService, "loadKnowledge",
+                Collections.singletonList(event));
+        assertNotNull(loaded);
+        Knowledge knowledge = loaded.get(KNOWLEDGE_ID);
+        assertNotNull(knowledge, "发件箱未加载知识");
+        assertEquals(CONTENT, knowledge.getContent(), "发件箱加载的正文");
+        assertEquals(CONTENT_TEXT, knowledge.getContentText(), "发件箱加载的全文");
+    }
+
+    private static Knowledge selectOne(LambdaQueryWrapper<Knowledge> wrapper) {
+        wrapper.eq(Knowledge::getId, KNOWLEDGE_ID);
+        Knowledge knowledge = knowledgeMapper.selectOne(wrapper);
+        assertNotNull(knowledge);
+        return knowledge;
+    }
+
+    /**
+     * 列名改动后排除条件会悄悄失效，或者误排除其他列，这里对照实体的列清单逐一检查
+     */
+    private static void assertSelectsAllColumnsExcept(LambdaQueryWrapper<Knowledge> wrapper, String... excluded) {
+        List<String> selected = Arrays.asList(wrapper.getSqlSelect().split(","));
+        List<String> excludedColumns = Arrays.asList(excluded);
+        List<TableFieldInfo> fields = TableInfoHelper.getTableInfo(Knowledge.class).getFieldList();
+        for (String column : excludedColumns) {
+            assertTrue(fields.stream().anyMatch(f -> f.getColumn().equals(column)), "实体中不存在列: " + column);
+        }
+        assertTrue(selected.contains("id"), "投影缺少主键");
+        for (TableFieldInfo field : fields) {
+            if (excludedColumns.contains(field.getColumn())) {
+                assertFalse(selected.contains(field.getColumn()), "投影不应读取: " + field.getColumn());
+            } else {
+                assertTrue(selected.contains(field.getColumn()), "投影缺少列: " + field.getColumn());
+            }
+        }
+    }
+
+    private static void assertSummaryColumnsLoaded(Knowledge knowledge) {
+        assertEquals("标题", knowledge.getTitle());
+        assertEquals("摘要", knowledge.getSummary());
+        assertEquals(Long.valueOf(FILE_ID), knowledge.getFileId());
+        assertEquals(Long.valueOf(7L), knowledge.getClickCount());
+        assertEquals("/1/", knowledge.getTreePath());
+    }
+
+    private static void assertFullContent(KnowledgeDTO dto, String path) {
+        assertNotNull(dto, path + " 未返回知识");
+        assertEquals(CONTENT, dto.getContent(), path + " 返回的正文");
+        assertEquals(CONTENT_TEXT, dto.getContentText(), path + " 返回的全文");
+    }
+}
@@ -0,0 +1,238 @@
+package com.knowledge.knowledge.version;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.knowledge.knowledge.entity.KnowledgeVersion;
+import com.knowledge.knowledge.mapper.KnowledgeMapper;
+import com.knowledge.knowledge.mapper.KnowledgeVersionMapper;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 版本写入与存储重写交替执行时，每个版本都必须能还原出原始正文，且差量只以完整快照为基准
+ */
+class KnowledgeVersionStoreTest {
+
+    private static final long KNOWLEDGE_ID = 1L;
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static KnowledgeVersionMapper knowledgeVersionMapper;
+    private static KnowledgeMapper knowledgeMapper;
+
+    @BeforeAll
+    static void setUpDatabase() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:knowledge_version_store;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+                "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE knowledge (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE knowledge_version (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, knowledge_id BIGINT NOT NULL, version BIGINT NOT NULL, " +
+                "commit_hash VARCHAR(64), branch VARCHAR(50), parent_commit_id BIGINT, commit_message VARCHAR(500), " +
+                "title VARCHAR(255), content VARCHAR(1000000), content_delta VARBINARY(1000000), delta_base_id BIGINT, " +
+                "summary VARCHAR(500), category VARCHAR(100), keywords VARCHAR(500), author VARCHAR(50), " +
+                "department VARCHAR(100), file_id BIGINT, change_description VARCHAR(500), created_by VARCHAR(50), " +
+                "create_time TIMESTAMP, is_published BOOLEAN, status VARCHAR(20), merge_from_version BIGINT, " +
+                "base_version BIGINT)");
+        jdbcTemplate.update("INSERT INTO knowledge (id) VALUES (?)", KNOWLEDGE_ID);
+
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(new MybatisConfiguration());
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(KnowledgeVersionMapper.class);
+        sqlSessionFactory.getConfiguration().addMapper(KnowledgeMapper.class);
+        SqlSessionTemplate sqlSessionTemplate = new SqlSessionTemplate(sqlSessionFactory);
+        knowledgeVersionMapper = sqlSessionTemplate.getMapper(KnowledgeVersionMapper.class);
+        knowledgeMapper = sqlSessionTemplate.getMapper(KnowledgeMapper.class);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @BeforeEach
+    void clearVersions() {
+        jdbcTemplate.update("DELETE FROM knowledge_version");
+    }
+
+    @Test
+    void rewriteBetweenInsertsKeepsEveryVersionReadable() {
+        KnowledgeVersionStore writer = newStore(4);
+        for (long v = 1; v <= 30; v++) {
+            insert(writer, v);
+            if (v % 5 == 0) {
+                // 每次重写换一个快照间隔，快照和差量的分布随之整体变化
+                KnowledgeVersionStore rewriter = newStore(v % 10 == 0 ? 3 : 7);
+                transactionTemplate.execute(tx -> rewriter.rewrite(KNOWLEDGE_ID));
+                assertEveryVersionMaterializes(v);
+            }
+        }
+        assertEveryVersionMaterializes(30);
+    }
+
+    @Test
+    void updateThenRewriteKeepsEveryVersionReadable() {
+        KnowledgeVersionStore store = newStore(4);
+        for (long v = 1; v <= 12; v++) {
+            insert(store, v);
+        }
+        // 改写一个被差量引用的快照，再按更小的间隔重写
+        KnowledgeVersion snapshot = knowledgeVersionMapper.selectOne(versionQuery().eq(KnowledgeVersion::getVersion, 1L));
+        snapshot.setContent(content(1) + "\nrevised");
+        transactionTemplate.execute(tx -> {
+            store.update(snapshot);
+            return null;
+        });
+        Map<Long, String> expected = expectedContents(12);
+        expected.put(1L, content(1) + "\nrevised");
+
+        KnowledgeVersionStore rewriter = newStore(2);
+        transactionTemplate.execute(tx -> rewriter.rewrite(KNOWLEDGE_ID));
+        assertEveryVersionMaterializes(expected);
+    }
+
+    @Test
+    void concurrentInsertAndRewriteKeepEveryVersionReadable() throws Exception {
+        int versions = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                KnowledgeVersionStore store = newStore(4);
+                start.await();
+                try {
+                    for (long v = 1; v <= versions; v++) {
+                        insert(store, v);
+                    }
+                } finally {
+                    writing.set(false);
+                }
+                return null;
+            });
+            Future<?> rewriter = executor.submit(() -> {
+                start.await();
+                int round = 0;
+                while (writing.get()) {
+                    KnowledgeVersionStore store = newStore(round++ % 2 == 0 ? 3 : 6);
+                    transactionTemplate.execute(tx -> store.rewrite(KNOWLEDGE_ID));
+                }
+                return null;
+            });
+            start.countDown();
+            writer.get(60, TimeUnit.SECONDS);
+            rewriter.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEveryVersionMaterializes(versions);
+
+        KnowledgeVersionStore store = newStore(5);
+        transactionTemplate.execute(tx -> store.rewrite(KNOWLEDGE_ID));
+        assertEveryVersionMaterializes(versions);
+    }
+
+    private static KnowledgeVersionStore newStore(int snapshotInterval) {
+        KnowledgeVersionStore store = new KnowledgeVersionStore();
+        ReflectionTestUtils.setField(store, "knowledgeVersionMapper", knowledgeVersionMapper);
+        ReflectionTestUtils.setField(store, "knowledgeMapper", knowledgeMapper);
+        ReflectionTestUtils.setField(store, "snapshotInterval", snapshotInterval);
+        ReflectionTestUtils.setField(store, "maxDeltaRatio", 0.5);
+        ReflectionTestUtils.setField(store, "minContentLength", 64);
+        return store;
+    }
+
+    private static void insert(KnowledgeVersionStore store, long v) {
+        KnowledgeVersion version = new KnowledgeVersion();
+        version.setKnowledgeId(KNOWLEDGE_ID);
+        version.setVersion(v);
+        version.setTitle("版本" + v);
+        version.setContent(content(v));
+        version.setCreateTime(LocalDateTime.now());
+        transactionTemplate.execute(tx -> {
+            store.insert(version);
+            return null;
+        });
+    }
+
+    /**
+     * 200 行正文，每个版本改动一行并追加一行，差量远小于正文
+     */
+    private static String content(long v) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append(i == v % 200 ? "第" + i + "行，在版本" + v + "中修改" : "第" + i + "行，原始内容").append('\n');
+        }
+        return sb.append("版本").append(v).toString();
+    }
+
+    private static Map<Long, String> expectedContents(long versions) {
+        Map<Long, String> expected = new HashMap<>();
+        for (long v = 1; v <= versions; v++) {
+            expected.put(v, content(v));
+        }
+        return expected;
+    }
+
+    private static LambdaQueryWrapper<KnowledgeVersion> versionQuery() {
+        LambdaQueryWrapper<KnowledgeVersion> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(KnowledgeVersion::getKnowledgeId, KNOWLEDGE_ID);
+        wrapper.orderByAsc(KnowledgeVersion::getVersion);
+        return wrapper;
+    }
+
+    private static void assertEveryVersionMaterializes(long versions) {
+        assertEveryVersionMaterializes(expectedContents(versions));
+    }
+
+    private static void assertEveryVersionMaterializes(Map<Long, String> expected) {
+        List<KnowledgeVersion> rows = knowledgeVersionMapper.selectList(versionQuery());
+        assertEquals(expected.size(), rows.size());
+        Map<Long, KnowledgeVersion> byId = new HashMap<>();
+        for (KnowledgeVersion row : rows) {
+            byId.put(row.getId(), row);
+        }
+        boolean hasDelta = false;
+        for (KnowledgeVersion row : rows) {
+            if (row.getDeltaBaseId() == null) {
+                assertNotNull(row.getContent(), "完整快照缺少正文: version=" + row.getVersion());
+                continue;
+            }
+            hasDelta = true;
+            assertNull(row.getContent(), "差量版本不应保存正文: version=" + row.getVersion());
+            KnowledgeVersion base = byId.get(row.getDeltaBaseId());
+            assertNotNull(base, "差量的基准不存在: version=" + row.getVersion());
+            assertNull(base.getDeltaBaseId(), "差量的基准不是完整快照: version=" + row.getVersion());
+        }
+        assertTrue(hasDelta, "用例应覆盖差量存储");
+
+        KnowledgeVersionStore reader = newStore(4);
+        for (KnowledgeVersion version : reader.selectList(versionQuery())) {
+            assertEquals(expected.get(version.getVersion()), version.getContent(), "version=" + version.getVersion());
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.knowledge.search.cache;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.alibaba.fastjson2.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.knowledge.api.dto.SearchRequestDTO;
+import com.knowledge.api.dto.SearchResultDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 搜索结果两级缓存
+ * L1 为进程内 Caffeine，L2 为 Redis，缓存键包含索引代数（index generation）。
+ * 任何索引写入都会递增 Redis 中的代数，旧代数下的缓存自然失效；
+ * 各实例本地缓存的代数按较短间隔从 Redis 刷新，因此跨实例最多有该间隔的延迟
+ */
+@Slf4j
+@Component
+public class SearchResultCache {
+
+    private static final String GENERATION_KEY = "search:index:generation";
+    private static final String RESULT_KEY_PREFIX = "search:result:";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.result-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.result-cache.local-ttl-seconds:60}")
+    private long localTtlSeconds;
+
+    @Value("${search.result-cache.local-max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${search.result-cache.redis-ttl-seconds:300}")
+    private long redisTtlSeconds;
+
+    @Value("${search.result-cache.generation-refresh-ms:500}")
+    private long generationRefreshMs;
+
+    private Cache<String, SearchResultDTO> localCache;
+
+    private volatile long generation;
+    private volatile long generationLoadedAt;
+
+    private Counter l1Hit;
+    private Counter l2Hit;
+    private Counter miss;
+    private Timer l1Timer;
+    private Timer l2Timer;
+    private Timer esTimer;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "search.result.local");
+
+        l1Hit = requestCounter("l1");
+        l2Hit = requestCounter("l2");
+        miss = requestCounter("miss");
+        l1Timer = latencyTimer("l1");
+        l2Timer = latencyTimer("l2");
+        esTimer = latencyTimer("elasticsearch");
+    }
+
+    /**
+     * 先查 L1，再查 L2，都未命中时执行查询并回填两级缓存
+     */
+    public SearchResultDTO get(SearchRequestDTO request, Supplier<SearchResultDTO> loader) {
+        if (!enabled || !isCacheable(request)) {
+            return loader.get();
+        }
+        long start = System.nanoTime();
+        String key = RESULT_KEY_PREFIX + currentGeneration() + ":" + fingerprint(request);
+
+        SearchResultDTO cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            l1Hit.increment();
+            l1Timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached;
+        }
+
+        try {
+            String json = stringRedisTemplate.opsForValue().get(key);
+            if (json != null) {
+                SearchResultDTO result = JSON.parseObject(json, SearchResultDTO.class);
+                localCache.put(key, result);
+                l2Hit.increment();
+                l2Timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            }
+        } catch (Exception e) {
+            log.warn("读取搜索结果缓存失败: {}", e.getMessage());
+        }
+
+        miss.increment();
+        SearchResultDTO result = loader.get();
+        esTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (result != null) {
+            localCache.put(key, result);
+            try {
+                stringRedisTemplate.opsForValue().set(key, JSON.toJSONString(result), redisTtlSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("写入搜索结果缓存失败: {}", e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 索引发生写入后调用，使所有实例的搜索结果缓存失效
+     */
+    public void invalidate() {
+        try {
+            Long next = stringRedisTemplate.opsForValue().increment(GENERATION_KEY);
+            if (next != null) {
+                generation = next;
+                generationLoadedAt = System.currentTimeMillis();
+            }
+        } catch (Exception e) {
+            log.warn("递增索引代数失败，清空本地缓存: {}", e.getMessage());
+        }
+        localCache.invalidateAll();
+    }
+
+    /**
+     * 游标分页依赖 point-in-time，结果不能复用，不缓存
+     */
+    private boolean isCacheable(SearchRequestDTO request) {
+        return !Boolean.TRUE.equals(request.getUseCursor())
+                && (request.getCursor() == null || request.getCursor().isEmpty());
+    }
+
+    /**
+     * 当前索引代数，其他按索引内容缓存的结果（如补全建议）据此判断是否失效
+     */
+    public long currentGeneration() {
+        long now = System.currentTimeMillis();
+        if (now - generationLoadedAt > generationRefreshMs) {
+            try {
+                String value = stringRedisTemplate.opsForValue().get(GENERATION_KEY);
+                generation = value != null ? Long.parseLong(value) : 0L;
+            } catch (Exception e) {
+                log.debug("读取索引代数失败，沿用本地值: {}", e.getMessage());
+            }
+            generationLoadedAt = now;
+        }
+        return generation;
+    }
+
+    /**
+     * 规范化后的请求摘要：去除关键词首尾空白，空串与 null 视为相同
+     */
+    private String fingerprint(SearchRequestDTO request) {
+        String normalized = String.join("\u0001",
+                normalize(request.getKeyword()),
+                normalize(request.getSearchType()),
+                normalize(request.getCategory()),
+                normalize(request.getFileType()),
+                normalize(request.getStatus()),
+                normalize(request.getAuthor()),
+                normalize(request.getStartDate()),
+                normalize(request.getEndDate()),
+                String.valueOf(request.getPageNum()),
+                String.valueOf(request.getPageSize()),
+                normalize(request.getSortField()));
+        return DigestUtil.sha256Hex(normalized);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    private Counter requestCounter(String result) {
+        return Counter.builder("search.result.cache.requests")
+                .description("搜索结果缓存命中情况")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Timer latencyTimer(String source) {
+        return Timer.builder("search.result.latency")
+                .description("搜索请求耗时，按结果来源区分")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
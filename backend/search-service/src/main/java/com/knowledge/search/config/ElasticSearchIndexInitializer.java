@@ -1,11 +1,15 @@
 package com.knowledge.search.config;
 
+import com.knowledge.search.index.KnowledgeIndexMapping;
 import lombok.extern.slf4j.Slf4j;
-import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
-import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
+import org.elasticsearch.action.admin.indices.alias.Alias;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.CreateIndexResponse;
 import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.PutMappingRequest;
+import org.elasticsearch.xcontent.XContentType;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
@@ -20,7 +24,7 @@ import javax.annotation.Resource;
 @Component
 public class ElasticSearchIndexInitializer implements ApplicationListener<ApplicationReadyEvent> {
 
-    private static final String INDEX_NAME = "knowledge_index";
+    private static final String INDEX_NAME = KnowledgeIndexMapping.ALIAS;
 
     @Resource
     private RestHighLevelClient elasticsearchClient;
@@ -36,123 +40,48 @@ public class ElasticSearchIndexInitializer implements ApplicationListener<Applic
 
     /**
      * 初始化索引（公共方法，可被外部调用）
+     * 别名或旧版同名物理索引已存在时跳过；否则创建物理索引并挂上别名
      */
     public void initializeIndex() throws Exception {
-        // 检查索引是否存在（使用 GetIndexRequest）
+        // 检查索引是否存在（使用 GetIndexRequest，别名同样适用）
         GetIndexRequest getIndexRequest = new GetIndexRequest(INDEX_NAME);
         boolean exists = elasticsearchClient.indices().exists(getIndexRequest, RequestOptions.DEFAULT);
 
         if (exists) {
             log.info("索引 {} 已存在，跳过创建", INDEX_NAME);
+            ensureSuggestField();
             return;
         }
 
-        log.info("开始创建索引: {}", INDEX_NAME);
+        String physicalIndex = KnowledgeIndexMapping.newIndexName();
+        log.info("开始创建索引: {} -> {}", INDEX_NAME, physicalIndex);
 
         // 创建索引请求
-        CreateIndexRequest request = new CreateIndexRequest(INDEX_NAME);
-
-        // 设置索引映射（使用JSON字符串方式，避免包路径问题）
-        // 注意：如果使用了IK分词器或拼音分析器，需要先在Elasticsearch中安装相应插件
-        String mapping = "{\n" +
-                "  \"properties\": {\n" +
-                "    \"id\": {\n" +
-                "      \"type\": \"long\"\n" +
-                "    },\n" +
-                "    \"title\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\",\n" +
-                "      \"search_analyzer\": \"standard\",\n" +
-                "      \"fields\": {\n" +
-                "        \"keyword\": {\n" +
-                "          \"type\": \"keyword\"\n" +
-                "        }\n" +
-                "      }\n" +
-                "    },\n" +
-                "    \"titlePinyin\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"titleInitial\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"content\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\",\n" +
-                "      \"search_analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"contentText\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\",\n" +
-                "      \"search_analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"contentPinyin\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"contentInitial\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"keywords\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"category\": {\n" +
-                "      \"type\": \"keyword\"\n" +
-                "    },\n" +
-                "    \"status\": {\n" +
-                "      \"type\": \"keyword\"\n" +
-                "    },\n" +
-                "    \"author\": {\n" +
-                "      \"type\": \"keyword\"\n" +
-                "    },\n" +
-                "    \"department\": {\n" +
-                "      \"type\": \"keyword\"\n" +
-                "    },\n" +
-                "    \"fileId\": {\n" +
-                "      \"type\": \"long\"\n" +
-                "    },\n" +
-                "    \"fileType\": {\n" +
-                "      \"type\": \"keyword\"\n" +
-                "    },\n" +
-                "    \"fileName\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"fileNamePinyin\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"fileNameInitial\": {\n" +
-                "      \"type\": \"text\",\n" +
-                "      \"analyzer\": \"standard\"\n" +
-                "    },\n" +
-                "    \"clickCount\": {\n" +
-                "      \"type\": \"long\"\n" +
-                "    },\n" +
-                "    \"createTime\": {\n" +
-                "      \"type\": \"date\",\n" +
-                "      \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis\"\n" +
-                "    },\n" +
-                "    \"updateTime\": {\n" +
-                "      \"type\": \"date\",\n" +
-                "      \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis\"\n" +
-                "    }\n" +
-                "  }\n" +
-                "}";
-
-        request.mapping(mapping);
+        CreateIndexRequest request = new CreateIndexRequest(physicalIndex);
+        request.mapping(KnowledgeIndexMapping.MAPPING, XContentType.JSON);
+        request.alias(new Alias(INDEX_NAME));
 
         // 执行创建索引
         CreateIndexResponse response = elasticsearchClient.indices().create(request, RequestOptions.DEFAULT);
 
         if (response.isAcknowledged()) {
-            log.info("索引 {} 创建成功", INDEX_NAME);
+            log.info("索引 {} 创建成功", physicalIndex);
         } else {
-            log.warn("索引 {} 创建请求已提交，但未确认", INDEX_NAME);
+            log.warn("索引 {} 创建请求已提交，但未确认", physicalIndex);
         }
     }
-}
 
+    /**
+     * 为旧索引追加自动补全字段（新增字段无需重建索引）。已有文档在重新索引前没有补全值，
+     * 期间由 SearchServiceImpl#getSuggestions 的词项匹配回退查询给出建议
+     */
+    private void ensureSuggestField() {
+        try {
+            PutMappingRequest request = new PutMappingRequest(INDEX_NAME);
+            request.source(KnowledgeIndexMapping.SUGGEST_MAPPING, XContentType.JSON);
+            elasticsearchClient.indices().putMapping(request, RequestOptions.DEFAULT);
+        } catch (Exception e) {
+            log.warn("追加自动补全字段映射失败: {}", e.getMessage());
+        }
+    }
+}
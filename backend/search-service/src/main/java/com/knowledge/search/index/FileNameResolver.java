@@ -0,0 +1,112 @@
+package com.knowledge.search.index;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.knowledge.api.dto.FileDTO;
+import com.knowledge.api.service.FileService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 索引用文件名解析器
+ * 文件名带 TTL 缓存，批量索引时一次 Dubbo 调用取回一批文件信息，避免逐条查询文件服务
+ */
+@Slf4j
+@Component
+public class FileNameResolver {
+
+    @DubboReference(check = false, timeout = 10000)
+    private FileService fileService;
+
+    @Value("${search.file-name-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${search.file-name-cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${search.file-name-cache.batch-size:500}")
+    private int batchSize;
+
+    private LoadingCache<Long, String> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build(new CacheLoader<Long, String>() {
+                    @Override
+                    public String load(Long fileId) {
+                        FileDTO fileDTO = fileService.getFileById(fileId);
+                        return fileDTO != null && fileDTO.getFileName() != null ? fileDTO.getFileName() : "";
+                    }
+
+                    @Override
+                    public Map<Long, String> loadAll(Set<? extends Long> fileIds) {
+                        return loadBatch(new ArrayList<>(fileIds));
+                    }
+                });
+    }
+
+    /**
+     * 获取单个文件名，文件不存在或查询失败时返回空串
+     */
+    public String getFileName(Long fileId) {
+        if (fileId == null) {
+            return "";
+        }
+        try {
+            return cache.get(fileId);
+        } catch (Exception e) {
+            log.warn("获取文件信息失败: fileId={}, error={}", fileId, e.getMessage());
+            return "";
+        }
+    }
+
+    /**
+     * 批量获取文件名，未命中缓存的部分按批次一次性查询
+     * @return fileId -> 文件名，查询失败的ID不在结果中
+     */
+    public Map<Long, String> getFileNames(Collection<Long> fileIds) {
+        List<Long> ids = fileIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return cache.getAll(ids);
+        } catch (Exception e) {
+            log.warn("批量获取文件信息失败: count={}, error={}", ids.size(), e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    private Map<Long, String> loadBatch(List<Long> fileIds) {
+        Map<Long, String> result = new HashMap<>(fileIds.size() * 2);
+        for (int from = 0; from < fileIds.size(); from += batchSize) {
+            List<Long> chunk = fileIds.subList(from, Math.min(from + batchSize, fileIds.size()));
+            for (FileDTO fileDTO : fileService.getFilesByIds(new ArrayList<>(chunk))) {
+                result.put(fileDTO.getId(), fileDTO.getFileName() != null ? fileDTO.getFileName() : "");
+            }
+        }
+        // 不存在的文件同样缓存为空串，避免反复查询
+        for (Long fileId : fileIds) {
+            result.putIfAbsent(fileId, "");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,262 @@
+package com.knowledge.search.index;
+
+import com.knowledge.api.dto.IndexOutboxBatchDTO;
+import com.knowledge.api.dto.IndexOutboxEventDTO;
+import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.api.service.IndexOutboxService;
+import com.knowledge.search.cache.SearchResultCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 搜索索引发件箱中继
+ * 定时从 knowledge-service 拉取已提交的索引变更，合并后以 Bulk 请求写入 Elasticsearch，
+ * 成功的记录确认删除，失败的记录交回发件箱按退避策略重试
+ */
+@Slf4j
+@Component
+public class IndexOutboxRelay {
+
+    private static final String INDEX_NAME = KnowledgeIndexMapping.ALIAS;
+
+    @DubboReference(check = false, timeout = 10000)
+    private IndexOutboxService indexOutboxService;
+
+    @Resource
+    private RestHighLevelClient elasticsearchClient;
+
+    @Resource
+    private KnowledgeDocumentBuilder knowledgeDocumentBuilder;
+
+    @Resource
+    private KnowledgeReindexJob reindexJob;
+
+    @Resource
+    private SearchResultCache searchResultCache;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${search.outbox.max-rounds:20}")
+    private int maxRounds;
+
+    /**
+     * 最近一次拉取时最早一条未同步记录的等待秒数
+     */
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    private Timer bulkTimer;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("search.outbox.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("索引变更从提交到同步的延迟")
+                .register(meterRegistry);
+        bulkTimer = Timer.builder("search.outbox.bulk")
+                .description("单批索引同步的 Bulk 请求耗时")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${search.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        // 积压时连续处理多批，单次调度设置上限，避免长时间占用调度线程
+        for (int round = 0; round < maxRounds; round++) {
+            IndexOutboxBatchDTO batch;
+            try {
+                batch = indexOutboxService.pollIndexOutbox(batchSize);
+            } catch (Exception e) {
+                log.warn("拉取索引发件箱失败，队首记录退避后重试: {}", e.getMessage());
+                defer(e.getMessage());
+                return;
+            }
+            updateLag(batch.getOldestCreateTime());
+            if (batch.getEvents() == null || batch.getEvents().isEmpty()) {
+                return;
+            }
+            process(batch.getEvents());
+            if (batch.getRowCount() == null || batch.getRowCount() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 拉取失败（例如响应超出 Dubbo 载荷上限）时让队首记录退避，后面的记录可以继续同步
+     */
+    private void defer(String error) {
+        try {
+            indexOutboxService.deferIndexOutbox(batchSize, error);
+        } catch (Exception e) {
+            log.warn("索引发件箱退避失败: {}", e.getMessage());
+        }
+    }
+
+    private void process(List<IndexOutboxEventDTO> events) {
+        // 全量重建期间同时写入正在构建的新索引
+        String dualWriteIndex = reindexJob.getDualWriteIndex();
+        BulkRequest bulkRequest = new BulkRequest();
+        // 等待写入对搜索可见后再返回，之后使结果缓存失效，避免缓存刷新前的旧结果
+        bulkRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
+        // 构建中的索引关闭了自动刷新，双写不能等待刷新，单独发送
+        BulkRequest dualWriteRequest = new BulkRequest();
+        // 一次取回本批全部文件名
+        Map<Long, String> fileNames = knowledgeDocumentBuilder.resolveFileNames(events.stream()
+                .filter(this::isUpsert)
+                .map(IndexOutboxEventDTO::getKnowledge)
+                .collect(Collectors.toList()));
+        // 与 Bulk 请求一一对应的事件
+        List<IndexOutboxEventDTO> requested = new ArrayList<>();
+        List<IndexOutboxEventDTO> dualWriteRequested = new ArrayList<>();
+        List<Long> dualWriteUpserts = new ArrayList<>();
+        List<Long> dualWriteDeletes = new ArrayList<>();
+        Set<IndexOutboxEventDTO> failedEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (IndexOutboxEventDTO event : events) {
+            try {
+                Map<String, Object> source = toSource(event, fileNames);
+                bulkRequest.add(toRequest(INDEX_NAME, event, source));
+                requested.add(event);
+                if (dualWriteIndex != null) {
+                    dualWriteRequest.add(toRequest(dualWriteIndex, event, source));
+                    dualWriteRequested.add(event);
+                    (source != null ? dualWriteUpserts : dualWriteDeletes).add(event.getKnowledgeId());
+                }
+            } catch (Exception e) {
+                log.warn("构建索引文档失败: knowledgeId={}", event.getKnowledgeId(), e);
+                failedEvents.add(event);
+            }
+        }
+
+        if (dualWriteIndex != null) {
+            // 重建在切换别名前据此补删，避免被扫描到的旧数据覆盖删除
+            reindexJob.recordDualWrites(dualWriteIndex, dualWriteUpserts, dualWriteDeletes);
+        }
+
+        String error = failedEvents.isEmpty() ? null : "构建索引文档失败";
+        error = firstNonNull(execute(bulkRequest, requested, failedEvents), error);
+        error = firstNonNull(execute(dualWriteRequest, dualWriteRequested, failedEvents), error);
+
+        List<Long> ackIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        for (IndexOutboxEventDTO event : events) {
+            (failedEvents.contains(event) ? failedIds : ackIds).addAll(event.getOutboxIds());
+        }
+        if (!ackIds.isEmpty()) {
+            searchResultCache.invalidate();
+            indexOutboxService.ackIndexOutbox(ackIds);
+            count("success", ackIds.size());
+        }
+        if (!failedIds.isEmpty()) {
+            indexOutboxService.failIndexOutbox(failedIds, error);
+            count("failed", failedIds.size());
+        }
+        log.debug("索引同步完成: events={}, acked={}, failed={}", events.size(), ackIds.size(), failedIds.size());
+    }
+
+    /**
+     * 执行 Bulk 请求，把失败的事件加入 failedEvents
+     * @return 最后一条失败原因，全部成功时返回 null
+     */
+    private String execute(BulkRequest bulkRequest, List<IndexOutboxEventDTO> requested,
+                           Set<IndexOutboxEventDTO> failedEvents) {
+        if (requested.isEmpty()) {
+            return null;
+        }
+        String error = null;
+        long start = System.nanoTime();
+        try {
+            BulkResponse response = elasticsearchClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+            BulkItemResponse[] items = response.getItems();
+            for (int i = 0; i < items.length; i++) {
+                BulkItemResponse item = items[i];
+                // 删除不存在的文档视为成功
+                boolean ok = !item.isFailed()
+                        || (item.getOpType() == DocWriteRequest.OpType.DELETE
+                            && item.getFailure().getStatus() == RestStatus.NOT_FOUND);
+                if (!ok) {
+                    failedEvents.add(requested.get(i));
+                    error = item.getFailureMessage();
+                }
+            }
+        } catch (Exception e) {
+            log.error("批量同步索引失败: events={}", requested.size(), e);
+            failedEvents.addAll(requested);
+            error = e.getMessage();
+        } finally {
+            bulkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return error;
+    }
+
+    private static String firstNonNull(String preferred, String fallback) {
+        return preferred != null ? preferred : fallback;
+    }
+
+    private boolean isUpsert(IndexOutboxEventDTO event) {
+        return IndexOutboxEventDTO.OP_UPSERT.equals(event.getOp()) && event.getKnowledge() != null;
+    }
+
+    private Map<String, Object> toSource(IndexOutboxEventDTO event, Map<Long, String> fileNames) {
+        if (!isUpsert(event)) {
+            return null;
+        }
+        KnowledgeDTO knowledge = event.getKnowledge();
+        return knowledgeDocumentBuilder.build(knowledge, fileNames.get(knowledge.getFileId()));
+    }
+
+    private DocWriteRequest<?> toRequest(String index, IndexOutboxEventDTO event, Map<String, Object> source) {
+        String id = String.valueOf(event.getKnowledgeId());
+        if (source != null) {
+            return new IndexRequest(index).id(id).source(source);
+        }
+        return new DeleteRequest(index, id);
+    }
+
+    private void updateLag(LocalDateTime oldestCreateTime) {
+        if (oldestCreateTime == null) {
+            lagSeconds.set(0);
+            return;
+        }
+        lagSeconds.set(Math.max(0, Duration.between(oldestCreateTime, LocalDateTime.now()).getSeconds()));
+    }
+
+    private void count(String result, int amount) {
+        Counter.builder("search.outbox.events")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+}
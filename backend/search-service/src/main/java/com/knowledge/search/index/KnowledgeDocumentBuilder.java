@@ -0,0 +1,137 @@
+package com.knowledge.search.index;
+
+import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.search.util.PinyinUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 知识索引文档构建器
+ * 单条索引、发件箱批量同步共用同一套字段映射
+ */
+@Component
+public class KnowledgeDocumentBuilder {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Resource
+    private FileNameResolver fileNameResolver;
+
+    @Value("${search.index.content-pinyin-max-length:10000}")
+    private int contentPinyinMaxLength;
+
+    /**
+     * 构建索引文档，文件名通过文件服务查询（带缓存）
+     */
+    public Map<String, Object> build(KnowledgeDTO knowledgeDTO) {
+        return build(knowledgeDTO, fileNameResolver.getFileName(knowledgeDTO.getFileId()));
+    }
+
+    /**
+     * 批量解析一批知识关联的文件名，批量索引前调用，避免逐条查询文件服务
+     * @return fileId -> 文件名
+     */
+    public Map<Long, String> resolveFileNames(Collection<KnowledgeDTO> knowledgeList) {
+        return fileNameResolver.getFileNames(knowledgeList.stream()
+                .map(KnowledgeDTO::getFileId)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 构建索引文档
+     * @param fileName 已知的文件名（可为空）
+     */
+    public Map<String, Object> build(KnowledgeDTO knowledgeDTO, String fileName) {
+        // 使用 Map 构建 JSON 内容，Elasticsearch 会自动转换为 JSON
+        Map<String, Object> jsonMap = new HashMap<>();
+        jsonMap.put("id", knowledgeDTO.getId());
+
+        String title = knowledgeDTO.getTitle() != null ? knowledgeDTO.getTitle() : "";
+        String content = knowledgeDTO.getContent() != null ? knowledgeDTO.getContent() : "";
+        String contentText = knowledgeDTO.getContentText() != null ? knowledgeDTO.getContentText() : "";
+
+        // 主字段存储原始值
+        jsonMap.put("title", title);
+        jsonMap.put("content", content);
+        jsonMap.put("contentText", contentText);
+        jsonMap.put("keywords", knowledgeDTO.getKeywords() != null ? knowledgeDTO.getKeywords() : "");
+        jsonMap.put("category", knowledgeDTO.getCategory() != null ? knowledgeDTO.getCategory() : "");
+        jsonMap.put("status", knowledgeDTO.getStatus() != null ? knowledgeDTO.getStatus() : "");
+        jsonMap.put("author", knowledgeDTO.getAuthor() != null ? knowledgeDTO.getAuthor() : "");
+        jsonMap.put("department", knowledgeDTO.getDepartment() != null ? knowledgeDTO.getDepartment() : "");
+        jsonMap.put("fileId", knowledgeDTO.getFileId());
+        jsonMap.put("clickCount", knowledgeDTO.getClickCount() != null ? knowledgeDTO.getClickCount() : 0L);
+
+        // 生成拼音和首字母字段并添加到索引
+        jsonMap.put("titlePinyin", PinyinUtil.getPinyin(title));
+        jsonMap.put("titleInitial", PinyinUtil.getInitial(title));
+        // 正文只取前一段生成拼音，长文档的拼音字段对召回帮助有限却占用大量索引空间
+        jsonMap.put("contentPinyin", PinyinUtil.getPinyin(content, contentPinyinMaxLength));
+        jsonMap.put("contentInitial", PinyinUtil.getInitial(content, contentPinyinMaxLength));
+
+        // 文件名及其拼音
+        String name = fileName != null ? fileName : "";
+        jsonMap.put("fileName", name);
+        jsonMap.put("fileNamePinyin", name.isEmpty() ? "" : PinyinUtil.getPinyin(name));
+        jsonMap.put("fileNameInitial", name.isEmpty() ? "" : PinyinUtil.getInitial(name));
+
+        Map<String, Object> suggest = buildSuggest(knowledgeDTO, title, name);
+        if (suggest != null) {
+            jsonMap.put(KnowledgeIndexMapping.SUGGEST_FIELD_NAME, suggest);
+        }
+
+        // 格式化时间
+        if (knowledgeDTO.getCreateTime() != null) {
+            jsonMap.put("createTime", knowledgeDTO.getCreateTime().format(DATE_TIME_FORMATTER));
+        }
+        if (knowledgeDTO.getUpdateTime() != null) {
+            jsonMap.put("updateTime", knowledgeDTO.getUpdateTime().format(DATE_TIME_FORMATTER));
+        }
+        return jsonMap;
+    }
+
+    /**
+     * 自动补全输入：标题、去扩展名的文件名，以及它们的全拼（带/不带空格）和首字母，统一小写；
+     * 权重取点击量，热门文档排在前面
+     */
+    private Map<String, Object> buildSuggest(KnowledgeDTO knowledgeDTO, String title, String fileName) {
+        Set<String> inputs = new LinkedHashSet<>();
+        addSuggestInputs(inputs, title);
+        int lastDot = fileName.lastIndexOf('.');
+        addSuggestInputs(inputs, lastDot > 0 ? fileName.substring(0, lastDot) : fileName);
+        if (inputs.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Object> suggest = new HashMap<>();
+        suggest.put("input", new ArrayList<>(inputs));
+        long clickCount = knowledgeDTO.getClickCount() != null ? knowledgeDTO.getClickCount() : 0L;
+        suggest.put("weight", (int) Math.min(Math.max(clickCount, 0L), Integer.MAX_VALUE));
+        return suggest;
+    }
+
+    private void addSuggestInputs(Set<String> inputs, String text) {
+        String value = text.trim().toLowerCase();
+        if (value.isEmpty()) {
+            return;
+        }
+        inputs.add(value);
+        String pinyin = PinyinUtil.getPinyin(value);
+        inputs.add(pinyin);
+        inputs.add(pinyin.replace(" ", ""));
+        String initial = PinyinUtil.getInitial(value);
+        if (!initial.isEmpty()) {
+            inputs.add(initial);
+        }
+    }
+}
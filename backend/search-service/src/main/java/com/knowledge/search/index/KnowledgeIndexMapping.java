@@ -0,0 +1,145 @@
+package com.knowledge.search.index;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 知识索引定义
+ * 查询与增量写入统一使用别名 knowledge_index，别名指向带时间戳的物理索引，
+ * 全量重建时写入新的物理索引后再原子切换别名
+ */
+public final class KnowledgeIndexMapping {
+
+    /**
+     * 对外使用的索引别名
+     */
+    public static final String ALIAS = "knowledge_index";
+
+    private static final DateTimeFormatter SUFFIX_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    /**
+     * 自动补全字段：completion 类型，输入在写入前统一转为小写，
+     * 因此使用 keyword 分析器即可，已有索引也可以直接追加该字段
+     */
+    public static final String SUGGEST_FIELD_NAME = "suggest";
+
+    private static final String SUGGEST_FIELD = "{\n" +
+            "      \"type\": \"completion\",\n" +
+            "      \"analyzer\": \"keyword\",\n" +
+            "      \"max_input_length\": 50\n" +
+            "    }";
+
+    /**
+     * 为已有索引追加自动补全字段的映射
+     */
+    public static final String SUGGEST_MAPPING = "{\n" +
+            "  \"properties\": {\n" +
+            "    \"" + SUGGEST_FIELD_NAME + "\": " + SUGGEST_FIELD + "\n" +
+            "  }\n" +
+            "}";
+
+    /**
+     * 索引映射（使用JSON字符串方式，避免包路径问题）
+     * 注意：如果使用了IK分词器或拼音分析器，需要先在Elasticsearch中安装相应插件
+     */
+    public static final String MAPPING = "{\n" +
+            "  \"properties\": {\n" +
+            "    \"id\": {\n" +
+            "      \"type\": \"long\"\n" +
+            "    },\n" +
+            "    \"title\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\",\n" +
+            "      \"search_analyzer\": \"standard\",\n" +
+            "      \"fields\": {\n" +
+            "        \"keyword\": {\n" +
+            "          \"type\": \"keyword\"\n" +
+            "        }\n" +
+            "      }\n" +
+            "    },\n" +
+            "    \"titlePinyin\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"titleInitial\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"content\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\",\n" +
+            "      \"search_analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"contentText\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\",\n" +
+            "      \"search_analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"contentPinyin\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"contentInitial\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"keywords\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"category\": {\n" +
+            "      \"type\": \"keyword\"\n" +
+            "    },\n" +
+            "    \"status\": {\n" +
+            "      \"type\": \"keyword\"\n" +
+            "    },\n" +
+            "    \"author\": {\n" +
+            "      \"type\": \"keyword\"\n" +
+            "    },\n" +
+            "    \"department\": {\n" +
+            "      \"type\": \"keyword\"\n" +
+            "    },\n" +
+            "    \"fileId\": {\n" +
+            "      \"type\": \"long\"\n" +
+            "    },\n" +
+            "    \"fileType\": {\n" +
+            "      \"type\": \"keyword\"\n" +
+            "    },\n" +
+            "    \"fileName\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"fileNamePinyin\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"fileNameInitial\": {\n" +
+            "      \"type\": \"text\",\n" +
+            "      \"analyzer\": \"standard\"\n" +
+            "    },\n" +
+            "    \"clickCount\": {\n" +
+            "      \"type\": \"long\"\n" +
+            "    },\n" +
+            "    \"createTime\": {\n" +
+            "      \"type\": \"date\",\n" +
+            "      \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis\"\n" +
+            "    },\n" +
+            "    \"updateTime\": {\n" +
+            "      \"type\": \"date\",\n" +
+            "      \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||epoch_millis\"\n" +
+            "    },\n" +
+            "    \"suggest\": " + SUGGEST_FIELD + "\n" +
+            "  }\n" +
+            "}";
+
+
+    private KnowledgeIndexMapping() {
+    }
+
+    /**
+     * 生成新的物理索引名，如 knowledge_index_20240101120000
+     */
+    public static String newIndexName() {
+        return ALIAS + "_" + LocalDateTime.now().format(SUFFIX_FORMATTER);
+    }
+}
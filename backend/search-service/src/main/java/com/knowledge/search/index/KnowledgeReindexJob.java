@@ -0,0 +1,683 @@
+package com.knowledge.search.index;
+
+import cn.hutool.core.util.IdUtil;
+import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.api.dto.ReindexStatusDTO;
+import com.knowledge.api.service.KnowledgeService;
+import com.knowledge.search.cache.SearchResultCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全量重建索引任务
+ * 1. 创建新的物理索引（关闭刷新、副本数为 0）；
+ * 2. 按主键游标从 knowledge-service 分批拉取知识，由多个工作线程并行 Bulk 写入，在途批次数有上限；
+ * 3. 重试写入失败的文档，补删构建期间被删除的文档；仍有失败时不切换别名，从最小的失败ID续传；
+ * 4. 写完后恢复刷新与副本设置，在一个请求中把别名从旧索引切换到新索引，再删除旧索引。
+ * 构建期间增量变更由发件箱中继同时写入新索引（双写），进度定期保存到 Elasticsearch，中断后可续传。
+ * 多实例部署时由 Redis 锁（带令牌，运行期间定期续期）保证同一时间只有一个重建任务，
+ * 双写目标索引和构建期间删除的知识ID也保存在 Redis 中，任一实例的中继都会参与双写。
+ */
+@Slf4j
+@Component
+public class KnowledgeReindexJob {
+
+    private static final String STATE_INDEX = "knowledge_reindex_state";
+    private static final String STATE_ID = "current";
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int MAX_BULK_ATTEMPTS = 3;
+    private static final String LOCK_KEY = "search:reindex:lock";
+    private static final String DUAL_WRITE_KEY = "search:reindex:dual-write";
+    private static final String DELETED_KEY_PREFIX = "search:reindex:deleted:";
+    private static final long LOCK_TTL_SECONDS = 600;
+
+    // 只释放/续期自己持有的锁：值与令牌一致时才删除或延长过期时间
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    @DubboReference(check = false, timeout = 60000)
+    private KnowledgeService knowledgeService;
+
+    @Resource
+    private RestHighLevelClient elasticsearchClient;
+
+    @Resource
+    private KnowledgeDocumentBuilder knowledgeDocumentBuilder;
+
+    @Resource
+    private SearchResultCache searchResultCache;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${search.reindex.page-size:200}")
+    private int pageSize;
+
+    @Value("${search.reindex.workers:4}")
+    private int workers;
+
+    @Value("${search.reindex.replicas:1}")
+    private int replicas;
+
+    @Value("${search.reindex.checkpoint-interval:10}")
+    private int checkpointInterval;
+
+    @Value("${search.reindex.delete-old-index:true}")
+    private boolean deleteOldIndex;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(namedThreadFactory("reindex-runner"));
+    private final ScheduledExecutorService lockRenewer =
+            Executors.newSingleThreadScheduledExecutor(namedThreadFactory("reindex-lock"));
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile String lockToken;
+    private volatile ScheduledFuture<?> lockRenewal;
+    private volatile long lockRenewedAt;
+    /**
+     * 锁续期失败（已过期或被其他实例取得）后置位，runner 在批次之间和切换别名前检查并停止
+     */
+    private final AtomicBoolean lockLost = new AtomicBoolean();
+
+    /**
+     * 本次运行中重试后仍写入失败的文档
+     */
+    private final Queue<KnowledgeDTO> failedDocs = new ConcurrentLinkedQueue<>();
+
+    // 当前任务状态，由 runner 线程更新，查询时组装为 DTO
+    private volatile String status = ReindexStatusDTO.STATUS_IDLE;
+    private volatile String targetIndex;
+    private volatile LocalDateTime startTime;
+    private volatile LocalDateTime endTime;
+    private volatile String message;
+    private final AtomicLong checkpointId = new AtomicLong();
+    private final AtomicLong indexedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * 需要双写的新索引（Redis 不可用时的本地副本），未在重建时为 null
+     */
+    private volatile String dualWriteIndex;
+
+    @PostConstruct
+    public void init() {
+        // 上次重建未完成（进程重启或失败）时恢复双写，保证续传后新索引不遗漏期间的增量变更
+        try {
+            ReindexStatusDTO saved = loadState();
+            if (saved != null && isUnfinished(saved) && indexExists(saved.getTargetIndex())) {
+                restore(saved);
+                status = ReindexStatusDTO.STATUS_FAILED;
+                message = "上次重建未完成，可续传";
+                setDualWriteIndex(saved.getTargetIndex());
+                log.info("检测到未完成的索引重建，恢复双写: targetIndex={}, lastId={}",
+                        saved.getTargetIndex(), saved.getLastId());
+            }
+        } catch (Exception e) {
+            log.warn("读取索引重建状态失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        lockRenewer.shutdownNow();
+    }
+
+    /**
+     * 启动重建；本实例或其他实例已有任务在运行时直接返回当前状态
+     */
+    public ReindexStatusDTO start(boolean resume) {
+        if (!running.compareAndSet(false, true)) {
+            return getStatus();
+        }
+        String token = IdUtil.simpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, LOCK_TTL_SECONDS, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            running.set(false);
+            ReindexStatusDTO saved = loadStateQuietly();
+            if (saved != null) {
+                return saved;
+            }
+            throw new RuntimeException("索引重建正在其他实例上运行");
+        }
+        lockToken = token;
+        lockRenewedAt = System.currentTimeMillis();
+        lockLost.set(false);
+        try {
+            prepare(resume);
+            lockRenewal = lockRenewer.scheduleAtFixedRate(this::renewLock,
+                    LOCK_TTL_SECONDS / 3, LOCK_TTL_SECONDS / 3, TimeUnit.SECONDS);
+            runner.execute(this::run);
+            return getStatus();
+        } catch (Exception e) {
+            releaseLock();
+            running.set(false);
+            log.error("启动索引重建失败", e);
+            throw new RuntimeException("启动索引重建失败: " + e.getMessage(), e);
+        }
+    }
+
+    public ReindexStatusDTO getStatus() {
+        ReindexStatusDTO dto = new ReindexStatusDTO();
+        dto.setStatus(status);
+        dto.setTargetIndex(targetIndex);
+        dto.setLastId(checkpointId.get());
+        dto.setIndexedCount(indexedCount.get());
+        dto.setFailedCount(failedCount.get());
+        dto.setStartTime(startTime);
+        dto.setEndTime(endTime);
+        dto.setMessage(message);
+        return dto;
+    }
+
+    /**
+     * 正在构建的新索引（供增量同步双写），没有重建任务时返回 null。
+     * 以 Redis 中的值为准，重建任务在其他实例上运行时本实例的中继同样双写
+     */
+    public String getDualWriteIndex() {
+        try {
+            return stringRedisTemplate.opsForValue().get(DUAL_WRITE_KEY);
+        } catch (Exception e) {
+            log.warn("读取双写索引失败，使用本地状态: {}", e.getMessage());
+            return dualWriteIndex;
+        }
+    }
+
+    /**
+     * 记录双写到新索引的变更：删除的知识ID在别名切换前会再从新索引中删除一次，
+     * 避免删除前已被扫描到的旧数据随后又被批量写入；之后重新写入的知识不再补删
+     */
+    public void recordDualWrites(String index, Collection<Long> upsertedIds, Collection<Long> deletedIds) {
+        String key = DELETED_KEY_PREFIX + index;
+        try {
+            if (!upsertedIds.isEmpty()) {
+                stringRedisTemplate.opsForSet().remove(key, upsertedIds.stream().map(String::valueOf).toArray());
+            }
+            if (!deletedIds.isEmpty()) {
+                stringRedisTemplate.opsForSet().add(key, deletedIds.stream().map(String::valueOf).toArray(String[]::new));
+            }
+        } catch (Exception e) {
+            log.warn("记录双写删除失败: index={}, deleted={}", index, deletedIds, e);
+        }
+    }
+
+    private void prepare(boolean resume) throws Exception {
+        ReindexStatusDTO saved = loadState();
+        boolean resumable = saved != null && isUnfinished(saved) && indexExists(saved.getTargetIndex());
+        if (resume && resumable) {
+            restore(saved);
+            log.info("续传索引重建: targetIndex={}, lastId={}", targetIndex, checkpointId.get());
+        } else {
+            if (resumable) {
+                // 放弃上次未完成的索引，避免残留
+                setDualWriteIndex(null);
+                stringRedisTemplate.delete(DELETED_KEY_PREFIX + saved.getTargetIndex());
+                elasticsearchClient.indices().delete(
+                        new DeleteIndexRequest(saved.getTargetIndex()), RequestOptions.DEFAULT);
+                log.info("删除未完成的重建索引: {}", saved.getTargetIndex());
+            }
+            String index = KnowledgeIndexMapping.newIndexName();
+            createBuildIndex(index);
+            targetIndex = index;
+            checkpointId.set(0);
+            indexedCount.set(0);
+            failedCount.set(0);
+            startTime = LocalDateTime.now();
+            log.info("开始全量重建索引: targetIndex={}", index);
+        }
+        // 失败文档会通过从最小失败ID续传重新扫描，不跨运行累计
+        failedDocs.clear();
+        failedCount.set(0);
+        status = ReindexStatusDTO.STATUS_RUNNING;
+        endTime = null;
+        message = null;
+        setDualWriteIndex(targetIndex);
+        saveState();
+    }
+
+    private void run() {
+        String index = targetIndex;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreadFactory("reindex-bulk"));
+        // 限制在途批次，避免拉取速度远快于写入时占满内存
+        Semaphore permits = new Semaphore(workers * 2);
+        // 在途批次：批次起点（上一批最后一条ID） -> 批次最后一条ID
+        TreeMap<Long, Long> pending = new TreeMap<>();
+        long cursor = checkpointId.get();
+        try {
+            int batches = 0;
+            while (true) {
+                ensureLockHeld();
+                List<KnowledgeDTO> page = knowledgeService.scanKnowledgeForIndex(cursor, pageSize);
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                long batchStart = cursor;
+                cursor = page.get(page.size() - 1).getId();
+                permits.acquire();
+                synchronized (pending) {
+                    pending.put(batchStart, cursor);
+                }
+                pool.execute(() -> {
+                    try {
+                        bulkLoad(index, page);
+                    } finally {
+                        synchronized (pending) {
+                            pending.remove(batchStart);
+                        }
+                        permits.release();
+                    }
+                });
+                if (++batches % checkpointInterval == 0) {
+                    checkpoint(pending, cursor);
+                    log.info("索引重建进度: lastId={}, indexed={}, failed={}",
+                            checkpointId.get(), indexedCount.get(), failedCount.get());
+                }
+                if (page.size() < pageSize) {
+                    break;
+                }
+            }
+            pool.shutdown();
+            if (!pool.awaitTermination(1, TimeUnit.HOURS)) {
+                throw new IllegalStateException("等待批量写入完成超时");
+            }
+            checkpoint(pending, cursor);
+
+            retryFailed(index);
+            if (!failedDocs.isEmpty()) {
+                abortSwap(index);
+                return;
+            }
+            ensureLockHeld();
+            reconcileDeletes(index);
+            ensureLockHeld();
+            swapAlias(index);
+            status = ReindexStatusDTO.STATUS_COMPLETED;
+            endTime = LocalDateTime.now();
+            message = null;
+            log.info("全量重建索引完成: targetIndex={}, indexed={}", index, indexedCount.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(pool, pending, cursor, "重建被中断");
+        } catch (Exception e) {
+            log.error("全量重建索引失败: targetIndex={}", index, e);
+            fail(pool, pending, cursor, e.getMessage());
+        } finally {
+            saveStateQuietly();
+            releaseLock();
+            running.set(false);
+        }
+    }
+
+    /**
+     * 对写入失败的文档再整体重试一轮（bulkLoad 内部已对请求级异常重试），仍失败的留在 failedDocs 中
+     */
+    private void retryFailed(String index) {
+        List<KnowledgeDTO> retry = new ArrayList<>();
+        KnowledgeDTO doc;
+        while ((doc = failedDocs.poll()) != null) {
+            retry.add(doc);
+        }
+        if (retry.isEmpty()) {
+            return;
+        }
+        log.info("重试写入失败的文档: count={}", retry.size());
+        failedCount.addAndGet(-retry.size());
+        bulkLoad(index, retry);
+    }
+
+    /**
+     * 仍有文档写入失败时不切换别名：断点退回到最小的失败ID之前，续传会重新扫描这些文档
+     * （已写入的文档使用 create 写入时冲突会被忽略），期间保持双写
+     */
+    private void abortSwap(String index) {
+        long minFailedId = failedDocs.stream().mapToLong(KnowledgeDTO::getId).min().orElse(1L);
+        checkpointId.set(Math.min(checkpointId.get(), minFailedId - 1));
+        status = ReindexStatusDTO.STATUS_FAILED;
+        endTime = LocalDateTime.now();
+        message = String.format("%d 个文档写入失败，未切换别名，可续传重试", failedDocs.size());
+        log.error("索引重建存在写入失败的文档，未切换别名: targetIndex={}, failed={}, resumeFrom={}",
+                index, failedDocs.size(), checkpointId.get());
+    }
+
+    /**
+     * 切换别名前再删除一次构建期间被删除的知识
+     */
+    private void reconcileDeletes(String index) throws Exception {
+        String key = DELETED_KEY_PREFIX + index;
+        Set<String> deletedIds = stringRedisTemplate.opsForSet().members(key);
+        if (deletedIds != null && !deletedIds.isEmpty()) {
+            BulkRequest bulkRequest = new BulkRequest();
+            for (String id : deletedIds) {
+                bulkRequest.add(new DeleteRequest(index, id));
+            }
+            BulkResponse response = elasticsearchClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed() && item.getFailure().getStatus() != RestStatus.NOT_FOUND) {
+                    throw new IllegalStateException("补删构建期间删除的文档失败: id=" + item.getId()
+                            + ", reason=" + item.getFailureMessage());
+                }
+            }
+            log.info("已补删构建期间删除的文档: targetIndex={}, count={}", index, deletedIds.size());
+        }
+        stringRedisTemplate.delete(key);
+    }
+
+    private void fail(ExecutorService pool, TreeMap<Long, Long> pending, long cursor, String reason) {
+        pool.shutdownNow();
+        // 继续保持双写，续传后新索引仍然完整
+        checkpoint(pending, cursor);
+        status = ReindexStatusDTO.STATUS_FAILED;
+        endTime = LocalDateTime.now();
+        message = reason;
+    }
+
+    /**
+     * 记录断点：所有不大于该ID的知识都已写入
+     */
+    private void checkpoint(TreeMap<Long, Long> pending, long cursor) {
+        synchronized (pending) {
+            checkpointId.set(pending.isEmpty() ? cursor : pending.firstKey());
+        }
+        saveStateQuietly();
+    }
+
+    private void bulkLoad(String index, List<KnowledgeDTO> page) {
+        BulkRequest bulkRequest = new BulkRequest();
+        Map<Long, String> fileNames = knowledgeDocumentBuilder.resolveFileNames(page);
+        for (KnowledgeDTO knowledge : page) {
+            // 使用 create：双写已写入的较新文档不会被扫描到的旧数据覆盖
+            bulkRequest.add(new IndexRequest(index)
+                    .id(String.valueOf(knowledge.getId()))
+                    .opType(DocWriteRequest.OpType.CREATE)
+                    .source(knowledgeDocumentBuilder.build(knowledge, fileNames.get(knowledge.getFileId()))));
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                BulkResponse response = elasticsearchClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+                BulkItemResponse[] items = response.getItems();
+                int failed = 0;
+                for (int i = 0; i < items.length; i++) {
+                    BulkItemResponse item = items[i];
+                    if (item.isFailed() && item.getFailure().getStatus() != RestStatus.CONFLICT) {
+                        failed++;
+                        failedDocs.add(page.get(i));
+                        log.warn("重建索引写入文档失败: id={}, reason={}", item.getId(), item.getFailureMessage());
+                    }
+                }
+                indexedCount.addAndGet(page.size() - failed);
+                failedCount.addAndGet(failed);
+                return;
+            } catch (Exception e) {
+                if (attempt >= MAX_BULK_ATTEMPTS) {
+                    failedCount.addAndGet(page.size());
+                    failedDocs.addAll(page);
+                    log.error("重建索引批量写入失败: firstId={}, size={}", page.get(0).getId(), page.size(), e);
+                    return;
+                }
+                log.warn("重建索引批量写入失败，准备重试: attempt={}, error={}", attempt, e.getMessage());
+                try {
+                    Thread.sleep(1000L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    failedCount.addAndGet(page.size());
+                    failedDocs.addAll(page);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void createBuildIndex(String index) throws Exception {
+        CreateIndexRequest request = new CreateIndexRequest(index);
+        request.mapping(KnowledgeIndexMapping.MAPPING, XContentType.JSON);
+        // 构建期间关闭刷新、不设副本，加快批量写入
+        request.settings(Settings.builder()
+                .put("index.refresh_interval", "-1")
+                .put("index.number_of_replicas", 0));
+        elasticsearchClient.indices().create(request, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * 恢复索引设置并原子切换别名
+     */
+    private void swapAlias(String index) throws Exception {
+        UpdateSettingsRequest settingsRequest = new UpdateSettingsRequest(index);
+        settingsRequest.settings(Settings.builder()
+                .put("index.refresh_interval", "1s")
+                .put("index.number_of_replicas", replicas));
+        elasticsearchClient.indices().putSettings(settingsRequest, RequestOptions.DEFAULT);
+        elasticsearchClient.indices().refresh(new RefreshRequest(index), RequestOptions.DEFAULT);
+
+        GetAliasesResponse aliases = elasticsearchClient.indices()
+                .getAlias(new GetAliasesRequest(KnowledgeIndexMapping.ALIAS), RequestOptions.DEFAULT);
+        Set<String> oldIndices = new HashSet<>(aliases.getAliases().keySet());
+        oldIndices.remove(index);
+
+        IndicesAliasesRequest aliasRequest = new IndicesAliasesRequest();
+        aliasRequest.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                .index(index).alias(KnowledgeIndexMapping.ALIAS));
+        for (String old : oldIndices) {
+            aliasRequest.addAliasAction(IndicesAliasesRequest.AliasActions.remove()
+                    .index(old).alias(KnowledgeIndexMapping.ALIAS));
+        }
+        boolean legacyIndex = oldIndices.isEmpty() && indexExists(KnowledgeIndexMapping.ALIAS);
+        if (legacyIndex) {
+            // 旧版本直接以 knowledge_index 为物理索引名，需要在同一请求中删除后才能创建同名别名
+            aliasRequest.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex()
+                    .index(KnowledgeIndexMapping.ALIAS));
+        }
+        elasticsearchClient.indices().updateAliases(aliasRequest, RequestOptions.DEFAULT);
+        setDualWriteIndex(null);
+        searchResultCache.invalidate();
+        log.info("索引别名已切换: {} -> {}, 旧索引={}", KnowledgeIndexMapping.ALIAS, index,
+                legacyIndex ? KnowledgeIndexMapping.ALIAS : oldIndices);
+
+        if (deleteOldIndex && !oldIndices.isEmpty()) {
+            try {
+                elasticsearchClient.indices().delete(
+                        new DeleteIndexRequest(oldIndices.toArray(new String[0])), RequestOptions.DEFAULT);
+            } catch (Exception e) {
+                log.warn("删除旧索引失败: {}", oldIndices, e);
+            }
+        }
+    }
+
+    private void setDualWriteIndex(String index) {
+        dualWriteIndex = index;
+        try {
+            if (index != null) {
+                stringRedisTemplate.opsForValue().set(DUAL_WRITE_KEY, index);
+            } else {
+                stringRedisTemplate.delete(DUAL_WRITE_KEY);
+            }
+        } catch (Exception e) {
+            log.warn("保存双写索引失败: index={}, error={}", index, e.getMessage());
+        }
+    }
+
+    private void renewLock() {
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(LOCK_KEY),
+                    lockToken, String.valueOf(LOCK_TTL_SECONDS));
+            if (renewed == null || renewed == 0) {
+                lockLost.set(true);
+                log.error("索引重建锁续期失败，锁已过期或被其他实例持有，停止重建");
+                return;
+            }
+            lockRenewedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            // Redis 暂时不可用时锁仍可能有效，超过有效期仍未续上才视为丢失
+            if (System.currentTimeMillis() - lockRenewedAt >= TimeUnit.SECONDS.toMillis(LOCK_TTL_SECONDS)) {
+                lockLost.set(true);
+            }
+            log.warn("索引重建锁续期失败: {}", e.getMessage());
+        }
+    }
+
+    private void ensureLockHeld() {
+        if (lockLost.get()) {
+            throw new IllegalStateException("索引重建锁已失效，停止重建");
+        }
+    }
+
+    private void releaseLock() {
+        ScheduledFuture<?> renewal = lockRenewal;
+        if (renewal != null) {
+            renewal.cancel(false);
+            lockRenewal = null;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(LOCK_KEY), lockToken);
+        } catch (Exception e) {
+            log.warn("释放索引重建锁失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean indexExists(String index) throws Exception {
+        return index != null
+                && elasticsearchClient.indices().exists(new GetIndexRequest(index), RequestOptions.DEFAULT);
+    }
+
+    private boolean isUnfinished(ReindexStatusDTO saved) {
+        return ReindexStatusDTO.STATUS_RUNNING.equals(saved.getStatus())
+                || ReindexStatusDTO.STATUS_FAILED.equals(saved.getStatus());
+    }
+
+    private void restore(ReindexStatusDTO saved) {
+        targetIndex = saved.getTargetIndex();
+        checkpointId.set(saved.getLastId() != null ? saved.getLastId() : 0L);
+        indexedCount.set(saved.getIndexedCount() != null ? saved.getIndexedCount() : 0L);
+        failedCount.set(saved.getFailedCount() != null ? saved.getFailedCount() : 0L);
+        startTime = saved.getStartTime();
+    }
+
+    private void saveStateQuietly() {
+        // 锁已失效时重建状态可能已归其他实例所有，不再覆盖
+        if (lockLost.get()) {
+            log.warn("索引重建锁已失效，不保存进度: lastId={}", checkpointId.get());
+            return;
+        }
+        try {
+            saveState();
+        } catch (Exception e) {
+            log.warn("保存索引重建进度失败: {}", e.getMessage());
+        }
+    }
+
+    private void saveState() throws Exception {
+        Map<String, Object> source = new HashMap<>();
+        source.put("status", status);
+        source.put("targetIndex", targetIndex);
+        source.put("lastId", checkpointId.get());
+        source.put("indexedCount", indexedCount.get());
+        source.put("failedCount", failedCount.get());
+        source.put("startTime", startTime != null ? startTime.format(DATE_TIME_FORMATTER) : null);
+        source.put("endTime", endTime != null ? endTime.format(DATE_TIME_FORMATTER) : null);
+        source.put("message", message);
+        elasticsearchClient.index(new IndexRequest(STATE_INDEX).id(STATE_ID).source(source), RequestOptions.DEFAULT);
+    }
+
+    private ReindexStatusDTO loadStateQuietly() {
+        try {
+            return loadState();
+        } catch (Exception e) {
+            log.warn("读取索引重建状态失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private ReindexStatusDTO loadState() throws Exception {
+        if (!indexExists(STATE_INDEX)) {
+            return null;
+        }
+        GetResponse response = elasticsearchClient.get(new GetRequest(STATE_INDEX, STATE_ID), RequestOptions.DEFAULT);
+        if (!response.isExists()) {
+            return null;
+        }
+        Map<String, Object> source = response.getSourceAsMap();
+        ReindexStatusDTO dto = new ReindexStatusDTO();
+        dto.setStatus((String) source.get("status"));
+        dto.setTargetIndex((String) source.get("targetIndex"));
+        dto.setLastId(toLong(source.get("lastId")));
+        dto.setIndexedCount(toLong(source.get("indexedCount")));
+        dto.setFailedCount(toLong(source.get("failedCount")));
+        dto.setStartTime(toTime(source.get("startTime")));
+        dto.setEndTime(toTime(source.get("endTime")));
+        dto.setMessage((String) source.get("message"));
+        return dto;
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    private static LocalDateTime toTime(Object value) {
+        return value instanceof String ? LocalDateTime.parse((String) value, DATE_TIME_FORMATTER) : null;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
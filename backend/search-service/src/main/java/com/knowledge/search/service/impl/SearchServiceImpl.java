@@ -1,65 +1,139 @@
 package com.knowledge.search.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.knowledge.api.dto.HighlightDTO;
 import com.knowledge.api.dto.KnowledgeDTO;
+import com.knowledge.api.dto.ReindexStatusDTO;
 import com.knowledge.api.dto.SearchRequestDTO;
 import com.knowledge.api.dto.SearchResultDTO;
 import com.knowledge.api.dto.SearchSuggestionDTO;
 import com.knowledge.api.service.SearchService;
-import com.knowledge.api.service.FileService;
-import com.knowledge.search.util.PinyinUtil;
+import com.knowledge.search.cache.SearchResultCache;
+import com.knowledge.search.index.KnowledgeDocumentBuilder;
+import com.knowledge.search.index.KnowledgeIndexMapping;
+import com.knowledge.search.index.KnowledgeReindexJob;
+import com.knowledge.search.util.SearchCursor;
 import com.knowledge.search.util.SearchTypeDetector;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.dubbo.config.annotation.DubboReference;
 import org.apache.dubbo.config.annotation.DubboService;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
 import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.search.suggest.SuggestBuilder;
+import org.elasticsearch.search.suggest.SuggestBuilders;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestionBuilder;
 import org.elasticsearch.index.query.MoreLikeThisQueryBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 @DubboService
 public class SearchServiceImpl implements SearchService {
 
-    private static final String INDEX_NAME = "knowledge_index";
+    private static final String INDEX_NAME = KnowledgeIndexMapping.ALIAS;
+
+    private static final String SUGGESTION_NAME = "knowledge-suggest";
+    private static final int MAX_SUGGEST_SIZE = 20;
+    private static final String[] SEARCH_SOURCE_FIELDS = {"id", "title", "content", "category", "keywords",
+            "clickCount", "status", "author", "department", "fileId"};
+    private static final String CLICK_COUNT_SCRIPT = "ctx._source.clickCount = params.clickCount; " +
+            "if (ctx._source.suggest instanceof Map) { ctx._source.suggest.weight = params.weight; }";
+    private static final String[] SUGGEST_SOURCE_FIELDS = {"id", "title", "fileName", "category", "keywords", "clickCount"};
 
     @Resource
     private RestHighLevelClient elasticsearchClient;
 
-    @DubboReference(check = false, timeout = 5000)
-    private FileService fileService;
+    @Resource
+    private KnowledgeDocumentBuilder knowledgeDocumentBuilder;
+
+    @Resource
+    private KnowledgeReindexJob knowledgeReindexJob;
+
+    @Resource
+    private SearchResultCache searchResultCache;
+
+    @Value("${search.cursor.keep-alive-seconds:120}")
+    private long pitKeepAliveSeconds;
+
+    @Value("${search.suggest.cache-ttl-seconds:30}")
+    private long suggestCacheTtlSeconds;
+
+    /**
+     * 自动补全结果缓存：前缀 -> 建议，索引代数变化时整体清空
+     */
+    private Cache<String, SearchSuggestionDTO> suggestionCache;
+
+    private volatile long suggestionGeneration = -1;
+
+    @PostConstruct
+    public void init() {
+        suggestionCache = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(suggestCacheTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
 
     @Override
     public SearchResultDTO search(SearchRequestDTO request) {
+        return searchResultCache.get(request, () -> doSearch(request));
+    }
+
+    private SearchResultDTO doSearch(SearchRequestDTO request) {
         long startTime = System.currentTimeMillis();
         log.info("收到搜索请求: keyword={}, status={}, pageNum={}, pageSize={}", 
             request.getKeyword(), request.getStatus(), request.getPageNum(), request.getPageSize());
         
+        // 游标分页：首页由 useCursor 开启，之后的页携带上一页返回的 nextCursor
+        boolean cursorMode = Boolean.TRUE.equals(request.getUseCursor())
+                || (request.getCursor() != null && !request.getCursor().isEmpty());
+        SearchCursor cursor = null;
+        if (request.getCursor() != null && !request.getCursor().isEmpty()) {
+            try {
+                cursor = SearchCursor.decode(request.getCursor());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("无效的搜索游标");
+            }
+        }
+        
         try {
-            SearchRequest searchRequest = new SearchRequest(INDEX_NAME);
             SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
             
             BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
@@ -155,10 +229,29 @@ public class SearchServiceImpl implements SearchService {
             }
             
             // 分页
-            int from = (request.getPageNum() - 1) * request.getPageSize();
-            sourceBuilder.from(from);
+            SearchRequest searchRequest;
+            String pitId = null;
+            if (cursorMode) {
+                // 游标分页在同一个 point-in-time 快照上用 search_after 翻页，深翻页开销不随页码增长；
+                // PIT 请求不能再指定索引名
+                pitId = cursor != null ? cursor.getPitId() : openPointInTime();
+                searchRequest = new SearchRequest();
+                sourceBuilder.pointInTimeBuilder(new PointInTimeBuilder(pitId).setKeepAlive(pitKeepAlive()));
+                if (cursor != null) {
+                    sourceBuilder.searchAfter(cursor.getSortValues());
+                    // 总数只在首页统计
+                    sourceBuilder.trackTotalHits(false);
+                }
+            } else {
+                searchRequest = new SearchRequest(INDEX_NAME);
+                int from = (request.getPageNum() - 1) * request.getPageSize();
+                sourceBuilder.from(from);
+            }
             sourceBuilder.size(request.getPageSize());
             
+            // 只取结果 DTO 用到的字段，不返回 contentText、拼音等大字段
+            sourceBuilder.fetchSource(SEARCH_SOURCE_FIELDS, null);
+            
             // 配置高亮（仅在有关键字搜索时）
             if (request.getKeyword() != null && !request.getKeyword().isEmpty()) {
                 HighlightBuilder highlightBuilder = new HighlightBuilder();
@@ -179,7 +272,8 @@ public class SearchServiceImpl implements SearchService {
             
             SearchResponse response = elasticsearchClient.search(searchRequest, RequestOptions.DEFAULT);
             
-            log.info("ES 返回结果数: {}", response.getHits().getTotalHits().value);
+            TotalHits totalHits = response.getHits().getTotalHits();
+            log.info("ES 返回结果数: {}", totalHits != null ? totalHits.value : response.getHits().getHits().length);
             
             List<KnowledgeDTO> results = new ArrayList<>();
             for (SearchHit hit : response.getHits().getHits()) {
@@ -258,7 +352,17 @@ public class SearchServiceImpl implements SearchService {
             
             SearchResultDTO result = new SearchResultDTO();
             result.setResults(results);
-            result.setTotal(response.getHits().getTotalHits().value);
+            result.setTotal(totalHits != null ? totalHits.value : null);
+            if (cursorMode) {
+                // PIT ID 可能在每次请求后变化，以最新返回的为准
+                String latestPitId = response.pointInTimeId() != null ? response.pointInTimeId() : pitId;
+                SearchHit[] hits = response.getHits().getHits();
+                if (hits.length < request.getPageSize()) {
+                    closePointInTime(latestPitId);
+                } else {
+                    result.setNextCursor(new SearchCursor(latestPitId, hits[hits.length - 1].getSortValues()).encode());
+                }
+            }
             result.setPageNum(request.getPageNum());
             result.setPageSize(request.getPageSize());
             result.setTookTime(System.currentTimeMillis() - startTime);
@@ -291,12 +395,33 @@ public class SearchServiceImpl implements SearchService {
                 result.setTookTime(System.currentTimeMillis() - startTime);
                 return result;
             }
+            if (cursor != null && (errorMessage.contains("search_context_missing_exception")
+                    || errorMessage.contains("No search context found"))) {
+                throw new RuntimeException("搜索游标已过期，请重新搜索");
+            }
             log.error("搜索失败", e);
             // 提取异常消息，避免序列化不可序列化的对象（如 Elasticsearch Response）
             throw new RuntimeException("搜索失败: " + errorMessage);
         }
     }
 
+    private String openPointInTime() throws java.io.IOException {
+        OpenPointInTimeRequest request = new OpenPointInTimeRequest(INDEX_NAME).keepAlive(pitKeepAlive());
+        return elasticsearchClient.openPointInTime(request, RequestOptions.DEFAULT).getPointInTimeId();
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            elasticsearchClient.closePointInTime(new ClosePointInTimeRequest(pitId), RequestOptions.DEFAULT);
+        } catch (Exception e) {
+            log.debug("关闭 point-in-time 失败（到期后会自动释放）: {}", e.getMessage());
+        }
+    }
+
+    private TimeValue pitKeepAlive() {
+        return TimeValue.timeValueSeconds(pitKeepAliveSeconds);
+    }
+
     @Override
     public void indexKnowledge(Long knowledgeId) {
         // 这个方法需要接收 KnowledgeDTO，由调用方传入
@@ -324,70 +449,10 @@ public class SearchServiceImpl implements SearchService {
         try {
             IndexRequest request = new IndexRequest(INDEX_NAME);
             request.id(String.valueOf(knowledgeDTO.getId()));
-            
-            // 使用 Map 构建 JSON 内容，Elasticsearch 会自动转换为 JSON
-            Map<String, Object> jsonMap = new HashMap<>();
-            jsonMap.put("id", knowledgeDTO.getId());
-            
-            String title = knowledgeDTO.getTitle() != null ? knowledgeDTO.getTitle() : "";
-            String content = knowledgeDTO.getContent() != null ? knowledgeDTO.getContent() : "";
-            String contentText = knowledgeDTO.getContentText() != null ? knowledgeDTO.getContentText() : "";
-            
-            // 主字段存储原始值
-            jsonMap.put("title", title);
-            jsonMap.put("content", content);
-            jsonMap.put("contentText", contentText);
-            jsonMap.put("keywords", knowledgeDTO.getKeywords() != null ? knowledgeDTO.getKeywords() : "");
-            jsonMap.put("category", knowledgeDTO.getCategory() != null ? knowledgeDTO.getCategory() : "");
-            jsonMap.put("status", knowledgeDTO.getStatus() != null ? knowledgeDTO.getStatus() : "");
-            jsonMap.put("author", knowledgeDTO.getAuthor() != null ? knowledgeDTO.getAuthor() : "");
-            jsonMap.put("department", knowledgeDTO.getDepartment() != null ? knowledgeDTO.getDepartment() : "");
-            jsonMap.put("fileId", knowledgeDTO.getFileId() != null ? knowledgeDTO.getFileId() : null);
-            jsonMap.put("clickCount", knowledgeDTO.getClickCount() != null ? knowledgeDTO.getClickCount() : 0L);
-            
-            // 生成拼音和首字母字段并添加到索引
-            String titlePinyin = PinyinUtil.getPinyin(title);
-            String titleInitial = PinyinUtil.getInitial(title);
-            String contentPinyin = PinyinUtil.getPinyin(content);
-            String contentInitial = PinyinUtil.getInitial(content);
-            
-            jsonMap.put("titlePinyin", titlePinyin);
-            jsonMap.put("titleInitial", titleInitial);
-            jsonMap.put("contentPinyin", contentPinyin);
-            jsonMap.put("contentInitial", contentInitial);
-            
-            // 获取文件名并索引
-            String fileName = "";
-            String fileNamePinyin = "";
-            String fileNameInitial = "";
-            if (knowledgeDTO.getFileId() != null) {
-                try {
-                    com.knowledge.api.dto.FileDTO fileDTO = fileService.getFileById(knowledgeDTO.getFileId());
-                    if (fileDTO != null && fileDTO.getFileName() != null) {
-                        fileName = fileDTO.getFileName();
-                        fileNamePinyin = PinyinUtil.getPinyin(fileName);
-                        fileNameInitial = PinyinUtil.getInitial(fileName);
-                    }
-                } catch (Exception e) {
-                    log.warn("获取文件信息失败: fileId={}, error={}", knowledgeDTO.getFileId(), e.getMessage());
-                }
-            }
-            jsonMap.put("fileName", fileName);
-            jsonMap.put("fileNamePinyin", fileNamePinyin);
-            jsonMap.put("fileNameInitial", fileNameInitial);
-            
-            // 格式化时间
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            if (knowledgeDTO.getCreateTime() != null) {
-                jsonMap.put("createTime", knowledgeDTO.getCreateTime().format(formatter));
-            }
-            if (knowledgeDTO.getUpdateTime() != null) {
-                jsonMap.put("updateTime", knowledgeDTO.getUpdateTime().format(formatter));
-            }
-            
-            // 直接使用 Map，Elasticsearch 会自动转换为 JSON
-            request.source(jsonMap);
+            request.source(knowledgeDocumentBuilder.build(knowledgeDTO));
+            request.setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
             elasticsearchClient.index(request, RequestOptions.DEFAULT);
+            searchResultCache.invalidate();
             
             log.info("成功索引知识到ES: id={}, title={}", knowledgeDTO.getId(), knowledgeDTO.getTitle());
         } catch (Exception e) {
@@ -399,13 +464,51 @@ public class SearchServiceImpl implements SearchService {
     public void deleteIndex(Long knowledgeId) {
         try {
             DeleteRequest request = new DeleteRequest(INDEX_NAME, String.valueOf(knowledgeId));
+            request.setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
             elasticsearchClient.delete(request, RequestOptions.DEFAULT);
+            searchResultCache.invalidate();
             log.info("成功从ES删除索引: id={}", knowledgeId);
         } catch (Exception e) {
             log.error("从ES删除索引失败: id={}", knowledgeId, e);
         }
     }
 
+    /**
+     * 点击量只影响排序和自动补全权重，按脚本部分更新，不重建整篇文档，也不使结果缓存失效（缓存按 TTL 过期）
+     */
+    @Override
+    public void updateClickCounts(Map<Long, Long> clickCounts) {
+        if (clickCounts == null || clickCounts.isEmpty()) {
+            return;
+        }
+        String dualWriteIndex = knowledgeReindexJob.getDualWriteIndex();
+        BulkRequest bulkRequest = new BulkRequest();
+        for (Map.Entry<Long, Long> entry : clickCounts.entrySet()) {
+            Map<String, Object> params = new java.util.HashMap<>();
+            params.put("clickCount", entry.getValue());
+            params.put("weight", (int) Math.min(Math.max(entry.getValue(), 0L), Integer.MAX_VALUE));
+            Script script = new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, CLICK_COUNT_SCRIPT, params);
+            bulkRequest.add(new UpdateRequest(INDEX_NAME, String.valueOf(entry.getKey())).script(script));
+            if (dualWriteIndex != null) {
+                bulkRequest.add(new UpdateRequest(dualWriteIndex, String.valueOf(entry.getKey())).script(script));
+            }
+        }
+        try {
+            BulkResponse response = elasticsearchClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+            int failed = 0;
+            for (BulkItemResponse item : response.getItems()) {
+                // 未索引的知识（文件夹、未审核）没有文档，忽略
+                if (item.isFailed() && item.getFailure().getStatus() != RestStatus.NOT_FOUND) {
+                    failed++;
+                    log.warn("更新索引点击量失败: id={}, error={}", item.getId(), item.getFailureMessage());
+                }
+            }
+            log.debug("更新索引点击量完成: count={}, failed={}", clickCounts.size(), failed);
+        } catch (Exception e) {
+            log.error("批量更新索引点击量失败: count={}", clickCounts.size(), e);
+        }
+    }
+
     @Override
     public void updateIndex(Long knowledgeId) {
         // 更新ES索引
@@ -432,8 +535,14 @@ public class SearchServiceImpl implements SearchService {
             GetIndexRequest getIndexRequest = new GetIndexRequest(INDEX_NAME);
             boolean exists = elasticsearchClient.indices().exists(getIndexRequest, RequestOptions.DEFAULT);
             if (exists) {
-                DeleteIndexRequest deleteRequest = new DeleteIndexRequest(INDEX_NAME);
+                // 别名需要解析为物理索引后删除（兼容旧版直接以 knowledge_index 命名的物理索引）
+                java.util.Set<String> indices = elasticsearchClient.indices()
+                        .getAlias(new GetAliasesRequest(INDEX_NAME), RequestOptions.DEFAULT).getAliases().keySet();
+                DeleteIndexRequest deleteRequest = indices.isEmpty()
+                        ? new DeleteIndexRequest(INDEX_NAME)
+                        : new DeleteIndexRequest(indices.toArray(new String[0]));
                 elasticsearchClient.indices().delete(deleteRequest, RequestOptions.DEFAULT);
+                searchResultCache.invalidate();
                 log.info("成功删除索引: {}", INDEX_NAME);
             } else {
                 log.info("索引 {} 不存在，无需删除", INDEX_NAME);
@@ -460,6 +569,8 @@ public class SearchServiceImpl implements SearchService {
         int failCount = 0;
         
         log.info("开始重建索引，共 {} 条知识", knowledgeList.size());
+        // 预先批量加载文件名，逐条索引时直接命中缓存
+        knowledgeDocumentBuilder.resolveFileNames(knowledgeList);
         
         for (KnowledgeDTO knowledge : knowledgeList) {
             try {
@@ -482,129 +593,169 @@ public class SearchServiceImpl implements SearchService {
         return successCount;
     }
 
+    @Override
+    public ReindexStatusDTO startReindex(boolean resume) {
+        return knowledgeReindexJob.start(resume);
+    }
+
+    @Override
+    public ReindexStatusDTO getReindexStatus() {
+        return knowledgeReindexJob.getStatus();
+    }
+
     @Override
     public SearchSuggestionDTO getSuggestions(String keyword, int limit) {
         if (keyword == null || keyword.trim().isEmpty()) {
-            SearchSuggestionDTO result = new SearchSuggestionDTO();
-            result.setSuggestions(new ArrayList<>());
-            result.setPreviewResults(new ArrayList<>());
-            return result;
+            return emptySuggestions();
+        }
+
+        // 输入框每次按键都会请求，同一前缀的结果短时间内直接复用
+        String prefix = keyword.trim().toLowerCase();
+        int size = Math.max(1, Math.min(limit, MAX_SUGGEST_SIZE));
+        String cacheKey = size + "|" + prefix;
+        long generation = searchResultCache.currentGeneration();
+        if (generation != suggestionGeneration) {
+            suggestionCache.invalidateAll();
+            suggestionGeneration = generation;
+        }
+        SearchSuggestionDTO cached = suggestionCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
         }
 
         try {
             SearchRequest searchRequest = new SearchRequest(INDEX_NAME);
             SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-            
-            // 使用 prefix query 或 match query 来获取建议
-            // 搜索标题、内容、关键词和文件名，支持前缀匹配
-            String searchType = SearchTypeDetector.detectSearchType(keyword);
-            BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
-            
-            if ("PINYIN".equals(searchType)) {
-                boolQuery.should(QueryBuilders.prefixQuery("titlePinyin", keyword.toLowerCase()).boost(3.0f));
-                boolQuery.should(QueryBuilders.prefixQuery("fileNamePinyin", keyword.toLowerCase()).boost(2.5f));
-                boolQuery.should(QueryBuilders.matchQuery("titlePinyin", keyword).boost(2.0f));
-                boolQuery.should(QueryBuilders.matchQuery("keywords", keyword).boost(1.5f));
-            } else if ("INITIAL".equals(searchType)) {
-                boolQuery.should(QueryBuilders.prefixQuery("titleInitial", keyword.toLowerCase()).boost(3.0f));
-                boolQuery.should(QueryBuilders.prefixQuery("fileNameInitial", keyword.toLowerCase()).boost(2.5f));
-                boolQuery.should(QueryBuilders.matchQuery("titleInitial", keyword).boost(2.0f));
-            } else {
-                boolQuery.should(QueryBuilders.prefixQuery("title", keyword.toLowerCase()).boost(3.0f));
-                boolQuery.should(QueryBuilders.prefixQuery("fileName", keyword.toLowerCase()).boost(2.5f));
-                boolQuery.should(QueryBuilders.matchQuery("title", keyword).boost(2.0f));
-                boolQuery.should(QueryBuilders.matchQuery("keywords", keyword).boost(1.5f));
-            }
-            boolQuery.minimumShouldMatch(1);
-            
-            sourceBuilder.query(boolQuery);
-            sourceBuilder.size(limit); // 限制返回数量
-            sourceBuilder.sort("clickCount", SortOrder.DESC); // 按点击量排序
-            
+
+            // 补全字段同时收录标题、文件名及其全拼和首字母，一次 completion 请求即可覆盖三种输入方式，
+            // 按点击量作为权重排序
+            CompletionSuggestionBuilder completion = SuggestBuilders
+                    .completionSuggestion(KnowledgeIndexMapping.SUGGEST_FIELD_NAME)
+                    .prefix(prefix)
+                    .size(size)
+                    .skipDuplicates(true);
+            sourceBuilder.suggest(new SuggestBuilder().addSuggestion(SUGGESTION_NAME, completion));
+            sourceBuilder.size(0);
+            sourceBuilder.fetchSource(SUGGEST_SOURCE_FIELDS, null);
+
             searchRequest.source(sourceBuilder);
-            
+
             SearchResponse response = elasticsearchClient.search(searchRequest, RequestOptions.DEFAULT);
-            
+
             List<String> suggestions = new ArrayList<>();
             List<KnowledgeDTO> previewResults = new ArrayList<>();
-            
-            // 提取建议和预览结果
-            for (SearchHit hit : response.getHits().getHits()) {
-                Map<String, Object> source = hit.getSourceAsMap();
-                String title = (String) source.get("title");
-                String fileName = (String) source.get("fileName");
-                
-                // 添加标题到建议列表
-                if (title != null && !title.isEmpty()) {
-                    if (!suggestions.contains(title)) {
-                        suggestions.add(title);
-                    }
-                }
-                
-                // 添加文件名到建议列表（如果文件名与标题不同）
-                if (fileName != null && !fileName.isEmpty() && !fileName.equals(title)) {
-                    // 去掉文件扩展名，只保留文件名
-                    String fileNameWithoutExt = fileName;
-                    int lastDot = fileName.lastIndexOf('.');
-                    if (lastDot > 0) {
-                        fileNameWithoutExt = fileName.substring(0, lastDot);
-                    }
-                    if (!suggestions.contains(fileNameWithoutExt) && !suggestions.contains(fileName)) {
-                        suggestions.add(fileNameWithoutExt);
+
+            CompletionSuggestion suggestion = response.getSuggest() != null
+                    ? response.getSuggest().getSuggestion(SUGGESTION_NAME) : null;
+            if (suggestion != null) {
+                for (CompletionSuggestion.Entry.Option option : suggestion.getOptions()) {
+                    SearchHit hit = option.getHit();
+                    if (hit != null && hit.getSourceAsMap() != null) {
+                        addSuggestion(hit.getSourceAsMap(), suggestions, previewResults);
                     }
                 }
-                
-                // 添加到预览结果
-                KnowledgeDTO dto = new KnowledgeDTO();
-                dto.setId(Long.valueOf(source.get("id").toString()));
-                dto.setTitle(title);
-                dto.setContent((String) source.get("content"));
-                dto.setCategory((String) source.get("category"));
-                dto.setKeywords((String) source.get("keywords"));
-                dto.setClickCount(Long.valueOf(source.get("clickCount").toString()));
-                previewResults.add(dto);
             }
-            
-            // 如果结果不够，尝试从关键词中提取建议
-            if (suggestions.size() < limit) {
-                SearchRequest keywordRequest = new SearchRequest(INDEX_NAME);
-                SearchSourceBuilder keywordBuilder = new SearchSourceBuilder();
-                keywordBuilder.query(QueryBuilders.wildcardQuery("keywords", "*" + keyword + "*"));
-                keywordBuilder.size(limit - suggestions.size());
-                keywordRequest.source(keywordBuilder);
-                
-                try {
-                    SearchResponse keywordResponse = elasticsearchClient.search(keywordRequest, RequestOptions.DEFAULT);
-                    for (SearchHit hit : keywordResponse.getHits().getHits()) {
-                        Map<String, Object> source = hit.getSourceAsMap();
-                        String keywords = (String) source.get("keywords");
-                        if (keywords != null && !keywords.isEmpty()) {
-                            // 从关键词中提取包含搜索词的片段
-                            String[] keywordArray = keywords.split("[，,、\\s]+");
-                            for (String kw : keywordArray) {
-                                if (kw.contains(keyword) && !suggestions.contains(kw) && suggestions.size() < limit) {
-                                    suggestions.add(kw);
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    log.debug("从关键词获取建议失败", e);
+
+            // completion 只匹配标题、文件名的开头，且尚未重建索引的文档没有补全字段：
+            // 结果不足时用词项匹配补齐，标题中间出现的词（如“数据库”命中“MySQL数据库优化”）也能给出建议
+            if (previewResults.size() < size) {
+                for (SearchHit hit : searchSuggestionFallback(keyword.trim(), size, previewResults)) {
+                    addSuggestion(hit.getSourceAsMap(), suggestions, previewResults);
                 }
             }
-            
+
             SearchSuggestionDTO result = new SearchSuggestionDTO();
             result.setSuggestions(suggestions);
             result.setPreviewResults(previewResults);
+            suggestionCache.put(cacheKey, result);
             return result;
-            
+
         } catch (Exception e) {
             log.error("获取搜索建议失败", e);
-            SearchSuggestionDTO result = new SearchSuggestionDTO();
-            result.setSuggestions(new ArrayList<>());
-            result.setPreviewResults(new ArrayList<>());
-            return result;
+            return emptySuggestions();
+        }
+    }
+
+    /**
+     * 补全建议的回退查询：按输入类型对标题、文件名（或其拼音、首字母）做前缀和分词匹配，
+     * 排除 completion 已返回的文档，按点击量排序
+     */
+    private SearchHit[] searchSuggestionFallback(String keyword, int size, List<KnowledgeDTO> found) throws java.io.IOException {
+        String searchType = SearchTypeDetector.detectSearchType(keyword);
+        String lower = keyword.toLowerCase();
+        BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
+        if ("PINYIN".equals(searchType)) {
+            boolQuery.should(QueryBuilders.prefixQuery("titlePinyin", lower).boost(3.0f));
+            boolQuery.should(QueryBuilders.prefixQuery("fileNamePinyin", lower).boost(2.5f));
+            boolQuery.should(QueryBuilders.matchQuery("titlePinyin", keyword).boost(2.0f));
+            boolQuery.should(QueryBuilders.matchQuery("keywords", keyword).boost(1.5f));
+        } else if ("INITIAL".equals(searchType)) {
+            boolQuery.should(QueryBuilders.prefixQuery("titleInitial", lower).boost(3.0f));
+            boolQuery.should(QueryBuilders.prefixQuery("fileNameInitial", lower).boost(2.5f));
+            boolQuery.should(QueryBuilders.matchQuery("titleInitial", keyword).boost(2.0f));
+        } else {
+            boolQuery.should(QueryBuilders.prefixQuery("title", lower).boost(3.0f));
+            boolQuery.should(QueryBuilders.prefixQuery("fileName", lower).boost(2.5f));
+            boolQuery.should(QueryBuilders.matchQuery("title", keyword).boost(2.0f));
+            boolQuery.should(QueryBuilders.matchQuery("keywords", keyword).boost(1.5f));
+        }
+        boolQuery.minimumShouldMatch(1);
+        if (!found.isEmpty()) {
+            String[] ids = found.stream().map(dto -> String.valueOf(dto.getId())).toArray(String[]::new);
+            boolQuery.mustNot(QueryBuilders.idsQuery().addIds(ids));
+        }
+
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.query(boolQuery);
+        sourceBuilder.size(size - found.size());
+        sourceBuilder.sort("clickCount", SortOrder.DESC);
+        sourceBuilder.fetchSource(SUGGEST_SOURCE_FIELDS, null);
+        SearchResponse response = elasticsearchClient.search(new SearchRequest(INDEX_NAME).source(sourceBuilder),
+                RequestOptions.DEFAULT);
+        return response.getHits().getHits();
+    }
+
+    /**
+     * 把一个文档的标题、文件名（去扩展名）加入建议列表，并加入预览结果
+     */
+    private void addSuggestion(Map<String, Object> source, List<String> suggestions, List<KnowledgeDTO> previewResults) {
+        String title = (String) source.get("title");
+        String fileName = (String) source.get("fileName");
+
+        // 添加标题到建议列表
+        if (title != null && !title.isEmpty() && !suggestions.contains(title)) {
+            suggestions.add(title);
+        }
+
+        // 添加文件名到建议列表（如果文件名与标题不同）
+        if (fileName != null && !fileName.isEmpty() && !fileName.equals(title)) {
+            // 去掉文件扩展名，只保留文件名
+            String fileNameWithoutExt = fileName;
+            int lastDot = fileName.lastIndexOf('.');
+            if (lastDot > 0) {
+                fileNameWithoutExt = fileName.substring(0, lastDot);
+            }
+            if (!suggestions.contains(fileNameWithoutExt) && !suggestions.contains(fileName)) {
+                suggestions.add(fileNameWithoutExt);
+            }
         }
+
+        // 添加到预览结果
+        KnowledgeDTO dto = new KnowledgeDTO();
+        dto.setId(Long.valueOf(source.get("id").toString()));
+        dto.setTitle(title);
+        dto.setCategory((String) source.get("category"));
+        dto.setKeywords((String) source.get("keywords"));
+        Object clickCount = source.get("clickCount");
+        dto.setClickCount(clickCount != null ? Long.valueOf(clickCount.toString()) : 0L);
+        previewResults.add(dto);
+    }
+
+    private SearchSuggestionDTO emptySuggestions() {
+        SearchSuggestionDTO result = new SearchSuggestionDTO();
+        result.setSuggestions(new ArrayList<>());
+        result.setPreviewResults(new ArrayList<>());
+        return result;
     }
 
     /**
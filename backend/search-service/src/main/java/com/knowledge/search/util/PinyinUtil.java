@@ -8,14 +8,53 @@ import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombi
 
 /**
  * 拼音工具类
+ * 常用汉字区间（U+4E00 ~ U+9FA5）的拼音和首字母在首次使用时一次性生成查找表，
+ * 之后每个字符只需一次范围判断和数组访问
  */
 public class PinyinUtil {
 
-    private static final HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
+    private static final char CJK_START = '\u4E00';
+    private static final char CJK_END = '\u9FA5';
 
-    static {
-        format.setCaseType(HanyuPinyinCaseType.LOWERCASE);
-        format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+    /**
+     * 复用的 StringBuilder 超过该容量时不再缓存，避免长期占用大块内存
+     */
+    private static final int MAX_CACHED_BUILDER_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * 查找表，按需初始化（类加载即线程安全）
+     */
+    private static final class Table {
+        /**
+         * 每个汉字的拼音（小写、无声调），没有拼音时为 null
+         */
+        static final String[] PINYIN = new String[CJK_END - CJK_START + 1];
+
+        /**
+         * 每个汉字拼音的首字母，没有拼音时为 0
+         */
+        static final char[] INITIAL = new char[CJK_END - CJK_START + 1];
+
+        static {
+            HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
+            format.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+            format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+            for (char c = CJK_START; c <= CJK_END; c++) {
+                int index = c - CJK_START;
+                try {
+                    String[] pinyinArray = PinyinHelper.toHanyuPinyinStringArray(c, format);
+                    if (pinyinArray != null && pinyinArray.length > 0) {
+                        PINYIN[index] = pinyinArray[0].intern();
+                        INITIAL[index] = pinyinArray[0].charAt(0);
+                    }
+                } catch (BadHanyuPinyinOutputFormatCombination e) {
+                    // 转换失败，保留原字符
+                    PINYIN[index] = String.valueOf(c);
+                }
+            }
+        }
     }
 
     /**
@@ -24,35 +63,43 @@ public class PinyinUtil {
      * @return 拼音字符串，多个字用空格分隔
      */
     public static String getPinyin(String text) {
+        return getPinyin(text, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取字符串的拼音（全拼），只处理前 maxLength 个字符
+     * @param text 输入文本
+     * @param maxLength 最多处理的字符数，用于正文等长文本
+     * @return 拼音字符串，多个字用空格分隔
+     */
+    public static String getPinyin(String text, int maxLength) {
         if (text == null || text.isEmpty()) {
             return "";
         }
 
-        StringBuilder pinyin = new StringBuilder();
-        char[] chars = text.toCharArray();
-
-        for (char c : chars) {
-            if (Character.toString(c).matches("[\\u4E00-\\u9FA5]+")) {
-                // 中文字符
-                try {
-                    String[] pinyinArray = PinyinHelper.toHanyuPinyinStringArray(c, format);
-                    if (pinyinArray != null && pinyinArray.length > 0) {
-                        pinyin.append(pinyinArray[0]).append(" ");
+        int length = Math.min(text.length(), maxLength);
+        StringBuilder pinyin = borrowBuilder();
+        try {
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c >= CJK_START && c <= CJK_END) {
+                    // 中文字符
+                    String value = Table.PINYIN[c - CJK_START];
+                    if (value != null) {
+                        pinyin.append(value).append(' ');
                     }
-                } catch (BadHanyuPinyinOutputFormatCombination e) {
-                    // 转换失败，保留原字符
-                    pinyin.append(c).append(" ");
+                } else if (Character.isLetterOrDigit(c)) {
+                    // 英文字母或数字，转换为小写
+                    pinyin.append(Character.toLowerCase(c)).append(' ');
+                } else {
+                    // 其他字符，保留原样
+                    pinyin.append(c).append(' ');
                 }
-            } else if (Character.isLetterOrDigit(c)) {
-                // 英文字母或数字，转换为小写
-                pinyin.append(Character.toLowerCase(c)).append(" ");
-            } else {
-                // 其他字符，保留原样
-                pinyin.append(c).append(" ");
             }
+            return trim(pinyin);
+        } finally {
+            releaseBuilder(pinyin);
         }
-
-        return pinyin.toString().trim();
     }
 
     /**
@@ -61,35 +108,70 @@ public class PinyinUtil {
      * @return 首字母字符串
      */
     public static String getInitial(String text) {
+        return getInitial(text, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取字符串的首字母，只处理前 maxLength 个字符
+     * @param text 输入文本
+     * @param maxLength 最多处理的字符数，用于正文等长文本
+     * @return 首字母字符串
+     */
+    public static String getInitial(String text, int maxLength) {
         if (text == null || text.isEmpty()) {
             return "";
         }
 
-        StringBuilder initial = new StringBuilder();
-        char[] chars = text.toCharArray();
-
-        for (char c : chars) {
-            if (Character.toString(c).matches("[\\u4E00-\\u9FA5]+")) {
-                // 中文字符
-                try {
-                    String[] pinyinArray = PinyinHelper.toHanyuPinyinStringArray(c, format);
-                    if (pinyinArray != null && pinyinArray.length > 0) {
-                        initial.append(pinyinArray[0].charAt(0));
+        int length = Math.min(text.length(), maxLength);
+        StringBuilder initial = borrowBuilder();
+        try {
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c >= CJK_START && c <= CJK_END) {
+                    // 中文字符
+                    char value = Table.INITIAL[c - CJK_START];
+                    if (value != 0) {
+                        initial.append(value);
                     }
-                } catch (BadHanyuPinyinOutputFormatCombination e) {
-                    // 转换失败，跳过
+                } else if (Character.isLetter(c)) {
+                    // 英文字母，取首字母
+                    initial.append(Character.toLowerCase(c));
+                } else if (Character.isDigit(c)) {
+                    // 数字，保留
+                    initial.append(c);
                 }
-            } else if (Character.isLetter(c)) {
-                // 英文字母，取首字母
-                initial.append(Character.toLowerCase(c));
-            } else if (Character.isDigit(c)) {
-                // 数字，保留
-                initial.append(c);
+                // 其他字符跳过
             }
-            // 其他字符跳过
+            return initial.toString();
+        } finally {
+            releaseBuilder(initial);
         }
+    }
 
-        return initial.toString();
+    private static StringBuilder borrowBuilder() {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    private static void releaseBuilder(StringBuilder builder) {
+        if (builder.capacity() > MAX_CACHED_BUILDER_CAPACITY) {
+            BUILDER.remove();
+        }
     }
-}
 
+    /**
+     * 等价于 toString().trim()，但只复制一次
+     */
+    private static String trim(StringBuilder builder) {
+        int start = 0;
+        int end = builder.length();
+        while (start < end && builder.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && builder.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return builder.substring(start, end);
+    }
+}
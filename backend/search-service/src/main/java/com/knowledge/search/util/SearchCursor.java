@@ -0,0 +1,79 @@
+package com.knowledge.search.util;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 搜索游标
+ * 把 point-in-time ID 与上一页最后一条结果的排序值编码为不透明字符串，供下一页 search_after 使用
+ */
+public class SearchCursor {
+
+    private final String pitId;
+    private final Object[] sortValues;
+
+    public SearchCursor(String pitId, Object[] sortValues) {
+        this.pitId = pitId;
+        this.sortValues = sortValues;
+    }
+
+    public String getPitId() {
+        return pitId;
+    }
+
+    public Object[] getSortValues() {
+        return sortValues;
+    }
+
+    public String encode() {
+        JSONObject json = new JSONObject();
+        json.put("pit", pitId);
+        json.put("after", sortValues);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(json.toJSONString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static SearchCursor decode(String cursor) {
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            JSONObject json = JSON.parseObject(text);
+            String pitId = json.getString("pit");
+            JSONArray after = json.getJSONArray("after");
+            if (pitId == null || after == null) {
+                throw new IllegalArgumentException("游标缺少必要字段");
+            }
+            Object[] sortValues = new Object[after.size()];
+            for (int i = 0; i < after.size(); i++) {
+                sortValues[i] = normalize(after.get(i));
+            }
+            return new SearchCursor(pitId, sortValues);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的搜索游标", e);
+        }
+    }
+
+    /**
+     * JSON 反序列化得到的数值类型统一为 long / double，与 Elasticsearch 返回的排序值类型一致
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof BigInteger) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof BigDecimal || value instanceof Float || value instanceof Double) {
+            return ((Number) value).doubleValue();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,119 @@
+package com.knowledge.search.util;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 查找表与逐字调用 pinyin4j 的结果一致：覆盖 U+4E00 ~ U+9FA5 的每个字符、区间边界外的字符、
+ * 混合文本以及 maxLength 截断
+ */
+class PinyinUtilTest {
+
+    private static final char CJK_START = '\u4E00';
+    private static final char CJK_END = '\u9FA5';
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+    }
+
+    @Test
+    void everyCjkCharacterMatchesPinyin4j() {
+        for (char c = CJK_START; c <= CJK_END; c++) {
+            String text = String.valueOf(c);
+            assertEquals(referencePinyin(text), PinyinUtil.getPinyin(text), () -> "pinyin of U+" + hex(text));
+            assertEquals(referenceInitial(text), PinyinUtil.getInitial(text), () -> "initial of U+" + hex(text));
+        }
+    }
+
+    @Test
+    void wholeRangeAsOneTextMatchesPinyin4j() {
+        StringBuilder sb = new StringBuilder();
+        for (char c = CJK_START; c <= CJK_END; c++) {
+            sb.append(c);
+        }
+        String text = sb.toString();
+        assertEquals(referencePinyin(text), PinyinUtil.getPinyin(text));
+        assertEquals(referenceInitial(text), PinyinUtil.getInitial(text));
+    }
+
+    @Test
+    void charactersOutsideTheTableMatchPinyin4jPath() {
+        String[] samples = {
+                "\u4DFF", "\u9FA6", "\u9FFF", "\u3007", "\uF900", "\uFF21",
+                "MySQL数据库优化", "  Spring Boot 2.7 入门指南.pdf ", "重庆、长沙和厦门",
+                "ÀÉÎ ñ ß", "第1章：概述（草稿）", "", " ", "\t单\n行\r"
+        };
+        for (String text : samples) {
+            assertEquals(referencePinyin(text), PinyinUtil.getPinyin(text), () -> "pinyin of \"" + text + "\"");
+            assertEquals(referenceInitial(text), PinyinUtil.getInitial(text), () -> "initial of \"" + text + "\"");
+        }
+    }
+
+    @Test
+    void maxLengthOnlyConvertsThePrefix() {
+        String text = "知识库管理系统 Knowledge Base 2024";
+        for (int n = 0; n <= text.length() + 1; n++) {
+            String prefix = text.substring(0, Math.min(n, text.length()));
+            assertEquals(referencePinyin(prefix), PinyinUtil.getPinyin(text, n));
+            assertEquals(referenceInitial(prefix), PinyinUtil.getInitial(text, n));
+        }
+    }
+
+    /**
+     * 查找表引入前的实现：每个字符直接调用 pinyin4j
+     */
+    private static String referencePinyin(String text) {
+        StringBuilder pinyin = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c >= CJK_START && c <= CJK_END) {
+                try {
+                    String[] pinyinArray = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+                    if (pinyinArray != null && pinyinArray.length > 0) {
+                        pinyin.append(pinyinArray[0]).append(" ");
+                    }
+                } catch (BadHanyuPinyinOutputFormatCombination e) {
+                    pinyin.append(c).append(" ");
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                pinyin.append(Character.toLowerCase(c)).append(" ");
+            } else {
+                pinyin.append(c).append(" ");
+            }
+        }
+        return pinyin.toString().trim();
+    }
+
+    private static String referenceInitial(String text) {
+        StringBuilder initial = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c >= CJK_START && c <= CJK_END) {
+                try {
+                    String[] pinyinArray = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+                    if (pinyinArray != null && pinyinArray.length > 0) {
+                        initial.append(pinyinArray[0].charAt(0));
+                    }
+                } catch (BadHanyuPinyinOutputFormatCombination e) {
+                    // 转换失败，跳过
+                }
+            } else if (Character.isLetter(c)) {
+                initial.append(Character.toLowerCase(c));
+            } else if (Character.isDigit(c)) {
+                initial.append(c);
+            }
+        }
+        return initial.toString();
+    }
+
+    private static String hex(String text) {
+        return Integer.toHexString(text.charAt(0)).toUpperCase();
+    }
+}
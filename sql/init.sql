@@ -78,7 +78,7 @@ CREATE TABLE IF NOT EXISTS `knowledge` (
     `department` VARCHAR(100) COMMENT '部门',
     `file_id` BIGINT COMMENT '关联文件ID',
     `status` VARCHAR(20) DEFAULT 'DRAFT' COMMENT '状态',
-    `click_count` BIGINT DEFAULT 0 COMMENT '点击次数',
+    `click_count` BIGINT NOT NULL DEFAULT 0 COMMENT '点击次数',
     `collect_count` BIGINT DEFAULT 0 COMMENT '收藏次数',
     `version` BIGINT DEFAULT 1 COMMENT '版本号（最新版本）',
     `published_version` BIGINT DEFAULT NULL COMMENT '已发布的版本号（用户查看的版本）',
@@ -87,6 +87,8 @@ CREATE TABLE IF NOT EXISTS `knowledge` (
     `current_commit_hash` VARCHAR(64) COMMENT '当前Commit Hash',
     `parent_id` BIGINT COMMENT '父节点ID（用于知识树结构）',
     `sort_order` INT DEFAULT 0 COMMENT '排序',
+    `tree_path` VARCHAR(1000) CHARACTER SET ascii COMMENT '物化路径：/根ID/.../自身ID/',
+    `deleted` TINYINT NOT NULL DEFAULT 0 COMMENT '是否已删除（软删除，等待后台回收）',
     `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP,
     `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     `create_by` VARCHAR(50),
@@ -97,6 +99,7 @@ CREATE TABLE IF NOT EXISTS `knowledge` (
     INDEX `idx_file_id` (`file_id`),
     INDEX `idx_parent_id` (`parent_id`),
     INDEX `idx_parent_sort` (`parent_id`, `sort_order`),
+    INDEX `idx_tree_path` (`tree_path`),
     INDEX `idx_published_version` (`published_version`),
     INDEX `idx_has_draft` (`has_draft`),
     FULLTEXT INDEX `ft_content_text` (`content_text`) WITH PARSER ngram COMMENT '全文索引（MySQL ngram分词）'
@@ -129,7 +132,9 @@ CREATE TABLE IF NOT EXISTS `knowledge_version` (
     `parent_commit_id` BIGINT COMMENT '父Commit ID（用于形成commit树）',
     `commit_message` VARCHAR(500) COMMENT 'Commit消息（变更说明）',
     `title` VARCHAR(255) COMMENT '标题',
-    `content` TEXT COMMENT '内容',
+    `content` TEXT COMMENT '内容（差量版本为空）',
+    `content_delta` MEDIUMBLOB COMMENT '正文相对基准快照的压缩行级差量',
+    `delta_base_id` BIGINT COMMENT '差量的基准快照版本ID，为空表示完整快照',
     `summary` VARCHAR(500) COMMENT '摘要',
     `category` VARCHAR(100) COMMENT '分类',
     `keywords` VARCHAR(500) COMMENT '关键词',
@@ -150,7 +155,9 @@ CREATE TABLE IF NOT EXISTS `knowledge_version` (
     INDEX `idx_branch` (`knowledge_id`, `branch`),
     INDEX `idx_parent_commit` (`parent_commit_id`),
     INDEX `idx_is_published` (`knowledge_id`, `is_published`),
-    INDEX `idx_base_version` (`knowledge_id`, `base_version`)
+    INDEX `idx_base_version` (`knowledge_id`, `base_version`),
+    INDEX `idx_delta_base` (`delta_base_id`),
+    INDEX `idx_knowledge_time` (`knowledge_id`, `create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识版本历史表';
 
 
@@ -256,5 +263,62 @@ CREATE TABLE IF NOT EXISTS `user_point_log` (
     INDEX `idx_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户积分日志表';
 
+-- 搜索索引发件箱表（知识写操作同事务写入，由 search-service 批量同步到 Elasticsearch）
+CREATE TABLE IF NOT EXISTS `search_index_outbox` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `knowledge_id` BIGINT NOT NULL COMMENT '知识ID',
+    `op` VARCHAR(16) NOT NULL COMMENT '操作类型：UPSERT, DELETE',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '已失败的同步次数',
+    `next_attempt_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '下次可同步时间（失败后退避）',
+    `last_error` VARCHAR(500) COMMENT '最近一次失败原因',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX `idx_next_attempt` (`attempts`, `next_attempt_time`),
+    INDEX `idx_knowledge_id` (`knowledge_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='搜索索引发件箱表';
+
+CREATE TABLE IF NOT EXISTS `knowledge_stat_counter` (
+    `stat_scope` VARCHAR(16) NOT NULL COMMENT '统计范围：TOTAL, CATEGORY',
+    `stat_key` VARCHAR(100) NOT NULL DEFAULT '' COMMENT '范围内的键：TOTAL 为空串，CATEGORY 为分类名',
+    `knowledge_count` BIGINT NOT NULL DEFAULT 0 COMMENT '知识数量',
+    `click_count` BIGINT NOT NULL DEFAULT 0 COMMENT '点击量',
+    `collect_count` BIGINT NOT NULL DEFAULT 0 COMMENT '收藏量',
+    `pending_count` BIGINT NOT NULL DEFAULT 0 COMMENT '待审核数量（仅 TOTAL）',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`stat_scope`, `stat_key`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识统计计数表（增量维护，定期对账）';
+
+CREATE TABLE IF NOT EXISTS `knowledge_event_log` (
+    `id` BIGINT AUTO_INCREMENT COMMENT '主键',
+    `event_date` DATE NOT NULL COMMENT '事件日期（分区键）',
+    `knowledge_id` BIGINT NOT NULL COMMENT '知识ID',
+    `event_type` VARCHAR(16) NOT NULL COMMENT '事件类型：CLICK, COLLECT, UNCOLLECT',
+    `event_count` INT NOT NULL DEFAULT 1 COMMENT '缓冲期间合并的事件数',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '写入时间',
+    PRIMARY KEY (`id`, `event_date`),
+    INDEX `idx_date_knowledge` (`event_date`, `knowledge_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识点击/收藏事件日志（只追加，按天分区）'
+PARTITION BY RANGE COLUMNS (`event_date`) (
+    PARTITION `p_future` VALUES LESS THAN (MAXVALUE)
+);
+
+CREATE TABLE IF NOT EXISTS `knowledge_daily_stat` (
+    `stat_date` DATE NOT NULL COMMENT '统计日期',
+    `knowledge_id` BIGINT NOT NULL COMMENT '知识ID',
+    `click_count` BIGINT NOT NULL DEFAULT 0 COMMENT '当日点击数',
+    `collect_count` BIGINT NOT NULL DEFAULT 0 COMMENT '当日收藏数',
+    `uncollect_count` BIGINT NOT NULL DEFAULT 0 COMMENT '当日取消收藏数',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`stat_date`, `knowledge_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识每日统计（由事件日志汇总）';
+
+CREATE TABLE IF NOT EXISTS `knowledge_reclaim_task` (
+    `knowledge_id` BIGINT NOT NULL PRIMARY KEY COMMENT '已软删除的知识ID',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '已失败的回收次数',
+    `next_attempt_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '下次可回收时间（失败后退避）',
+    `last_error` VARCHAR(500) COMMENT '最近一次失败原因',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX `idx_next_attempt` (`attempts`, `next_attempt_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识回收任务表';
+
 -- 注意：此脚本仅创建表结构，不插入任何测试数据
 -- 如需测试数据，请使用 test_data.sql 脚本
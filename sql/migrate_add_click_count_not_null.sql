@@ -0,0 +1,13 @@
+-- 数据库迁移脚本：点击次数非空
+-- 列表按 (click_count, id) 做游标分页，游标把 NULL 点击数视为 0，而 SQL 比较永远不会命中 NULL 行；
+-- 回填为 0 并加上 NOT NULL 约束后两者一致，谓词仍可直接使用 idx_click_count
+-- 执行时间：可在应用运行时执行（新插入的知识不写该列，使用默认值 0）
+
+USE knowledge_db;
+
+UPDATE `knowledge` SET `click_count` = 0 WHERE `click_count` IS NULL;
+
+ALTER TABLE `knowledge`
+MODIFY COLUMN `click_count` BIGINT NOT NULL DEFAULT 0 COMMENT '点击次数';
+
+SELECT '迁移完成！' AS message;
@@ -0,0 +1,31 @@
+-- 迁移脚本：添加知识事件日志与每日统计表
+-- 点击/收藏事件缓冲后批量追加到按天分区的事件日志，定时汇总为每日统计，趋势图只读取汇总表
+-- 每日分区由 knowledge-service 定时任务从 p_future 中拆分创建，并按保留天数删除过期分区
+
+USE knowledge_db;
+
+CREATE TABLE IF NOT EXISTS `knowledge_event_log` (
+    `id` BIGINT AUTO_INCREMENT COMMENT '主键',
+    `event_date` DATE NOT NULL COMMENT '事件日期（分区键）',
+    `knowledge_id` BIGINT NOT NULL COMMENT '知识ID',
+    `event_type` VARCHAR(16) NOT NULL COMMENT '事件类型：CLICK, COLLECT, UNCOLLECT',
+    `event_count` INT NOT NULL DEFAULT 1 COMMENT '缓冲期间合并的事件数',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '写入时间',
+    PRIMARY KEY (`id`, `event_date`),
+    INDEX `idx_date_knowledge` (`event_date`, `knowledge_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识点击/收藏事件日志（只追加，按天分区）'
+PARTITION BY RANGE COLUMNS (`event_date`) (
+    PARTITION `p_future` VALUES LESS THAN (MAXVALUE)
+);
+
+CREATE TABLE IF NOT EXISTS `knowledge_daily_stat` (
+    `stat_date` DATE NOT NULL COMMENT '统计日期',
+    `knowledge_id` BIGINT NOT NULL COMMENT '知识ID',
+    `click_count` BIGINT NOT NULL DEFAULT 0 COMMENT '当日点击数',
+    `collect_count` BIGINT NOT NULL DEFAULT 0 COMMENT '当日收藏数',
+    `uncollect_count` BIGINT NOT NULL DEFAULT 0 COMMENT '当日取消收藏数',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`stat_date`, `knowledge_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识每日统计（由事件日志汇总）';
+
+SELECT '迁移完成！' AS message;
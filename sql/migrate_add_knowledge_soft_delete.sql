@@ -0,0 +1,22 @@
+-- 数据库迁移脚本：知识软删除与后台回收
+-- deleteKnowledge 只把整棵子树标记为已删除并写入回收任务，
+-- 审核记录、评论、关联关系、版本历史和无引用文件由后台任务批量清理
+-- 执行时间：请在应用停止时执行，避免数据不一致
+
+USE knowledge_db;
+
+-- 添加字段（如果字段已存在，此语句会报错，可以忽略）
+ALTER TABLE `knowledge`
+ADD COLUMN `deleted` TINYINT NOT NULL DEFAULT 0 COMMENT '是否已删除（软删除，等待后台回收）'
+AFTER `tree_path`;
+
+CREATE TABLE IF NOT EXISTS `knowledge_reclaim_task` (
+    `knowledge_id` BIGINT NOT NULL PRIMARY KEY COMMENT '已软删除的知识ID',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '已失败的回收次数',
+    `next_attempt_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '下次可回收时间（失败后退避）',
+    `last_error` VARCHAR(500) COMMENT '最近一次失败原因',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX `idx_next_attempt` (`attempts`, `next_attempt_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识回收任务表';
+
+SELECT '迁移完成！' AS message;
@@ -0,0 +1,17 @@
+-- 迁移脚本：添加知识统计计数表
+-- 总数与分类统计随写操作增量更新，定期与 knowledge 表对账，统计页只需按主键读取
+
+USE knowledge_db;
+
+CREATE TABLE IF NOT EXISTS `knowledge_stat_counter` (
+    `stat_scope` VARCHAR(16) NOT NULL COMMENT '统计范围：TOTAL, CATEGORY',
+    `stat_key` VARCHAR(100) NOT NULL DEFAULT '' COMMENT '范围内的键：TOTAL 为空串，CATEGORY 为分类名',
+    `knowledge_count` BIGINT NOT NULL DEFAULT 0 COMMENT '知识数量',
+    `click_count` BIGINT NOT NULL DEFAULT 0 COMMENT '点击量',
+    `collect_count` BIGINT NOT NULL DEFAULT 0 COMMENT '收藏量',
+    `pending_count` BIGINT NOT NULL DEFAULT 0 COMMENT '待审核数量（仅 TOTAL）',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`stat_scope`, `stat_key`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识统计计数表（增量维护，定期对账）';
+
+SELECT '迁移完成！' AS message;
@@ -0,0 +1,18 @@
+-- 迁移脚本：添加搜索索引发件箱表（Transactional Outbox）
+-- 知识写操作在同一事务内写入发件箱，由 search-service 异步批量同步到 Elasticsearch
+
+USE knowledge_db;
+
+CREATE TABLE IF NOT EXISTS `search_index_outbox` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `knowledge_id` BIGINT NOT NULL COMMENT '知识ID',
+    `op` VARCHAR(16) NOT NULL COMMENT '操作类型：UPSERT, DELETE',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '已失败的同步次数',
+    `next_attempt_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '下次可同步时间（失败后退避）',
+    `last_error` VARCHAR(500) COMMENT '最近一次失败原因',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX `idx_next_attempt` (`attempts`, `next_attempt_time`),
+    INDEX `idx_knowledge_id` (`knowledge_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='搜索索引发件箱表';
+
+SELECT '迁移完成！' AS message;
@@ -0,0 +1,33 @@
+-- 数据库迁移脚本：添加 tree_path 物化路径字段
+-- 格式为 /根ID/.../自身ID/，用于祖先路径、子树查询、移动时的环检测和整棵子树移动
+-- 执行时间：请在应用停止时执行，避免数据不一致
+
+USE knowledge_db;
+
+-- 添加字段（如果字段已存在，此语句会报错，可以忽略）
+ALTER TABLE `knowledge`
+ADD COLUMN `tree_path` VARCHAR(1000) CHARACTER SET ascii COMMENT '物化路径：/根ID/.../自身ID/'
+AFTER `sort_order`;
+
+-- 前缀查询（LIKE '/1/5/%'）使用的索引（如果索引已存在，此语句会报错，可以忽略）
+ALTER TABLE `knowledge`
+ADD INDEX `idx_tree_path` (`tree_path`);
+
+-- 回填：从顶级节点开始递归拼接路径（MySQL 8.0+）
+UPDATE `knowledge` k
+JOIN (
+    WITH RECURSIVE t AS (
+        SELECT id, CAST(CONCAT('/', id, '/') AS CHAR(1000)) AS path
+        FROM `knowledge` WHERE parent_id IS NULL
+        UNION ALL
+        SELECT c.id, CONCAT(t.path, c.id, '/')
+        FROM `knowledge` c JOIN t ON c.parent_id = t.id
+    )
+    SELECT id, path FROM t
+) p ON k.id = p.id
+SET k.tree_path = p.path;
+
+-- 父节点已不存在的孤儿节点按顶级节点处理
+UPDATE `knowledge` SET tree_path = CONCAT('/', id, '/') WHERE tree_path IS NULL;
+
+SELECT '迁移完成！' AS message;
@@ -0,0 +1,24 @@
+-- 数据库迁移脚本：知识版本正文改为定期快照 + 压缩行级差量存储
+-- delta_base_id 为空的行是完整快照（content 保存全文）；否则 content 为空，content_delta 保存相对该快照的差量
+-- 执行时间：可在应用运行时执行，新增列对现有数据没有影响（现有行均视为完整快照）
+
+USE knowledge_db;
+
+-- 添加字段（如果字段已存在，此语句会报错，可以忽略）
+ALTER TABLE `knowledge_version`
+ADD COLUMN `content_delta` MEDIUMBLOB COMMENT '正文相对基准快照的压缩行级差量' AFTER `content`,
+ADD COLUMN `delta_base_id` BIGINT COMMENT '差量的基准快照版本ID，为空表示完整快照' AFTER `content_delta`;
+
+-- 查找以某个快照为基准的差量版本（如果索引已存在，此语句会报错，可以忽略）
+ALTER TABLE `knowledge_version`
+ADD INDEX `idx_delta_base` (`delta_base_id`);
+
+ALTER TABLE `knowledge_version`
+MODIFY COLUMN `content` TEXT COMMENT '内容（差量版本为空）';
+
+-- 存量历史的改写由应用完成（需要逐行计算差量）：
+--   POST /api/knowledge/versions/storage/rewrite 提交任务
+--   GET  /api/knowledge/versions/storage/rewrite/status 查询进度
+-- 任务完成后可执行 OPTIMIZE TABLE `knowledge_version`; 回收表空间
+
+SELECT '迁移完成！' AS message;
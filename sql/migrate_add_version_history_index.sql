@@ -0,0 +1,11 @@
+-- 数据库迁移脚本：版本历史分页索引
+-- 版本历史侧栏按知识ID过滤、按创建时间倒序分页，(knowledge_id, create_time) 索引可直接按序读取一页
+-- 执行时间：可在应用运行时执行
+
+USE knowledge_db;
+
+-- 添加索引（如果索引已存在，此语句会报错，可以忽略）
+ALTER TABLE `knowledge_version`
+ADD INDEX `idx_knowledge_time` (`knowledge_id`, `create_time`);
+
+SELECT '迁移完成！' AS message;